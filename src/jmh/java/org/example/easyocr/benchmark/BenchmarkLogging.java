@@ -0,0 +1,20 @@
+package org.example.easyocr.benchmark;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The measured code logs on every call; printing those lines would dominate the results.
+ */
+final class BenchmarkLogging {
+
+    // Loggers are only weakly referenced by the LogManager, a level set on a collected one is lost
+    private static final Logger APPLICATION_LOGGER = Logger.getLogger("org.example.easyocr");
+
+    private BenchmarkLogging() {
+    }
+
+    static void silence() {
+        APPLICATION_LOGGER.setLevel(Level.OFF);
+    }
+}
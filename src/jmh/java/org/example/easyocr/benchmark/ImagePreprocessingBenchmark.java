@@ -0,0 +1,125 @@
+package org.example.easyocr.benchmark;
+
+import org.example.easyocr.image.BytesImageSource;
+import org.example.easyocr.image.ImagePreprocessor;
+import org.example.easyocr.image.PreprocessProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the preprocessing stage per profile, for a phone photo of a document at 8 and 12 MP.
+ * The bytes it saves on upload are logged once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ImagePreprocessingBenchmark {
+
+    @Param({"text", "document"})
+    private String profileName;
+
+    @Param({"3264x2448", "4000x3000"})
+    private String size;
+
+    private ImagePreprocessor preprocessor;
+    private PreprocessProperties.Profile profile;
+    private byte[] photo;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkLogging.silence();
+        preprocessor = new ImagePreprocessor();
+        PreprocessProperties defaults = new PreprocessProperties();
+        if ("text".equals(profileName)) {
+            profile = defaults.getText();
+            profile.setGrayscale(true);
+        } else {
+            profile = defaults.getDocument();
+            profile.setMaxLongEdge(2560);
+            profile.setJpegQuality(0.92f);
+        }
+        String[] dimensions = size.split("x");
+        photo = photo(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]));
+        ImagePreprocessor.Result result = preprocessor.preprocess(new BytesImageSource(photo, "image/jpeg"), profile);
+        System.out.println(profileName + " " + size + ": " + result.getOriginalBytes() + " -> " + result.getProcessedBytes() + " bytes");
+    }
+
+    @Benchmark
+    public ImagePreprocessor.Result preprocess() {
+        return preprocessor.preprocess(new BytesImageSource(photo, "image/jpeg"), profile);
+    }
+
+    /**
+     * A paper-like page of text under uneven lighting with sensor noise, which compresses
+     * about as badly as a real phone photo, saved at the high JPEG quality of phone cameras
+     */
+    private static byte[] photo(int width, int height) throws IOException {
+        Random random = new Random(7);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        graphics.setPaint(new GradientPaint(0, 0, new Color(235, 230, 220), width, height, new Color(170, 165, 150)));
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(new Color(30, 30, 40));
+        graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, width / 60));
+        int lineHeight = width / 40;
+        for (int y = lineHeight * 2; y < height - lineHeight; y += lineHeight) {
+            graphics.drawString("Invoice 2024-" + random.nextInt(10000) + "  Amount due: "
+                    + random.nextInt(100000) / 100.0 + " EUR  Ref " + Long.toHexString(random.nextLong()), lineHeight, y);
+        }
+        graphics.dispose();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int rgb = image.getRGB(x, y);
+                int noise = random.nextInt(17) - 8;
+                image.setRGB(x, y, clamp((rgb >> 16 & 0xFF) + noise) << 16
+                        | clamp((rgb >> 8 & 0xFF) + noise) << 8 | clamp((rgb & 0xFF) + noise));
+            }
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(0.95f);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
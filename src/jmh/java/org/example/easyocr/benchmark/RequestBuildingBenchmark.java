@@ -0,0 +1,125 @@
+package org.example.easyocr.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.easyocr.cache.OcrCacheKey;
+import org.example.easyocr.image.Base64ImageSource;
+import org.example.easyocr.image.BytesImageSource;
+import org.example.easyocr.metrics.CountingOutputStream;
+import org.example.easyocr.upstream.ChatCompletionRequestWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU and allocation cost of turning an uploaded image into the upstream request body, per
+ * image size. The {@code buffered*} benchmarks reproduce how requests used to be built, with
+ * the whole base64 string, data URI and JSON body in memory, as the baseline the streaming
+ * path is measured against.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestBuildingBenchmark {
+
+    private static final String MODEL = "gpt-4o-mini";
+    private static final String PROMPT = "You are an OCR service. Your only task is to extract all visible text from this image.";
+
+    /**
+     * Image size in bytes, 100 KB to 10 MB
+     */
+    @Param({"102400", "1048576", "4194304", "10485760"})
+    private int imageBytes;
+
+    private byte[] image;
+    private String dataUri;
+    private ChatCompletionRequestWriter writer;
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        BenchmarkLogging.silence();
+        // Random bytes compress as badly as JPEG data
+        image = new byte[imageBytes];
+        new Random(42).nextBytes(image);
+        dataUri = "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(image);
+        objectMapper = new ObjectMapper();
+        writer = new ChatCompletionRequestWriter(objectMapper);
+    }
+
+    @Benchmark
+    public long streamingRequest() throws IOException {
+        CountingOutputStream out = new CountingOutputStream(OutputStream.nullOutputStream());
+        writer.write(out, MODEL, PROMPT, new BytesImageSource(image, "image/jpeg"));
+        return out.getCount();
+    }
+
+    @Benchmark
+    public long streamingRequestFromBase64() throws IOException {
+        CountingOutputStream out = new CountingOutputStream(OutputStream.nullOutputStream());
+        writer.write(out, MODEL, PROMPT, Base64ImageSource.of(dataUri, null));
+        return out.getCount();
+    }
+
+    @Benchmark
+    public byte[] bufferedRequest() throws IOException {
+        String base64 = Base64.getEncoder().encodeToString(image);
+        return objectMapper.writeValueAsBytes(requestBody("data:image/jpeg;base64," + base64));
+    }
+
+    @Benchmark
+    public boolean validateBase64() {
+        return Base64ImageSource.of(dataUri, null).isValid();
+    }
+
+    @Benchmark
+    public byte[] bufferedValidateBase64() {
+        return Base64.getDecoder().decode(dataUri.split(",")[1]);
+    }
+
+    @Benchmark
+    public OcrCacheKey cacheKey() throws IOException {
+        return OcrCacheKey.of(Base64ImageSource.of(dataUri, null), PROMPT, MODEL);
+    }
+
+    private static Map<String, Object> requestBody(String dataUri) {
+        Map<String, Object> text = new HashMap<>();
+        text.put("type", "text");
+        text.put("text", PROMPT);
+        Map<String, Object> imageItem = new HashMap<>();
+        imageItem.put("type", "image_url");
+        imageItem.put("image_url", Map.of("url", dataUri));
+        List<Map<String, Object>> content = new ArrayList<>();
+        content.add(text);
+        content.add(imageItem);
+        Map<String, Object> message = new HashMap<>();
+        message.put("role", "user");
+        message.put("content", content);
+        Map<String, Object> body = new HashMap<>();
+        body.put("model", MODEL);
+        body.put("messages", List.of(message));
+        body.put("max_tokens", ChatCompletionRequestWriter.MAX_TOKENS);
+        body.put("temperature", 0.1);
+        return body;
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.easyocr.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.easyocr.service.OcrResult;
+import org.example.easyocr.service.OcrResultFormatter;
+import org.example.easyocr.upstream.ChatCompletionResponseReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU and allocation cost of turning an upstream response into the result, per answer shape:
+ * a clean JSON object, a JSON object wrapped in prose and a code fence, and plain text.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseParsingBenchmark {
+
+    @Param({"json", "embedded", "text"})
+    private String shape;
+
+    private byte[] response;
+    private String content;
+    private ObjectMapper objectMapper;
+    private ChatCompletionResponseReader reader;
+    private OcrResultFormatter formatter;
+
+    @Setup
+    public void setUp() throws IOException {
+        BenchmarkLogging.silence();
+        objectMapper = new ObjectMapper();
+        reader = new ChatCompletionResponseReader(objectMapper);
+        formatter = new OcrResultFormatter(objectMapper);
+        content = content(shape);
+        response = objectMapper.writeValueAsBytes(chatCompletion(content));
+    }
+
+    /**
+     * The whole response path: deserializing the body, then formatting the answer
+     */
+    @Benchmark
+    public OcrResult readAndFormat() throws IOException {
+        return formatter.formatResponse(reader.read(new ByteArrayInputStream(response)));
+    }
+
+    @Benchmark
+    public OcrResult formatContent() {
+        return formatter.formatContent(content);
+    }
+
+    private static String content(String shape) {
+        StringBuilder fields = new StringBuilder("{");
+        for (int i = 0; i < 20; i++) {
+            fields.append(i == 0 ? "" : ",").append("\"field_").append(i).append("\":\"value of field ").append(i).append('"');
+        }
+        fields.append(",\"address\":{\"street\":\"1 Main St\",\"city\":\"Springfield\"}}");
+        switch (shape) {
+            case "json":
+                return fields.toString();
+            case "embedded":
+                return "Here are the fields extracted from the document:\n```json\n" + fields + "\n```\nLet me know if you need anything else.";
+            default:
+                StringBuilder text = new StringBuilder();
+                for (int i = 0; i < 60; i++) {
+                    text.append("Line ").append(i).append(": The quick brown fox jumps over the lazy dog.\n");
+                }
+                return text.toString();
+        }
+    }
+
+    private static Map<String, Object> chatCompletion(String content) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("role", "assistant");
+        message.put("content", content);
+        Map<String, Object> choice = new LinkedHashMap<>();
+        choice.put("index", 0);
+        choice.put("message", message);
+        choice.put("finish_reason", "stop");
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("id", "chatcmpl-benchmark");
+        response.put("object", "chat.completion");
+        response.put("model", "gpt-4o-mini");
+        response.put("choices", List.of(choice));
+        response.put("usage", Map.of("prompt_tokens", 1200, "completion_tokens", 300, "total_tokens", 1500));
+        return response;
+    }
+}
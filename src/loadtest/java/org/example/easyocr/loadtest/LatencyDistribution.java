@@ -0,0 +1,69 @@
+package org.example.easyocr.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How long the stub upstream takes to answer, given as {@code fixed:<ms>},
+ * {@code uniform:<min ms>:<max ms>} or {@code lognormal:<median ms>:<p99 ms>}. Real model
+ * latencies are close to log-normal: most answers near the median, a long tail of slow ones.
+ */
+final class LatencyDistribution {
+
+    // The 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.326;
+
+    private final String spec;
+    private final String kind;
+    private final double first;
+    private final double second;
+
+    private LatencyDistribution(String spec, String kind, double first, double second) {
+        this.spec = spec;
+        this.kind = kind;
+        this.first = first;
+        this.second = second;
+    }
+
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.split(":");
+        try {
+            switch (parts[0]) {
+                case "fixed":
+                    return new LatencyDistribution(spec, parts[0], Double.parseDouble(parts[1]), 0);
+                case "uniform":
+                case "lognormal":
+                    double first = Double.parseDouble(parts[1]);
+                    double second = Double.parseDouble(parts[2]);
+                    if (second < first || ("lognormal".equals(parts[0]) && first <= 0)) {
+                        throw new IllegalArgumentException("Invalid latency distribution: " + spec);
+                    }
+                    return new LatencyDistribution(spec, parts[0], first, second);
+                default:
+                    throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid latency distribution: " + spec, e);
+        }
+    }
+
+    /**
+     * @return The next latency, in milliseconds
+     */
+    long nextMillis() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (kind) {
+            case "fixed":
+                return (long) first;
+            case "uniform":
+                return (long) (first + random.nextDouble() * (second - first));
+            default:
+                double sigma = Math.log(second / first) / Z_99;
+                return (long) (first * Math.exp(sigma * random.nextGaussian()));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
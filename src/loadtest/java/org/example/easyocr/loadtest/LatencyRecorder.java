@@ -0,0 +1,80 @@
+package org.example.easyocr.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latencies and outcomes of the requests to one endpoint. Every latency is kept, a run of a
+ * few minutes has at most a few million, so the percentiles are exact.
+ */
+final class LatencyRecorder {
+
+    private static final double[] PERCENTILES = {50, 90, 95, 99, 99.9};
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private final Map<String, Long> outcomes = new TreeMap<>();
+
+    synchronized void record(long latencyNanos, String outcome) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        outcomes.merge(outcome, 1L, Long::sum);
+    }
+
+    synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * @param seconds The length of the measurement
+     * @return The request count, throughput, outcomes and latency percentiles in milliseconds
+     */
+    synchronized Map<String, Object> getStats(double seconds) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", count);
+        stats.put("throughput", round(count / seconds));
+        stats.put("outcomes", new TreeMap<>(outcomes));
+        if (count == 0) {
+            return stats;
+        }
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        long total = 0;
+        for (long latency : sorted) {
+            total += latency;
+        }
+        stats.put("mean_ms", round(total / (double) count / 1_000_000));
+        for (double percentile : PERCENTILES) {
+            int index = (int) Math.ceil(percentile / 100 * count) - 1;
+            stats.put("p" + format(percentile) + "_ms", round(sorted[Math.max(0, index)] / 1_000_000.0));
+        }
+        stats.put("max_ms", round(sorted[count - 1] / 1_000_000.0));
+        return stats;
+    }
+
+    /**
+     * Add the latencies and outcomes of another recorder, for the totals over all endpoints
+     */
+    synchronized void addAll(LatencyRecorder other) {
+        synchronized (other) {
+            if (count + other.count > latencies.length) {
+                latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, count + other.count));
+            }
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            other.outcomes.forEach((outcome, n) -> outcomes.merge(outcome, n, Long::sum));
+        }
+    }
+
+    private static String format(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((int) percentile) : String.valueOf(percentile).replace('.', '_');
+    }
+
+    static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+}
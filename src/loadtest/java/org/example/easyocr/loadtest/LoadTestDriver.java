@@ -0,0 +1,298 @@
+package org.example.easyocr.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.example.easyocr.EasyOcrApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a mix of OCR requests at the service from a fixed number of concurrent clients and
+ * reports throughput, latency percentiles per endpoint, and the heap and threads of the service.
+ * <p>
+ * Without {@code --target} the application is started in this JVM against a
+ * {@link StubUpstreamServer}, so a run needs no network and no API key and gives the same
+ * numbers on the same machine. With {@code --target=http://host:port} an already running
+ * service is measured as it is configured.
+ * <p>
+ * Each client sends its next request as soon as the previous one is answered. Requests sent
+ * during the warm-up are not measured. Heap and thread figures are read from the service's
+ * actuator metrics once a second.
+ *
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--concurrency=64 --duration=120"
+ * </pre>
+ */
+public final class LoadTestDriver {
+
+    private static final String BOUNDARY = "loadtest-boundary-7d3f1c";
+
+    private final LoadTestOptions options;
+    private final TestImages images;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final String[] endpoints;
+    private final int[] cumulativeWeights;
+    private final Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+    private final List<long[]> resourceSamples = new ArrayList<>();
+
+    private LoadTestDriver(LoadTestOptions options, TestImages images) {
+        this.options = options;
+        this.images = images;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        Map<String, String> mix = options.getPairs("mix", ':');
+        endpoints = new String[mix.size()];
+        cumulativeWeights = new int[mix.size()];
+        int total = 0;
+        int i = 0;
+        for (Map.Entry<String, String> entry : mix.entrySet()) {
+            endpoints[i] = entry.getKey();
+            total += Integer.parseInt(entry.getValue());
+            cumulativeWeights[i++] = total;
+            recorders.put(entry.getKey(), new LatencyRecorder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        TestImages images = TestImages.generate(options.getInt("images"), options.getInt("image-width"), options.getInt("image-height"));
+        System.out.println("Generated " + images.size() + " test images of " + images.averageBytes() / 1024 + " KB on average");
+
+        StubUpstreamServer upstream = null;
+        ConfigurableApplicationContext application = null;
+        String target = options.get("target");
+        try {
+            if (target.isEmpty()) {
+                upstream = new StubUpstreamServer(LatencyDistribution.parse(options.get("upstream-latency")),
+                        options.getDouble("upstream-error-rate"), options.getDouble("upstream-throttle-rate"),
+                        options.getInt("upstream-stream-chunks"));
+                application = startApplication(upstream.start(), options);
+                target = "http://127.0.0.1:" + application.getEnvironment().getProperty("local.server.port");
+            }
+            LoadTestDriver driver = new LoadTestDriver(options, images);
+            Map<String, Object> report = driver.run(target);
+            if (upstream != null) {
+                report.put("upstream", upstream.getStats());
+            }
+            driver.writeReport(report);
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+            if (upstream != null) {
+                upstream.stop();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(String upstreamUrl, LoadTestOptions options) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("openai.api.url", upstreamUrl);
+        properties.put("openai.api.key", "sk-loadtest");
+        properties.put("spring.datasource.url", "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+        properties.put("spring.h2.console.enabled", false);
+        properties.put("logging.level.[org.example.easyocr]", "WARN");
+        properties.put("logging.level.[org.springframework.web.client.RestTemplate]", "WARN");
+        properties.putAll(options.getPairs("service-properties", '='));
+        return new SpringApplicationBuilder(EasyOcrApplication.class).properties(properties).run();
+    }
+
+    private Map<String, Object> run(String target) throws InterruptedException {
+        long warmUpNanos = TimeUnit.SECONDS.toNanos(options.getInt("warm-up"));
+        long durationNanos = TimeUnit.SECONDS.toNanos(options.getInt("duration"));
+        long start = System.nanoTime();
+        long measureFrom = start + warmUpNanos;
+        long end = measureFrom + durationNanos;
+        System.out.println("Running " + options.getInt("concurrency") + " clients against " + target + " for "
+                + options.get("warm-up") + " s warm-up and " + options.get("duration") + " s measurement");
+
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < options.getInt("concurrency"); i++) {
+            Thread thread = new Thread(() -> runClient(target, measureFrom, end), "loadtest-client-" + (i + 1));
+            thread.setDaemon(true);
+            thread.start();
+            clients.add(thread);
+        }
+        while (System.nanoTime() < end) {
+            Thread.sleep(1000);
+            if (System.nanoTime() >= measureFrom) {
+                sampleResources(target);
+            }
+        }
+        for (Thread thread : clients) {
+            // Let the requests in progress finish, they are still measured
+            thread.join(TimeUnit.MINUTES.toMillis(2));
+        }
+        double seconds = durationNanos / 1e9;
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options.asMap());
+        LatencyRecorder total = new LatencyRecorder();
+        Map<String, Object> perEndpoint = new LinkedHashMap<>();
+        recorders.forEach((endpoint, recorder) -> {
+            perEndpoint.put(endpoint, recorder.getStats(seconds));
+            total.addAll(recorder);
+        });
+        report.put("total", total.getStats(seconds));
+        report.put("endpoints", perEndpoint);
+        report.put("service", resourceStats());
+        return report;
+    }
+
+    private void runClient(String target, long measureFrom, long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double streamRatio = options.getDouble("stream-ratio");
+        while (System.nanoTime() < end) {
+            String endpoint = pickEndpoint(random);
+            int image = random.nextInt(images.size());
+            boolean stream = random.nextDouble() < streamRatio;
+            HttpRequest request = request(target, endpoint, image, stream);
+            long start = System.nanoTime();
+            String outcome;
+            try {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                outcome = outcome(response, stream);
+            } catch (IOException e) {
+                outcome = "io_error";
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (start >= measureFrom) {
+                recorders.get(endpoint).record(System.nanoTime() - start, outcome);
+            }
+        }
+    }
+
+    private String pickEndpoint(ThreadLocalRandom random) {
+        int roll = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (roll < cumulativeWeights[i]) {
+                return endpoints[i];
+            }
+        }
+        return endpoints[endpoints.length - 1];
+    }
+
+    private HttpRequest request(String target, String endpoint, int image, boolean stream) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(target + "/api/ocr/" + endpoint))
+                .timeout(Duration.ofMinutes(2))
+                .header("Accept", stream ? "text/event-stream" : "application/json");
+        if (endpoint.endsWith("-base64")) {
+            String body = "{\"image\":\"" + images.dataUri(image) + "\"}";
+            return builder.header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+        return builder.header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(multipart(images.jpeg(image), "scan-" + image + ".jpg")))
+                .build();
+    }
+
+    private static byte[] multipart(byte[] jpeg, String filename) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(jpeg.length + 256);
+        String head = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"image\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n";
+        body.writeBytes(head.getBytes(StandardCharsets.US_ASCII));
+        body.writeBytes(jpeg);
+        body.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return body.toByteArray();
+    }
+
+    /**
+     * @return "ok", "error_result" for a 200 that carries an error, or the HTTP status
+     */
+    private static String outcome(HttpResponse<String> response, boolean stream) {
+        if (response.statusCode() != 200) {
+            return "http_" + response.statusCode();
+        }
+        String body = response.body();
+        boolean error = stream ? body.contains("event:error") : body.startsWith("{\"error\"");
+        return error ? "error_result" : "ok";
+    }
+
+    private void sampleResources(String target) {
+        try {
+            long heap = (long) metric(target, "jvm.memory.used?tag=area:heap");
+            long threads = (long) metric(target, "jvm.threads.live");
+            long cpu = Math.round(metric(target, "process.cpu.usage") * 1000);
+            resourceSamples.add(new long[]{heap, threads, cpu});
+        } catch (IOException e) {
+            System.out.println("Could not read the service metrics: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private double metric(String target, String name) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(target + "/actuator/metrics/" + name))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException(name + " returned " + response.statusCode());
+        }
+        JsonNode measurements = objectMapper.readTree(response.body()).path("measurements");
+        return measurements.path(0).path("value").asDouble();
+    }
+
+    private Map<String, Object> resourceStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("samples", resourceSamples.size());
+        if (resourceSamples.isEmpty()) {
+            return stats;
+        }
+        long maxHeap = 0;
+        long totalHeap = 0;
+        long maxThreads = 0;
+        long maxCpu = 0;
+        long totalCpu = 0;
+        for (long[] sample : resourceSamples) {
+            maxHeap = Math.max(maxHeap, sample[0]);
+            totalHeap += sample[0];
+            maxThreads = Math.max(maxThreads, sample[1]);
+            maxCpu = Math.max(maxCpu, sample[2]);
+            totalCpu += sample[2];
+        }
+        int samples = resourceSamples.size();
+        stats.put("heap_used_mean_mb", LatencyRecorder.round(totalHeap / (double) samples / (1024 * 1024)));
+        stats.put("heap_used_max_mb", LatencyRecorder.round(maxHeap / (1024.0 * 1024)));
+        stats.put("threads_max", maxThreads);
+        stats.put("cpu_mean_percent", LatencyRecorder.round(totalCpu / (double) samples / 10));
+        stats.put("cpu_max_percent", LatencyRecorder.round(maxCpu / 10.0));
+        return stats;
+    }
+
+    private void writeReport(Map<String, Object> report) throws IOException {
+        String json = objectMapper.writeValueAsString(report);
+        System.out.println(json);
+        File file = new File(options.get("report"));
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        objectMapper.writeValue(file, report);
+        System.out.println("Report written to " + file.getPath());
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.easyocr.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The settings of a load test, given as {@code --name=value} arguments. Every setting has a
+ * default, so a run without arguments is a short smoke test.
+ */
+final class LoadTestOptions {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        // Service under test; without a target the application is started in this JVM
+        DEFAULTS.put("target", "");
+        // Load
+        DEFAULTS.put("concurrency", "16");
+        DEFAULTS.put("warm-up", "10"); // in seconds, not measured
+        DEFAULTS.put("duration", "30"); // in seconds
+        DEFAULTS.put("mix", "process:4,process-base64:2,document:1,document-base64:1");
+        DEFAULTS.put("stream-ratio", "0"); // share of requests sent with Accept: text/event-stream
+        // Images, each request picks one at random
+        DEFAULTS.put("images", "8");
+        DEFAULTS.put("image-width", "1600"); // in pixels
+        DEFAULTS.put("image-height", "1200"); // in pixels
+        // Stub upstream, only used when the application is started in this JVM
+        DEFAULTS.put("upstream-latency", "lognormal:800:4000"); // fixed:<ms>, uniform:<min>:<max> or lognormal:<median>:<p99>
+        DEFAULTS.put("upstream-error-rate", "0"); // share of calls answered with a 500
+        DEFAULTS.put("upstream-throttle-rate", "0"); // share of calls answered with a 429
+        DEFAULTS.put("upstream-stream-chunks", "20"); // events a streamed answer is split into
+        // Application settings of the in-process service, see application.yml
+        DEFAULTS.put("service-properties", "app.cache.enabled=false,app.coalescing.enabled=false,"
+                + "app.upstream.requests-per-minute=0,app.upstream.tokens-per-minute=0");
+        DEFAULTS.put("report", "target/loadtest-report.json");
+    }
+
+    private final Map<String, String> values;
+
+    private LoadTestOptions(Map<String, String> values) {
+        this.values = values;
+    }
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String name = arg.substring(2, equals);
+            if (!DEFAULTS.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown option --" + name + ", known options: " + DEFAULTS.keySet());
+            }
+            values.put(name, arg.substring(equals + 1));
+        }
+        return new LoadTestOptions(values);
+    }
+
+    String get(String name) {
+        return values.get(name);
+    }
+
+    int getInt(String name) {
+        return Integer.parseInt(values.get(name));
+    }
+
+    double getDouble(String name) {
+        return Double.parseDouble(values.get(name));
+    }
+
+    /**
+     * @return A setting made of comma separated {@code key<separator>value} pairs, in order
+     */
+    Map<String, String> getPairs(String name, char separator) {
+        Map<String, String> pairs = new LinkedHashMap<>();
+        for (String pair : values.get(name).split(",")) {
+            if (pair.isBlank()) {
+                continue;
+            }
+            int index = pair.indexOf(separator);
+            if (index < 0) {
+                throw new IllegalArgumentException("Expected key" + separator + "value in --" + name + " but got " + pair);
+            }
+            pairs.put(pair.substring(0, index).trim(), pair.substring(index + 1).trim());
+        }
+        return pairs;
+    }
+
+    /**
+     * @return All settings, for the report
+     */
+    Map<String, String> asMap() {
+        return values;
+    }
+}
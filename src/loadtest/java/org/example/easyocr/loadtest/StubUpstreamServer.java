@@ -0,0 +1,206 @@
+package org.example.easyocr.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local stand-in for the chat-completions API. It reads the whole request like the real
+ * API, waits for a latency drawn from a {@link LatencyDistribution}, and answers with a short
+ * text, a JSON object of document fields when the prompt asks for JSON, or a stream of
+ * server-sent events when the request has {@code "stream": true}. A share of the calls can be
+ * failed with a 500 or throttled with a 429 and {@code Retry-After}.
+ */
+final class StubUpstreamServer {
+
+    private static final String PATH = "/v1/chat/completions";
+    // The prompt comes before the image and the stream flag after it, neither needs the whole body
+    private static final int HEAD_BYTES = 4096;
+    private static final int TAIL_BYTES = 256;
+
+    private static final String TEXT = "INVOICE No. 2024-0117\\nDate: 17 January 2024\\n"
+            + "Bill to: Jane Doe, 1 Main Street, Springfield\\nTotal due: 1,250.00 EUR";
+    private static final String FIELDS = "{\\\"document_type\\\":\\\"id_card\\\",\\\"name\\\":\\\"Jane Doe\\\","
+            + "\\\"id_number\\\":\\\"X1234567\\\",\\\"date_of_birth\\\":\\\"1990-01-01\\\",\\\"nationality\\\":\\\"Utopia\\\"}";
+
+    private final LatencyDistribution latency;
+    private final double errorRate;
+    private final double throttleRate;
+    private final int streamChunks;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong streamed = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    StubUpstreamServer(LatencyDistribution latency, double errorRate, double throttleRate, int streamChunks) {
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.throttleRate = throttleRate;
+        this.streamChunks = Math.max(1, streamChunks);
+    }
+
+    /**
+     * @return The chat-completions URL of the started server
+     */
+    String start() throws IOException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-upstream-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.createContext(PATH, this::handle);
+        server.setExecutor(executor);
+        server.start();
+        return "http://127.0.0.1:" + server.getAddress().getPort() + PATH;
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+            RequestSummary request = readRequest(exchange.getRequestBody());
+            Thread.sleep(latency.nextMillis());
+
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < throttleRate) {
+                throttled.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 429, "{\"error\":{\"message\":\"Rate limit reached\",\"type\":\"rate_limit_exceeded\"}}");
+            } else if (roll < throttleRate + errorRate) {
+                errors.incrementAndGet();
+                send(exchange, 500, "{\"error\":{\"message\":\"The server had an error\",\"type\":\"server_error\"}}");
+            } else if (request.stream) {
+                streamed.incrementAndGet();
+                stream(exchange, request.json ? FIELDS : TEXT);
+            } else {
+                send(exchange, 200, completion(request.json ? FIELDS : TEXT));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // The service gave up on the call
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private RequestSummary readRequest(InputStream body) throws IOException {
+        byte[] head = new byte[HEAD_BYTES];
+        byte[] tail = new byte[TAIL_BYTES];
+        int headLength = 0;
+        long total = 0;
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = body.read(buffer)) != -1) {
+            if (headLength < HEAD_BYTES) {
+                int copy = Math.min(read, HEAD_BYTES - headLength);
+                System.arraycopy(buffer, 0, head, headLength, copy);
+                headLength += copy;
+            }
+            // Keep the last TAIL_BYTES bytes seen
+            if (read >= TAIL_BYTES) {
+                System.arraycopy(buffer, read - TAIL_BYTES, tail, 0, TAIL_BYTES);
+            } else {
+                System.arraycopy(tail, read, tail, 0, TAIL_BYTES - read);
+                System.arraycopy(buffer, 0, tail, TAIL_BYTES - read, read);
+            }
+            total += read;
+        }
+        bytesReceived.addAndGet(total);
+        String start = new String(head, 0, headLength, StandardCharsets.UTF_8);
+        String end = new String(tail, StandardCharsets.UTF_8).replace(" ", "");
+        return new RequestSummary(start.contains("JSON"), end.contains("\"stream\":true"));
+    }
+
+    private static String completion(String content) {
+        return "{\"id\":\"chatcmpl-stub\",\"object\":\"chat.completion\",\"model\":\"stub\",\"choices\":[{\"index\":0,"
+                + "\"message\":{\"role\":\"assistant\",\"content\":\"" + content + "\"},\"finish_reason\":\"stop\"}],"
+                + "\"usage\":{\"prompt_tokens\":1100,\"completion_tokens\":60,\"total_tokens\":1160}}";
+    }
+
+    /**
+     * Send the answer as server-sent events. The whole latency is spent before the first event,
+     * the events follow each other closely like the tokens of a fast model.
+     */
+    private void stream(HttpExchange exchange, String content) throws IOException, InterruptedException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            int chunkLength = (content.length() + streamChunks - 1) / streamChunks;
+            int start = 0;
+            while (start < content.length()) {
+                int end = Math.min(content.length(), start + chunkLength);
+                // Never split an escape sequence
+                while (end < content.length() && content.charAt(end - 1) == '\\') {
+                    end++;
+                }
+                String event = "data: {\"id\":\"chatcmpl-stub\",\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,"
+                        + "\"delta\":{\"content\":\"" + content.substring(start, end) + "\"}}]}\n\n";
+                out.write(event.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                start = end;
+                Thread.sleep(5);
+            }
+            out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("latency", latency.toString());
+        stats.put("requests", requests.get());
+        stats.put("streamed", streamed.get());
+        stats.put("errors", errors.get());
+        stats.put("throttled", throttled.get());
+        stats.put("max_in_flight", maxInFlight.get());
+        stats.put("bytes_received", bytesReceived.get());
+        return stats;
+    }
+
+    private static class RequestSummary {
+        private final boolean json;
+        private final boolean stream;
+
+        RequestSummary(boolean json, boolean stream) {
+            this.json = json;
+            this.stream = stream;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.easyocr.loadtest;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generated scans: lines of dark text on slightly noisy paper, encoded as JPEG, so uploads
+ * have the size and the preprocessing cost of real phone photos. Each image differs, the
+ * seed makes runs reproducible.
+ */
+final class TestImages {
+
+    private final List<byte[]> jpegs;
+    private final List<String> dataUris;
+
+    private TestImages(List<byte[]> jpegs) {
+        this.jpegs = jpegs;
+        this.dataUris = new ArrayList<>();
+        for (byte[] jpeg : jpegs) {
+            dataUris.add("data:image/jpeg;base64," + Base64.getEncoder().encodeToString(jpeg));
+        }
+    }
+
+    static TestImages generate(int count, int width, int height) throws IOException {
+        Random random = new Random(42);
+        List<byte[]> jpegs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            jpegs.add(render(random, i, width, height));
+        }
+        return new TestImages(jpegs);
+    }
+
+    private static byte[] render(Random random, int number, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int shade = 235 + random.nextInt(20);
+                image.setRGB(x, y, shade << 16 | shade << 8 | (shade - 10));
+            }
+        }
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            graphics.setColor(new Color(30, 30, 40));
+            int fontSize = Math.max(12, height / 40);
+            graphics.setFont(new Font(Font.SERIF, Font.PLAIN, fontSize));
+            int line = 0;
+            for (int y = fontSize * 2; y < height - fontSize; y += fontSize * 3 / 2) {
+                graphics.drawString("Document " + number + ", line " + (++line) + ": Total due 1,250.00 EUR, reference "
+                        + Long.toHexString(random.nextLong()), fontSize, y);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", out);
+        return out.toByteArray();
+    }
+
+    int size() {
+        return jpegs.size();
+    }
+
+    byte[] jpeg(int index) {
+        return jpegs.get(index);
+    }
+
+    String dataUri(int index) {
+        return dataUris.get(index);
+    }
+
+    long averageBytes() {
+        long total = 0;
+        for (byte[] jpeg : jpegs) {
+            total += jpeg.length;
+        }
+        return total / jpegs.size();
+    }
+}
@@ -1,15 +1,23 @@
 package org.example.easyocr;
 
+import org.example.easyocr.startup.StartupWarmUp;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @MapperScan("org.example.easyocr.mapper")
 @SpringBootApplication
+@EnableScheduling
 public class EasyOcrApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(EasyOcrApplication.class, args);
+        ConfigurableApplicationContext context = SpringApplication.run(EasyOcrApplication.class, args);
+        // The class data sharing training run stops here, see StartupWarmUp
+        if (context.getBean(StartupWarmUp.class).isExitRequested()) {
+            System.exit(SpringApplication.exit(context));
+        }
     }
 
 }
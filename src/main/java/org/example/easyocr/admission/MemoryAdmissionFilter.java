@@ -0,0 +1,127 @@
+package org.example.easyocr.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Admits OCR uploads against the {@link MemoryBudget} before their body is read.
+ * <p>
+ * A request holds several copies of its image at once: the multipart or JSON body, the
+ * decoded bytes, the preprocessed image and the encoded upstream request. The reservation is
+ * therefore the {@code Content-Length} times {@code app.admission.payload-copies}, or
+ * {@code app.admission.unknown-length-bytes} for chunked bodies. It is released when the
+ * response is complete, which for streaming and async responses is after the servlet thread
+ * has returned.
+ */
+@Component
+public class MemoryAdmissionFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = Logger.getLogger(MemoryAdmissionFilter.class.getName());
+
+    private final MemoryBudget memoryBudget;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.admission.payload-copies:4}")
+    private double payloadCopies;
+
+    @Value("${app.admission.unknown-length-bytes:10485760}")
+    private long unknownLengthBytes;
+
+    public MemoryAdmissionFilter(MemoryBudget memoryBudget, ObjectMapper objectMapper) {
+        this.memoryBudget = memoryBudget;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !memoryBudget.isEnabled()
+                || !"POST".equals(request.getMethod())
+                || !request.getRequestURI().startsWith("/api/ocr/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        MemoryBudget.Reservation reservation;
+        try {
+            reservation = memoryBudget.reserve(estimate(request.getContentLengthLong()));
+        } catch (MemoryBudget.BudgetExceededException e) {
+            logger.warning(e.getMessage() + ", " + request.getRequestURI() + ", " + request.getContentLengthLong() + " bytes");
+            reject(response, e);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServletException("Interrupted while waiting for memory", e);
+        }
+
+        boolean releasedLater = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(reservation));
+                releasedLater = true;
+            }
+        } finally {
+            if (!releasedLater) {
+                reservation.close();
+            }
+        }
+    }
+
+    long estimate(long contentLength) {
+        return contentLength >= 0 ? (long) (contentLength * payloadCopies) : unknownLengthBytes;
+    }
+
+    private void reject(HttpServletResponse response, MemoryBudget.BudgetExceededException e) throws IOException {
+        response.setStatus(e.getStatus().value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(memoryBudget.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("error", e.getMessage()));
+    }
+
+    /**
+     * Releases the reservation once an async response is complete, however it ends
+     */
+    private static class ReleasingListener implements AsyncListener {
+
+        private final MemoryBudget.Reservation reservation;
+
+        ReleasingListener(MemoryBudget.Reservation reservation) {
+            this.reservation = reservation;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            reservation.close();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            reservation.close();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            reservation.close();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Still the same request
+        }
+    }
+}
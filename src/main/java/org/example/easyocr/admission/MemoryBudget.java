@@ -0,0 +1,200 @@
+package org.example.easyocr.admission;
+
+import org.example.easyocr.metrics.StatsSource;
+import org.example.easyocr.metrics.TimerStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Heap budget for the image payloads of the requests being processed.
+ * <p>
+ * Each request reserves an estimate of the heap its payload will occupy before its body is
+ * read, and gives it back when the response is complete. While the budget is used up, new
+ * requests wait in arrival order for up to {@code app.admission.max-wait}, so one large upload
+ * is not overtaken forever by small ones. Requests beyond {@code app.admission.max-waiting}
+ * are rejected right away with {@code 429 Too Many Requests}, requests that waited too long
+ * with {@code 503 Service Unavailable}. A request larger than the whole budget is admitted
+ * once it can run alone.
+ */
+@Component
+public class MemoryBudget implements StatsSource {
+
+    @Value("${app.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.admission.max-bytes:0}")
+    private long maxBytes;
+
+    @Value("${app.admission.heap-fraction:0.4}")
+    private double heapFraction;
+
+    @Value("${app.admission.max-waiting:32}")
+    private int maxWaiting;
+
+    @Value("${app.admission.max-wait:10000}")
+    private long maxWait;
+
+    @Value("${app.admission.retry-after:5}")
+    private int retryAfterSeconds;
+
+    private long budgetBytes;
+
+    // Guarded by this
+    private long reservedBytes;
+    private long peakReservedBytes;
+    private final ArrayDeque<Object> waiters = new ArrayDeque<>();
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong rejectedBusy = new AtomicLong();
+    private final AtomicLong rejectedTimeout = new AtomicLong();
+    private final TimerStats waitTimes = new TimerStats();
+
+    @PostConstruct
+    public void start() {
+        budgetBytes = maxBytes > 0 ? maxBytes : (long) (Runtime.getRuntime().maxMemory() * heapFraction);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /**
+     * Reserve heap for a request, waiting for earlier reservations to be released if needed
+     *
+     * @param bytes The estimated heap the request will occupy
+     * @return The reservation, to be closed when the request is complete
+     * @throws BudgetExceededException If too many requests are waiting already, or the budget
+     * did not free up within {@code max-wait}
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public Reservation reserve(long bytes) throws BudgetExceededException, InterruptedException {
+        long amount = Math.max(0, Math.min(bytes, budgetBytes));
+        long start = System.nanoTime();
+        synchronized (this) {
+            if (waiters.isEmpty() && reservedBytes + amount <= budgetBytes) {
+                return grant(amount);
+            }
+            if (waiters.size() >= maxWaiting) {
+                rejectedBusy.incrementAndGet();
+                throw new BudgetExceededException(HttpStatus.TOO_MANY_REQUESTS,
+                        "Too many requests are waiting for memory, please retry later");
+            }
+
+            Object ticket = new Object();
+            waiters.addLast(ticket);
+            queued.incrementAndGet();
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxWait);
+            try {
+                while (waiters.peekFirst() != ticket || reservedBytes + amount > budgetBytes) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        rejectedTimeout.incrementAndGet();
+                        throw new BudgetExceededException(HttpStatus.SERVICE_UNAVAILABLE,
+                                "The server is busy with other images, please retry later");
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+                return grant(amount);
+            } finally {
+                waiters.remove(ticket);
+                waitTimes.record(System.nanoTime() - start);
+                // The next waiter may be able to go now
+                notifyAll();
+            }
+        }
+    }
+
+    private Reservation grant(long amount) {
+        reservedBytes += amount;
+        peakReservedBytes = Math.max(peakReservedBytes, reservedBytes);
+        admitted.incrementAndGet();
+        return new Reservation(amount);
+    }
+
+    private synchronized void release(long amount) {
+        reservedBytes -= amount;
+        notifyAll();
+    }
+
+    public synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    @Override
+    public String getStatsName() {
+        return "admission";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("budget_bytes", budgetBytes);
+        synchronized (this) {
+            stats.put("reserved_bytes", reservedBytes);
+            stats.put("peak_reserved_bytes", peakReservedBytes);
+            stats.put("waiting", waiters.size());
+        }
+        stats.put("admitted", admitted.get());
+        stats.put("queued", queued.get());
+        stats.put("rejected_busy", rejectedBusy.get());
+        stats.put("rejected_timeout", rejectedTimeout.get());
+        waitTimes.putInto(stats, "wait");
+        return stats;
+    }
+
+    /**
+     * Heap held by one request; closing it more than once releases it only once
+     */
+    public final class Reservation implements AutoCloseable {
+
+        private final long bytes;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Reservation(long bytes) {
+            this.bytes = bytes;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(bytes);
+            }
+        }
+    }
+
+    /**
+     * Thrown when a request can not be admitted, with the status to answer it with
+     */
+    public static class BudgetExceededException extends Exception {
+
+        private final HttpStatus status;
+
+        public BudgetExceededException(HttpStatus status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        public HttpStatus getStatus() {
+            return status;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.easyocr.async;
+
+import org.example.easyocr.metrics.StatsSource;
+import org.example.easyocr.metrics.TimerStats;
+import org.example.easyocr.scheduling.OcrRequestContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dedicated, bounded executor for OCR work, so long upstream calls do not hold servlet threads.
+ * <p>
+ * At most {@code max-in-flight} tasks run at once and at most {@code queue-depth} wait.
+ * Anything beyond that is rejected immediately with a {@link RejectedExecutionException},
+ * which the async endpoints turn into a {@code 429 Too Many Requests}.
+ */
+@Component
+public class OcrTaskExecutor implements StatsSource {
+
+    @Value("${app.async.max-in-flight:32}")
+    private int maxInFlight;
+
+    @Value("${app.async.queue-depth:64}")
+    private int queueDepth;
+
+    @Value("${app.async.retry-after:5}")
+    private int retryAfterSeconds;
+
+    private ThreadPoolExecutor executor;
+
+    private final TimerStats queueWait = new TimerStats();
+    private final TimerStats execution = new TimerStats();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(maxInFlight, maxInFlight, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueDepth),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ocr-worker-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    /**
+     * Queue a task for execution in the {@link OcrRequestContext} of the calling thread
+     *
+     * @param task The task to run
+     * @return A future completed with the task's result or exception
+     * @throws RejectedExecutionException If both the workers and the queue are full
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Callable<T> boundTask = OcrRequestContext.wrap(task);
+        long submittedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long startedAt = System.nanoTime();
+                queueWait.record(startedAt - submittedAt);
+                try {
+                    future.complete(boundTask.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    execution.record(System.nanoTime() - startedAt);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * @return The number of seconds clients are asked to wait before retrying a rejected request
+     */
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    @Override
+    public String getStatsName() {
+        return "async";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("max_in_flight", maxInFlight);
+        stats.put("queue_depth", queueDepth);
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("completed", executor.getCompletedTaskCount());
+        stats.put("rejected", rejected.get());
+        queueWait.putInto(stats, "queue_wait");
+        execution.putInto(stats, "execution");
+        return stats;
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.easyocr.cache;
+
+import org.example.easyocr.image.ImageSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * Content-addressed key of an OCR request: the SHA-256 of the decoded image bytes
+ * combined with the prompt and the model that produced the result.
+ */
+public final class OcrCacheKey {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String imageHash;
+    private final String model;
+    private final String value;
+
+    private OcrCacheKey(String imageHash, String model, String value) {
+        this.imageHash = imageHash;
+        this.model = model;
+        this.value = value;
+    }
+
+    /**
+     * Build a key from the decoded image bytes
+     *
+     * @param imageBytes The decoded (not base64) image bytes
+     * @param prompt The prompt sent with the image
+     * @param model The upstream model name
+     * @return The cache key
+     */
+    public static OcrCacheKey of(byte[] imageBytes, String prompt, String model) {
+        MessageDigest digest = newDigest();
+        return fromImageHash(toHex(digest.digest(imageBytes)), prompt, model);
+    }
+
+    /**
+     * Build a key by streaming the decoded image bytes through the digest
+     *
+     * @param image The image
+     * @param prompt The prompt sent with the image
+     * @param model The upstream model name
+     * @return The cache key
+     * @throws IOException If the image can not be read
+     */
+    public static OcrCacheKey of(ImageSource image, String prompt, String model) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = image.openStream()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return fromImageHash(toHex(digest.digest()), prompt, model);
+    }
+
+    /**
+     * Build a key from an already computed image hash
+     *
+     * @param imageHash The hex encoded SHA-256 of the decoded image bytes
+     * @param prompt The prompt sent with the image
+     * @param model The upstream model name
+     * @return The cache key
+     */
+    public static OcrCacheKey fromImageHash(String imageHash, String prompt, String model) {
+        MessageDigest digest = newDigest();
+        digest.update(imageHash.getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) '\n');
+        digest.update(String.valueOf(model).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+        digest.update(String.valueOf(prompt).getBytes(StandardCharsets.UTF_8));
+        return new OcrCacheKey(imageHash, model, toHex(digest.digest()));
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE is required to ship SHA-256
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0x0f];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0x0f];
+        }
+        return new String(chars);
+    }
+
+    public String getImageHash() {
+        return imageHash;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof OcrCacheKey)) {
+            return false;
+        }
+        return value.equals(((OcrCacheKey) o).value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(value);
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -0,0 +1,309 @@
+package org.example.easyocr.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.easyocr.entity.OcrCacheEntry;
+import org.example.easyocr.mapper.OcrCacheMapper;
+import org.example.easyocr.metrics.StatsSource;
+import org.example.easyocr.service.OcrResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Two-tier cache of OCR results.
+ * <p>
+ * The first tier is a bounded in-memory LRU with a TTL, the second tier is the
+ * {@code ocr_result_cache} table in the H2 database. A miss in memory falls through
+ * to the database and a database hit is promoted back into memory. Failures of the
+ * persistent tier are logged and treated as misses so the cache never fails a request.
+ */
+@Component
+public class OcrResultCache implements StatsSource {
+
+    private static final Logger logger = Logger.getLogger(OcrResultCache.class.getName());
+
+    private static final TypeReference<Map<String, Object>> RESULT_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    private final OcrCacheMapper cacheMapper;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cache.memory.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${app.cache.memory.ttl:3600000}")
+    private long memoryTtl;
+
+    @Value("${app.cache.persistent.enabled:true}")
+    private boolean persistentEnabled;
+
+    @Value("${app.cache.persistent.ttl:604800000}")
+    private long persistentTtl;
+
+    @Value("${app.cache.disabled-endpoints:}")
+    private String disabledEndpoints;
+
+    private Set<String> disabledEndpointSet;
+
+    // Access-ordered map, so iteration order is least recently used first
+    private final LinkedHashMap<String, MemoryEntry> memory = new LinkedHashMap<String, MemoryEntry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MemoryEntry> eldest) {
+            if (size() > maxEntries) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong persistentHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong puts = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong persistentErrors = new AtomicLong();
+
+    public OcrResultCache(OcrCacheMapper cacheMapper, ObjectMapper objectMapper) {
+        this.cacheMapper = cacheMapper;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Check whether results of the given endpoint may be cached
+     *
+     * @param endpoint The endpoint name, e.g. {@code "process"} or {@code "document-base64"}
+     * @return true if caching is enabled for the endpoint
+     */
+    public boolean isEnabledFor(String endpoint) {
+        if (!enabled) {
+            return false;
+        }
+        if (disabledEndpointSet == null) {
+            disabledEndpointSet = parseEndpoints(disabledEndpoints);
+        }
+        return !disabledEndpointSet.contains(endpoint);
+    }
+
+    /**
+     * Look up a result, first in memory and then in the database
+     *
+     * @param key The cache key
+     * @return The cached result, or null on a miss
+     */
+    public Map<String, Object> get(OcrCacheKey key) {
+        return getAny(Collections.singletonList(key));
+    }
+
+    /**
+     * Look up a result under several keys at once, such as the keys of each model that may have
+     * answered the image: memory first, then one query of the database. A miss is counted once.
+     *
+     * @param keys The cache keys, in order of preference
+     * @return The result of the first key that has one, or null on a miss
+     */
+    public Map<String, Object> getAny(List<OcrCacheKey> keys) {
+        long now = System.currentTimeMillis();
+        synchronized (memory) {
+            for (OcrCacheKey key : keys) {
+                MemoryEntry entry = memory.get(key.getValue());
+                if (entry == null) {
+                    continue;
+                }
+                if (entry.expiresAt > now) {
+                    memoryHits.incrementAndGet();
+                    return new LinkedHashMap<>(entry.result);
+                }
+                memory.remove(key.getValue());
+                expirations.incrementAndGet();
+            }
+        }
+
+        Map<OcrCacheKey, Map<String, Object>> persisted = getPersistent(keys);
+        for (OcrCacheKey key : keys) {
+            Map<String, Object> result = persisted.get(key);
+            if (result != null) {
+                persistentHits.incrementAndGet();
+                putMemory(key, result, now);
+                return new LinkedHashMap<>(result);
+            }
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Store a result in both tiers. Errors are never cached; extracted fields are, whatever
+     * their names.
+     *
+     * @param key The cache key
+     * @param answer The OCR result
+     */
+    public void put(OcrCacheKey key, OcrResult answer) {
+        if (answer == null || answer.getKind() == OcrResult.Kind.ERROR) {
+            return;
+        }
+        Map<String, Object> result = answer.toMap();
+        long now = System.currentTimeMillis();
+        putMemory(key, result, now);
+        putPersistent(key, result);
+        puts.incrementAndGet();
+    }
+
+    /**
+     * Drop all entries from the memory tier; the persistent tier is left untouched
+     */
+    public void clearMemory() {
+        synchronized (memory) {
+            memory.clear();
+        }
+    }
+
+    /**
+     * Periodically delete expired rows from the persistent tier
+     */
+    @Scheduled(fixedDelayString = "${app.cache.persistent.purge-interval:3600000}")
+    public void purgeExpired() {
+        if (!persistentEnabled) {
+            return;
+        }
+        try {
+            int deleted = cacheMapper.delete(new LambdaQueryWrapper<OcrCacheEntry>()
+                    .lt(OcrCacheEntry::getExpiresAt, LocalDateTime.now()));
+            if (deleted > 0) {
+                logger.info("Purged " + deleted + " expired OCR cache entries");
+            }
+        } catch (Exception e) {
+            persistentErrors.incrementAndGet();
+            logger.log(Level.WARNING, "Failed to purge expired OCR cache entries", e);
+        }
+    }
+
+    private void putMemory(OcrCacheKey key, Map<String, Object> result, long now) {
+        synchronized (memory) {
+            memory.put(key.getValue(), new MemoryEntry(new LinkedHashMap<>(result), now + memoryTtl));
+        }
+    }
+
+    /**
+     * @return The live results found for the keys; a failed read is an empty map
+     */
+    private Map<OcrCacheKey, Map<String, Object>> getPersistent(List<OcrCacheKey> keys) {
+        Map<OcrCacheKey, Map<String, Object>> results = new HashMap<>();
+        if (!persistentEnabled) {
+            return results;
+        }
+        try {
+            List<OcrCacheEntry> entries;
+            if (keys.size() == 1) {
+                OcrCacheEntry entry = cacheMapper.selectById(keys.get(0).getValue());
+                entries = entry != null ? Collections.singletonList(entry) : Collections.emptyList();
+            } else {
+                entries = cacheMapper.selectBatchIds(keys.stream().map(OcrCacheKey::getValue).collect(Collectors.toList()));
+            }
+            for (OcrCacheEntry entry : entries) {
+                if (entry.getExpiresAt() != null && entry.getExpiresAt().isBefore(LocalDateTime.now())) {
+                    expirations.incrementAndGet();
+                    continue;
+                }
+                for (OcrCacheKey key : keys) {
+                    if (key.getValue().equals(entry.getCacheKey())) {
+                        results.put(key, objectMapper.readValue(entry.getResultJson(), RESULT_TYPE));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            persistentErrors.incrementAndGet();
+            logger.log(Level.WARNING, "Failed to read OCR result from persistent cache", e);
+            results.clear();
+        }
+        return results;
+    }
+
+    private void putPersistent(OcrCacheKey key, Map<String, Object> result) {
+        if (!persistentEnabled) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            OcrCacheEntry entry = new OcrCacheEntry();
+            entry.setCacheKey(key.getValue());
+            entry.setImageHash(key.getImageHash());
+            entry.setModel(key.getModel());
+            entry.setResultJson(objectMapper.writeValueAsString(result));
+            entry.setCreatedAt(now);
+            entry.setExpiresAt(now.plusNanos(persistentTtl * 1_000_000L));
+            // Update first so that a re-put refreshes the TTL, insert on a miss
+            if (cacheMapper.updateById(entry) == 0) {
+                cacheMapper.insert(entry);
+            }
+        } catch (Exception e) {
+            persistentErrors.incrementAndGet();
+            logger.log(Level.WARNING, "Failed to write OCR result to persistent cache", e);
+        }
+    }
+
+    private static Set<String> parseEndpoints(String endpoints) {
+        if (endpoints == null || endpoints.trim().isEmpty()) {
+            return new HashSet<>();
+        }
+        return Arrays.stream(endpoints.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public String getStatsName() {
+        return "cache";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("memory_hits", memoryHits.get());
+        stats.put("persistent_hits", persistentHits.get());
+        stats.put("misses", misses.get());
+        stats.put("puts", puts.get());
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        stats.put("persistent_errors", persistentErrors.get());
+        synchronized (memory) {
+            stats.put("memory_size", memory.size());
+        }
+        stats.put("memory_max_entries", maxEntries);
+        return stats;
+    }
+
+    private static final class MemoryEntry {
+        private final Map<String, Object> result;
+        private final long expiresAt;
+
+        private MemoryEntry(Map<String, Object> result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.easyocr.cache;
+
+import org.example.easyocr.metrics.StatsSource;
+import org.example.easyocr.metrics.TimerStats;
+import org.example.easyocr.service.OcrResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-flight execution of identical OCR requests.
+ * <p>
+ * The first request for a key runs the upstream call on its own thread; requests for the
+ * same key that arrive while it is in flight wait for its result instead of calling
+ * upstream again. Waiters only ever wait on the shared future and never cancel it, so a
+ * waiter that times out or is interrupted leaves without affecting the call or the other
+ * waiters. Unlike {@link OcrResultCache} nothing is kept once the call completes.
+ */
+@Component
+public class RequestCoalescer implements StatsSource {
+
+    @Value("${app.coalescing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.coalescing.max-wait:120000}")
+    private long maxWaitMillis;
+
+    private final Map<OcrCacheKey, CompletableFuture<OcrResult>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong waiterTimeouts = new AtomicLong();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final TimerStats waitTimes = new TimerStats();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Run the call, or join the identical call already in flight
+     *
+     * @param key The request key
+     * @param call The upstream call, only run if no call for the key is in flight
+     * @return The result of the call, shared with the waiters
+     * @throws IOException If the call failed, or the waiting thread was interrupted
+     */
+    public OcrResult execute(OcrCacheKey key, Call call) throws IOException {
+        if (!enabled) {
+            return call.call();
+        }
+        CompletableFuture<OcrResult> shared = new CompletableFuture<>();
+        CompletableFuture<OcrResult> existing = inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        calls.incrementAndGet();
+        try {
+            OcrResult result = call.call();
+            shared.complete(result);
+            return result;
+        } catch (IOException | RuntimeException | Error e) {
+            shared.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, shared);
+        }
+    }
+
+    private OcrResult await(CompletableFuture<OcrResult> shared) throws IOException {
+        coalesced.incrementAndGet();
+        waiting.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            return shared.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            waiterTimeouts.incrementAndGet();
+            return OcrResult.error("Timed out waiting for an identical request in progress", null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an identical request in progress");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Identical request in progress failed: " + cause.getMessage(), cause);
+        } finally {
+            waiting.decrementAndGet();
+            waitTimes.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String getStatsName() {
+        return "coalescing";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("calls", calls.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("in_flight", inFlight.size());
+        stats.put("waiting", waiting.get());
+        stats.put("waiter_timeouts", waiterTimeouts.get());
+        waitTimes.putInto(stats, "wait");
+        return stats;
+    }
+
+    /**
+     * The call to share between identical requests
+     */
+    public interface Call {
+        OcrResult call() throws IOException;
+    }
+}
@@ -1,72 +1,112 @@
 package org.example.easyocr.config;
 
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.protocol.HttpCoreContext;
+import org.example.easyocr.http.AbortableClientHttpRequestFactory;
+import org.example.easyocr.http.PooledConnectionManager;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.BufferingClientHttpRequestFactory;
 import org.springframework.http.client.ClientHttpRequestFactory;
-import org.springframework.http.client.ClientHttpRequestInterceptor;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
-import org.springframework.util.CollectionUtils;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.logging.Level;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 @Configuration
 public class AppConfig implements WebMvcConfigurer {
 
     private static final Logger logger = Logger.getLogger(AppConfig.class.getName());
-    
+
     @Value("${app.http.connect-timeout}")
     private int connectTimeout;
-    
+
     @Value("${app.http.read-timeout}")
     private int readTimeout;
-    
+
+    @Value("${app.http.pool.max-total:200}")
+    private int maxTotalConnections;
+
+    @Value("${app.http.pool.max-per-route:50}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${app.http.pool.connection-request-timeout:10000}")
+    private int connectionRequestTimeout;
+
+    @Value("${app.http.pool.idle-timeout:30000}")
+    private long idleTimeout;
+
+    @Value("${app.http.pool.keep-alive:60000}")
+    private long keepAlive;
+
+    @Value("${app.http.pool.time-to-live:300000}")
+    private long timeToLive;
+
+    @Value("${app.http.pool.validate-after-inactivity:2000}")
+    private int validateAfterInactivity;
+
     @Value("${app.cors.allowed-origins}")
     private String allowedOrigins;
 
     @Bean
     public RestTemplate restTemplate() {
-        // Create a factory with request/response logging
-        ClientHttpRequestFactory factory = new BufferingClientHttpRequestFactory(clientHttpRequestFactory());
-        
-        RestTemplate restTemplate = new RestTemplate(factory);
-        
-        // Add request/response logging interceptor
-        List<ClientHttpRequestInterceptor> interceptors = restTemplate.getInterceptors();
-        if (CollectionUtils.isEmpty(interceptors)) {
-            interceptors = new ArrayList<>();
-        }
-        interceptors.add((request, body, execution) -> {
-            logger.info("Making request to: " + request.getURI());
-            logger.info("Request method: " + request.getMethod());
-            try {
-                return execution.execute(request, body);
-            } catch (Exception e) {
-                logger.log(Level.SEVERE, "Error during API request", e);
-                throw e;
-            }
-        });
-        restTemplate.setInterceptors(interceptors);
-        
-        return restTemplate;
+        // No ClientHttpRequestInterceptor here: RestTemplate buffers the whole request body
+        // as soon as one is registered, so logging happens inside the HTTP client instead
+        return new RestTemplate(clientHttpRequestFactory());
     }
-    
+
     @Bean
     public ClientHttpRequestFactory clientHttpRequestFactory() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(connectTimeout);
-        factory.setReadTimeout(readTimeout);
-        factory.setBufferRequestBody(true);
+        // Registers each request so the losing call of a hedged pair can be aborted
+        HttpComponentsClientHttpRequestFactory factory = new AbortableClientHttpRequestFactory(httpClient());
+        // Stream request bodies straight to the connection instead of copying them into memory first
+        factory.setBufferRequestBody(false);
         return factory;
     }
 
+    @Bean
+    public PooledConnectionManager connectionManager() {
+        PooledConnectionManager connectionManager = new PooledConnectionManager(timeToLive, TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(maxTotalConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setValidateAfterInactivity(validateAfterInactivity);
+        return connectionManager;
+    }
+
+    @Bean
+    public CloseableHttpClient httpClient() {
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setSocketTimeout(readTimeout)
+                .setConnectionRequestTimeout(connectionRequestTimeout)
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager())
+                .setDefaultRequestConfig(requestConfig)
+                // Honour the server's Keep-Alive header, but never keep a connection longer than configured
+                .setKeepAliveStrategy((response, context) -> {
+                    long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return duration > 0 ? Math.min(duration, keepAlive) : keepAlive;
+                })
+                .evictIdleConnections(idleTimeout, TimeUnit.MILLISECONDS)
+                .evictExpiredConnections()
+                // Add request logging without touching the request body
+                .addInterceptorFirst((HttpRequestInterceptor) (request, context) -> {
+                    logger.fine("Making request to: " + HttpCoreContext.adapt(context).getTargetHost()
+                            + request.getRequestLine().getUri());
+                    logger.fine("Request method: " + request.getRequestLine().getMethod());
+                })
+                .build();
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
@@ -74,4 +114,4 @@ public class AppConfig implements WebMvcConfigurer {
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                 .allowedHeaders("*");
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,149 @@
+package org.example.easyocr.controller;
+
+import org.example.easyocr.async.OcrTaskExecutor;
+import org.example.easyocr.service.OcrService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous variants of the {@link OcrController} endpoints.
+ * <p>
+ * The servlet thread is released as soon as the request is validated; the OCR call runs on
+ * the bounded {@link OcrTaskExecutor}. When that executor is saturated the request is
+ * answered right away with {@code 429 Too Many Requests} and a {@code Retry-After} header.
+ */
+@RestController
+@RequestMapping("/api/ocr/async")
+public class AsyncOcrController {
+
+    private static final Logger logger = Logger.getLogger(AsyncOcrController.class.getName());
+    private final OcrService ocrService;
+    private final OcrTaskExecutor ocrTaskExecutor;
+
+    public AsyncOcrController(OcrService ocrService, OcrTaskExecutor ocrTaskExecutor) {
+        this.ocrService = ocrService;
+        this.ocrTaskExecutor = ocrTaskExecutor;
+    }
+
+    /**
+     * Process an image file asynchronously and return the extracted text
+     *
+     * @param image The image file to process
+     * @return A future of a map containing the extracted text
+     */
+    @PostMapping(value = "/process", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> processImage(@RequestParam("image") MultipartFile image) {
+        ResponseEntity<Map<String, Object>> invalid = validateImage(image);
+        if (invalid != null) {
+            return CompletableFuture.completedFuture(invalid);
+        }
+        return submit(() -> ocrService.processImage(image), "Error processing image: ");
+    }
+
+    /**
+     * Process a base64 encoded image asynchronously and return the extracted text
+     *
+     * @param request Map containing the base64 encoded image
+     * @return A future of a map containing the extracted text
+     */
+    @PostMapping(value = "/process-base64")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> processBase64Image(@RequestBody Map<String, String> request) {
+        String base64Image = request.get("image");
+        ResponseEntity<Map<String, Object>> invalid = validateBase64Image(base64Image);
+        if (invalid != null) {
+            return CompletableFuture.completedFuture(invalid);
+        }
+        return submit(() -> ocrService.processBase64Image(base64Image), "Error processing image: ");
+    }
+
+    /**
+     * Process a document image asynchronously and return structured JSON data
+     *
+     * @param image The document image file to process
+     * @return A future of a JSON object containing the extracted fields
+     */
+    @PostMapping(value = "/document", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> processDocumentImage(@RequestParam("image") MultipartFile image) {
+        ResponseEntity<Map<String, Object>> invalid = validateImage(image);
+        if (invalid != null) {
+            return CompletableFuture.completedFuture(invalid);
+        }
+        return submit(() -> ocrService.processDocumentImage(image), "Error processing document image: ");
+    }
+
+    /**
+     * Process a base64 encoded document image asynchronously and return structured JSON data
+     *
+     * @param request Map containing the base64 encoded image
+     * @return A future of a JSON object containing the extracted fields
+     */
+    @PostMapping(value = "/document-base64")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> processDocumentBase64Image(@RequestBody Map<String, String> request) {
+        String base64Image = request.get("image");
+        ResponseEntity<Map<String, Object>> invalid = validateBase64Image(base64Image);
+        if (invalid != null) {
+            return CompletableFuture.completedFuture(invalid);
+        }
+        return submit(() -> ocrService.processDocumentBase64Image(base64Image), "Error processing document image: ");
+    }
+
+    private CompletableFuture<ResponseEntity<Map<String, Object>>> submit(Callable<Map<String, Object>> task, String ioErrorPrefix) {
+        try {
+            return ocrTaskExecutor.submit(task).handle((result, e) -> {
+                if (e == null) {
+                    return ResponseEntity.ok(result);
+                }
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof IOException) {
+                    logger.log(Level.SEVERE, "Error processing image", cause);
+                    return ResponseEntity.badRequest().body(Map.of("error", ioErrorPrefix + cause.getMessage()));
+                }
+                logger.log(Level.SEVERE, "Unexpected error", cause);
+                return ResponseEntity.badRequest().body(Map.of("error", "An unexpected error occurred: " + cause.getMessage()));
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warning("OCR executor saturated, rejecting request");
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(ocrTaskExecutor.getRetryAfterSeconds()))
+                    .body(Map.of("error", "Too many OCR requests in progress, please retry later")));
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> validateImage(MultipartFile image) {
+        if (image == null || image.isEmpty()) {
+            logger.warning("No image file provided");
+            return ResponseEntity.badRequest().body(Map.of("error", "No image provided"));
+        }
+        String contentType = image.getContentType();
+        if (contentType == null || !contentType.startsWith("image/")) {
+            logger.warning("Invalid content type: " + contentType);
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid file type. Please upload an image"));
+        }
+        return null;
+    }
+
+    private ResponseEntity<Map<String, Object>> validateBase64Image(String base64Image) {
+        if (base64Image == null || base64Image.isEmpty()) {
+            logger.warning("No base64 image data provided");
+            return ResponseEntity.badRequest().body(Map.of("error", "No image data provided"));
+        }
+        if (!base64Image.contains(";base64,") && !base64Image.startsWith("data:image")) {
+            logger.warning("Invalid base64 format, missing prefix");
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid base64 format"));
+        }
+        return null;
+    }
+}
@@ -1,14 +1,34 @@
 package org.example.easyocr.controller;
 
+import org.example.easyocr.document.MultiPageDocuments;
+import org.example.easyocr.image.Base64ImageSource;
+import org.example.easyocr.image.MultipartImageSource;
+import org.example.easyocr.scheduling.Lane;
+import org.example.easyocr.scheduling.OcrRequestContext;
+import org.example.easyocr.service.BatchOcrService;
+import org.example.easyocr.service.MultiPageOcrService;
+import org.example.easyocr.service.OcrMode;
 import org.example.easyocr.service.OcrService;
+import org.example.easyocr.service.TiledOcrService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -18,19 +38,36 @@ public class OcrController {
 
     private static final Logger logger = Logger.getLogger(OcrController.class.getName());
     private final OcrService ocrService;
+    private final BatchOcrService batchOcrService;
+    private final MultiPageOcrService multiPageOcrService;
+    private final TiledOcrService tiledOcrService;
+    private final AsyncTaskExecutor batchStreamExecutor;
 
-    public OcrController(OcrService ocrService) {
+    /**
+     * @param batchStreamExecutor Runs the batches whose results are streamed, the executor Spring MVC
+     *                            uses for asynchronous responses
+     */
+    public OcrController(OcrService ocrService, BatchOcrService batchOcrService, MultiPageOcrService multiPageOcrService,
+                         TiledOcrService tiledOcrService,
+                         @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                         AsyncTaskExecutor batchStreamExecutor) {
         this.ocrService = ocrService;
+        this.batchOcrService = batchOcrService;
+        this.multiPageOcrService = multiPageOcrService;
+        this.tiledOcrService = tiledOcrService;
+        this.batchStreamExecutor = batchStreamExecutor;
     }
 
     /**
      * Process an image file and return the extracted text
      * 
      * @param image The image file to process
+     * @param tiled Whether to read a large image in overlapping bands at once, see {@link TiledOcrService}
      * @return A map containing the extracted text
      */
     @PostMapping(value = "/process", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<Map<String, Object>> processImage(@RequestParam("image") MultipartFile image) {
+    public ResponseEntity<Map<String, Object>> processImage(@RequestParam("image") MultipartFile image,
+                                                            @RequestParam(value = "tiled", defaultValue = "false") boolean tiled) {
         try {
             if (image == null || image.isEmpty()) {
                 logger.warning("No image file provided");
@@ -42,14 +79,21 @@ public class OcrController {
                         ", Size: " + image.getSize() + 
                         ", Content-Type: " + image.getContentType());
             
-            // Validate image type
+            // Multi-page PDFs and TIFFs are split into pages and processed page by page
             String contentType = image.getContentType();
+            if (MultiPageDocuments.isMultiPage(contentType)) {
+                return ResponseEntity.ok(multiPageOcrService.processDocument(new MultipartImageSource(image), OcrMode.TEXT, "process"));
+            }
+            
+            // Validate image type
             if (contentType == null || !contentType.startsWith("image/")) {
                 logger.warning("Invalid content type: " + contentType);
                 return ResponseEntity.badRequest().body(Map.of("error", "Invalid file type. Please upload an image"));
             }
             
-            Map<String, Object> result = ocrService.processImage(image);
+            Map<String, Object> result = tiled
+                    ? tiledOcrService.processImage(new MultipartImageSource(image), "process")
+                    : ocrService.processImage(image);
             return ResponseEntity.ok(result);
         } catch (IOException e) {
             logger.log(Level.SEVERE, "Error processing image", e);
@@ -63,7 +107,8 @@ public class OcrController {
     /**
      * Process a base64 encoded image and return the extracted text
      * 
-     * @param request Map containing the base64 encoded image
+     * @param request Map containing the base64 encoded image, and "tiled": "true" to read a large
+     * image in overlapping bands at once
      * @return A JSON object containing the extracted fields
      */
     @PostMapping(value = "/process-base64")
@@ -84,6 +129,18 @@ public class OcrController {
                 return ResponseEntity.badRequest().body(Map.of("error", "Invalid base64 format"));
             }
             
+            Base64ImageSource source = Base64ImageSource.of(base64Image, null);
+            if (MultiPageDocuments.isMultiPage(source.getContentType())) {
+                return processBase64Document(source, OcrMode.TEXT, "process-base64");
+            }
+            if (Boolean.parseBoolean(request.get("tiled"))) {
+                if (source.getEncodedLength() == 0 || !source.isValid()) {
+                    logger.warning("Invalid base64 string, length: " + source.getEncodedLength());
+                    return ResponseEntity.badRequest().body(Map.of("error", "Invalid image data format"));
+                }
+                return ResponseEntity.ok(tiledOcrService.processImage(source, "process-base64"));
+            }
+            
             Map<String, Object> result = ocrService.processBase64Image(base64Image);
             return ResponseEntity.ok(result);
         } catch (IOException e) {
@@ -101,10 +158,13 @@ public class OcrController {
      * Process a document image (ID card, driver's license, etc.) and return structured JSON data
      * 
      * @param image The document image file to process
+     * @param documentType The document type, such as "id_card", if the client knows it; it selects
+     * a prompt with the fields of that type
      * @return A JSON object containing the extracted fields
      */
     @PostMapping(value = "/document", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<Map<String, Object>> processDocumentImage(@RequestParam("image") MultipartFile image) {
+    public ResponseEntity<Map<String, Object>> processDocumentImage(@RequestParam("image") MultipartFile image,
+                                                                    @RequestParam(value = "type", required = false) String documentType) {
         try {
             if (image == null || image.isEmpty()) {
                 logger.warning("No document image file provided");
@@ -116,14 +176,19 @@ public class OcrController {
                         ", Size: " + image.getSize() + 
                         ", Content-Type: " + image.getContentType());
             
-            // Validate image type
+            // Multi-page PDFs and TIFFs are split into pages and processed page by page
             String contentType = image.getContentType();
+            if (MultiPageDocuments.isMultiPage(contentType)) {
+                return ResponseEntity.ok(multiPageOcrService.processDocument(new MultipartImageSource(image), OcrMode.DOCUMENT, "document"));
+            }
+            
+            // Validate image type
             if (contentType == null || !contentType.startsWith("image/")) {
                 logger.warning("Invalid content type: " + contentType);
                 return ResponseEntity.badRequest().body(Map.of("error", "Invalid file type. Please upload an image"));
             }
             
-            Map<String, Object> result = ocrService.processDocumentImage(image);
+            Map<String, Object> result = ocrService.processDocumentImage(image, documentType);
             return ResponseEntity.ok(result);
         } catch (IOException e) {
             logger.log(Level.SEVERE, "Error processing document image", e);
@@ -137,7 +202,7 @@ public class OcrController {
     /**
      * Process a base64 encoded document image and return structured JSON data
      * 
-     * @param request Map containing the base64 encoded image
+     * @param request Map containing the base64 encoded image and optionally the document "type"
      * @return A JSON object containing the extracted fields
      */
     @PostMapping(value = "/document-base64")
@@ -158,7 +223,13 @@ public class OcrController {
                 return ResponseEntity.badRequest().body(Map.of("error", "Invalid base64 format"));
             }
             
-            Map<String, Object> result = ocrService.processDocumentBase64Image(base64Image);
+            Base64ImageSource source = Base64ImageSource.of(base64Image, null);
+            if (MultiPageDocuments.isMultiPage(source.getContentType())) {
+                return processBase64Document(source, OcrMode.DOCUMENT, "document-base64");
+            }
+            
+            String documentType = request.get("type");
+            Map<String, Object> result = ocrService.processDocumentBase64Image(base64Image, null, documentType);
             return ResponseEntity.ok(result);
         } catch (IOException e) {
             logger.log(Level.SEVERE, "Error processing base64 document image", e);
@@ -170,4 +241,170 @@ public class OcrController {
             return ResponseEntity.badRequest().body(errorResponse);
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Process many image files in parallel and stream one NDJSON line per image as it completes
+     * 
+     * @param images The image files to process
+     * @param mode "text" for plain text extraction or "document" for structured fields
+     * @return An NDJSON stream of {"index", "name", "result" | "error", "duration_ms"} objects
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> processBatch(@RequestParam("images") List<MultipartFile> images,
+                                                            @RequestParam(value = "mode", defaultValue = "text") String mode) {
+        String invalid = validateBatch(images, mode);
+        if (invalid != null) {
+            return batchError(invalid);
+        }
+        logger.info("Processing batch of " + images.size() + " image files, mode: " + mode);
+        
+        List<BatchOcrService.Item> items = new ArrayList<>();
+        for (int i = 0; i < images.size(); i++) {
+            MultipartFile image = images.get(i);
+            String contentType = image.getContentType();
+            if (image.isEmpty()) {
+                items.add(BatchOcrService.Item.invalid(i, image.getOriginalFilename(), "No image provided"));
+            } else if (contentType == null || !contentType.startsWith("image/")) {
+                items.add(BatchOcrService.Item.invalid(i, image.getOriginalFilename(), "Invalid file type. Please upload an image"));
+            } else {
+                items.add(BatchOcrService.Item.of(i, image.getOriginalFilename(), new MultipartImageSource(image)));
+            }
+        }
+        return streamBatch(items, OcrMode.fromParameter(mode));
+    }
+
+    /**
+     * Process many base64 encoded images in parallel and stream one NDJSON line per image as it completes
+     * 
+     * @param request JSON object with an "images" list of base64 images and an optional "mode"
+     * @return An NDJSON stream of {"index", "result" | "error", "duration_ms"} objects
+     */
+    @PostMapping(value = "/batch-base64")
+    public ResponseEntity<ResponseBodyEmitter> processBatchBase64(@RequestBody Map<String, Object> request) {
+        Object imagesValue = request.get("images");
+        String mode = request.get("mode") instanceof String ? (String) request.get("mode") : "text";
+        if (!(imagesValue instanceof List)) {
+            logger.warning("No base64 image list provided");
+            return batchError("No image data provided");
+        }
+        List<?> images = (List<?>) imagesValue;
+        String invalid = validateBatch(images, mode);
+        if (invalid != null) {
+            return batchError(invalid);
+        }
+        logger.info("Processing batch of " + images.size() + " base64 images, mode: " + mode);
+        
+        List<BatchOcrService.Item> items = new ArrayList<>();
+        for (int i = 0; i < images.size(); i++) {
+            Object value = images.get(i);
+            if (!(value instanceof String) || ((String) value).isEmpty()) {
+                items.add(BatchOcrService.Item.invalid(i, null, "No image data provided"));
+                continue;
+            }
+            Base64ImageSource image = Base64ImageSource.of((String) value, null);
+            if (image.getEncodedLength() == 0 || !image.isValid()) {
+                items.add(BatchOcrService.Item.invalid(i, null, "Invalid image data format"));
+            } else {
+                items.add(BatchOcrService.Item.of(i, null, image));
+            }
+        }
+        return streamBatch(items, OcrMode.fromParameter(mode));
+    }
+
+    private ResponseEntity<Map<String, Object>> processBase64Document(Base64ImageSource source, OcrMode mode, String endpoint) throws IOException {
+        if (source.getEncodedLength() == 0 || !source.isValid()) {
+            logger.warning("Invalid base64 document, length: " + source.getEncodedLength());
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid image data format"));
+        }
+        return ResponseEntity.ok(multiPageOcrService.processDocument(source, mode, endpoint));
+    }
+
+    private String validateBatch(List<?> images, String mode) {
+        if (images == null || images.isEmpty()) {
+            logger.warning("Empty batch");
+            return "No images provided";
+        }
+        if (images.size() > batchOcrService.getMaxItems()) {
+            logger.warning("Batch too large: " + images.size());
+            return "Too many images, the maximum is " + batchOcrService.getMaxItems();
+        }
+        try {
+            OcrMode.fromParameter(mode);
+        } catch (IllegalArgumentException e) {
+            logger.warning("Invalid batch mode: " + mode);
+            return "Invalid mode. Use 'text' or 'document'";
+        }
+        return null;
+    }
+
+    /**
+     * A 400 with the usual {"error"} body, sent through an emitter because Spring MVC picks the
+     * handler of a batch response by its declared type
+     */
+    private static ResponseEntity<ResponseBodyEmitter> batchError(String error) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+        try {
+            emitter.send(Map.of("error", error), MediaType.APPLICATION_JSON);
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(emitter);
+    }
+
+    private ResponseEntity<ResponseBodyEmitter> streamBatch(List<BatchOcrService.Item> items, OcrMode mode) {
+        // Timed out by the size of the batch rather than spring.mvc.async.request-timeout, which is meant for one image
+        long timeoutMillis = batchOcrService.getTimeoutMillis(items.size());
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeoutMillis);
+        // The body is written on another thread, which gets the request's context in the batch lane,
+        // waiting for upstream slots until the response times out rather than the interactive deadline
+        OcrRequestContext context = OcrRequestContext.current()
+                .withLane(Lane.BATCH, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+        Future<?> batch = batchStreamExecutor.submit(() -> {
+            OcrRequestContext previous = OcrRequestContext.bind(context);
+            try {
+                batchOcrService.processBatch(items, mode, new BufferedOutputStream(new EmitterOutputStream(emitter)));
+                emitter.complete();
+            } catch (IOException e) {
+                logger.log(Level.FINE, "Batch stream closed before the batch was done", e);
+                emitter.completeWithError(e);
+            } finally {
+                OcrRequestContext.restore(previous);
+            }
+        });
+        // Nobody reads the rest of the batch after a timeout or a disconnect, stop processing it
+        emitter.onTimeout(() -> {
+            logger.warning("Batch of " + items.size() + " images timed out");
+            batch.cancel(true);
+        });
+        emitter.onError(e -> batch.cancel(true));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(emitter);
+    }
+
+    /**
+     * Sends what is written to it as chunks of the emitter's response, one per flush when buffered
+     */
+    private static class EmitterOutputStream extends OutputStream {
+
+        private final ResponseBodyEmitter emitter;
+
+        EmitterOutputStream(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                emitter.send(Arrays.copyOfRange(b, off, off + len), MediaType.APPLICATION_NDJSON);
+            } catch (IllegalStateException e) {
+                // Completed by a timeout or a disconnect
+                throw new IOException("The batch response is already complete", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.example.easyocr.controller;
+
+import org.example.easyocr.entity.OcrJob;
+import org.example.easyocr.image.Base64ImageSource;
+import org.example.easyocr.job.OcrJobService;
+import org.example.easyocr.service.OcrMode;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@RestController
+@RequestMapping("/api/ocr/jobs")
+public class OcrJobController {
+
+    private static final Logger logger = Logger.getLogger(OcrJobController.class.getName());
+    private final OcrJobService jobService;
+
+    public OcrJobController(OcrJobService jobService) {
+        this.jobService = jobService;
+    }
+
+    /**
+     * Queue an image file for asynchronous OCR
+     * 
+     * @param image The image file to process
+     * @param mode "text" for plain text extraction or "document" for structured fields
+     * @return The job id and status, with 202 Accepted
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, Object>> submitJob(@RequestParam("image") MultipartFile image,
+                                                         @RequestParam(value = "mode", defaultValue = "text") String mode) {
+        try {
+            if (image == null || image.isEmpty()) {
+                logger.warning("No image file provided");
+                return ResponseEntity.badRequest().body(Map.of("error", "No image provided"));
+            }
+            String contentType = image.getContentType();
+            if (contentType == null || !contentType.startsWith("image/")) {
+                logger.warning("Invalid content type: " + contentType);
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid file type. Please upload an image"));
+            }
+            OcrMode ocrMode = parseMode(mode);
+            if (ocrMode == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid mode. Use 'text' or 'document'"));
+            }
+            
+            OcrJob job = jobService.submit(image.getBytes(), contentType, image.getOriginalFilename(), ocrMode);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(jobService.toStatus(job));
+        } catch (OcrJobService.JobQueueFullException e) {
+            logger.warning(e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error reading image", e);
+            return ResponseEntity.badRequest().body(Map.of("error", "Error processing image: " + e.getMessage()));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Unexpected error", e);
+            return ResponseEntity.badRequest().body(Map.of("error", "An unexpected error occurred: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Queue a base64 encoded image for asynchronous OCR
+     * 
+     * @param request Map containing the base64 encoded "image" and an optional "mode"
+     * @return The job id and status, with 202 Accepted
+     */
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> submitBase64Job(@RequestBody Map<String, String> request) {
+        try {
+            String base64Image = request.get("image");
+            if (base64Image == null || base64Image.isEmpty()) {
+                logger.warning("No base64 image data provided");
+                return ResponseEntity.badRequest().body(Map.of("error", "No image data provided"));
+            }
+            Base64ImageSource image = Base64ImageSource.of(base64Image, null);
+            if (image.getEncodedLength() == 0 || !image.isValid()) {
+                logger.warning("Invalid base64 image data");
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid image data format"));
+            }
+            OcrMode ocrMode = parseMode(request.getOrDefault("mode", "text"));
+            if (ocrMode == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid mode. Use 'text' or 'document'"));
+            }
+            
+            byte[] imageData;
+            try (InputStream in = image.openStream()) {
+                imageData = in.readAllBytes();
+            }
+            OcrJob job = jobService.submit(imageData, image.getContentType(), null, ocrMode);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(jobService.toStatus(job));
+        } catch (OcrJobService.JobQueueFullException e) {
+            logger.warning(e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Unexpected error", e);
+            return ResponseEntity.badRequest().body(Map.of("error", "An unexpected error occurred: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get the status of a job
+     * 
+     * @param id The job id
+     * @return The job status, attempts and timestamps
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> getJob(@PathVariable("id") String id) {
+        OcrJob job = jobService.getJob(id);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Job not found"));
+        }
+        return ResponseEntity.ok(jobService.toStatus(job));
+    }
+
+    /**
+     * Get the result of a job: the OCR result once it succeeded, its error once it failed,
+     * or its status with 202 Accepted while it is still waiting or running
+     * 
+     * @param id The job id
+     * @return The OCR result
+     */
+    @GetMapping("/{id}/result")
+    public ResponseEntity<Map<String, Object>> getJobResult(@PathVariable("id") String id) {
+        try {
+            OcrJob job = jobService.getJob(id);
+            if (job == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Job not found"));
+            }
+            if (!job.isFinished()) {
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(jobService.toStatus(job));
+            }
+            return ResponseEntity.ok(jobService.getResult(job));
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error reading job result", e);
+            return ResponseEntity.badRequest().body(Map.of("error", "Error reading job result: " + e.getMessage()));
+        }
+    }
+
+    private OcrMode parseMode(String mode) {
+        try {
+            return OcrMode.fromParameter(mode);
+        } catch (IllegalArgumentException e) {
+            logger.warning("Invalid mode: " + mode);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.easyocr.controller;
+
+import org.example.easyocr.entity.OcrResultRecord;
+import org.example.easyocr.result.OcrResultStore;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@RestController
+@RequestMapping("/api/ocr/results")
+public class OcrResultController {
+
+    private static final Logger logger = Logger.getLogger(OcrResultController.class.getName());
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final OcrResultStore resultStore;
+
+    public OcrResultController(OcrResultStore resultStore) {
+        this.resultStore = resultStore;
+    }
+
+    /**
+     * Search past OCR results, newest first
+     *
+     * @param q Words to search the extracted text for; all results if omitted
+     * @param endpoint Only results of this endpoint, such as "document"
+     * @param imageHash Only results of the image with this SHA-256 hash
+     * @param from Only results stored at or after this ISO date-time
+     * @param to Only results stored before this ISO date-time
+     * @param page The zero-based page number
+     * @param size The number of results per page, at most 100
+     * @return The page of results with the total number of matches
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> search(@RequestParam(value = "q", required = false) String q,
+                                                      @RequestParam(value = "endpoint", required = false) String endpoint,
+                                                      @RequestParam(value = "imageHash", required = false) String imageHash,
+                                                      @RequestParam(value = "from", required = false)
+                                                      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                      @RequestParam(value = "to", required = false)
+                                                      @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                      @RequestParam(value = "page", defaultValue = "0") int page,
+                                                      @RequestParam(value = "size", defaultValue = "20") int size) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid page. Use a page of 0 or more and a size of 1 to " + MAX_PAGE_SIZE));
+        }
+        try {
+            return ResponseEntity.ok(resultStore.search(blankToNull(q), blankToNull(endpoint), blankToNull(imageHash), from, to, page, size));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error searching OCR results", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Error searching OCR results: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get one stored OCR result
+     *
+     * @param id The id of the result
+     * @return The result, or 404 if it does not exist or has been purged
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<Object> getResult(@PathVariable("id") long id) {
+        OcrResultRecord record = resultStore.find(id);
+        if (record == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Result not found"));
+        }
+        return ResponseEntity.ok(record);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.easyocr.controller;
+
+import org.example.easyocr.document.MultiPageDocuments;
+import org.example.easyocr.image.BytesImageSource;
+import org.example.easyocr.image.ImageUploads;
+import org.example.easyocr.service.MultiPageOcrService;
+import org.example.easyocr.service.OcrMode;
+import org.example.easyocr.service.OcrService;
+import org.example.easyocr.service.TiledOcrService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Variants of the {@link OcrController} endpoints that take the image as the raw request body,
+ * selected with an {@code image/*} or {@code application/octet-stream} {@code Content-Type}.
+ * <p>
+ * Compared to a multipart upload there is no form parsing and no temporary file, and compared
+ * to base64 the body is a third smaller and needs no decoding. The image is read once into an
+ * array of its exact size; for {@code application/octet-stream} the format is recognized from
+ * its first bytes.
+ */
+@RestController
+@RequestMapping("/api/ocr")
+public class RawOcrController {
+
+    private static final Logger logger = Logger.getLogger(RawOcrController.class.getName());
+    private final OcrService ocrService;
+    private final MultiPageOcrService multiPageOcrService;
+    private final TiledOcrService tiledOcrService;
+
+    @Value("${app.upload.max-bytes:20971520}")
+    private long maxBytes;
+
+    public RawOcrController(OcrService ocrService, MultiPageOcrService multiPageOcrService, TiledOcrService tiledOcrService) {
+        this.ocrService = ocrService;
+        this.multiPageOcrService = multiPageOcrService;
+        this.tiledOcrService = tiledOcrService;
+    }
+
+    /**
+     * Process an image sent as the request body and return the extracted text
+     *
+     * @param request The request whose body is the image
+     * @param tiled Whether to read a large image in overlapping bands at once, see {@link TiledOcrService}
+     * @return A map containing the extracted text
+     */
+    @PostMapping(value = "/process", consumes = {"image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<Map<String, Object>> processImage(HttpServletRequest request,
+                                                            @RequestParam(value = "tiled", defaultValue = "false") boolean tiled) {
+        return process(request, OcrMode.TEXT, tiled, null, "process-raw");
+    }
+
+    /**
+     * Process a document image sent as the request body and return structured JSON data
+     *
+     * @param request The request whose body is the image
+     * @param documentType The document type, such as "id_card", if the client knows it
+     * @return A JSON object containing the extracted fields
+     */
+    @PostMapping(value = "/document", consumes = {"image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<Map<String, Object>> processDocumentImage(HttpServletRequest request,
+                                                                    @RequestParam(value = "type", required = false) String documentType) {
+        return process(request, OcrMode.DOCUMENT, false, documentType, "document-raw");
+    }
+
+    private ResponseEntity<Map<String, Object>> process(HttpServletRequest request, OcrMode mode, boolean tiled,
+                                                        String documentType, String endpoint) {
+        BytesImageSource source;
+        try {
+            source = ImageUploads.read(request.getInputStream(), request.getContentLengthLong(), maxBytes, declaredType(request));
+        } catch (ImageUploads.UploadTooLargeException e) {
+            logger.warning("Rejected raw upload of " + request.getContentLengthLong() + " bytes");
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not read raw upload", e);
+            return ResponseEntity.badRequest().body(Map.of("error", "Error reading image: " + e.getMessage()));
+        }
+
+        try {
+            if (source.getSize() == 0) {
+                logger.warning("Empty request body");
+                return ResponseEntity.badRequest().body(Map.of("error", "No image provided"));
+            }
+            String contentType = source.getContentType();
+            logger.info("Processing raw image, Size: " + source.getSize() + ", Content-Type: " + contentType);
+
+            // Multi-page PDFs and TIFFs are split into pages and processed page by page
+            if (MultiPageDocuments.isMultiPage(contentType)) {
+                return ResponseEntity.ok(multiPageOcrService.processDocument(source, mode, endpoint));
+            }
+            if (contentType == null || !contentType.startsWith("image/")) {
+                logger.warning("Unrecognized raw image format");
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid file type. Please upload an image"));
+            }
+
+            Map<String, Object> result = tiled
+                    ? tiledOcrService.processImage(source, endpoint)
+                    : ocrService.processImage(source, mode, documentType, endpoint);
+            return ResponseEntity.ok(result);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error processing raw image", e);
+            return ResponseEntity.badRequest().body(Map.of("error", "Error processing image: " + e.getMessage()));
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Unexpected error", e);
+            return ResponseEntity.badRequest().body(Map.of("error", "An unexpected error occurred: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * The declared image type, or null if the body is declared as opaque bytes and its format
+     * has to be recognized
+     */
+    private static String declaredType(HttpServletRequest request) {
+        MediaType mediaType = MediaType.parseMediaType(request.getContentType());
+        if (!"image".equals(mediaType.getType()) || mediaType.isWildcardSubtype()) {
+            return null;
+        }
+        return mediaType.getType() + "/" + mediaType.getSubtype();
+    }
+}
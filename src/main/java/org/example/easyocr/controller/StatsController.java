@@ -0,0 +1,36 @@
+package org.example.easyocr.controller;
+
+import org.example.easyocr.metrics.StatsSource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/stats")
+public class StatsController {
+
+    private final List<StatsSource> statsSources;
+
+    public StatsController(List<StatsSource> statsSources) {
+        this.statsSources = statsSources;
+    }
+
+    /**
+     * Return a snapshot of the counters of every registered stats source
+     *
+     * @return A map of stats source name to its counters
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (StatsSource source : statsSources) {
+            stats.put(source.getStatsName(), source.getStats());
+        }
+        return ResponseEntity.ok(stats);
+    }
+}
@@ -0,0 +1,196 @@
+package org.example.easyocr.controller;
+
+import org.example.easyocr.async.OcrTaskExecutor;
+import org.example.easyocr.image.Base64ImageSource;
+import org.example.easyocr.image.ImageSource;
+import org.example.easyocr.image.MultipartImageSource;
+import org.example.easyocr.service.OcrMode;
+import org.example.easyocr.service.OcrResult;
+import org.example.easyocr.service.OcrService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Server-sent event variants of the {@link OcrController} endpoints, selected with
+ * {@code Accept: text/event-stream}.
+ * <p>
+ * The answer is relayed while the upstream API generates it: one {@code delta} event with
+ * {@code {"text": ...}} per piece, then a single {@code result} event with the same map the
+ * JSON endpoints return, so document mode still ends with the parsed fields. Failures are
+ * sent as an {@code error} event. The upstream call runs on the {@link OcrTaskExecutor}.
+ */
+@RestController
+@RequestMapping("/api/ocr")
+public class StreamingOcrController {
+
+    private static final Logger logger = Logger.getLogger(StreamingOcrController.class.getName());
+    private final OcrService ocrService;
+    private final OcrTaskExecutor ocrTaskExecutor;
+
+    public StreamingOcrController(OcrService ocrService, OcrTaskExecutor ocrTaskExecutor) {
+        this.ocrService = ocrService;
+        this.ocrTaskExecutor = ocrTaskExecutor;
+    }
+
+    /**
+     * Process an image file and stream the extracted text
+     *
+     * @param image The image file to process
+     * @return An event stream of the extracted text
+     */
+    @PostMapping(value = "/process", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamImage(@RequestParam("image") MultipartFile image) {
+        return streamMultipart(validateImage(image), image, OcrMode.TEXT, null, "process");
+    }
+
+    /**
+     * Process a base64 encoded image and stream the extracted text
+     *
+     * @param request Map containing the base64 encoded image
+     * @return An event stream of the extracted text
+     */
+    @PostMapping(value = "/process-base64", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamBase64Image(@RequestBody Map<String, String> request) {
+        return streamBase64(request.get("image"), OcrMode.TEXT, null, "process-base64");
+    }
+
+    /**
+     * Process a document image and stream the answer, ending with the structured fields
+     *
+     * @param image The document image file to process
+     * @param documentType The document type, such as "id_card", if the client knows it
+     * @return An event stream ending with the extracted fields
+     */
+    @PostMapping(value = "/document", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamDocumentImage(@RequestParam("image") MultipartFile image,
+                                                          @RequestParam(value = "type", required = false) String documentType) {
+        return streamMultipart(validateImage(image), image, OcrMode.DOCUMENT, documentType, "document");
+    }
+
+    /**
+     * Process a base64 encoded document image and stream the answer, ending with the structured fields
+     *
+     * @param request Map containing the base64 encoded image and optionally the document "type"
+     * @return An event stream ending with the extracted fields
+     */
+    @PostMapping(value = "/document-base64", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamDocumentBase64Image(@RequestBody Map<String, String> request) {
+        return streamBase64(request.get("image"), OcrMode.DOCUMENT, request.get("type"), "document-base64");
+    }
+
+    private ResponseEntity<SseEmitter> streamMultipart(String invalid, MultipartFile image, OcrMode mode, String documentType, String endpoint) {
+        if (invalid != null) {
+            return ResponseEntity.badRequest().body(errorEmitter(invalid));
+        }
+        logger.info("Streaming image: " + image.getOriginalFilename() + ", Size: " + image.getSize() + ", Content-Type: " + image.getContentType());
+        return submit(new MultipartImageSource(image), mode, documentType, endpoint);
+    }
+
+    private ResponseEntity<SseEmitter> streamBase64(String base64Image, OcrMode mode, String documentType, String endpoint) {
+        if (base64Image == null || base64Image.isEmpty()) {
+            logger.warning("No base64 image data provided");
+            return ResponseEntity.badRequest().body(errorEmitter("No image data provided"));
+        }
+        if (!base64Image.contains(";base64,") && !base64Image.startsWith("data:image")) {
+            logger.warning("Invalid base64 format, missing prefix");
+            return ResponseEntity.badRequest().body(errorEmitter("Invalid base64 format"));
+        }
+        Base64ImageSource image = Base64ImageSource.of(base64Image, null);
+        if (image.getEncodedLength() == 0 || !image.isValid()) {
+            logger.warning("Invalid base64 string, length: " + image.getEncodedLength());
+            return ResponseEntity.badRequest().body(errorEmitter("Invalid image data format"));
+        }
+        logger.info("Streaming base64 image, length: " + base64Image.length());
+        return submit(image, mode, documentType, endpoint);
+    }
+
+    private ResponseEntity<SseEmitter> submit(ImageSource image, OcrMode mode, String documentType, String endpoint) {
+        SseEmitter emitter = new SseEmitter();
+        try {
+            ocrTaskExecutor.submit(() -> {
+                run(emitter, image, mode, documentType, endpoint);
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warning("OCR executor saturated, rejecting streaming request");
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(ocrTaskExecutor.getRetryAfterSeconds()))
+                    .body(errorEmitter("Too many OCR requests in progress, please retry later"));
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    private void run(SseEmitter emitter, ImageSource image, OcrMode mode, String documentType, String endpoint) {
+        try {
+            // A failed send stops the upstream read, and is counted as an abort rather than an upstream error
+            OcrResult result = ocrService.recognizeStreaming(image, mode, documentType, endpoint,
+                    text -> send(emitter, SseEmitter.event().name("delta").data(Map.of("text", text))));
+            String event = result.getKind() == OcrResult.Kind.ERROR ? "error" : "result";
+            send(emitter, SseEmitter.event().name(event).data(result.toMap()));
+            emitter.complete();
+        } catch (IOException e) {
+            // The client went away, nothing left to send to
+            logger.info("Streaming client aborted the " + endpoint + " request: " + e.getMessage());
+            emitter.completeWithError(e);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Unexpected error", e);
+            try {
+                send(emitter, SseEmitter.event().name("error").data(Map.of("error", "An unexpected error occurred: " + e.getMessage())));
+                emitter.complete();
+            } catch (IOException sendFailure) {
+                emitter.completeWithError(sendFailure);
+            }
+        }
+    }
+
+    /**
+     * Send an event, failing with an {@link IOException} also when the emitter was already
+     * completed by a timeout or a disconnect
+     */
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) throws IOException {
+        try {
+            emitter.send(event);
+        } catch (IllegalStateException e) {
+            throw new IOException("The event stream is already complete", e);
+        }
+    }
+
+    /**
+     * An event stream that consists of a single error event, so the client can handle every
+     * outcome with one event parser
+     */
+    private SseEmitter errorEmitter(String error) {
+        SseEmitter emitter = new SseEmitter();
+        try {
+            emitter.send(SseEmitter.event().name("error").data(Map.of("error", error)));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    private String validateImage(MultipartFile image) {
+        if (image == null || image.isEmpty()) {
+            logger.warning("No image file provided");
+            return "No image provided";
+        }
+        String contentType = image.getContentType();
+        if (contentType == null || !contentType.startsWith("image/")) {
+            logger.warning("Invalid content type: " + contentType);
+            return "Invalid file type. Please upload an image";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.easyocr.document;
+
+import org.example.easyocr.image.ImageSource;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A document with several pages, such as a PDF or a multi-frame TIFF, whose pages are
+ * turned into images one at a time. Implementations are not thread-safe.
+ */
+public interface MultiPageDocument extends Closeable {
+
+    /**
+     * @return The number of pages
+     * @throws IOException If the document can not be read
+     */
+    int getPageCount() throws IOException;
+
+    /**
+     * Render a single page. Only that page is held in memory while it is rendered.
+     *
+     * @param index The zero-based page index
+     * @return The page as an encoded image
+     * @throws IOException If the page can not be rendered
+     */
+    ImageSource renderPage(int index) throws IOException;
+}
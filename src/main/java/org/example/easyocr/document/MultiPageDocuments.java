@@ -0,0 +1,46 @@
+package org.example.easyocr.document;
+
+import org.example.easyocr.image.ImageSource;
+
+import java.io.IOException;
+
+/**
+ * Opens {@link MultiPageDocument}s by content type.
+ */
+public final class MultiPageDocuments {
+
+    public static final String PDF = "application/pdf";
+    public static final String TIFF = "image/tiff";
+
+    private MultiPageDocuments() {
+    }
+
+    /**
+     * @param contentType The content type of an upload, may be null
+     * @return Whether the upload has to be split into pages before OCR
+     */
+    public static boolean isMultiPage(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase();
+        return type.startsWith(PDF) || type.startsWith(TIFF) || type.startsWith("image/tif");
+    }
+
+    /**
+     * Open a document for page-by-page rendering
+     *
+     * @param source The uploaded document
+     * @param dpi The resolution PDF pages are rendered at
+     * @param jpegQuality The JPEG quality the pages are encoded with
+     * @param maxPixels The most pixels a page may have; larger pages fail to render
+     * @return The opened document, to be closed by the caller
+     * @throws IOException If the document can not be read
+     */
+    public static MultiPageDocument open(ImageSource source, float dpi, float jpegQuality, long maxPixels) throws IOException {
+        if (source.getContentType().toLowerCase().startsWith(PDF)) {
+            return new PdfDocument(source, dpi, jpegQuality, maxPixels);
+        }
+        return new TiffDocument(source, jpegQuality, maxPixels);
+    }
+}
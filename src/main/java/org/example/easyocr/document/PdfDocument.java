@@ -0,0 +1,55 @@
+package org.example.easyocr.document;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.example.easyocr.image.BytesImageSource;
+import org.example.easyocr.image.ImagePreprocessor;
+import org.example.easyocr.image.ImageSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A PDF rendered page by page with PDFBox. The parsed document is buffered in a temporary
+ * file rather than on the heap, so large files only cost memory for the page being rendered.
+ */
+class PdfDocument implements MultiPageDocument {
+
+    private final PDDocument document;
+    private final PDFRenderer renderer;
+    private final float dpi;
+    private final float jpegQuality;
+    private final long maxPixels;
+
+    PdfDocument(ImageSource source, float dpi, float jpegQuality, long maxPixels) throws IOException {
+        try (InputStream in = source.openStream()) {
+            this.document = PDDocument.load(in, MemoryUsageSetting.setupTempFileOnly());
+        }
+        this.renderer = new PDFRenderer(document);
+        this.dpi = dpi;
+        this.jpegQuality = jpegQuality;
+        this.maxPixels = maxPixels;
+    }
+
+    @Override
+    public int getPageCount() {
+        return document.getNumberOfPages();
+    }
+
+    @Override
+    public ImageSource renderPage(int index) throws IOException {
+        // The renderer draws the crop box, in points of 1/72 inch
+        PDRectangle box = document.getPage(index).getCropBox();
+        ImagePreprocessor.checkPixels(Math.round(box.getWidth() * dpi / 72), Math.round(box.getHeight() * dpi / 72), maxPixels);
+        byte[] jpeg = ImagePreprocessor.encodeJpeg(renderer.renderImageWithDPI(index, dpi, ImageType.RGB), jpegQuality);
+        return new BytesImageSource(jpeg, "image/jpeg");
+    }
+
+    @Override
+    public void close() throws IOException {
+        document.close();
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.easyocr.document;
+
+import org.example.easyocr.image.BytesImageSource;
+import org.example.easyocr.image.ImagePreprocessor;
+import org.example.easyocr.image.ImageSource;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * A multi-frame TIFF whose frames are decoded one at a time with the JDK's TIFF reader.
+ * Frames are re-encoded as JPEG, which the upstream API accepts and TIFF it does not.
+ */
+class TiffDocument implements MultiPageDocument {
+
+    private final InputStream in;
+    private final ImageInputStream input;
+    private final ImageReader reader;
+    private final float jpegQuality;
+    private final long maxPixels;
+
+    TiffDocument(ImageSource source, float jpegQuality, long maxPixels) throws IOException {
+        this.in = source.openStream();
+        this.input = ImageIO.createImageInputStream(in);
+        Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+        if (readers == null || !readers.hasNext()) {
+            close(in, input);
+            throw new IOException("Not a readable TIFF image");
+        }
+        this.reader = readers.next();
+        // Not seek-forward-only, the page count needs a scan over all frames
+        reader.setInput(input, false, true);
+        this.jpegQuality = jpegQuality;
+        this.maxPixels = maxPixels;
+    }
+
+    @Override
+    public int getPageCount() throws IOException {
+        return reader.getNumImages(true);
+    }
+
+    @Override
+    public ImageSource renderPage(int index) throws IOException {
+        ImagePreprocessor.checkPixels(reader.getWidth(index), reader.getHeight(index), maxPixels);
+        byte[] jpeg = ImagePreprocessor.encodeJpeg(reader.read(index), jpegQuality);
+        return new BytesImageSource(jpeg, "image/jpeg");
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.dispose();
+        close(in, input);
+    }
+
+    private static void close(InputStream in, ImageInputStream input) throws IOException {
+        try {
+            if (input != null) {
+                input.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
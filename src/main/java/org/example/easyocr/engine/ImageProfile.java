@@ -0,0 +1,142 @@
+package org.example.easyocr.engine;
+
+import org.example.easyocr.image.ImageSource;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The properties of an image that decide which engine reads it: its size and how much of it
+ * is covered by ink, measured on a subsampled decode.
+ */
+public final class ImageProfile {
+
+    private static final Logger logger = Logger.getLogger(ImageProfile.class.getName());
+
+    /**
+     * The profile of an image that could not be decoded
+     */
+    public static final ImageProfile UNKNOWN = new ImageProfile(0, 0, -1);
+
+    /**
+     * Long edge of the decode the ink is counted on
+     */
+    private static final int SAMPLE_LONG_EDGE = 1024;
+
+    /**
+     * Difference in luminance from the background above which a pixel counts as ink
+     */
+    private static final int INK_CONTRAST = 64;
+
+    private final int width;
+    private final int height;
+    private final double inkRatio;
+
+    ImageProfile(int width, int height, double inkRatio) {
+        this.width = width;
+        this.height = height;
+        this.inkRatio = inkRatio;
+    }
+
+    /**
+     * Profile an image
+     *
+     * @param image The image
+     * @return The profile, or {@link #UNKNOWN} if the image can not be decoded
+     */
+    public static ImageProfile of(ImageSource image) {
+        try (InputStream in = image.openStream(); ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            if (input == null) {
+                return UNKNOWN;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return UNKNOWN;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(width, height) / SAMPLE_LONG_EDGE);
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return new ImageProfile(width, height, inkRatio(reader.read(0, param)));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.FINE, "Could not profile image", e);
+            return UNKNOWN;
+        }
+    }
+
+    /**
+     * The share of pixels that stand out from the background, which is taken to be the median
+     * luminance so that light text on a dark background counts as well
+     */
+    static double inkRatio(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        int[] histogram = new int[256];
+        for (int argb : pixels) {
+            // Transparent areas count as white, like paper
+            int luminance = (argb >>> 24) < 128 ? 255
+                    : (299 * ((argb >> 16) & 0xFF) + 587 * ((argb >> 8) & 0xFF) + 114 * (argb & 0xFF)) / 1000;
+            histogram[luminance]++;
+        }
+        int background = 0;
+        for (int seen = 0; background < 255; background++) {
+            seen += histogram[background];
+            if (seen * 2 >= pixels.length) {
+                break;
+            }
+        }
+        int ink = 0;
+        for (int luminance = 0; luminance < 256; luminance++) {
+            if (Math.abs(luminance - background) > INK_CONTRAST) {
+                ink += histogram[luminance];
+            }
+        }
+        return pixels.length == 0 ? 0 : (double) ink / pixels.length;
+    }
+
+    public boolean isKnown() {
+        return inkRatio >= 0;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getPixels() {
+        return (long) width * height;
+    }
+
+    /**
+     * @return The share of pixels covered by ink, between 0 and 1, or -1 if unknown
+     */
+    public double getInkRatio() {
+        return inkRatio;
+    }
+
+    @Override
+    public String toString() {
+        return isKnown() ? width + "x" + height + ", ink " + inkRatio : "unknown";
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.easyocr.engine;
+
+import org.example.easyocr.image.ImageSource;
+import org.example.easyocr.prompt.OcrPrompt;
+import org.example.easyocr.prompt.PromptRegistry;
+import org.example.easyocr.service.OcrResult;
+import org.example.easyocr.upstream.ChatCompletionStreamReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+
+/**
+ * An engine that runs in process and answers the images with nothing to read: blank pages,
+ * whose ink coverage is below {@code app.engines.local.blank-ink-ratio}, and crops too small
+ * to hold a legible character. Its answer is deterministic and it never fails, so these images
+ * are served without an upstream call, and while the upstream is unreachable.
+ */
+@Component
+public class LocalOcrEngine implements OcrEngine {
+
+    public static final String NAME = "local";
+
+    @Value("${app.engines.local.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.engines.local.cost:0}")
+    private double cost;
+
+    @Value("${app.engines.local.blank-ink-ratio:0.0001}")
+    private double blankInkRatio;
+
+    @Value("${app.engines.local.min-pixels:256}")
+    private long minPixels;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public double getCost() {
+        return cost;
+    }
+
+    @Override
+    public boolean supports(ImageProfile profile, OcrPrompt prompt) {
+        return profile.isKnown() && (profile.getPixels() < minPixels || profile.getInkRatio() < blankInkRatio);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * @return No text, or no fields for a document
+     */
+    @Override
+    public OcrResult recognize(ImageSource image, OcrPrompt prompt, String endpoint, ChatCompletionStreamReader.DeltaListener listener) {
+        OcrResult result = PromptRegistry.TEXT.equals(prompt.getType()) ? OcrResult.text("") : OcrResult.fields(new LinkedHashMap<>());
+        return result.from(NAME, NAME, null);
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.easyocr.engine;
+
+import org.example.easyocr.image.ImageSource;
+import org.example.easyocr.prompt.OcrPrompt;
+import org.example.easyocr.service.OcrResult;
+import org.example.easyocr.upstream.ChatCompletionStreamReader;
+
+/**
+ * Something that reads the text or fields of an image. {@link OcrEngineRouter} picks one per
+ * request among the engines that are enabled, can read the image and are available.
+ */
+public interface OcrEngine {
+
+    /**
+     * @return The name in the stats and the configuration, e.g. "remote"
+     */
+    String getName();
+
+    boolean isEnabled();
+
+    /**
+     * @return The cost of one call relative to the other engines; the cheapest engine that
+     * can read an image and keeps within the latency budget is used
+     */
+    double getCost();
+
+    /**
+     * @param profile The size and ink coverage of the image, or {@link ImageProfile#UNKNOWN}
+     * @param prompt What to extract
+     * @return Whether the engine can give a correct answer for this image
+     */
+    boolean supports(ImageProfile profile, OcrPrompt prompt);
+
+    /**
+     * @return Whether a call would be let through now
+     */
+    boolean isAvailable();
+
+    /**
+     * Read an image
+     *
+     * @param image The preprocessed image
+     * @param prompt What to extract
+     * @param endpoint The name of the calling endpoint, for metrics
+     * @param listener Receives each piece of the answer as it is generated, or null to get the answer at once
+     * @return The extracted text or fields, or an error the engine answered with
+     */
+    OcrResult recognize(ImageSource image, OcrPrompt prompt, String endpoint, ChatCompletionStreamReader.DeltaListener listener);
+}
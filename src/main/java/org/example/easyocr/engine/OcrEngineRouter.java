@@ -0,0 +1,200 @@
+package org.example.easyocr.engine;
+
+import org.example.easyocr.image.ImageSource;
+import org.example.easyocr.metrics.StatsSource;
+import org.example.easyocr.metrics.TimerStats;
+import org.example.easyocr.prompt.OcrPrompt;
+import org.example.easyocr.service.OcrResult;
+import org.example.easyocr.upstream.ChatCompletionStreamReader;
+import org.example.easyocr.upstream.StreamAbortedException;
+import org.example.easyocr.upstream.LatencyWindow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Picks the {@link OcrEngine} that reads an image.
+ * <p>
+ * Among the engines that are enabled, can read the image and are available, the cheapest
+ * whose recent latency keeps within {@code app.engines.latency-budget-ms} is used; if none
+ * keeps within the budget, the fastest. An engine is within the budget until it has answered
+ * {@code app.engines.min-samples} calls. If no engine that can read the image is available,
+ * the cheapest of them is called anyway and fails the way it does when unavailable.
+ * <p>
+ * The image is only profiled when more than one engine is enabled.
+ */
+@Component
+public class OcrEngineRouter implements StatsSource {
+
+    private static final Logger logger = Logger.getLogger(OcrEngineRouter.class.getName());
+
+    private static final int LATENCY_SAMPLES = 200;
+
+    private final List<Route> routes = new ArrayList<>();
+
+    @Value("${app.engines.latency-budget-ms:60000}")
+    private long latencyBudgetMillis;
+
+    @Value("${app.engines.latency-percentile:95}")
+    private double latencyPercentile;
+
+    @Value("${app.engines.min-samples:20}")
+    private int minSamples;
+
+    private final AtomicLong unavailable = new AtomicLong();
+    private final TimerStats profileTimes = new TimerStats();
+
+    public OcrEngineRouter(List<OcrEngine> engines) {
+        for (OcrEngine engine : engines) {
+            routes.add(new Route(engine));
+        }
+    }
+
+    /**
+     * Read an image with the engine that suits it best
+     *
+     * @param image The preprocessed image
+     * @param prompt What to extract
+     * @param endpoint The name of the calling endpoint, for metrics
+     * @param listener Receives each piece of the answer as it is generated, or null to get the answer at once
+     * @return The extracted text or fields, or an error the engine answered with
+     */
+    public OcrResult recognize(ImageSource image, OcrPrompt prompt, String endpoint, ChatCompletionStreamReader.DeltaListener listener) {
+        Route route = select(profile(image), prompt);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            OcrResult result = route.engine.recognize(image, prompt, endpoint, listener);
+            failed = result.getKind() == OcrResult.Kind.ERROR;
+            return result;
+        } catch (StreamAbortedException e) {
+            // The client went away, the engine was answering
+            failed = false;
+            throw e;
+        } finally {
+            route.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    private ImageProfile profile(ImageSource image) {
+        int enabled = 0;
+        for (Route route : routes) {
+            if (route.engine.isEnabled()) {
+                enabled++;
+            }
+        }
+        if (enabled < 2) {
+            return ImageProfile.UNKNOWN;
+        }
+        long start = System.nanoTime();
+        ImageProfile profile = ImageProfile.of(image);
+        profileTimes.record(System.nanoTime() - start);
+        return profile;
+    }
+
+    Route select(ImageProfile profile, OcrPrompt prompt) {
+        Route best = null;
+        Route cheapest = null;
+        for (Route route : routes) {
+            OcrEngine engine = route.engine;
+            if (!engine.isEnabled() || !engine.supports(profile, prompt)) {
+                continue;
+            }
+            if (cheapest == null || engine.getCost() < cheapest.engine.getCost()) {
+                cheapest = route;
+            }
+            if (engine.isAvailable() && (best == null || isBetter(route, best))) {
+                best = route;
+            }
+        }
+        if (cheapest == null) {
+            throw new IllegalStateException("No OCR engine is enabled that can read the image");
+        }
+        if (best == null) {
+            unavailable.incrementAndGet();
+            logger.warning("No OCR engine that can read the image is available, calling " + cheapest.engine.getName());
+            return cheapest;
+        }
+        logger.fine("Routing image (" + profile + ") to the " + best.engine.getName() + " engine");
+        return best;
+    }
+
+    private boolean isBetter(Route route, Route other) {
+        boolean withinBudget = isWithinBudget(route);
+        if (withinBudget != isWithinBudget(other)) {
+            return withinBudget;
+        }
+        if (!withinBudget) {
+            return route.latencies.percentile(latencyPercentile) < other.latencies.percentile(latencyPercentile);
+        }
+        if (route.engine.getCost() != other.engine.getCost()) {
+            return route.engine.getCost() < other.engine.getCost();
+        }
+        return route.latencies.getEwmaNanos() < other.latencies.getEwmaNanos();
+    }
+
+    private boolean isWithinBudget(Route route) {
+        return route.latencies.size() < minSamples
+                || route.latencies.percentile(latencyPercentile) <= TimeUnit.MILLISECONDS.toNanos(latencyBudgetMillis);
+    }
+
+    @Override
+    public String getStatsName() {
+        return "engines";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("unavailable", unavailable.get());
+        profileTimes.putInto(stats, "profile");
+        for (Route route : routes) {
+            Map<String, Object> engineStats = new LinkedHashMap<>();
+            engineStats.put("enabled", route.engine.isEnabled());
+            engineStats.put("available", route.engine.isAvailable());
+            engineStats.put("cost", route.engine.getCost());
+            engineStats.put("calls", route.calls.get());
+            engineStats.put("failures", route.failures.get());
+            engineStats.put("latency_p" + (int) latencyPercentile + "_ms", route.latencies.percentile(latencyPercentile) / 1_000_000.0);
+            route.callTimes.putInto(engineStats, "call");
+            stats.put(route.engine.getName(), engineStats);
+        }
+        return stats;
+    }
+
+    /**
+     * An engine with the latencies of its recent calls
+     */
+    static class Route {
+        private final OcrEngine engine;
+        private final LatencyWindow latencies = new LatencyWindow(LATENCY_SAMPLES);
+        private final TimerStats callTimes = new TimerStats();
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+
+        Route(OcrEngine engine) {
+            this.engine = engine;
+        }
+
+        OcrEngine getEngine() {
+            return engine;
+        }
+
+        void record(long nanos, boolean failed) {
+            calls.incrementAndGet();
+            callTimes.record(nanos);
+            if (failed) {
+                failures.incrementAndGet();
+            } else {
+                latencies.record(nanos);
+            }
+        }
+    }
+}
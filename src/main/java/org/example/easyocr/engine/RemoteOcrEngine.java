@@ -0,0 +1,267 @@
+package org.example.easyocr.engine;
+
+import org.example.easyocr.image.ImageSource;
+import org.example.easyocr.metrics.CountingInputStream;
+import org.example.easyocr.metrics.CountingOutputStream;
+import org.example.easyocr.metrics.OcrMetrics;
+import org.example.easyocr.prompt.OcrPrompt;
+import org.example.easyocr.prompt.PromptRegistry;
+import org.example.easyocr.scheduling.UpstreamScheduler;
+import org.example.easyocr.service.OcrResult;
+import org.example.easyocr.service.OcrResultFormatter;
+import org.example.easyocr.upstream.ChatCompletion;
+import org.example.easyocr.upstream.ChatCompletionRequestWriter;
+import org.example.easyocr.upstream.ChatCompletionResponseReader;
+import org.example.easyocr.upstream.ChatCompletionStreamReader;
+import org.example.easyocr.upstream.RequestAbortHandle;
+import org.example.easyocr.upstream.StreamAbortedException;
+import org.example.easyocr.upstream.UpstreamEndpoint;
+import org.example.easyocr.upstream.UpstreamKey;
+import org.example.easyocr.upstream.UpstreamRouter;
+import org.example.easyocr.upstream.UpstreamThrottle;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The chat-completions API: the image is sent along with the prompt to one of the upstream
+ * endpoints when it is the request's turn in the {@link UpstreamScheduler}, within the rate
+ * limits of {@link UpstreamThrottle}, with the API key {@link UpstreamRouter} picks by the
+ * quota the provider reports. It reads any image, and is
+ * unavailable while the circuit breakers of all endpoints are open.
+ */
+@Component
+public class RemoteOcrEngine implements OcrEngine {
+
+    public static final String NAME = "remote";
+
+    private static final Logger logger = Logger.getLogger(RemoteOcrEngine.class.getName());
+    private final RestTemplate restTemplate;
+    private final ChatCompletionRequestWriter requestWriter;
+    private final ChatCompletionResponseReader responseReader;
+    private final ChatCompletionStreamReader streamReader;
+    private final UpstreamScheduler upstreamScheduler;
+    private final UpstreamThrottle upstreamThrottle;
+    private final UpstreamRouter upstreamRouter;
+    private final OcrMetrics ocrMetrics;
+    private final OcrResultFormatter resultFormatter;
+    private final PromptRegistry promptRegistry;
+
+    @Value("${app.engines.remote.cost:1}")
+    private double cost;
+
+    public RemoteOcrEngine(RestTemplate restTemplate, ChatCompletionRequestWriter requestWriter,
+                           ChatCompletionResponseReader responseReader, ChatCompletionStreamReader streamReader,
+                           UpstreamScheduler upstreamScheduler, UpstreamThrottle upstreamThrottle, UpstreamRouter upstreamRouter,
+                           OcrMetrics ocrMetrics, OcrResultFormatter resultFormatter, PromptRegistry promptRegistry) {
+        this.restTemplate = restTemplate;
+        this.requestWriter = requestWriter;
+        this.responseReader = responseReader;
+        this.streamReader = streamReader;
+        this.upstreamScheduler = upstreamScheduler;
+        this.upstreamThrottle = upstreamThrottle;
+        this.upstreamRouter = upstreamRouter;
+        this.ocrMetrics = ocrMetrics;
+        this.resultFormatter = resultFormatter;
+        this.promptRegistry = promptRegistry;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public double getCost() {
+        return cost;
+    }
+
+    @Override
+    public boolean supports(ImageProfile profile, OcrPrompt prompt) {
+        return true;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return upstreamRouter.isAvailable();
+    }
+
+    /**
+     * Ask the API, first for the document type if the prompt asks for classification
+     *
+     * @throws RestClientException If the API can not be reached or answers with an error status
+     */
+    @Override
+    public OcrResult recognize(ImageSource image, OcrPrompt prompt, String endpoint, ChatCompletionStreamReader.DeltaListener listener) {
+        OcrPrompt promptToUse = prompt.isClassify() ? classify(image, endpoint) : prompt;
+        logger.fine("Using prompt: " + promptToUse.getText());
+        OcrResult result;
+        AtomicReference<String> model = new AtomicReference<>();
+        if (listener == null) {
+            logger.info("Sending request to OpenAI API");
+            ChatCompletion response = callUpstream(image, promptToUse, endpoint, model);
+            long formatStart = System.nanoTime();
+            result = resultFormatter.formatResponse(response).from(NAME, model.get(), response != null ? response.getUsage() : null);
+            ocrMetrics.recordStage(OcrMetrics.STAGE_FORMAT, endpoint, System.nanoTime() - formatStart);
+        } else {
+            logger.info("Sending streaming request to OpenAI API");
+            String content = callUpstreamStreaming(image, promptToUse, endpoint, listener, model);
+            long formatStart = System.nanoTime();
+            result = resultFormatter.formatContent(content).from(NAME, model.get(), null);
+            ocrMetrics.recordStage(OcrMetrics.STAGE_FORMAT, endpoint, System.nanoTime() - formatStart);
+        }
+        return result;
+    }
+
+    /**
+     * Ask for the document type with a short answer on a low-detail image
+     * @return The prompt for the type, or the generic prompt if the type is unknown or the call fails
+     */
+    private OcrPrompt classify(ImageSource image, String endpoint) {
+        try {
+            ChatCompletion answer = callUpstream(image, promptRegistry.getClassificationPrompt(), endpoint, new AtomicReference<>());
+            OcrPrompt prompt = promptRegistry.forClassification(answer != null ? answer.getContent() : null);
+            logger.info("Document classified as " + prompt.getType());
+            return prompt;
+        } catch (RestClientException e) {
+            logger.log(Level.WARNING, "Document classification failed, using the generic prompt", e);
+            return promptRegistry.forClassification(null);
+        }
+    }
+
+    /**
+     * Post the chat-completions request, streaming the JSON body with the base64 image
+     * straight to the connection; a slow call may be hedged to a second endpoint
+     * @param image The image to embed in the request
+     * @param prompt The prompt sent along with the image
+     * @param model Set to the model of the endpoint that answered
+     * @return The parts of the API response the result is made of
+     */
+    private ChatCompletion callUpstream(ImageSource image, OcrPrompt prompt, String endpoint, AtomicReference<String> model) {
+        ResponseExtractor<ChatCompletion> responseExtractor = response -> {
+            logger.info("Response received with status: " + response.getStatusCode());
+            long start = System.nanoTime();
+            CountingInputStream body = new CountingInputStream(response.getBody());
+            ChatCompletion parsed = responseReader.read(body);
+            ocrMetrics.recordStage(OcrMetrics.STAGE_READ, endpoint, System.nanoTime() - start);
+            ocrMetrics.recordPayload(endpoint, "response", body.getCount());
+            ocrMetrics.recordUsage(endpoint, parsed != null ? parsed.getUsage() : null);
+            return parsed;
+        };
+        long start = System.nanoTime();
+        try {
+            ChatCompletion completion = upstreamScheduler.execute(() -> upstreamThrottle.execute(estimateTokens(prompt),
+                    () -> upstreamRouter.execute((upstream, key) -> restTemplate.execute(upstream.getUrl(), HttpMethod.POST,
+                            requestCallback(upstream, key, image, prompt, endpoint, false),
+                            answeredBy(upstream, key, model, responseExtractor)), true)));
+            promptRegistry.record(prompt, completion != null ? completion.getUsage() : null, System.nanoTime() - start);
+            return completion;
+        } finally {
+            ocrMetrics.recordStage(OcrMetrics.STAGE_UPSTREAM, endpoint, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Post the chat-completions request with {@code "stream": true} and read the answer as it is generated
+     * @param image The image to embed in the request
+     * @param prompt The prompt sent along with the image
+     * @param listener Receives each piece of the answer
+     * @param model Set to the model of the endpoint that answered
+     * @return The complete answer text
+     */
+    private String callUpstreamStreaming(ImageSource image, OcrPrompt prompt, String endpoint, ChatCompletionStreamReader.DeltaListener listener,
+                                         AtomicReference<String> model) {
+        ResponseExtractor<String> responseExtractor = response -> {
+            logger.info("Streaming response received with status: " + response.getStatusCode());
+            CountingInputStream body = new CountingInputStream(response.getBody());
+            String content;
+            try {
+                content = streamReader.read(body, listener);
+            } catch (StreamAbortedException e) {
+                // Closing the response would otherwise read the rest of the answer nobody wants
+                RequestAbortHandle.abortCurrent();
+                throw e;
+            }
+            ocrMetrics.recordPayload(endpoint, "response", body.getCount());
+            return content;
+        };
+        long start = System.nanoTime();
+        try {
+            String content = upstreamScheduler.execute(() -> upstreamThrottle.execute(estimateTokens(prompt),
+                    () -> upstreamRouter.execute((upstream, key) -> restTemplate.execute(upstream.getUrl(), HttpMethod.POST,
+                            requestCallback(upstream, key, image, prompt, endpoint, true),
+                            answeredBy(upstream, key, model, responseExtractor)), false)));
+            promptRegistry.record(prompt, null, System.nanoTime() - start);
+            return content;
+        } finally {
+            ocrMetrics.recordStage(OcrMetrics.STAGE_UPSTREAM, endpoint, System.nanoTime() - start);
+        }
+    }
+
+    private int estimateTokens(OcrPrompt prompt) {
+        return upstreamThrottle.estimateTokens(prompt.getText(), prompt.getMaxTokens(), prompt.getDetail());
+    }
+
+    /**
+     * Pass the rate-limit headers of the answer to the key pool and note the model of the
+     * endpoint that answered before the body is read
+     */
+    private static <T> ResponseExtractor<T> answeredBy(UpstreamEndpoint upstream, UpstreamKey key, AtomicReference<String> model,
+                                                       ResponseExtractor<T> extractor) {
+        return response -> {
+            upstream.getKeys().onResponse(key, response.getHeaders());
+            model.set(upstream.getModel());
+            return extractor.extractData(response);
+        };
+    }
+
+    private RequestCallback requestCallback(UpstreamEndpoint upstream, UpstreamKey key, ImageSource image, OcrPrompt prompt,
+                                            String endpoint, boolean stream) {
+        return request -> {
+            HttpHeaders headers = request.getHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.set("Authorization", "Bearer " + key.getValue());
+            headers.set("User-Agent", "EasyOCR/1.0");
+            if (stream) {
+                headers.setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+            }
+            if (request instanceof StreamingHttpOutputMessage) {
+                ((StreamingHttpOutputMessage) request).setBody(out -> writeRequest(out, upstream, prompt, image, endpoint, stream));
+            } else {
+                writeRequest(request.getBody(), upstream, prompt, image, endpoint, stream);
+            }
+        };
+    }
+
+    /**
+     * Write the request body, timing the base64 encoding and JSON serialization, which
+     * happen while the body streams to the connection
+     */
+    private void writeRequest(OutputStream out, UpstreamEndpoint upstream, OcrPrompt prompt, ImageSource image,
+                              String endpoint, boolean stream) throws IOException {
+        long start = System.nanoTime();
+        CountingOutputStream body = new CountingOutputStream(out);
+        requestWriter.write(body, upstream.getModel(), prompt.getText(), image, stream, prompt.getMaxTokens(), prompt.getDetail());
+        ocrMetrics.recordStage(OcrMetrics.STAGE_UPLOAD, endpoint, System.nanoTime() - start);
+        ocrMetrics.recordPayload(endpoint, "request", body.getCount());
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.easyocr.http;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.example.easyocr.upstream.RequestAbortHandle;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.net.URI;
+
+/**
+ * Request factory that registers every request with the {@link RequestAbortHandle} of the
+ * calling thread, so a hedged call that lost can be aborted from another thread.
+ */
+public class AbortableClientHttpRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+    public AbortableClientHttpRequestFactory(HttpClient httpClient) {
+        super(httpClient);
+    }
+
+    @Override
+    protected HttpUriRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+        HttpUriRequest request = super.createHttpUriRequest(httpMethod, uri);
+        RequestAbortHandle.register(request);
+        return request;
+    }
+}
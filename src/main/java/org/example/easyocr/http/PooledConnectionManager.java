@@ -0,0 +1,98 @@
+package org.example.easyocr.http;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.example.easyocr.metrics.StatsSource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection pool for the upstream HTTP client that records how long callers wait
+ * to lease a connection, next to the usual leased/available/pending pool counters.
+ */
+public class PooledConnectionManager extends PoolingHttpClientConnectionManager implements StatsSource {
+
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong leaseTimeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public PooledConnectionManager(long timeToLive, TimeUnit unit) {
+        super(timeToLive, unit);
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        ConnectionRequest delegate = super.requestConnection(route, state);
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit unit)
+                    throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                long start = System.nanoTime();
+                try {
+                    HttpClientConnection connection = delegate.get(timeout, unit);
+                    leases.incrementAndGet();
+                    return connection;
+                } catch (ConnectionPoolTimeoutException e) {
+                    leaseTimeouts.incrementAndGet();
+                    throw e;
+                } finally {
+                    recordWait(System.nanoTime() - start);
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return delegate.cancel();
+            }
+        };
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    @Override
+    public String getStatsName() {
+        return "http_pool";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        PoolStats total = getTotalStats();
+        long leaseCount = leases.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("leased", total.getLeased());
+        stats.put("available", total.getAvailable());
+        stats.put("pending", total.getPending());
+        stats.put("max_total", total.getMax());
+        stats.put("max_per_route", getDefaultMaxPerRoute());
+        stats.put("utilization", total.getMax() == 0 ? 0.0 : (double) total.getLeased() / total.getMax());
+        stats.put("leases", leaseCount);
+        stats.put("lease_timeouts", leaseTimeouts.get());
+        stats.put("lease_wait_avg_ms", leaseCount == 0 ? 0.0 : totalWaitNanos.get() / 1_000_000.0 / leaseCount);
+        stats.put("lease_wait_max_ms", maxWaitNanos.get() / 1_000_000.0);
+
+        Map<String, Object> routes = new LinkedHashMap<>();
+        for (HttpRoute route : getRoutes()) {
+            PoolStats routeStats = getStats(route);
+            Map<String, Object> routeMap = new LinkedHashMap<>();
+            routeMap.put("leased", routeStats.getLeased());
+            routeMap.put("available", routeStats.getAvailable());
+            routeMap.put("pending", routeStats.getPending());
+            routeMap.put("max", routeStats.getMax());
+            routes.put(route.getTargetHost().toURI(), routeMap);
+        }
+        stats.put("routes", routes);
+        return stats;
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.easyocr.http;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.util.EntityUtils;
+import org.example.easyocr.upstream.UpstreamEndpoint;
+import org.example.easyocr.upstream.UpstreamRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Opens a number of keep-alive connections to each upstream endpoint once the application
+ * is ready, so the first OCR requests do not pay for DNS, TCP and TLS setup.
+ */
+@Component
+public class UpstreamConnectionWarmer {
+
+    private static final Logger logger = Logger.getLogger(UpstreamConnectionWarmer.class.getName());
+
+    private final HttpClient httpClient;
+    private final UpstreamRouter upstreamRouter;
+
+    @Value("${app.http.pool.warm-up-connections:0}")
+    private int warmUpConnections;
+
+    // The startup warm-up opens the connections itself, before the application reports ready
+    @Value("${app.warm-up.enabled:false}")
+    private boolean startupWarmUp;
+
+    public UpstreamConnectionWarmer(HttpClient httpClient, UpstreamRouter upstreamRouter) {
+        this.httpClient = httpClient;
+        this.upstreamRouter = upstreamRouter;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (warmUpConnections <= 0 || startupWarmUp) {
+            return;
+        }
+        Thread thread = new Thread(this::warmUp, "upstream-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Issue concurrent HEAD requests so that each one leases (and keeps) its own connection
+     *
+     * @return The number of connections that were opened successfully
+     */
+    public int warmUp() {
+        long start = System.currentTimeMillis();
+        int total = warmUpConnections * upstreamRouter.getEndpoints().size();
+        CountDownLatch done = new CountDownLatch(total);
+        AtomicInteger opened = new AtomicInteger();
+        for (int i = 0; i < total; i++) {
+            UpstreamEndpoint endpoint = upstreamRouter.getEndpoints().get(i % upstreamRouter.getEndpoints().size());
+            Thread worker = new Thread(() -> {
+                try {
+                    HttpResponse response = httpClient.execute(new HttpHead(endpoint.getUrl()));
+                    // Consuming the entity returns the connection to the pool instead of closing it
+                    EntityUtils.consumeQuietly(response.getEntity());
+                    opened.incrementAndGet();
+                } catch (Exception e) {
+                    logger.log(Level.FINE, "Upstream warm-up request failed", e);
+                } finally {
+                    done.countDown();
+                }
+            }, "upstream-warm-up-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Warmed up " + opened.get() + "/" + total + " upstream connections in "
+                + (System.currentTimeMillis() - start) + " ms");
+        return opened.get();
+    }
+}
@@ -0,0 +1,186 @@
+package org.example.easyocr.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Image backed by a base64 string, optionally prefixed with a data URI header
+ * such as {@code data:image/png;base64,}.
+ * <p>
+ * The string is never split or copied: the payload is addressed by its offset in the
+ * original string, decoded on the fly by {@link #openStream()} and copied to the output
+ * in small chunks by {@link #writeBase64(OutputStream)}.
+ */
+public class Base64ImageSource implements ImageSource {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    // 1 for every Latin-1 character outside the base64 alphabet
+    private static final byte[] INVALID = new byte[256];
+
+    static {
+        Arrays.fill(INVALID, (byte) 1);
+        for (char c : "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray()) {
+            INVALID[c] = 0;
+        }
+    }
+
+    private final String data;
+    private final int offset;
+    private final int end;
+    private final String contentType;
+
+    private Base64ImageSource(String data, int offset, int end, String contentType) {
+        this.data = data;
+        this.offset = offset;
+        this.end = end;
+        this.contentType = contentType;
+    }
+
+    /**
+     * Wrap a base64 string, taking the content type from its data URI header if none is given
+     *
+     * @param data The base64 string, with or without a data URI header
+     * @param contentType The content type, or null to derive it from the header
+     * @return The image source, defaulting to {@code image/jpeg} if no content type is known
+     */
+    public static Base64ImageSource of(String data, String contentType) {
+        int offset = 0;
+        int end = data.length();
+        int comma = data.indexOf(',');
+        if (comma >= 0) {
+            offset = comma + 1;
+            // Only the first segment after the header is image data
+            int nextComma = data.indexOf(',', offset);
+            if (nextComma >= 0) {
+                end = nextComma;
+            }
+            int colon = data.indexOf(':');
+            int semicolon = data.indexOf(';');
+            if (contentType == null && colon >= 0 && semicolon > colon && semicolon < comma) {
+                contentType = data.substring(colon + 1, semicolon);
+            }
+        }
+        return new Base64ImageSource(data, offset, end, contentType != null ? contentType : "image/jpeg");
+    }
+
+    /**
+     * Validate the payload in a single pass without decoding or copying it. Accepts exactly what
+     * {@link Base64.Decoder#decode(String)} of the basic decoder accepts.
+     *
+     * @return true if the payload is valid base64
+     */
+    public boolean isValid() {
+        return isValidBase64(data, offset, end);
+    }
+
+    /**
+     * @return The number of base64 characters in the payload
+     */
+    public int getEncodedLength() {
+        return end - offset;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public long getSize() {
+        int length = end - offset;
+        int padding = 0;
+        if (length > 0 && data.charAt(end - 1) == '=') {
+            padding++;
+            if (length > 1 && data.charAt(end - 2) == '=') {
+                padding++;
+            }
+        }
+        return (long) length * 3 / 4 - padding;
+    }
+
+    @Override
+    public InputStream openStream() {
+        return Base64.getDecoder().wrap(new AsciiInputStream());
+    }
+
+    @Override
+    public void writeBase64(OutputStream out) throws IOException {
+        byte[] buffer = new byte[Math.min(CHUNK_SIZE, Math.max(end - offset, 1))];
+        int position = offset;
+        while (position < end) {
+            int length = Math.min(buffer.length, end - position);
+            for (int i = 0; i < length; i++) {
+                buffer[i] = (byte) data.charAt(position + i);
+            }
+            out.write(buffer, 0, length);
+            position += length;
+        }
+    }
+
+    /**
+     * Check a range of a string for valid base64 with the rules of the basic decoder:
+     * only alphabet characters, no dangling single character in the last unit and
+     * padding, if present, must be complete and terminate the input.
+     * <p>
+     * The characters are checked against a table and the results OR-ed together, so the
+     * loop has no branch per character; it is checked once per chunk to stop early on
+     * garbage. That makes it several times faster than decoding with the JDK decoder.
+     */
+    static boolean isValidBase64(String s, int from, int to) {
+        int padding = 0;
+        while (padding < 2 && to - padding > from && s.charAt(to - padding - 1) == '=') {
+            padding++;
+        }
+        int payloadEnd = to - padding;
+        int length = payloadEnd - from;
+        // Padding completes the last unit to four characters, without it one character can not form a byte
+        if (padding > 0 ? (length + padding) % 4 != 0 : length % 4 == 1) {
+            return false;
+        }
+        for (int chunkStart = from; chunkStart < payloadEnd; chunkStart += CHUNK_SIZE) {
+            int chunkEnd = Math.min(payloadEnd, chunkStart + CHUNK_SIZE);
+            int invalid = 0;
+            for (int i = chunkStart; i < chunkEnd; i++) {
+                char c = s.charAt(i);
+                invalid |= INVALID[c & 0xff] | (c >>> 8);
+            }
+            if (invalid != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Streams the payload characters as ASCII bytes, for the JDK base64 decoder to consume
+     */
+    private class AsciiInputStream extends InputStream {
+
+        private int position = offset;
+
+        @Override
+        public int read() {
+            return position < end ? data.charAt(position++) & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+            int count = Math.min(len, end - position);
+            for (int i = 0; i < count; i++) {
+                b[off + i] = (byte) data.charAt(position + i);
+            }
+            position += count;
+            return count;
+        }
+    }
+}
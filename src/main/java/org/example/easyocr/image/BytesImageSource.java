@@ -0,0 +1,37 @@
+package org.example.easyocr.image;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+/**
+ * Image backed by an in-memory byte array, e.g. a re-encoded or rendered image.
+ */
+public class BytesImageSource implements ImageSource {
+
+    private final byte[] bytes;
+    private final String contentType;
+
+    public BytesImageSource(byte[] bytes, String contentType) {
+        this.bytes = bytes;
+        this.contentType = contentType;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public long getSize() {
+        return bytes.length;
+    }
+
+    @Override
+    public InputStream openStream() {
+        return new ByteArrayInputStream(bytes);
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.easyocr.image;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Minimal reader for the EXIF orientation tag of a JPEG file. ImageIO ignores the tag,
+ * so phone photos taken in portrait come out sideways without it.
+ */
+final class ExifOrientation {
+
+    static final int NORMAL = 1;
+
+    private static final int TAG_ORIENTATION = 0x0112;
+
+    private ExifOrientation() {
+    }
+
+    /**
+     * Read the orientation from the APP1 segment of a JPEG stream
+     *
+     * @param in The JPEG stream, positioned at its start
+     * @return The EXIF orientation (1-8), or {@link #NORMAL} if there is none or the data is not a JPEG
+     */
+    static int read(InputStream in) {
+        try {
+            DataInputStream data = new DataInputStream(in);
+            if (data.readUnsignedShort() != 0xFFD8) {
+                return NORMAL;
+            }
+            while (true) {
+                int marker = data.readUnsignedShort();
+                // Start of scan or end of image: no more metadata segments
+                if (marker == 0xFFDA || marker == 0xFFD9 || (marker & 0xFF00) != 0xFF00) {
+                    return NORMAL;
+                }
+                int length = data.readUnsignedShort() - 2;
+                if (marker == 0xFFE1) {
+                    byte[] segment = new byte[length];
+                    data.readFully(segment);
+                    int orientation = parseExif(segment);
+                    if (orientation != 0) {
+                        return orientation;
+                    }
+                } else {
+                    skipFully(data, length);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            return NORMAL;
+        }
+    }
+
+    private static void skipFully(DataInputStream data, int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            int skipped = data.skipBytes(remaining);
+            if (skipped <= 0) {
+                // skipBytes returns 0 both at the end of the stream and when it could not skip
+                data.readByte();
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static int parseExif(byte[] segment) {
+        if (segment.length < 14 || segment[0] != 'E' || segment[1] != 'x' || segment[2] != 'i' || segment[3] != 'f') {
+            return 0;
+        }
+        int tiff = 6;
+        boolean littleEndian = segment[tiff] == 'I';
+        int ifdOffset = readInt(segment, tiff + 4, littleEndian);
+        int entries = readShort(segment, tiff + ifdOffset, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = tiff + ifdOffset + 2 + i * 12;
+            if (entry + 12 > segment.length) {
+                return 0;
+            }
+            if (readShort(segment, entry, littleEndian) == TAG_ORIENTATION) {
+                int value = readShort(segment, entry + 8, littleEndian);
+                return value >= 1 && value <= 8 ? value : 0;
+            }
+        }
+        return 0;
+    }
+
+    private static int readShort(byte[] b, int offset, boolean littleEndian) {
+        int b0 = b[offset] & 0xFF;
+        int b1 = b[offset + 1] & 0xFF;
+        return littleEndian ? (b1 << 8) | b0 : (b0 << 8) | b1;
+    }
+
+    private static int readInt(byte[] b, int offset, boolean littleEndian) {
+        int high = readShort(b, littleEndian ? offset + 2 : offset, littleEndian);
+        int low = readShort(b, littleEndian ? offset : offset + 2, littleEndian);
+        return (high << 16) | low;
+    }
+}
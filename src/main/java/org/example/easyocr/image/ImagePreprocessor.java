@@ -0,0 +1,334 @@
+package org.example.easyocr.image;
+
+import org.example.easyocr.metrics.StatsSource;
+import org.example.easyocr.metrics.TimerStats;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Shrinks images before they are sent upstream: scales them down to a maximum long edge,
+ * applies the EXIF orientation, optionally converts them to grayscale and re-encodes them
+ * as JPEG. Phone photos of 8-12 MP typically shrink by an order of magnitude, which cuts
+ * upload time and the vision tokens billed for the image.
+ * <p>
+ * Anything that can not be decoded (unsupported formats, CMYK JPEGs, corrupt data) is
+ * passed through unchanged, as is a re-encoded image that turns out larger than the original.
+ */
+@Component
+public class ImagePreprocessor implements StatsSource {
+
+    private static final Logger logger = Logger.getLogger(ImagePreprocessor.class.getName());
+
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final TimerStats processTimes = new TimerStats();
+
+    /**
+     * Preprocess an image according to a profile
+     *
+     * @param image The original image
+     * @param profile The settings of the calling endpoint
+     * @return The image to send upstream, which may be the original
+     */
+    public Result preprocess(ImageSource image, PreprocessProperties.Profile profile) {
+        long originalBytes = image.getSize();
+        if (!profile.isEnabled() || originalBytes < profile.getMinBytes()) {
+            skipped.incrementAndGet();
+            return Result.unchanged(image, "skipped");
+        }
+
+        long start = System.nanoTime();
+        try {
+            int orientation = profile.isNormalizeOrientation() ? readOrientation(image) : ExifOrientation.NORMAL;
+            BufferedImage decoded = decode(image, profile.getMaxLongEdge(), profile.getMaxPixels());
+            if (decoded == null) {
+                skipped.incrementAndGet();
+                return Result.unchanged(image, "unsupported format");
+            }
+
+            int sourceWidth = decoded.getWidth();
+            int sourceHeight = decoded.getHeight();
+            BufferedImage scaled = scale(decoded, profile.getMaxLongEdge(), profile.isGrayscale());
+            BufferedImage oriented = orient(scaled, orientation);
+            byte[] encoded = encodeJpeg(oriented, profile.getJpegQuality());
+
+            // Re-encoding a small or already well compressed image can make it larger; keep the
+            // original then, unless it had to be rotated
+            if (encoded.length >= originalBytes && orientation == ExifOrientation.NORMAL) {
+                skipped.incrementAndGet();
+                return Result.unchanged(image, "no gain");
+            }
+
+            long elapsed = System.nanoTime() - start;
+            processed.incrementAndGet();
+            bytesIn.addAndGet(originalBytes);
+            bytesOut.addAndGet(encoded.length);
+            processTimes.record(elapsed);
+            logger.info("Preprocessed image " + sourceWidth + "x" + sourceHeight + " -> "
+                    + oriented.getWidth() + "x" + oriented.getHeight() + ", " + originalBytes + " -> "
+                    + encoded.length + " bytes (saved " + (originalBytes - encoded.length) + " bytes) in "
+                    + elapsed / 1_000_000 + " ms");
+            return new Result(new BytesImageSource(encoded, "image/jpeg"), originalBytes, encoded.length, "processed");
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            logger.log(Level.WARNING, "Image preprocessing failed, sending the original image", e);
+            return Result.unchanged(image, "failed");
+        }
+    }
+
+    private static int readOrientation(ImageSource image) throws IOException {
+        if (!"image/jpeg".equalsIgnoreCase(image.getContentType()) && !"image/jpg".equalsIgnoreCase(image.getContentType())) {
+            return ExifOrientation.NORMAL;
+        }
+        try (InputStream in = image.openStream()) {
+            return ExifOrientation.read(in);
+        }
+    }
+
+    /**
+     * Decode an image, letting the reader skip pixels when the image is far larger than
+     * needed so a 12 MP photo never has to be held in memory at full resolution
+     *
+     * @throws IOException If the image can not be read, or its header claims more than maxPixels
+     */
+    private static BufferedImage decode(ImageSource image, int maxLongEdge, long maxPixels) throws IOException {
+        try (InputStream in = image.openStream(); ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                checkPixels(width, height, maxPixels);
+                int longEdge = Math.max(width, height);
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Keep at least twice the target resolution for the smooth downscale that follows
+                int subsampling = Math.max(1, longEdge / (maxLongEdge * 2));
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Refuse to decode an image whose header claims more pixels than the limit, as a small
+     * compressed upload can expand to gigabytes of pixels
+     *
+     * @param width The width the image's header claims
+     * @param height The height the image's header claims
+     * @param maxPixels The most pixels to decode
+     * @throws IOException If the image is larger
+     */
+    public static void checkPixels(long width, long height, long maxPixels) throws IOException {
+        if (width * height > maxPixels) {
+            throw new IOException("The image has " + width + "x" + height + " pixels, the maximum is " + maxPixels);
+        }
+    }
+
+    /**
+     * Scale an image so its long edge fits, halving it step by step to avoid the aliasing of
+     * a single large bilinear step, which would break up thin strokes of small text. The
+     * result is always opaque RGB or gray so it can be written as JPEG.
+     */
+    static BufferedImage scale(BufferedImage source, int maxLongEdge, boolean grayscale) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double factor = Math.min(1.0, (double) maxLongEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * factor));
+        int targetHeight = Math.max(1, (int) Math.round(height * factor));
+
+        BufferedImage current = source;
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2, BufferedImage.TYPE_INT_RGB);
+        }
+        int type = grayscale ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB;
+        if (current.getWidth() == targetWidth && current.getHeight() == targetHeight && current.getType() == type) {
+            return current;
+        }
+        return draw(current, targetWidth, targetHeight, type);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, int type) {
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            // Transparent areas become white instead of black, like paper
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Apply an EXIF orientation so the image is stored the way it is meant to be viewed
+     */
+    static BufferedImage orient(BufferedImage source, int orientation) {
+        if (orientation <= ExifOrientation.NORMAL || orientation > 8) {
+            return source;
+        }
+        int width = source.getWidth();
+        int height = source.getHeight();
+        boolean swap = orientation >= 5;
+        // Maps source (x, y) to the upright image; constructor order is m00, m10, m01, m11, m02, m12
+        AffineTransform transform;
+        switch (orientation) {
+            case 2: // mirrored horizontally
+                transform = new AffineTransform(-1, 0, 0, 1, width, 0);
+                break;
+            case 3: // rotated 180
+                transform = new AffineTransform(-1, 0, 0, -1, width, height);
+                break;
+            case 4: // mirrored vertically
+                transform = new AffineTransform(1, 0, 0, -1, 0, height);
+                break;
+            case 5: // transposed
+                transform = new AffineTransform(0, 1, 1, 0, 0, 0);
+                break;
+            case 6: // needs a 90 degree clockwise rotation
+                transform = new AffineTransform(0, 1, -1, 0, height, 0);
+                break;
+            case 7: // transversed
+                transform = new AffineTransform(0, -1, -1, 0, height, width);
+                break;
+            default: // 8, needs a 90 degree counter-clockwise rotation
+                transform = new AffineTransform(0, -1, 1, 0, 0, width);
+                break;
+        }
+        BufferedImage target = new BufferedImage(swap ? height : width, swap ? width : height, source.getType());
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.drawImage(source, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Encode an image as JPEG, converting it to RGB first unless it already is RGB or gray
+     *
+     * @param image The image
+     * @param quality The JPEG quality, between 0 and 1
+     * @return The JPEG bytes
+     * @throws IOException If the image can not be encoded
+     */
+    public static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        if (image.getType() != BufferedImage.TYPE_INT_RGB && image.getType() != BufferedImage.TYPE_BYTE_GRAY) {
+            image = draw(image, image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public String getStatsName() {
+        return "preprocess";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("processed", processed.get());
+        stats.put("skipped", skipped.get());
+        stats.put("failed", failed.get());
+        stats.put("bytes_in", bytesIn.get());
+        stats.put("bytes_out", bytesOut.get());
+        stats.put("bytes_saved", bytesIn.get() - bytesOut.get());
+        processTimes.putInto(stats, "process");
+        return stats;
+    }
+
+    /**
+     * The image to send upstream and how much smaller it got
+     */
+    public static class Result {
+        private final ImageSource image;
+        private final long originalBytes;
+        private final long processedBytes;
+        private final String outcome;
+
+        Result(ImageSource image, long originalBytes, long processedBytes, String outcome) {
+            this.image = image;
+            this.originalBytes = originalBytes;
+            this.processedBytes = processedBytes;
+            this.outcome = outcome;
+        }
+
+        static Result unchanged(ImageSource image, String outcome) {
+            return new Result(image, image.getSize(), image.getSize(), outcome);
+        }
+
+        public ImageSource getImage() {
+            return image;
+        }
+
+        public long getOriginalBytes() {
+            return originalBytes;
+        }
+
+        public long getProcessedBytes() {
+            return processedBytes;
+        }
+
+        public long getBytesSaved() {
+            return originalBytes - processedBytes;
+        }
+
+        /**
+         * @return "processed", or why the original was kept: "skipped", "unsupported format", "no gain" or "failed"
+         */
+        public String getOutcome() {
+            return outcome;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.easyocr.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Base64;
+
+/**
+ * An image to be sent to the OCR API.
+ * <p>
+ * Implementations give access to the decoded image bytes and to their base64 form as
+ * streams, so the image can be hashed, inspected and written into the upstream request
+ * without materializing extra copies of it. Both streams can be opened more than once.
+ */
+public interface ImageSource {
+
+    /**
+     * @return The MIME type of the image, e.g. {@code image/jpeg}
+     */
+    String getContentType();
+
+    /**
+     * @return The size of the decoded image in bytes, or an estimate if it is not known exactly
+     */
+    long getSize();
+
+    /**
+     * Open a new stream over the decoded image bytes
+     *
+     * @return A stream the caller must close
+     * @throws IOException If the image can not be read
+     */
+    InputStream openStream() throws IOException;
+
+    /**
+     * Write the base64 form of the image (without any data URI prefix) to the given stream.
+     * The stream is not closed.
+     *
+     * @param out The stream to write the ASCII base64 text to
+     * @throws IOException If the image can not be read or written
+     */
+    default void writeBase64(OutputStream out) throws IOException {
+        try (InputStream in = openStream();
+             OutputStream encoder = Base64.getEncoder().wrap(new NonClosingOutputStream(out))) {
+            in.transferTo(encoder);
+        }
+    }
+}
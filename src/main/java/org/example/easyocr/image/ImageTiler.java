@@ -0,0 +1,104 @@
+package org.example.easyocr.image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Splits a tall image into overlapping horizontal bands, top to bottom, so each band can be
+ * read separately. Neighbouring bands share {@code overlap} of their height, so a line of
+ * text cut by the edge of one band is whole in the next.
+ */
+public final class ImageTiler {
+
+    private ImageTiler() {
+    }
+
+    /**
+     * Read the size of an image from its header, without decoding it
+     *
+     * @param image The image
+     * @return Width and height, or null if the format is not supported
+     * @throws IOException If the image can not be read
+     */
+    public static int[] readSize(ImageSource image) throws IOException {
+        try (InputStream in = image.openStream(); ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return new int[]{reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Split an image into bands after applying its EXIF orientation
+     *
+     * @param image The image
+     * @param bandHeight The preferred band height in pixels; the bands are made equal and fewer if the image is short
+     * @param overlap The share of a band's height it has in common with the next, between 0 and 0.5
+     * @param maxBands The most bands to make, taller bands are used beyond it
+     * @param jpegQuality The quality the bands are encoded with
+     * @return The bands as JPEG images, top to bottom; a single band if the image is not taller than bandHeight,
+     * or null if the image can not be decoded
+     * @throws IOException If the image can not be read or a band can not be encoded
+     */
+    public static List<ImageSource> split(ImageSource image, int bandHeight, double overlap, int maxBands, float jpegQuality) throws IOException {
+        BufferedImage decoded;
+        try (InputStream in = image.openStream()) {
+            decoded = ImageIO.read(in);
+        }
+        if (decoded == null) {
+            return null;
+        }
+        int orientation = ExifOrientation.NORMAL;
+        if ("image/jpeg".equalsIgnoreCase(image.getContentType()) || "image/jpg".equalsIgnoreCase(image.getContentType())) {
+            try (InputStream in = image.openStream()) {
+                orientation = ExifOrientation.read(in);
+            }
+        }
+        BufferedImage upright = ImagePreprocessor.orient(decoded, orientation);
+
+        List<ImageSource> bands = new ArrayList<>();
+        for (int[] band : bands(upright.getHeight(), bandHeight, overlap, maxBands)) {
+            BufferedImage region = upright.getSubimage(0, band[0], upright.getWidth(), band[1] - band[0]);
+            bands.add(new BytesImageSource(ImagePreprocessor.encodeJpeg(region, jpegQuality), "image/jpeg"));
+        }
+        return bands;
+    }
+
+    /**
+     * Lay out the bands: {@code n} bands of height {@code b} with a step of {@code b * (1 - overlap)}
+     * cover the height exactly when {@code b = height / (1 + (n - 1) * (1 - overlap))}
+     *
+     * @return The start and end row of each band, top to bottom
+     */
+    static List<int[]> bands(int height, int bandHeight, double overlap, int maxBands) {
+        List<int[]> bands = new ArrayList<>();
+        int count = (int) Math.min(maxBands, Math.max(1, Math.ceil((double) height / bandHeight)));
+        if (count == 1) {
+            bands.add(new int[]{0, height});
+            return bands;
+        }
+        double band = height / (1 + (count - 1) * (1 - overlap));
+        double step = band * (1 - overlap);
+        for (int i = 0; i < count; i++) {
+            int start = (int) Math.round(i * step);
+            int end = i == count - 1 ? height : (int) Math.round(i * step + band);
+            bands.add(new int[]{start, end});
+        }
+        return bands;
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.easyocr.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads images sent as the raw request body.
+ * <p>
+ * With a {@code Content-Length} the body is read straight into an array of exactly that size,
+ * so the bytes are copied once, from the connection into the image. Only a chunked body of
+ * unknown length needs a growing buffer and a final trim.
+ */
+public final class ImageUploads {
+
+    private static final int INITIAL_BUFFER = 256 * 1024;
+
+    private ImageUploads() {
+    }
+
+    /**
+     * Read a request body
+     *
+     * @param in The body
+     * @param contentLength The {@code Content-Length}, or -1 if not known
+     * @param maxBytes The largest body accepted
+     * @param contentType The declared type if it names an image format, otherwise null to detect it
+     * @return The image, its type detected from its first bytes unless declared; null type if unknown
+     * @throws UploadTooLargeException If the body is larger than maxBytes
+     * @throws IOException If the body is shorter than its {@code Content-Length} or can not be read
+     */
+    public static BytesImageSource read(InputStream in, long contentLength, long maxBytes, String contentType) throws IOException {
+        if (contentLength > maxBytes) {
+            throw new UploadTooLargeException(maxBytes);
+        }
+        byte[] bytes;
+        if (contentLength >= 0) {
+            bytes = new byte[(int) contentLength];
+            int read = in.readNBytes(bytes, 0, bytes.length);
+            if (read < bytes.length) {
+                throw new IOException("Request body ended after " + read + " of " + contentLength + " bytes");
+            }
+        } else {
+            bytes = readUnknownLength(in, maxBytes);
+        }
+        return new BytesImageSource(bytes, contentType != null ? contentType : detectType(bytes));
+    }
+
+    private static byte[] readUnknownLength(InputStream in, long maxBytes) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(INITIAL_BUFFER, maxBytes + 1)];
+        int length = 0;
+        while (true) {
+            int read = in.readNBytes(buffer, length, buffer.length - length);
+            length += read;
+            if (length > maxBytes) {
+                throw new UploadTooLargeException(maxBytes);
+            }
+            if (length < buffer.length) {
+                return Arrays.copyOf(buffer, length);
+            }
+            buffer = Arrays.copyOf(buffer, (int) Math.min((long) buffer.length * 2, maxBytes + 1));
+        }
+    }
+
+    /**
+     * Recognize an image or document format by its signature
+     *
+     * @param bytes The file
+     * @return The MIME type, or null if the format is not one the service reads
+     */
+    public static String detectType(byte[] bytes) {
+        if (startsWith(bytes, 0, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(bytes, 0, 0x89, 'P', 'N', 'G')) {
+            return "image/png";
+        }
+        if (startsWith(bytes, 0, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(bytes, 0, 'R', 'I', 'F', 'F') && startsWith(bytes, 8, 'W', 'E', 'B', 'P')) {
+            return "image/webp";
+        }
+        if (startsWith(bytes, 0, 'B', 'M')) {
+            return "image/bmp";
+        }
+        if (startsWith(bytes, 0, 'I', 'I', 0x2A, 0x00) || startsWith(bytes, 0, 'M', 'M', 0x00, 0x2A)) {
+            return "image/tiff";
+        }
+        if (startsWith(bytes, 0, '%', 'P', 'D', 'F')) {
+            return "application/pdf";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, int... signature) {
+        if (bytes.length < offset + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((bytes[offset + i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The body is larger than the configured limit
+     */
+    public static class UploadTooLargeException extends IOException {
+
+        public UploadTooLargeException(long maxBytes) {
+            super("The image is larger than the maximum of " + maxBytes + " bytes");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.easyocr.image;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Image backed by an uploaded multipart file, read straight from the part's storage.
+ */
+public class MultipartImageSource implements ImageSource {
+
+    private final MultipartFile file;
+
+    public MultipartImageSource(MultipartFile file) {
+        this.file = file;
+    }
+
+    @Override
+    public String getContentType() {
+        return file.getContentType() != null ? file.getContentType() : "image/jpeg";
+    }
+
+    @Override
+    public long getSize() {
+        return file.getSize();
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+        return file.getInputStream();
+    }
+}
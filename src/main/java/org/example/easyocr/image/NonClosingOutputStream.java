@@ -0,0 +1,28 @@
+package org.example.easyocr.image;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream wrapper that flushes instead of closing the wrapped stream, so
+ * wrappers that must be closed to finish their output (e.g. a base64 encoder)
+ * can be used on a stream that is still in use.
+ */
+class NonClosingOutputStream extends FilterOutputStream {
+
+    NonClosingOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        // FilterOutputStream writes byte by byte by default
+        out.write(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
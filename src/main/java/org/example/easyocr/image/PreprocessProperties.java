@@ -0,0 +1,133 @@
+package org.example.easyocr.image;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Preprocessing settings, one profile per kind of endpoint: plain text OCR tolerates a
+ * smaller, grayscale image, structured document extraction needs more detail.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.preprocess")
+public class PreprocessProperties {
+
+    private Profile text = new Profile();
+
+    private Profile document = new Profile();
+
+    public Profile getText() {
+        return text;
+    }
+
+    public void setText(Profile text) {
+        this.text = text;
+    }
+
+    public Profile getDocument() {
+        return document;
+    }
+
+    public void setDocument(Profile document) {
+        this.document = document;
+    }
+
+    public static class Profile {
+
+        private boolean enabled = true;
+
+        /**
+         * Longest edge in pixels after resizing; larger images are scaled down
+         */
+        private int maxLongEdge = 2048;
+
+        /**
+         * JPEG quality of the re-encoded image, between 0 and 1
+         */
+        private float jpegQuality = 0.85f;
+
+        private boolean grayscale = false;
+
+        /**
+         * Rotate/flip according to the EXIF orientation tag so the upstream sees upright text
+         */
+        private boolean normalizeOrientation = true;
+
+        /**
+         * Images smaller than this (in bytes) are sent unchanged
+         */
+        private long minBytes = 100 * 1024;
+
+        /**
+         * Images with more pixels than this are sent unchanged rather than decoded
+         */
+        private long maxPixels = 40_000_000;
+
+        /**
+         * @return A short description of the settings, part of the cache key so results
+         * produced with other settings are not reused
+         */
+        public String signature() {
+            if (!enabled) {
+                return "raw";
+            }
+            return maxLongEdge + "/" + jpegQuality + "/" + (grayscale ? "gray" : "color")
+                    + "/" + (normalizeOrientation ? "oriented" : "asis") + "/" + minBytes;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxLongEdge() {
+            return maxLongEdge;
+        }
+
+        public void setMaxLongEdge(int maxLongEdge) {
+            this.maxLongEdge = maxLongEdge;
+        }
+
+        public float getJpegQuality() {
+            return jpegQuality;
+        }
+
+        public void setJpegQuality(float jpegQuality) {
+            this.jpegQuality = jpegQuality;
+        }
+
+        public boolean isGrayscale() {
+            return grayscale;
+        }
+
+        public void setGrayscale(boolean grayscale) {
+            this.grayscale = grayscale;
+        }
+
+        public boolean isNormalizeOrientation() {
+            return normalizeOrientation;
+        }
+
+        public void setNormalizeOrientation(boolean normalizeOrientation) {
+            this.normalizeOrientation = normalizeOrientation;
+        }
+
+        public long getMinBytes() {
+            return minBytes;
+        }
+
+        public void setMinBytes(long minBytes) {
+            this.minBytes = minBytes;
+        }
+
+        public long getMaxPixels() {
+            return maxPixels;
+        }
+
+        public void setMaxPixels(long maxPixels) {
+            this.maxPixels = maxPixels;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.easyocr.job;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.easyocr.entity.OcrJob;
+import org.example.easyocr.mapper.OcrJobMapper;
+import org.example.easyocr.service.OcrMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Submission and lookup of asynchronous OCR jobs. The jobs are executed by {@link OcrJobWorker}.
+ */
+@Service
+public class OcrJobService {
+
+    private static final Logger logger = Logger.getLogger(OcrJobService.class.getName());
+
+    private static final TypeReference<Map<String, Object>> RESULT_TYPE = new TypeReference<Map<String, Object>>() {
+    };
+
+    private final OcrJobMapper jobMapper;
+    private final OcrJobWorker jobWorker;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.jobs.max-pending:10000}")
+    private long maxPending;
+
+    public OcrJobService(OcrJobMapper jobMapper, OcrJobWorker jobWorker, ObjectMapper objectMapper) {
+        this.jobMapper = jobMapper;
+        this.jobWorker = jobWorker;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Persist a new job and wake up the workers
+     *
+     * @param imageData The decoded image bytes
+     * @param contentType The image content type
+     * @param fileName The original file name, may be null
+     * @param mode The prompt to process the image with
+     * @return The stored job
+     * @throws JobQueueFullException If the number of waiting jobs reached {@code app.jobs.max-pending}
+     */
+    public OcrJob submit(byte[] imageData, String contentType, String fileName, OcrMode mode) {
+        long pending = jobMapper.selectCount(new LambdaQueryWrapper<OcrJob>()
+                .eq(OcrJob::getStatus, OcrJob.STATUS_PENDING));
+        if (pending >= maxPending) {
+            throw new JobQueueFullException("Job queue is full (" + pending + " pending jobs)");
+        }
+
+        OcrJob job = new OcrJob();
+        job.setId(UUID.randomUUID().toString());
+        job.setStatus(OcrJob.STATUS_PENDING);
+        job.setMode(mode.name());
+        job.setFileName(fileName);
+        job.setContentType(contentType);
+        job.setImageSize((long) imageData.length);
+        job.setImageData(imageData);
+        job.setAttempts(0);
+        job.setCreatedAt(LocalDateTime.now());
+        jobMapper.insert(job);
+        logger.info("Submitted OCR job " + job.getId() + ", size: " + imageData.length + " bytes, mode: " + mode);
+
+        jobWorker.wakeUp();
+        job.setImageData(null);
+        return job;
+    }
+
+    /**
+     * @param id The job id
+     * @return The job without its image data, or null if it does not exist
+     */
+    public OcrJob getJob(String id) {
+        return jobMapper.selectById(id);
+    }
+
+    /**
+     * Describe a job for the status endpoint
+     *
+     * @param job The job
+     * @return A map with the job id, status, attempts and timestamps, and when a retry is due
+     */
+    public Map<String, Object> toStatus(OcrJob job) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("job_id", job.getId());
+        status.put("status", job.getStatus());
+        status.put("mode", job.getMode().toLowerCase());
+        status.put("file_name", job.getFileName());
+        status.put("attempts", job.getAttempts());
+        status.put("created_at", job.getCreatedAt());
+        status.put("started_at", job.getStartedAt());
+        status.put("finished_at", job.getFinishedAt());
+        if (OcrJob.STATUS_PENDING.equals(job.getStatus()) && job.getNotBefore() != null) {
+            // Waiting to be retried
+            status.put("not_before", job.getNotBefore());
+        }
+        if (job.getError() != null) {
+            status.put("error", job.getError());
+        }
+        return status;
+    }
+
+    /**
+     * Read the result of a finished job
+     *
+     * @param job A job in a final state
+     * @return The OCR result, or a map with an "error" key if the job failed
+     * @throws IOException If the stored result can not be parsed
+     */
+    public Map<String, Object> getResult(OcrJob job) throws IOException {
+        if (OcrJob.STATUS_SUCCEEDED.equals(job.getStatus()) && job.getResultJson() != null) {
+            return objectMapper.readValue(job.getResultJson(), RESULT_TYPE);
+        }
+        Map<String, Object> errorResponse = new LinkedHashMap<>();
+        errorResponse.put("error", job.getError() != null ? job.getError() : "Job failed");
+        return errorResponse;
+    }
+
+    /**
+     * Thrown when a job is submitted while too many jobs are waiting
+     */
+    public static class JobQueueFullException extends RuntimeException {
+        public JobQueueFullException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package org.example.easyocr.job;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.easyocr.entity.OcrJob;
+import org.example.easyocr.image.BytesImageSource;
+import org.example.easyocr.mapper.OcrJobMapper;
+import org.example.easyocr.metrics.StatsSource;
+import org.example.easyocr.metrics.TimerStats;
+import org.example.easyocr.scheduling.Lane;
+import org.example.easyocr.scheduling.OcrRequestContext;
+import org.example.easyocr.service.OcrMode;
+import org.example.easyocr.service.OcrResult;
+import org.example.easyocr.service.OcrService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Worker pool that drains the {@code ocr_job} table.
+ * <p>
+ * Jobs are claimed with a conditional update that sets a lease (owner + expiry), so several
+ * instances can share one queue and each job runs on one worker at a time. Leases of running
+ * jobs are renewed periodically; a job whose lease expires, because its worker crashed or the
+ * instance was restarted, becomes claimable again until it runs out of attempts. A failed
+ * attempt is retried after a delay that doubles with each attempt; a job the upstream had no
+ * capacity for is put back after the first delay without using up an attempt. Finished jobs are
+ * deleted after the retention period.
+ */
+@Component
+public class OcrJobWorker implements StatsSource {
+
+    private static final Logger logger = Logger.getLogger(OcrJobWorker.class.getName());
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    /**
+     * Jobs do not keep the tenant that submitted them; they all share one tenant in the batch lane
+     */
+    private static final OcrRequestContext JOB_CONTEXT = new OcrRequestContext("jobs", Lane.BATCH, 0);
+
+    private final OcrJobMapper jobMapper;
+    private final OcrService ocrService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.jobs.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.jobs.workers:4}")
+    private int workers;
+
+    @Value("${app.jobs.lease:300000}")
+    private long leaseMillis;
+
+    @Value("${app.jobs.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.jobs.retry-backoff:5000}")
+    private long retryBackoffMillis;
+
+    @Value("${app.jobs.max-retry-backoff:300000}")
+    private long maxRetryBackoffMillis;
+
+    @Value("${app.jobs.retention:86400000}")
+    private long retentionMillis;
+
+    private final String owner = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+    private ExecutorService executor;
+
+    // Jobs this instance currently holds a lease on
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+    private final AtomicLong leaseLost = new AtomicLong();
+    private final TimerStats jobTimes = new TimerStats();
+
+    public OcrJobWorker(OcrJobMapper jobMapper, OcrService ocrService, ObjectMapper objectMapper) {
+        this.jobMapper = jobMapper;
+        this.ocrService = ocrService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "ocr-job-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        // Leases of interrupted jobs simply expire and the jobs are picked up again
+        executor.shutdownNow();
+    }
+
+    /**
+     * Poll for new jobs right away instead of waiting for the next scheduled poll
+     */
+    public void wakeUp() {
+        if (enabled && !executor.isShutdown()) {
+            try {
+                executor.execute(this::poll);
+            } catch (RejectedExecutionException e) {
+                // Shutting down, the leases of unfinished jobs will expire
+            }
+        }
+    }
+
+    /**
+     * Claim as many jobs as there are idle workers and hand them to the pool
+     */
+    @Scheduled(fixedDelayString = "${app.jobs.poll-interval:1000}")
+    public synchronized void poll() {
+        if (!enabled) {
+            return;
+        }
+        int idle = workers - running.size();
+        if (idle <= 0) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<OcrJob> candidates = jobMapper.selectClaimable(now, idle);
+            for (OcrJob candidate : candidates) {
+                if (jobMapper.claim(candidate.getId(), owner, now, now.plusNanos(leaseMillis * 1_000_000L)) == 0) {
+                    continue;
+                }
+                claimed.incrementAndGet();
+                if (OcrJob.STATUS_RUNNING.equals(candidate.getStatus())) {
+                    recovered.incrementAndGet();
+                    logger.warning("Recovered OCR job " + candidate.getId() + " with an expired lease");
+                }
+                running.add(candidate.getId());
+                executor.execute(() -> run(candidate.getId()));
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to poll the OCR job queue", e);
+        }
+    }
+
+    /**
+     * Extend the leases of the jobs running on this instance
+     */
+    @Scheduled(fixedDelayString = "${app.jobs.lease-renew-interval:60000}")
+    public void renewLeases() {
+        LocalDateTime leaseExpiresAt = LocalDateTime.now().plusNanos(leaseMillis * 1_000_000L);
+        for (String id : running) {
+            try {
+                if (jobMapper.renewLease(id, owner, leaseExpiresAt) == 0) {
+                    leaseLost.incrementAndGet();
+                    logger.warning("Lost the lease on OCR job " + id);
+                }
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Failed to renew the lease on OCR job " + id, e);
+            }
+        }
+    }
+
+    /**
+     * Delete finished jobs older than the retention period
+     */
+    @Scheduled(fixedDelayString = "${app.jobs.cleanup-interval:3600000}")
+    public void cleanUp() {
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusNanos(retentionMillis * 1_000_000L);
+            int deleted = jobMapper.delete(new LambdaQueryWrapper<OcrJob>()
+                    .in(OcrJob::getStatus, OcrJob.STATUS_SUCCEEDED, OcrJob.STATUS_FAILED)
+                    .lt(OcrJob::getFinishedAt, cutoff));
+            if (deleted > 0) {
+                logger.info("Deleted " + deleted + " finished OCR jobs");
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to clean up finished OCR jobs", e);
+        }
+    }
+
+    private void run(String id) {
+        long start = System.nanoTime();
+        OcrRequestContext previous = OcrRequestContext.bind(JOB_CONTEXT);
+        try {
+            OcrJob job = jobMapper.selectById(id);
+            if (job == null) {
+                return;
+            }
+            if (job.getAttempts() > maxAttempts) {
+                finish(id, OcrJob.STATUS_FAILED, null, "Job exceeded " + maxAttempts + " attempts");
+                return;
+            }
+
+            byte[] imageData = jobMapper.selectImageData(id);
+            OcrResult result = ocrService.recognize(
+                    new BytesImageSource(imageData, job.getContentType()), OcrMode.valueOf(job.getMode()), null, "jobs");
+            if (result.getKind() != OcrResult.Kind.ERROR) {
+                finish(id, OcrJob.STATUS_SUCCEEDED, objectMapper.writeValueAsString(result.toMap()), null);
+            } else if (result.isRetryable()) {
+                defer(job, String.valueOf(result.getError()));
+            } else {
+                retryOrFail(job, String.valueOf(result.getError()));
+            }
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error running OCR job " + id, e);
+            OcrJob job = jobMapper.selectById(id);
+            if (job != null) {
+                retryOrFail(job, "An unexpected error occurred: " + e.getMessage());
+            }
+        } finally {
+            OcrRequestContext.restore(previous);
+            running.remove(id);
+            jobTimes.record(System.nanoTime() - start);
+            // A worker became free, pick up the next job without waiting for the poll interval
+            wakeUp();
+        }
+    }
+
+    private void retryOrFail(OcrJob job, String error) {
+        if (job.getAttempts() < maxAttempts) {
+            retried.incrementAndGet();
+            long delayMillis = retryDelayMillis(job.getAttempts());
+            logger.warning("OCR job " + job.getId() + " attempt " + job.getAttempts() + " failed, will retry in "
+                    + delayMillis + " ms: " + error);
+            jobMapper.release(job.getId(), owner, truncate(error), LocalDateTime.now().plusNanos(delayMillis * 1_000_000L));
+        } else {
+            finish(job.getId(), OcrJob.STATUS_FAILED, null, error);
+        }
+    }
+
+    /**
+     * Put a job the upstream had no capacity for back in the queue without counting the attempt,
+     * so an overload does not fail jobs that never got a real try
+     */
+    private void defer(OcrJob job, String error) {
+        deferred.incrementAndGet();
+        long delayMillis = retryDelayMillis(1);
+        logger.info("No upstream capacity for OCR job " + job.getId() + ", will retry in " + delayMillis + " ms: " + error);
+        jobMapper.defer(job.getId(), owner, truncate(error), LocalDateTime.now().plusNanos(delayMillis * 1_000_000L));
+    }
+
+    /**
+     * The delay before the next try of a job: the backoff doubled for each attempt so far, up to
+     * the maximum, of which a random half is taken off so jobs that failed together do not all
+     * come back at once
+     *
+     * @param attempts The attempts made so far, at least 1
+     */
+    long retryDelayMillis(int attempts) {
+        long delay = retryBackoffMillis << Math.min(Math.max(attempts - 1, 0), 20);
+        delay = Math.min(delay, maxRetryBackoffMillis);
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private void finish(String id, String status, String resultJson, String error) {
+        if (jobMapper.finish(id, owner, status, resultJson, truncate(error), LocalDateTime.now()) == 0) {
+            leaseLost.incrementAndGet();
+            logger.warning("OCR job " + id + " finished after its lease was lost, result discarded");
+            return;
+        }
+        if (OcrJob.STATUS_SUCCEEDED.equals(status)) {
+            succeeded.incrementAndGet();
+        } else {
+            failed.incrementAndGet();
+            logger.warning("OCR job " + id + " failed: " + error);
+        }
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+
+    @Override
+    public String getStatsName() {
+        return "jobs";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("workers", workers);
+        stats.put("running", running.size());
+        try {
+            stats.put("pending", jobMapper.selectCount(new LambdaQueryWrapper<OcrJob>()
+                    .eq(OcrJob::getStatus, OcrJob.STATUS_PENDING)));
+        } catch (Exception e) {
+            stats.put("pending", -1);
+        }
+        stats.put("claimed", claimed.get());
+        stats.put("recovered", recovered.get());
+        stats.put("succeeded", succeeded.get());
+        stats.put("failed", failed.get());
+        stats.put("retried", retried.get());
+        stats.put("deferred", deferred.get());
+        stats.put("lease_lost", leaseLost.get());
+        jobTimes.putInto(stats, "job");
+        return stats;
+    }
+}
@@ -0,0 +1,7 @@
+package org.example.easyocr.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.example.easyocr.entity.OcrCacheEntry;
+
+public interface OcrCacheMapper extends BaseMapper<OcrCacheEntry> {
+}
@@ -0,0 +1,72 @@
+package org.example.easyocr.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.example.easyocr.entity.OcrJob;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OcrJobMapper extends BaseMapper<OcrJob> {
+
+    /**
+     * Find jobs that are waiting and due, or running under a lease that has expired (e.g. after a crash)
+     */
+    @Select("SELECT id, status, attempts FROM ocr_job "
+            + "WHERE (status = 'PENDING' AND (not_before IS NULL OR not_before <= #{now})) "
+            + "OR (status = 'RUNNING' AND lease_expires_at < #{now}) "
+            + "ORDER BY created_at LIMIT #{limit}")
+    List<OcrJob> selectClaimable(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * Atomically take a lease on a claimable job. Returns 0 if another worker was faster.
+     */
+    @Update("UPDATE ocr_job SET status = 'RUNNING', lease_owner = #{owner}, lease_expires_at = #{leaseExpiresAt}, "
+            + "attempts = attempts + 1, started_at = #{now} "
+            + "WHERE id = #{id} AND ((status = 'PENDING' AND (not_before IS NULL OR not_before <= #{now})) "
+            + "OR (status = 'RUNNING' AND lease_expires_at < #{now}))")
+    int claim(@Param("id") String id, @Param("owner") String owner,
+              @Param("now") LocalDateTime now, @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+
+    /**
+     * Extend the lease of a job this worker still owns
+     */
+    @Update("UPDATE ocr_job SET lease_expires_at = #{leaseExpiresAt} "
+            + "WHERE id = #{id} AND status = 'RUNNING' AND lease_owner = #{owner}")
+    int renewLease(@Param("id") String id, @Param("owner") String owner,
+                   @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+
+    /**
+     * Store the final outcome and drop the image, provided this worker still owns the lease
+     */
+    @Update("UPDATE ocr_job SET status = #{status}, result_json = #{resultJson}, error = #{error}, "
+            + "image_data = NULL, lease_owner = NULL, lease_expires_at = NULL, finished_at = #{now} "
+            + "WHERE id = #{id} AND status = 'RUNNING' AND lease_owner = #{owner}")
+    int finish(@Param("id") String id, @Param("owner") String owner, @Param("status") String status,
+               @Param("resultJson") String resultJson, @Param("error") String error, @Param("now") LocalDateTime now);
+
+    /**
+     * Give a failed attempt back to the queue, to be claimed again from {@code notBefore} on,
+     * provided this worker still owns the lease
+     */
+    @Update("UPDATE ocr_job SET status = 'PENDING', error = #{error}, lease_owner = NULL, lease_expires_at = NULL, "
+            + "not_before = #{notBefore} "
+            + "WHERE id = #{id} AND status = 'RUNNING' AND lease_owner = #{owner}")
+    int release(@Param("id") String id, @Param("owner") String owner, @Param("error") String error,
+                @Param("notBefore") LocalDateTime notBefore);
+
+    /**
+     * Like {@link #release}, but hands back the attempt as well, for a job the upstream had no
+     * capacity for
+     */
+    @Update("UPDATE ocr_job SET status = 'PENDING', error = #{error}, lease_owner = NULL, lease_expires_at = NULL, "
+            + "not_before = #{notBefore}, attempts = attempts - 1 "
+            + "WHERE id = #{id} AND status = 'RUNNING' AND lease_owner = #{owner}")
+    int defer(@Param("id") String id, @Param("owner") String owner, @Param("error") String error,
+              @Param("notBefore") LocalDateTime notBefore);
+
+    @Select("SELECT image_data FROM ocr_job WHERE id = #{id}")
+    byte[] selectImageData(@Param("id") String id);
+}
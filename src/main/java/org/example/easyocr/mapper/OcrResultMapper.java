@@ -0,0 +1,63 @@
+package org.example.easyocr.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.example.easyocr.entity.OcrResultRecord;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OcrResultMapper extends BaseMapper<OcrResultRecord> {
+
+    String SEARCH_FROM = "FROM ocr_result r "
+            + "<if test='fullText and query != null'>"
+            + "JOIN FT_SEARCH_DATA(#{query}, 0, 0) ft ON ft.\"TABLE\" = 'OCR_RESULT' AND r.id = ft.KEYS[1] "
+            + "</if>"
+            + "<where>"
+            + "<if test='!fullText and query != null'>AND LOWER(r.extracted_text) LIKE #{likePattern} ESCAPE '\\' </if>"
+            + "<if test='endpoint != null'>AND r.endpoint = #{endpoint} </if>"
+            + "<if test='imageHash != null'>AND r.image_hash = #{imageHash} </if>"
+            + "<if test='from != null'>AND r.created_at &gt;= #{from} </if>"
+            + "<if test='to != null'>AND r.created_at &lt; #{to} </if>"
+            + "</where>";
+
+    /**
+     * Register H2's built-in full-text search, which keeps its index in the FT schema
+     */
+    @Update("CREATE ALIAS IF NOT EXISTS FT_INIT FOR 'org.h2.fulltext.FullText.init'")
+    void createFullTextAlias();
+
+    @Update("CALL FT_INIT()")
+    void initFullText();
+
+    @Select("SELECT COUNT(*) FROM FT.INDEXES WHERE \"SCHEMA\" = 'PUBLIC' AND \"TABLE\" = 'OCR_RESULT'")
+    int countFullTextIndexes();
+
+    /**
+     * Index the extracted text; H2 keeps the index up to date with triggers on the table
+     */
+    @Update("CALL FT_CREATE_INDEX('PUBLIC', 'OCR_RESULT', 'EXTRACTED_TEXT')")
+    void createFullTextIndex();
+
+    /**
+     * Find stored results, newest first
+     *
+     * @param fullText Whether to match the query through the full-text index or with {@code likePattern}
+     * @param query The words to search for, or null to match every result
+     * @param likePattern The lower-cased, escaped LIKE pattern of the query, used without the full-text index
+     */
+    @Select("<script>SELECT r.* " + SEARCH_FROM
+            + "ORDER BY r.created_at DESC, r.id DESC LIMIT #{limit} OFFSET #{offset}</script>")
+    List<OcrResultRecord> search(@Param("fullText") boolean fullText, @Param("query") String query,
+                                 @Param("likePattern") String likePattern, @Param("endpoint") String endpoint,
+                                 @Param("imageHash") String imageHash, @Param("from") LocalDateTime from,
+                                 @Param("to") LocalDateTime to, @Param("limit") int limit, @Param("offset") long offset);
+
+    @Select("<script>SELECT COUNT(*) " + SEARCH_FROM + "</script>")
+    long countSearch(@Param("fullText") boolean fullText, @Param("query") String query,
+                     @Param("likePattern") String likePattern, @Param("endpoint") String endpoint,
+                     @Param("imageHash") String imageHash, @Param("from") LocalDateTime from,
+                     @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,129 @@
+package org.example.easyocr.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.easyocr.service.OcrResult;
+import org.example.easyocr.upstream.ChatCompletion;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Micrometer meters of the OCR pipeline, exported at {@code /actuator/prometheus}.
+ * <p>
+ * {@code ocr.stage} times each stage of a request per calling endpoint, {@code ocr.requests}
+ * times whole requests tagged with their outcome, {@code ocr.upstream.payload} records the
+ * bytes sent and received and {@code ocr.upstream.tokens} counts the tokens the upstream
+ * reports in its {@code usage} field.
+ */
+@Component
+public class OcrMetrics {
+
+    /** Validating a base64 payload */
+    public static final String STAGE_VALIDATE = "validate";
+    /** Hashing the image for the cache key */
+    public static final String STAGE_HASH = "hash";
+    /** Decoding, scaling and re-encoding the image */
+    public static final String STAGE_PREPROCESS = "preprocess";
+    /** Base64 encoding and JSON serialization of the request, written straight to the connection */
+    public static final String STAGE_UPLOAD = "upload";
+    /** The whole upstream call including throttling, retries and the response */
+    public static final String STAGE_UPSTREAM = "upstream";
+    /** Deserializing the upstream response */
+    public static final String STAGE_READ = "read";
+    /** Turning the answer into the result map */
+    public static final String STAGE_FORMAT = "format";
+
+    public static final String OUTCOME_JSON = "json";
+    public static final String OUTCOME_TEXT = "text";
+    public static final String OUTCOME_CACHED = "cached";
+    public static final String OUTCOME_ERROR = "error";
+    /** The client of a streamed answer went away before it was complete */
+    public static final String OUTCOME_ABORTED = "aborted";
+
+    private final MeterRegistry registry;
+
+    // How long the first request after startup took, or -1 until one was served
+    private final AtomicLong firstRequestNanos = new AtomicLong(-1);
+
+    public OcrMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void recordStage(String stage, String endpoint, long nanos) {
+        Timer.builder("ocr.stage")
+                .description("Time spent in each stage of an OCR request")
+                .tag("stage", stage)
+                .tag("endpoint", endpoint)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRequest(String endpoint, String outcome, long nanos) {
+        firstRequestNanos.compareAndSet(-1, nanos);
+        Timer.builder("ocr.requests")
+                .description("OCR requests by outcome")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return How long the first OCR request after startup took, or -1 if none was served yet
+     */
+    public long getFirstRequestNanos() {
+        return firstRequestNanos.get();
+    }
+
+    /**
+     * @param direction "request" for the bytes sent upstream, "response" for the bytes received
+     */
+    public void recordPayload(String endpoint, String direction, long bytes) {
+        DistributionSummary.builder("ocr.upstream.payload")
+                .description("Size of the upstream request and response bodies")
+                .baseUnit("bytes")
+                .tag("endpoint", endpoint)
+                .tag("direction", direction)
+                .register(registry)
+                .record(bytes);
+    }
+
+    /**
+     * Count the tokens of the {@code usage} field of a chat-completions response
+     *
+     * @param usage The usage, may be null
+     */
+    public void recordUsage(String endpoint, ChatCompletion.Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        recordTokens(endpoint, "prompt", usage.getPromptTokens());
+        recordTokens(endpoint, "completion", usage.getCompletionTokens());
+    }
+
+    private void recordTokens(String endpoint, String type, long tokens) {
+        Counter.builder("ocr.upstream.tokens")
+                .description("Tokens billed by the upstream API")
+                .tag("endpoint", endpoint)
+                .tag("type", type)
+                .register(registry)
+                .increment(tokens);
+    }
+
+    /**
+     * @param result A result of {@code OcrService}
+     * @return {@link #OUTCOME_ERROR}, {@link #OUTCOME_TEXT} for the raw-text fallback, or {@link #OUTCOME_JSON}
+     */
+    public static String outcomeOf(OcrResult result) {
+        if (result == null || result.getKind() == OcrResult.Kind.ERROR) {
+            return OUTCOME_ERROR;
+        }
+        return result.getKind() == OcrResult.Kind.TEXT ? OUTCOME_TEXT : OUTCOME_JSON;
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.easyocr.metrics;
+
+import java.util.Map;
+
+/**
+ * A component that exposes runtime counters (hits, queue depth, pool usage, ...)
+ * through the aggregated {@code /api/stats} endpoint.
+ */
+public interface StatsSource {
+
+    /**
+     * @return The name under which the stats are grouped, e.g. {@code "cache"}
+     */
+    String getStatsName();
+
+    /**
+     * @return A snapshot of the current counters
+     */
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,146 @@
+package org.example.easyocr.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Exports the numeric counters of every {@link StatsSource} as gauges named
+ * {@code easyocr.<source>.<counter>}, so {@code /api/stats} and Prometheus show the same numbers.
+ * Nested maps, such as the per-endpoint stats of the router, become gauges named after the
+ * inner counter with a {@code name} tag. The counters present at startup are exported.
+ * <p>
+ * One scrape reads many gauges of the same source, so each source's stats are taken once
+ * and reused for a second.
+ * <p>
+ * The sources are looked up only once all singletons exist: many of them depend, through
+ * {@link OcrMetrics}, on the meter registry this binder is applied to, so asking for them
+ * while the registry is being built would be a bean cycle.
+ */
+@Component
+public class StatsSourceMeterBinder implements MeterBinder, SmartInitializingSingleton {
+
+    private static final long SNAPSHOT_TTL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Supplier<List<StatsSource>> sourceLookup;
+
+    // Guarded by this; null until the sources can be looked up
+    private List<StatsSource> statsSources;
+    private final List<MeterRegistry> pendingRegistries = new ArrayList<>();
+
+    // Gauges only hold weak references to the objects they read
+    private final List<Snapshot> snapshots = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public StatsSourceMeterBinder(ObjectProvider<StatsSource> statsSources) {
+        this.sourceLookup = () -> statsSources.orderedStream().collect(Collectors.toList());
+    }
+
+    StatsSourceMeterBinder(List<StatsSource> statsSources) {
+        this.sourceLookup = () -> statsSources;
+        this.statsSources = statsSources;
+    }
+
+    @Override
+    public synchronized void bindTo(MeterRegistry registry) {
+        if (statsSources == null) {
+            pendingRegistries.add(registry);
+        } else {
+            register(registry);
+        }
+    }
+
+    @Override
+    public synchronized void afterSingletonsInstantiated() {
+        if (statsSources == null) {
+            statsSources = sourceLookup.get();
+        }
+        for (MeterRegistry registry : pendingRegistries) {
+            register(registry);
+        }
+        pendingRegistries.clear();
+    }
+
+    private void register(MeterRegistry registry) {
+        for (StatsSource source : statsSources) {
+            Snapshot snapshot = new Snapshot(source);
+            snapshots.add(snapshot);
+            String prefix = "easyocr." + source.getStatsName() + ".";
+            for (Map.Entry<String, Object> entry : snapshot.get().entrySet()) {
+                String key = entry.getKey();
+                if (entry.getValue() instanceof Map) {
+                    for (Map.Entry<?, ?> inner : ((Map<?, ?>) entry.getValue()).entrySet()) {
+                        String innerKey = String.valueOf(inner.getKey());
+                        if (isNumeric(inner.getValue())) {
+                            Gauge.builder(prefix + innerKey, snapshot, s -> toDouble(s.getNested(key, innerKey)))
+                                    .tags(Tags.of("name", key))
+                                    .register(registry);
+                        }
+                    }
+                } else if (isNumeric(entry.getValue())) {
+                    Gauge.builder(prefix + key, snapshot, s -> toDouble(s.get().get(key)))
+                            .register(registry);
+                }
+            }
+        }
+    }
+
+    private static boolean isNumeric(Object value) {
+        return value instanceof Number || value instanceof Boolean;
+    }
+
+    private static double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * The stats of one source, taken at most once per {@link #SNAPSHOT_TTL_NANOS}
+     */
+    private static class Snapshot {
+        private final StatsSource source;
+        private Map<String, Object> stats;
+        private long takenAt;
+
+        Snapshot(StatsSource source) {
+            this.source = source;
+        }
+
+        synchronized Map<String, Object> get() {
+            long now = System.nanoTime();
+            if (stats == null || now - takenAt > SNAPSHOT_TTL_NANOS) {
+                try {
+                    stats = source.getStats();
+                } catch (RuntimeException e) {
+                    stats = Collections.emptyMap();
+                }
+                takenAt = now;
+            }
+            return stats;
+        }
+
+        Object getNested(String key, String innerKey) {
+            Object nested = get().get(key);
+            return nested instanceof Map ? ((Map<?, ?>) nested).get(innerKey) : null;
+        }
+    }
+}
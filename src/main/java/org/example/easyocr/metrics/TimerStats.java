@@ -0,0 +1,45 @@
+package org.example.easyocr.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free count/average/max accumulator for durations, reported in milliseconds.
+ */
+public class TimerStats {
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getAverageMillis() {
+        long n = count.get();
+        return n == 0 ? 0.0 : totalNanos.get() / 1_000_000.0 / n;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Add {@code <name>_count}, {@code <name>_avg_ms} and {@code <name>_max_ms} to a stats map
+     *
+     * @param stats The map to add to
+     * @param name The prefix of the keys
+     */
+    public void putInto(Map<String, Object> stats, String name) {
+        stats.put(name + "_count", getCount());
+        stats.put(name + "_avg_ms", getAverageMillis());
+        stats.put(name + "_max_ms", getMaxMillis());
+    }
+}
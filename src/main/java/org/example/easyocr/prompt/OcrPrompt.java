@@ -0,0 +1,65 @@
+package org.example.easyocr.prompt;
+
+/**
+ * A prompt and the request settings that go with it.
+ */
+public final class OcrPrompt {
+
+    private final String type;
+    private final String text;
+    private final int maxTokens;
+    private final String detail;
+    private final boolean classify;
+    private final String version;
+
+    OcrPrompt(String type, String text, int maxTokens, String detail, boolean classify) {
+        this.type = type;
+        this.text = text;
+        this.maxTokens = maxTokens;
+        this.detail = detail;
+        this.classify = classify;
+        this.version = String.format("%08x", text.hashCode());
+    }
+
+    /**
+     * @return The document type, or {@code "text"}, {@code "generic"} or {@code "classification"}
+     */
+    public String getType() {
+        return type;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return A fingerprint of the prompt text, which changes whenever the prompt is edited
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    /**
+     * @return The image detail to request, or null for the API default
+     */
+    public String getDetail() {
+        return detail;
+    }
+
+    /**
+     * @return Whether the document type is to be asked for before extraction, see
+     * {@link PromptRegistry#forClassification(String)}
+     */
+    public boolean isClassify() {
+        return classify;
+    }
+
+    @Override
+    public String toString() {
+        return type;
+    }
+}
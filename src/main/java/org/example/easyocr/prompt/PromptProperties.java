@@ -0,0 +1,125 @@
+package org.example.easyocr.prompt;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Document types with their own extraction prompt, and how the type of a document is found
+ * when the client does not name it.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.prompts")
+public class PromptProperties {
+
+    private Classification classification = new Classification();
+
+    /**
+     * Document types by name, such as {@code id_card}; the name is what clients pass as {@code type}
+     */
+    private Map<String, DocumentType> types = new LinkedHashMap<>();
+
+    public Classification getClassification() {
+        return classification;
+    }
+
+    public void setClassification(Classification classification) {
+        this.classification = classification;
+    }
+
+    public Map<String, DocumentType> getTypes() {
+        return types;
+    }
+
+    public void setTypes(Map<String, DocumentType> types) {
+        this.types = types;
+    }
+
+    public static class DocumentType {
+
+        /**
+         * What the document is, as told to the model, e.g. "a national ID card"
+         */
+        private String description;
+
+        /**
+         * The keys of the JSON object the model returns, in order
+         */
+        private List<String> fields = new ArrayList<>();
+
+        /**
+         * Upper bound on the completion length; a known field list needs far fewer tokens
+         * than the open-ended generic prompt
+         */
+        private int maxTokens = 1000;
+
+        public String getDescription() {
+            return description;
+        }
+
+        public void setDescription(String description) {
+            this.description = description;
+        }
+
+        public List<String> getFields() {
+            return fields;
+        }
+
+        public void setFields(List<String> fields) {
+            this.fields = fields;
+        }
+
+        public int getMaxTokens() {
+            return maxTokens;
+        }
+
+        public void setMaxTokens(int maxTokens) {
+            this.maxTokens = maxTokens;
+        }
+    }
+
+    public static class Classification {
+
+        /**
+         * Ask the model for the document type first when the client gives none; without it
+         * such documents use {@code openai.structured.prompt}
+         */
+        private boolean enabled = false;
+
+        /**
+         * The image is sent at this detail for classification; "low" is billed as a fixed,
+         * small number of tokens
+         */
+        private String detail = "low";
+
+        private int maxTokens = 10;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDetail() {
+            return detail;
+        }
+
+        public void setDetail(String detail) {
+            this.detail = detail;
+        }
+
+        public int getMaxTokens() {
+            return maxTokens;
+        }
+
+        public void setMaxTokens(int maxTokens) {
+            this.maxTokens = maxTokens;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package org.example.easyocr.prompt;
+
+import org.example.easyocr.metrics.StatsSource;
+import org.example.easyocr.metrics.TimerStats;
+import org.example.easyocr.service.OcrMode;
+import org.example.easyocr.upstream.ChatCompletion;
+import org.example.easyocr.upstream.ChatCompletionRequestWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Picks the prompt an image is processed with.
+ * <p>
+ * Documents of a known type get a short prompt that lists the keys to return, so the model
+ * neither has to guess what it is looking at nor invents its own field names; the completion
+ * is bounded by the type's {@code max-tokens}. The type comes from the client, or from a
+ * cheap first call on a low-detail image when {@code app.prompts.classification.enabled} is
+ * set. Anything else falls back to {@code openai.structured.prompt}.
+ * <p>
+ * Every prompt starts with the same instructions and ends with the type-specific part, and
+ * it comes before the image, so the start of the request is byte for byte the same across
+ * calls and providers that cache prompt prefixes can reuse it. Token usage and upstream time
+ * are kept per type to compare the typed prompts with the generic one.
+ */
+@Component
+public class PromptRegistry implements StatsSource {
+
+    private static final Logger logger = Logger.getLogger(PromptRegistry.class.getName());
+
+    public static final String TEXT = "text";
+    public static final String GENERIC = "generic";
+    public static final String CLASSIFICATION = "classification";
+
+    // Shared by all document types; keep it free of anything that changes between calls
+    private static final String DOCUMENT_PREFIX = "You are an OCR service that extracts fields from a document image.\n"
+            + "- Return only a JSON object, without code fences or comments.\n"
+            + "- Use exactly the keys listed below, no others.\n"
+            + "- Copy each value as printed on the document. Use null for a key that is not visible.\n";
+
+    private final PromptProperties properties;
+
+    @Value("${openai.prompt}")
+    private String defaultPrompt;
+
+    @Value("${openai.structured.prompt}")
+    private String structuredPrompt;
+
+    private OcrPrompt textPrompt;
+    private OcrPrompt genericPrompt;
+    private OcrPrompt classifyingPrompt;
+    private OcrPrompt classificationPrompt;
+    private final Map<String, OcrPrompt> documentPrompts = new LinkedHashMap<>();
+
+    private final Map<String, TypeStats> stats = new ConcurrentHashMap<>();
+
+    public PromptRegistry(PromptProperties properties) {
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() {
+        int maxTokens = ChatCompletionRequestWriter.MAX_TOKENS;
+        textPrompt = new OcrPrompt(TEXT, defaultPrompt, maxTokens, null, false);
+        genericPrompt = new OcrPrompt(GENERIC, structuredPrompt, maxTokens, null, false);
+        classifyingPrompt = new OcrPrompt(GENERIC, structuredPrompt, maxTokens, null, true);
+        properties.getTypes().forEach((name, type) -> documentPrompts.put(name,
+                new OcrPrompt(name, render(type), type.getMaxTokens(), null, false)));
+        PromptProperties.Classification classification = properties.getClassification();
+        classificationPrompt = new OcrPrompt(CLASSIFICATION, "Which kind of document is this image? Answer with one of: "
+                + String.join(", ", documentPrompts.keySet()) + ", other. Answer with that word only.",
+                classification.getMaxTokens(), classification.getDetail(), false);
+        logger.info("Document prompts: " + documentPrompts.keySet() + ", classification "
+                + (isClassificationEnabled() ? "enabled" : "disabled"));
+    }
+
+    static String render(PromptProperties.DocumentType type) {
+        return DOCUMENT_PREFIX + "Document: " + type.getDescription() + "\nKeys: " + String.join(", ", type.getFields());
+    }
+
+    /**
+     * @param mode Whether plain text or document fields are extracted
+     * @param documentType The document type the client named, or null
+     * @return The prompt; for a document of unknown type it may ask for classification first
+     */
+    public OcrPrompt select(OcrMode mode, String documentType) {
+        if (mode == OcrMode.TEXT) {
+            return textPrompt;
+        }
+        if (documentType != null && !documentType.isBlank()) {
+            OcrPrompt prompt = documentPrompts.get(normalize(documentType));
+            if (prompt == null) {
+                logger.warning("Unknown document type " + documentType + ", using the generic prompt");
+                return genericPrompt;
+            }
+            return prompt;
+        }
+        return isClassificationEnabled() ? classifyingPrompt : genericPrompt;
+    }
+
+    private boolean isClassificationEnabled() {
+        return properties.getClassification().isEnabled() && !documentPrompts.isEmpty();
+    }
+
+    /**
+     * @return The prompt that asks for the document type, see {@link #forClassification(String)}
+     */
+    public OcrPrompt getClassificationPrompt() {
+        return classificationPrompt;
+    }
+
+    /**
+     * @param answer The answer to the classification prompt
+     * @return The prompt of the document type named in the answer, or the generic prompt
+     */
+    public OcrPrompt forClassification(String answer) {
+        if (answer != null) {
+            String normalized = normalize(answer).replaceAll("[^a-z_]", "");
+            OcrPrompt prompt = documentPrompts.get(normalized);
+            if (prompt != null) {
+                return prompt;
+            }
+        }
+        return genericPrompt;
+    }
+
+    private static String normalize(String documentType) {
+        return documentType.trim().toLowerCase(Locale.ROOT).replace('-', '_').replace(' ', '_');
+    }
+
+    /**
+     * Count one upstream call made with a prompt
+     *
+     * @param prompt The prompt
+     * @param usage The token usage of the call, or null if the answer had none, as when streamed
+     * @param nanos How long the call took
+     */
+    public void record(OcrPrompt prompt, ChatCompletion.Usage usage, long nanos) {
+        TypeStats typeStats = stats.computeIfAbsent(prompt.getType(), type -> new TypeStats());
+        typeStats.calls.incrementAndGet();
+        typeStats.upstreamTimes.record(nanos);
+        if (usage != null) {
+            typeStats.usageReports.incrementAndGet();
+            typeStats.promptTokens.addAndGet(usage.getPromptTokens());
+            typeStats.completionTokens.addAndGet(usage.getCompletionTokens());
+        }
+    }
+
+    @Override
+    public String getStatsName() {
+        return "prompts";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("classification_enabled", isClassificationEnabled());
+        stats.forEach((type, typeStats) -> result.put(type, typeStats.toMap()));
+        return result;
+    }
+
+    private static class TypeStats {
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong usageReports = new AtomicLong();
+        private final AtomicLong promptTokens = new AtomicLong();
+        private final AtomicLong completionTokens = new AtomicLong();
+        private final TimerStats upstreamTimes = new TimerStats();
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            long reports = usageReports.get();
+            map.put("calls", calls.get());
+            map.put("prompt_tokens", promptTokens.get());
+            map.put("completion_tokens", completionTokens.get());
+            map.put("avg_prompt_tokens", reports == 0 ? 0 : promptTokens.get() / reports);
+            map.put("avg_completion_tokens", reports == 0 ? 0 : completionTokens.get() / reports);
+            upstreamTimes.putInto(map, "upstream");
+            return map;
+        }
+    }
+}
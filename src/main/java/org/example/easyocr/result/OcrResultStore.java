@@ -0,0 +1,351 @@
+package org.example.easyocr.result;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.easyocr.entity.OcrResultRecord;
+import org.example.easyocr.mapper.OcrResultMapper;
+import org.example.easyocr.metrics.OcrMetrics;
+import org.example.easyocr.metrics.StatsSource;
+import org.example.easyocr.metrics.TimerStats;
+import org.example.easyocr.prompt.OcrPrompt;
+import org.example.easyocr.service.OcrResult;
+import org.example.easyocr.upstream.ChatCompletion;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Store of past OCR results in the {@code ocr_result} table, for audits, re-exports and search.
+ * <p>
+ * The request path only puts a row on a bounded in-memory queue. A single writer thread
+ * inserts the rows in JDBC batches of up to {@code app.results.batch-size}, waiting at most
+ * {@code app.results.flush-interval} for a batch to fill. When the queue is full, for example
+ * while the database is slow, new rows are dropped and counted rather than blocking the
+ * request. Rows still queued at shutdown are written before the application stops.
+ * <p>
+ * Search uses H2's built-in full-text index on the extracted text. If it can not be set up
+ * the store falls back to a case-insensitive substring match, which scans the filtered rows.
+ */
+@Component
+public class OcrResultStore implements StatsSource {
+
+    private static final Logger logger = Logger.getLogger(OcrResultStore.class.getName());
+
+    private final OcrResultMapper resultMapper;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.results.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.results.full-text:true}")
+    private boolean fullTextEnabled;
+
+    @Value("${app.results.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.results.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.results.flush-interval:1000}")
+    private long flushInterval;
+
+    @Value("${app.results.retention:2592000000}")
+    private long retention;
+
+    @Value("${app.results.error-retention:604800000}")
+    private long errorRetention;
+
+    private BlockingQueue<OcrResultRecord> queue;
+    private Thread writer;
+    private volatile boolean running;
+    private volatile boolean fullText;
+
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong lost = new AtomicLong();
+    private final AtomicLong writeErrors = new AtomicLong();
+    private final AtomicLong purged = new AtomicLong();
+    private final TimerStats batchTimes = new TimerStats();
+
+    public OcrResultStore(OcrResultMapper resultMapper, ObjectMapper objectMapper) {
+        this.resultMapper = resultMapper;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (fullTextEnabled) {
+            fullText = initFullText();
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = new Thread(this::runWriter, "ocr-result-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        // Not interrupted: an interrupt during a write would close H2's file channel. The writer
+        // notices within one flush interval.
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue a result for storage; never waits on the database
+     *
+     * @param imageHash The hash of the original image bytes
+     * @param model The model that answered, or the one the request was made for if the call failed
+     * @param prompt The prompt the image was read with
+     * @param endpoint The name of the calling endpoint
+     * @param result The engine's answer with its engine and token usage, or the error of a failed call
+     * @param durationNanos How long the engine call took
+     */
+    public void record(String imageHash, String model, OcrPrompt prompt, String endpoint,
+                       OcrResult result, long durationNanos) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            OcrResultRecord record = new OcrResultRecord();
+            record.setImageHash(imageHash);
+            record.setEndpoint(endpoint);
+            record.setPromptType(prompt.getType());
+            record.setPromptVersion(prompt.getVersion());
+            record.setModel(model);
+            record.setOutcome(OcrMetrics.outcomeOf(result));
+            record.setResultJson(objectMapper.writeValueAsString(result.toMap()));
+            record.setEngine(result.getEngine());
+            record.setExtractedText(searchableText(result));
+            ChatCompletion.Usage usage = result.getUsage();
+            if (usage != null) {
+                record.setPromptTokens(usage.getPromptTokens());
+                record.setCompletionTokens(usage.getCompletionTokens());
+                record.setTotalTokens(usage.getTotalTokens());
+            }
+            record.setDurationMs(durationNanos / 1_000_000);
+            record.setCreatedAt(LocalDateTime.now());
+            if (queue.offer(record)) {
+                queued.incrementAndGet();
+            } else {
+                dropped.incrementAndGet();
+            }
+        } catch (Exception e) {
+            dropped.incrementAndGet();
+            logger.log(Level.WARNING, "Failed to queue OCR result for storage", e);
+        }
+    }
+
+    /**
+     * Find stored results, newest first
+     *
+     * @param query Words to search the extracted text for, or null to match every result
+     * @param endpoint Only results of this endpoint, or null
+     * @param imageHash Only results of this image, or null
+     * @param from Only results stored at or after this time, or null
+     * @param to Only results stored before this time, or null
+     * @param page The zero-based page number
+     * @param size The number of results per page
+     * @return A map with the "page", "size", "total" and the "results" of the page
+     */
+    public Map<String, Object> search(String query, String endpoint, String imageHash,
+                                      LocalDateTime from, LocalDateTime to, int page, int size) {
+        String likePattern = query != null ? "%" + escapeLike(query.toLowerCase(Locale.ROOT)) + "%" : null;
+        long total = resultMapper.countSearch(fullText, query, likePattern, endpoint, imageHash, from, to);
+        List<OcrResultRecord> results = total > (long) page * size
+                ? resultMapper.search(fullText, query, likePattern, endpoint, imageHash, from, to, size, (long) page * size)
+                : new ArrayList<>();
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("page", page);
+        response.put("size", size);
+        response.put("total", total);
+        response.put("results", results);
+        return response;
+    }
+
+    public OcrResultRecord find(long id) {
+        return resultMapper.selectById(id);
+    }
+
+    /**
+     * Periodically delete results older than their retention; failed calls are kept for a shorter time
+     */
+    @Scheduled(fixedDelayString = "${app.results.purge-interval:3600000}")
+    public void purgeExpired() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int deleted = resultMapper.delete(new LambdaQueryWrapper<OcrResultRecord>()
+                    .lt(OcrResultRecord::getCreatedAt, now.minusNanos(retention * 1_000_000L)));
+            deleted += resultMapper.delete(new LambdaQueryWrapper<OcrResultRecord>()
+                    .eq(OcrResultRecord::getOutcome, OcrMetrics.OUTCOME_ERROR)
+                    .lt(OcrResultRecord::getCreatedAt, now.minusNanos(errorRetention * 1_000_000L)));
+            if (deleted > 0) {
+                purged.addAndGet(deleted);
+                logger.info("Purged " + deleted + " expired OCR results");
+            }
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to purge expired OCR results", e);
+        }
+    }
+
+    private boolean initFullText() {
+        try {
+            resultMapper.createFullTextAlias();
+            resultMapper.initFullText();
+            if (resultMapper.countFullTextIndexes() == 0) {
+                resultMapper.createFullTextIndex();
+            }
+            return true;
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Could not set up the full-text index, searching OCR results by substring", e);
+            return false;
+        }
+    }
+
+    private void runWriter() {
+        List<OcrResultRecord> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                OcrResultRecord first = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            write(batch);
+            batch.clear();
+        }
+
+        // Write what is still queued before the database goes away
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Take more rows until the batch is full or the flush interval since its first row has passed
+     */
+    private void fillBatch(List<OcrResultRecord> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushInterval);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            OcrResultRecord next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void write(List<OcrResultRecord> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            resultMapper.insert(batch);
+            written.addAndGet(batch.size());
+        } catch (Exception e) {
+            writeErrors.incrementAndGet();
+            lost.addAndGet(batch.size());
+            logger.log(Level.WARNING, "Failed to write " + batch.size() + " OCR results", e);
+        } finally {
+            batchTimes.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return The text of a text result, or the values of a document's fields one per line
+     */
+    static String searchableText(OcrResult result) {
+        if (result.getKind() == OcrResult.Kind.TEXT) {
+            return result.getText();
+        }
+        if (result.getKind() == OcrResult.Kind.FIELDS) {
+            StringBuilder text = new StringBuilder();
+            appendValues(text, result.getFields().values());
+            return text.length() > 0 ? text.toString() : null;
+        }
+        return null;
+    }
+
+    private static void appendValues(StringBuilder text, Collection<?> values) {
+        for (Object value : values) {
+            if (value instanceof Map) {
+                appendValues(text, ((Map<?, ?>) value).values());
+            } else if (value instanceof Collection) {
+                appendValues(text, (Collection<?>) value);
+            } else if (value != null && !value.toString().isEmpty()) {
+                if (text.length() > 0) {
+                    text.append('\n');
+                }
+                text.append(value);
+            }
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    @Override
+    public String getStatsName() {
+        return "results";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("full_text", fullText);
+        stats.put("queue_size", queue != null ? queue.size() : 0);
+        stats.put("queued", queued.get());
+        stats.put("dropped", dropped.get());
+        stats.put("written", written.get());
+        stats.put("lost", lost.get());
+        stats.put("write_errors", writeErrors.get());
+        stats.put("purged", purged.get());
+        batchTimes.putInto(stats, "batch");
+        return stats;
+    }
+}
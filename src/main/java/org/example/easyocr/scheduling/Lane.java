@@ -0,0 +1,36 @@
+package org.example.easyocr.scheduling;
+
+import java.util.Locale;
+
+/**
+ * The priority class of a request. Interactive requests come from people waiting for the
+ * answer, batch requests from bulk imports and background jobs.
+ */
+public enum Lane {
+
+    INTERACTIVE,
+    BATCH;
+
+    /**
+     * @return The lower case name used in headers, configuration and stats
+     */
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param name A lane name in any case
+     * @return The lane, or null if the name is null or unknown
+     */
+    public static Lane parse(String name) {
+        if (name == null) {
+            return null;
+        }
+        for (Lane lane : values()) {
+            if (lane.name().equalsIgnoreCase(name.trim())) {
+                return lane;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.easyocr.scheduling;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Who a request is for, its lane and when its client stops waiting for it. The context is bound
+ * to the request thread by {@link OcrRequestContextFilter} and travels with the tasks that
+ * thread hands to worker pools through {@link #wrap}, so {@link UpstreamScheduler} sees it on
+ * whichever thread makes the upstream call.
+ */
+public final class OcrRequestContext {
+
+    /**
+     * The tenant of requests without an API key or tenant header
+     */
+    public static final String ANONYMOUS = "anonymous";
+
+    private static final OcrRequestContext DEFAULT = new OcrRequestContext(ANONYMOUS, Lane.INTERACTIVE, 0);
+
+    private static final ThreadLocal<OcrRequestContext> CURRENT = new ThreadLocal<>();
+
+    private final String tenant;
+    private final Lane lane;
+    private final long deadlineNanos;
+
+    /**
+     * @param tenant The tenant name
+     * @param lane The lane
+     * @param deadlineNanos The {@link System#nanoTime()} after which the answer is of no use, or 0 for none
+     */
+    public OcrRequestContext(String tenant, Lane lane, long deadlineNanos) {
+        this.tenant = tenant;
+        this.lane = lane;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * @return The context bound to the current thread, or an interactive anonymous context without deadline
+     */
+    public static OcrRequestContext current() {
+        OcrRequestContext context = CURRENT.get();
+        return context != null ? context : DEFAULT;
+    }
+
+    /**
+     * Bind a context to the current thread
+     *
+     * @return The previously bound context, to pass to {@link #restore}
+     */
+    public static OcrRequestContext bind(OcrRequestContext context) {
+        OcrRequestContext previous = CURRENT.get();
+        CURRENT.set(context);
+        return previous;
+    }
+
+    public static void restore(OcrRequestContext previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Make a task run with the context of the thread that creates it
+     *
+     * @param task A task to hand to another thread
+     * @return The task, binding the current context while it runs
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        OcrRequestContext context = current();
+        return () -> {
+            OcrRequestContext previous = bind(context);
+            try {
+                return task.call();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /**
+     * The same tenant's request in another lane. It takes a deadline of its own because the
+     * request's deadline comes from the default timeout of the lane it arrived in, which has
+     * nothing to do with how long the work in the other lane may take.
+     *
+     * @param lane The lane
+     * @param deadlineNanos The {@link System#nanoTime()} after which the answer is of no use, or 0 for none
+     * @return The context in that lane
+     */
+    public OcrRequestContext withLane(Lane lane, long deadlineNanos) {
+        return new OcrRequestContext(tenant, lane, deadlineNanos);
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public Lane getLane() {
+        return lane;
+    }
+
+    public boolean hasDeadline() {
+        return deadlineNanos != 0;
+    }
+
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    @Override
+    public String toString() {
+        return tenant + "/" + lane.getName();
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.easyocr.scheduling;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binds the {@link OcrRequestContext} of each API request from its headers:
+ * <ul>
+ * <li>{@code X-API-Key} identifies a configured tenant, or else {@code X-Tenant} names a
+ * configured tenant that has no API key;</li>
+ * <li>{@code X-Priority: interactive|batch} selects the lane, but never above the tenant's lane;</li>
+ * <li>{@code X-Request-Timeout} is how long the client waits, in milliseconds, and defaults to
+ * the lane's {@code default-timeout}.</li>
+ * </ul>
+ */
+@Component
+public class OcrRequestContextFilter extends OncePerRequestFilter {
+
+    public static final String API_KEY_HEADER = "X-API-Key";
+    public static final String TENANT_HEADER = "X-Tenant";
+    public static final String PRIORITY_HEADER = "X-Priority";
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private final SchedulerProperties properties;
+
+    public OcrRequestContextFilter(SchedulerProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        OcrRequestContext previous = OcrRequestContext.bind(resolve(request));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            OcrRequestContext.restore(previous);
+        }
+    }
+
+    OcrRequestContext resolve(HttpServletRequest request) {
+        String tenant = properties.findTenantByApiKey(request.getHeader(API_KEY_HEADER));
+        if (tenant == null) {
+            String named = request.getHeader(TENANT_HEADER);
+            SchedulerProperties.Tenant settings = named != null ? properties.getTenants().get(named) : null;
+            tenant = settings != null && settings.getApiKey() == null ? named : OcrRequestContext.ANONYMOUS;
+        }
+
+        Lane lane = properties.getTenant(tenant).getLane();
+        Lane requested = Lane.parse(request.getHeader(PRIORITY_HEADER));
+        if (requested != null && requested.ordinal() > lane.ordinal()) {
+            lane = requested;
+        }
+
+        long timeoutMillis = properties.getLane(lane).getDefaultTimeout();
+        String timeout = request.getHeader(TIMEOUT_HEADER);
+        if (timeout != null) {
+            try {
+                timeoutMillis = Long.parseLong(timeout.trim());
+            } catch (NumberFormatException e) {
+                // Keep the lane's default
+            }
+        }
+        long deadlineNanos = timeoutMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0;
+        return new OcrRequestContext(tenant, lane, deadlineNanos);
+    }
+}
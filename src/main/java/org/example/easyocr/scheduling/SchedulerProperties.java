@@ -0,0 +1,207 @@
+package org.example.easyocr.scheduling;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * How upstream capacity is shared between the lanes and the tenants.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.scheduler")
+public class SchedulerProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Longest time a call waits for its turn, in milliseconds, also without a deadline
+     */
+    private long maxQueueWait = 60000;
+
+    private LaneSettings interactive = new LaneSettings(8, 120000);
+
+    private LaneSettings batch = new LaneSettings(1, 0);
+
+    /**
+     * Tenants by name; requests that match none belong to {@value OcrRequestContext#ANONYMOUS},
+     * which may be configured here as well
+     */
+    private Map<String, Tenant> tenants = new LinkedHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getMaxQueueWait() {
+        return maxQueueWait;
+    }
+
+    public void setMaxQueueWait(long maxQueueWait) {
+        this.maxQueueWait = maxQueueWait;
+    }
+
+    public LaneSettings getInteractive() {
+        return interactive;
+    }
+
+    public void setInteractive(LaneSettings interactive) {
+        this.interactive = interactive;
+    }
+
+    public LaneSettings getBatch() {
+        return batch;
+    }
+
+    public void setBatch(LaneSettings batch) {
+        this.batch = batch;
+    }
+
+    public Map<String, Tenant> getTenants() {
+        return tenants;
+    }
+
+    public void setTenants(Map<String, Tenant> tenants) {
+        this.tenants = tenants;
+    }
+
+    public LaneSettings getLane(Lane lane) {
+        return lane == Lane.BATCH ? batch : interactive;
+    }
+
+    /**
+     * @return The settings of a tenant, the defaults if it is not configured
+     */
+    public Tenant getTenant(String name) {
+        Tenant tenant = tenants.get(name);
+        return tenant != null ? tenant : new Tenant();
+    }
+
+    /**
+     * @return The name of the tenant with this API key, or null
+     */
+    public String findTenantByApiKey(String apiKey) {
+        if (apiKey == null || apiKey.isEmpty()) {
+            return null;
+        }
+        for (Map.Entry<String, Tenant> entry : tenants.entrySet()) {
+            if (apiKey.equals(entry.getValue().getApiKey())) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    public static class LaneSettings {
+
+        /**
+         * Share of the upstream capacity while both lanes have calls waiting
+         */
+        private int weight = 1;
+
+        /**
+         * How long a client of this lane is assumed to wait for an answer when it does not send
+         * {@code X-Request-Timeout}, in milliseconds; 0 for no limit
+         */
+        private long defaultTimeout;
+
+        public LaneSettings() {
+        }
+
+        LaneSettings(int weight, long defaultTimeout) {
+            this.weight = weight;
+            this.defaultTimeout = defaultTimeout;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public void setWeight(int weight) {
+            this.weight = weight;
+        }
+
+        public long getDefaultTimeout() {
+            return defaultTimeout;
+        }
+
+        public void setDefaultTimeout(long defaultTimeout) {
+            this.defaultTimeout = defaultTimeout;
+        }
+    }
+
+    public static class Tenant {
+
+        /**
+         * The {@code X-API-Key} that identifies the tenant; a tenant without one can be named
+         * with the {@code X-Tenant} header instead
+         */
+        private String apiKey;
+
+        /**
+         * The highest lane the tenant's requests may use, and the lane of requests that do
+         * not ask for one with {@code X-Priority}
+         */
+        private Lane lane = Lane.INTERACTIVE;
+
+        /**
+         * Share of its lane's capacity while other tenants of the lane have calls waiting
+         */
+        private int weight = 1;
+
+        /**
+         * Upstream calls of the tenant at once, 0 for no limit
+         */
+        private int maxConcurrency;
+
+        /**
+         * Upstream calls the tenant may start per minute, 0 for no limit
+         */
+        private long requestsPerMinute;
+
+        public String getApiKey() {
+            return apiKey;
+        }
+
+        public void setApiKey(String apiKey) {
+            this.apiKey = apiKey;
+        }
+
+        public Lane getLane() {
+            return lane;
+        }
+
+        public void setLane(Lane lane) {
+            this.lane = lane;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public void setWeight(int weight) {
+            this.weight = weight;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public long getRequestsPerMinute() {
+            return requestsPerMinute;
+        }
+
+        public void setRequestsPerMinute(long requestsPerMinute) {
+            this.requestsPerMinute = requestsPerMinute;
+        }
+    }
+}
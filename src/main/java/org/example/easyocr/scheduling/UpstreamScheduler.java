@@ -0,0 +1,356 @@
+package org.example.easyocr.scheduling;
+
+import org.example.easyocr.metrics.StatsSource;
+import org.example.easyocr.metrics.TimerStats;
+import org.example.easyocr.upstream.TokenBucket;
+import org.example.easyocr.upstream.UpstreamThrottle;
+import org.example.easyocr.upstream.UpstreamThrottledException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Decides which waiting request gets the next upstream slot.
+ * <p>
+ * At most as many calls as the {@link UpstreamThrottle} concurrency limit are let through at
+ * once; the rest wait here in their lane, one queue per tenant. Slots are shared by stride
+ * scheduling, first between the lanes by their weight and then between the tenants of the
+ * chosen lane by theirs, so a bulk import can use all capacity nobody else wants but an
+ * interactive request only waits for the share of the batch lane. A lane or tenant that was
+ * idle starts at the current pass and gets no credit for the time it did not use.
+ * <p>
+ * A tenant over its concurrency or per-minute quota is skipped until it is back under it.
+ * Requests still waiting when their client's deadline passes are dropped instead of being
+ * sent for an answer nobody reads.
+ * <p>
+ * A tenant's queue is forgotten once it has been idle for a minute, by when its per-minute
+ * quota has refilled anyway, so the tenants seen over time do not pile up here.
+ */
+@Component
+public class UpstreamScheduler implements StatsSource {
+
+    private static final Logger logger = Logger.getLogger(UpstreamScheduler.class.getName());
+
+    private final SchedulerProperties properties;
+    private final IntSupplier capacity;
+    private final long idleFlowNanos;
+    private final Map<Lane, LaneQueue> lanes = new EnumMap<>(Lane.class);
+
+    private int inFlight;
+    private double lanePass;
+    // When a rate-limited tenant next has a request to spare, so waiters wake up for it
+    private long retryNanos = Long.MAX_VALUE;
+    private long lastEvictionNanos = System.nanoTime();
+
+    @Autowired
+    public UpstreamScheduler(SchedulerProperties properties, UpstreamThrottle upstreamThrottle) {
+        this(properties, upstreamThrottle::getConcurrencyLimit, TimeUnit.MINUTES.toNanos(1));
+    }
+
+    UpstreamScheduler(SchedulerProperties properties, IntSupplier capacity, long idleFlowNanos) {
+        this.properties = properties;
+        this.capacity = capacity;
+        this.idleFlowNanos = idleFlowNanos;
+    }
+
+    @PostConstruct
+    public void start() {
+        for (Lane lane : Lane.values()) {
+            lanes.put(lane, new LaneQueue(lane, Math.max(1, properties.getLane(lane).getWeight())));
+        }
+    }
+
+    /**
+     * Run an upstream call when it is the turn of the request bound to the current thread
+     *
+     * @param call The call
+     * @return The result of the call
+     * @throws UpstreamThrottledException If the request's deadline passed, or no slot was free
+     * within {@code app.scheduler.max-queue-wait}
+     */
+    public <T> T execute(Supplier<T> call) {
+        if (!properties.isEnabled()) {
+            return call.get();
+        }
+        Ticket ticket = acquire(OcrRequestContext.current());
+        try {
+            return call.get();
+        } finally {
+            release(ticket);
+        }
+    }
+
+    private synchronized Ticket acquire(OcrRequestContext context) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(properties.getMaxQueueWait());
+        boolean clientDeadline = context.hasDeadline() && context.getDeadlineNanos() - deadline < 0;
+        if (clientDeadline) {
+            deadline = context.getDeadlineNanos();
+        }
+        evictIdleFlows(start);
+        LaneQueue lane = lanes.get(context.getLane());
+        Ticket ticket = new Ticket(lane.flow(context.getTenant()), deadline);
+        lane.enqueue(ticket);
+        try {
+            while (true) {
+                dispatch();
+                if (ticket.granted) {
+                    lane.waits.record(System.nanoTime() - start);
+                    return ticket;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    lane.remove(ticket);
+                    long waitedMillis = (System.nanoTime() - start) / 1_000_000;
+                    if (clientDeadline) {
+                        lane.dropped++;
+                        logger.info("Dropped a request of " + context + " after " + waitedMillis + " ms, its client has stopped waiting");
+                        throw new UpstreamThrottledException("The request was not sent, its deadline passed after " + waitedMillis + " ms in the queue");
+                    }
+                    lane.rejected++;
+                    throw new UpstreamThrottledException("No upstream capacity for the " + lane.lane.getName()
+                            + " lane within " + properties.getMaxQueueWait() + " ms");
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, Math.min(remaining, retryNanos));
+            }
+        } catch (InterruptedException e) {
+            if (ticket.granted) {
+                releaseLocked(ticket);
+            } else {
+                lane.remove(ticket);
+            }
+            Thread.currentThread().interrupt();
+            throw new UpstreamThrottledException("Interrupted while waiting for upstream capacity");
+        }
+    }
+
+    private synchronized void release(Ticket ticket) {
+        releaseLocked(ticket);
+    }
+
+    private void releaseLocked(Ticket ticket) {
+        inFlight--;
+        ticket.flow.inFlight--;
+        ticket.flow.lastActiveNanos = System.nanoTime();
+        dispatch();
+    }
+
+    /**
+     * Forget the tenants that have had nothing queued or in flight for a minute, looking at most
+     * once a minute
+     */
+    private void evictIdleFlows(long now) {
+        if (now - lastEvictionNanos < idleFlowNanos) {
+            return;
+        }
+        lastEvictionNanos = now;
+        for (LaneQueue lane : lanes.values()) {
+            lane.flows.values().removeIf(flow -> flow.queue.isEmpty() && flow.inFlight == 0
+                    && now - flow.lastActiveNanos >= idleFlowNanos);
+        }
+    }
+
+    /**
+     * Grant free slots to the next requests in turn
+     */
+    private void dispatch() {
+        long now = System.nanoTime();
+        retryNanos = Long.MAX_VALUE;
+        boolean granted = false;
+        int limit = capacity.getAsInt();
+        while (inFlight < limit) {
+            LaneQueue next = null;
+            for (LaneQueue lane : lanes.values()) {
+                if (lane.hasEligible(now) && (next == null || lane.pass < next.pass)) {
+                    next = lane;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            lanePass = next.pass;
+            next.pass += 1.0 / next.weight;
+            Ticket ticket = next.poll(now);
+            ticket.granted = true;
+            ticket.flow.inFlight++;
+            ticket.flow.granted++;
+            next.granted++;
+            inFlight++;
+            granted = true;
+        }
+        if (granted) {
+            notifyAll();
+        }
+    }
+
+    @Override
+    public String getStatsName() {
+        return "scheduler";
+    }
+
+    @Override
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", properties.isEnabled());
+        stats.put("in_flight", inFlight);
+        for (LaneQueue lane : lanes.values()) {
+            Map<String, Object> laneStats = new LinkedHashMap<>();
+            laneStats.put("weight", lane.weight);
+            laneStats.put("queued", lane.queued);
+            laneStats.put("granted", lane.granted);
+            laneStats.put("dropped", lane.dropped);
+            laneStats.put("rejected", lane.rejected);
+            lane.waits.putInto(laneStats, "wait");
+            stats.put(lane.lane.getName(), laneStats);
+            for (Flow flow : lane.flows.values()) {
+                Map<String, Object> flowStats = new LinkedHashMap<>();
+                flowStats.put("queued", flow.queue.size());
+                flowStats.put("in_flight", flow.inFlight);
+                flowStats.put("granted", flow.granted);
+                stats.put(lane.lane.getName() + "." + flow.tenant, flowStats);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * The waiting requests of one lane, by tenant
+     */
+    private class LaneQueue {
+        private final Lane lane;
+        private final int weight;
+        private final Map<String, Flow> flows = new LinkedHashMap<>();
+        private final TimerStats waits = new TimerStats();
+        private double pass;
+        private double flowPass;
+        private int queued;
+        private long granted;
+        private long dropped;
+        private long rejected;
+
+        LaneQueue(Lane lane, int weight) {
+            this.lane = lane;
+            this.weight = weight;
+        }
+
+        Flow flow(String tenant) {
+            return flows.computeIfAbsent(tenant, name -> {
+                SchedulerProperties.Tenant settings = properties.getTenant(name);
+                return new Flow(name, settings);
+            });
+        }
+
+        void enqueue(Ticket ticket) {
+            if (queued == 0) {
+                pass = Math.max(pass, lanePass);
+            }
+            if (ticket.flow.queue.isEmpty()) {
+                ticket.flow.pass = Math.max(ticket.flow.pass, flowPass);
+            }
+            ticket.flow.queue.addLast(ticket);
+            ticket.flow.lastActiveNanos = System.nanoTime();
+            queued++;
+        }
+
+        void remove(Ticket ticket) {
+            if (ticket.flow.queue.remove(ticket)) {
+                queued--;
+            }
+        }
+
+        boolean hasEligible(long now) {
+            if (queued == 0) {
+                return false;
+            }
+            for (Flow flow : flows.values()) {
+                if (isEligible(flow, now)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Ticket poll(long now) {
+            Flow next = null;
+            for (Flow flow : flows.values()) {
+                if (isEligible(flow, now) && (next == null || flow.pass < next.pass)) {
+                    next = flow;
+                }
+            }
+            flowPass = next.pass;
+            next.pass += 1.0 / next.weight;
+            if (next.bucket != null) {
+                next.bucket.consume(1);
+            }
+            queued--;
+            return next.queue.pollFirst();
+        }
+
+        /**
+         * Whether the tenant has a live request waiting and is within its quotas; requests
+         * past their deadline are left for their threads to drop
+         */
+        private boolean isEligible(Flow flow, long now) {
+            Ticket head = flow.queue.peekFirst();
+            if (head == null || head.deadline - now <= 0) {
+                return false;
+            }
+            if (flow.maxConcurrency > 0 && flow.inFlight >= flow.maxConcurrency) {
+                return false;
+            }
+            if (flow.bucket != null) {
+                long wait = flow.bucket.nanosUntilAvailable(1);
+                if (wait > 0) {
+                    retryNanos = Math.min(retryNanos, wait);
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The waiting requests of one tenant in one lane
+     */
+    private static class Flow {
+        private final String tenant;
+        private final int weight;
+        private final int maxConcurrency;
+        private final TokenBucket bucket;
+        private final ArrayDeque<Ticket> queue = new ArrayDeque<>();
+        private double pass;
+        private int inFlight;
+        private long granted;
+        private long lastActiveNanos = System.nanoTime();
+
+        Flow(String tenant, SchedulerProperties.Tenant settings) {
+            this.tenant = tenant;
+            this.weight = Math.max(1, settings.getWeight());
+            this.maxConcurrency = settings.getMaxConcurrency();
+            this.bucket = settings.getRequestsPerMinute() > 0 ? new TokenBucket(settings.getRequestsPerMinute()) : null;
+        }
+    }
+
+    /**
+     * One request waiting for a slot
+     */
+    private static class Ticket {
+        private final Flow flow;
+        private final long deadline;
+        private boolean granted;
+
+        Ticket(Flow flow, long deadline) {
+            this.flow = flow;
+            this.deadline = deadline;
+        }
+    }
+}
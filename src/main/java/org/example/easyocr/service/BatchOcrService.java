@@ -0,0 +1,238 @@
+package org.example.easyocr.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.easyocr.image.ImageSource;
+import org.example.easyocr.metrics.StatsSource;
+import org.example.easyocr.metrics.TimerStats;
+import org.example.easyocr.scheduling.OcrRequestContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fans a batch of images out to {@link OcrService} and streams the results as NDJSON.
+ * <p>
+ * Each batch keeps at most {@code app.batch.parallelism} items in flight on a shared
+ * worker pool. Results are written one JSON object per line in completion order, each
+ * carrying the {@code index} of the image in the request, so clients get the first pages
+ * without waiting for the slowest one. A failing item produces an error line and does not
+ * abort the rest of the batch.
+ */
+@Service
+public class BatchOcrService implements StatsSource {
+
+    private static final Logger logger = Logger.getLogger(BatchOcrService.class.getName());
+
+    private final OcrService ocrService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.batch.parallelism:8}")
+    private int parallelism;
+
+    @Value("${app.batch.max-threads:32}")
+    private int maxThreads;
+
+    @Value("${app.batch.max-items:500}")
+    private int maxItems;
+
+    @Value("${app.batch.item-timeout:120000}")
+    private long itemTimeout;
+
+    private ExecutorService executor;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong items = new AtomicLong();
+    private final AtomicLong failedItems = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final TimerStats itemTimes = new TimerStats();
+
+    public BatchOcrService(OcrService ocrService, ObjectMapper objectMapper) {
+        this.ocrService = ocrService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(maxThreads, runnable -> {
+            Thread thread = new Thread(runnable, "ocr-batch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    /**
+     * How long the response of a batch may take: its items run {@code parallelism} at a time,
+     * and each may take up to {@code app.batch.item-timeout}
+     *
+     * @param itemCount The number of items in the batch
+     * @return The timeout in milliseconds
+     */
+    public long getTimeoutMillis(int itemCount) {
+        long rounds = Math.max(1, (itemCount + parallelism - 1) / parallelism);
+        return rounds * itemTimeout;
+    }
+
+    /**
+     * Process all items and write one NDJSON line per item as soon as it completes
+     *
+     * @param batchItems The items of the batch
+     * @param mode The prompt to use for every item
+     * @param out The response stream
+     * @throws IOException If the client went away; outstanding items are cancelled
+     */
+    public void processBatch(List<Item> batchItems, OcrMode mode, OutputStream out) throws IOException {
+        batches.incrementAndGet();
+        CompletionService<Map<String, Object>> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<Map<String, Object>>> futures = new ArrayList<>();
+        int submitted = 0;
+        int completed = 0;
+        try {
+            while (completed < batchItems.size()) {
+                // Keep the window of in-flight items full, bounded by the per-batch parallelism
+                while (submitted < batchItems.size() && submitted - completed < parallelism) {
+                    Item item = batchItems.get(submitted++);
+                    futures.add(completionService.submit(OcrRequestContext.wrap(() -> processItem(item, mode))));
+                }
+                Map<String, Object> line = completionService.take().get();
+                completed++;
+                writeLine(out, line);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Batch processing interrupted", e);
+        } catch (ExecutionException e) {
+            // processItem never throws, it reports failures as error lines
+            throw new IOException("Batch item failed unexpectedly", e.getCause());
+        } finally {
+            for (Future<Map<String, Object>> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private Map<String, Object> processItem(Item item, OcrMode mode) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("index", item.getIndex());
+        line.put("name", item.getName());
+        if (item.getError() != null) {
+            failedItems.incrementAndGet();
+            line.put("error", item.getError());
+            return line;
+        }
+
+        items.incrementAndGet();
+        inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            OcrResult result = ocrService.recognize(item.getImage(), mode, null, "batch");
+            if (result.getKind() == OcrResult.Kind.ERROR) {
+                failedItems.incrementAndGet();
+                line.put("error", result.getError());
+            } else {
+                line.put("result", result.toMap());
+            }
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error processing batch item " + item.getIndex(), e);
+            failedItems.incrementAndGet();
+            line.put("error", "Error processing image: " + e.getMessage());
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            itemTimes.record(elapsed);
+            inFlight.decrementAndGet();
+            line.put("duration_ms", elapsed / 1_000_000);
+        }
+        return line;
+    }
+
+    private void writeLine(OutputStream out, Map<String, Object> line) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(line));
+        out.write('\n');
+        out.flush();
+    }
+
+    @Override
+    public String getStatsName() {
+        return "batch";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("parallelism", parallelism);
+        stats.put("batches", batches.get());
+        stats.put("items", items.get());
+        stats.put("failed_items", failedItems.get());
+        stats.put("in_flight", inFlight.get());
+        itemTimes.putInto(stats, "item");
+        return stats;
+    }
+
+    /**
+     * One image of a batch, or the reason it was rejected before processing
+     */
+    public static class Item {
+        private final int index;
+        private final String name;
+        private final ImageSource image;
+        private final String error;
+
+        private Item(int index, String name, ImageSource image, String error) {
+            this.index = index;
+            this.name = name;
+            this.image = image;
+            this.error = error;
+        }
+
+        public static Item of(int index, String name, ImageSource image) {
+            return new Item(index, name, image, null);
+        }
+
+        public static Item invalid(int index, String name, String error) {
+            return new Item(index, name, null, error);
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ImageSource getImage() {
+            return image;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
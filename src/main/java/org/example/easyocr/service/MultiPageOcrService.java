@@ -0,0 +1,262 @@
+package org.example.easyocr.service;
+
+import org.example.easyocr.document.MultiPageDocument;
+import org.example.easyocr.document.MultiPageDocuments;
+import org.example.easyocr.image.ImageSource;
+import org.example.easyocr.metrics.StatsSource;
+import org.example.easyocr.metrics.TimerStats;
+import org.example.easyocr.scheduling.OcrRequestContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * OCR of multi-page PDFs and TIFFs.
+ * <p>
+ * Pages are rendered one after the other on the calling thread and handed to a shared
+ * worker pool, which runs them through {@link OcrService} like single images. At most
+ * {@code app.documents.parallelism} pages of a document are rendered but not yet finished,
+ * so a 200-page file never has more than a handful of pages in memory. The page results are
+ * put back in page order; a failing page is reported with its error and does not fail the
+ * other pages.
+ */
+@Service
+public class MultiPageOcrService implements StatsSource {
+
+    private static final Logger logger = Logger.getLogger(MultiPageOcrService.class.getName());
+
+    private final OcrService ocrService;
+
+    @Value("${app.documents.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.documents.max-threads:16}")
+    private int maxThreads;
+
+    @Value("${app.documents.max-pages:500}")
+    private int maxPages;
+
+    @Value("${app.documents.dpi:200}")
+    private float dpi;
+
+    @Value("${app.documents.jpeg-quality:0.9}")
+    private float jpegQuality;
+
+    @Value("${app.documents.max-pixels:40000000}")
+    private long maxPixels;
+
+    private ExecutorService executor;
+
+    private final AtomicLong documents = new AtomicLong();
+    private final AtomicLong pages = new AtomicLong();
+    private final AtomicLong failedPages = new AtomicLong();
+    private final TimerStats renderTimes = new TimerStats();
+    private final TimerStats pageTimes = new TimerStats();
+
+    public MultiPageOcrService(OcrService ocrService) {
+        this.ocrService = ocrService;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(maxThreads, runnable -> {
+            Thread thread = new Thread(runnable, "ocr-page-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Process every page of a document
+     *
+     * @param source The uploaded PDF or TIFF
+     * @param mode The prompt to use for every page
+     * @param endpoint The name of the calling endpoint, used for per-endpoint cache opt-out
+     * @return A map with "page_count", "failed_pages", "duration_ms" and the "pages" in order, each
+     * with its "page" number, "result" or "error", "render_ms" and "duration_ms"; or a map with an
+     * "error" key if the document can not be opened
+     * @throws IOException If processing was interrupted
+     */
+    public Map<String, Object> processDocument(ImageSource source, OcrMode mode, String endpoint) throws IOException {
+        long start = System.nanoTime();
+        MultiPageDocument document;
+        int pageCount;
+        try {
+            document = MultiPageDocuments.open(source, dpi, jpegQuality, maxPixels);
+            pageCount = document.getPageCount();
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Could not open multi-page document", e);
+            return error("Could not read the document: " + e.getMessage());
+        }
+
+        try (document) {
+            if (pageCount == 0) {
+                return error("The document has no pages");
+            }
+            if (pageCount > maxPages) {
+                return error("The document has " + pageCount + " pages, the maximum is " + maxPages);
+            }
+            documents.incrementAndGet();
+            logger.info("Processing " + pageCount + " page document, contentType: " + source.getContentType() + ", mode: " + mode);
+
+            Map<String, Object>[] results = processPages(document, pageCount, mode, endpoint);
+
+            int failed = 0;
+            for (Map<String, Object> page : results) {
+                if (page.containsKey("error")) {
+                    failed++;
+                }
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("page_count", pageCount);
+            result.put("failed_pages", failed);
+            result.put("duration_ms", (System.nanoTime() - start) / 1_000_000);
+            result.put("pages", Arrays.asList(results));
+            return result;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object>[] processPages(MultiPageDocument document, int pageCount, OcrMode mode, String endpoint) throws IOException {
+        Map<String, Object>[] results = new Map[pageCount];
+        CompletionService<Map<String, Object>> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<Map<String, Object>>> futures = new ArrayList<>();
+        int submitted = 0;
+        int completed = 0;
+        try {
+            while (completed < pageCount) {
+                // Render the next pages only while fewer than the per-document parallelism are outstanding
+                while (submitted < pageCount && submitted - completed < parallelism) {
+                    int index = submitted++;
+                    Page page = render(document, index);
+                    futures.add(completionService.submit(OcrRequestContext.wrap(() -> processPage(page, mode, endpoint))));
+                }
+                Map<String, Object> result = completionService.take().get();
+                results[(Integer) result.get("page") - 1] = result;
+                completed++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Document processing interrupted");
+        } catch (ExecutionException e) {
+            // processPage never throws, it reports failures as page errors
+            throw new IOException("Page failed unexpectedly", e.getCause());
+        } finally {
+            for (Future<Map<String, Object>> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    private Page render(MultiPageDocument document, int index) {
+        long start = System.nanoTime();
+        try {
+            return new Page(index, document.renderPage(index), null, System.nanoTime() - start);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Could not render page " + (index + 1), e);
+            return new Page(index, null, "Could not render page: " + e.getMessage(), System.nanoTime() - start);
+        } finally {
+            renderTimes.record(System.nanoTime() - start);
+        }
+    }
+
+    private Map<String, Object> processPage(Page page, OcrMode mode, String endpoint) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("page", page.index + 1);
+        if (page.error != null) {
+            failedPages.incrementAndGet();
+            line.put("error", page.error);
+            line.put("render_ms", page.renderNanos / 1_000_000);
+            return line;
+        }
+
+        pages.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            OcrResult result = ocrService.recognize(page.image, mode, null, endpoint);
+            if (result.getKind() == OcrResult.Kind.ERROR) {
+                failedPages.incrementAndGet();
+                line.put("error", result.getError());
+            } else {
+                line.put("result", result.toMap());
+            }
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error processing page " + (page.index + 1), e);
+            failedPages.incrementAndGet();
+            line.put("error", "Error processing page: " + e.getMessage());
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            pageTimes.record(elapsed);
+            line.put("render_ms", page.renderNanos / 1_000_000);
+            line.put("duration_ms", elapsed / 1_000_000);
+        }
+        return line;
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", message);
+        return errorResponse;
+    }
+
+    @Override
+    public String getStatsName() {
+        return "documents";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("parallelism", parallelism);
+        stats.put("documents", documents.get());
+        stats.put("pages", pages.get());
+        stats.put("failed_pages", failedPages.get());
+        renderTimes.putInto(stats, "render");
+        pageTimes.putInto(stats, "page");
+        return stats;
+    }
+
+    /**
+     * A rendered page waiting for OCR, or the reason it could not be rendered
+     */
+    private static class Page {
+        private final int index;
+        private final ImageSource image;
+        private final String error;
+        private final long renderNanos;
+
+        Page(int index, ImageSource image, String error, long renderNanos) {
+            this.index = index;
+            this.image = image;
+            this.error = error;
+            this.renderNanos = renderNanos;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.easyocr.service;
+
+/**
+ * Which prompt an image is processed with.
+ */
+public enum OcrMode {
+
+    /**
+     * Plain text extraction with {@code openai.prompt}
+     */
+    TEXT,
+
+    /**
+     * Structured field extraction with {@code openai.structured.prompt}
+     */
+    DOCUMENT;
+
+    /**
+     * Parse a mode request parameter such as {@code "text"} or {@code "document"}
+     *
+     * @param value The parameter value, case insensitive
+     * @return The mode
+     * @throws IllegalArgumentException If the value is not a known mode
+     */
+    public static OcrMode fromParameter(String value) {
+        return OcrMode.valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.easyocr.service;
+
+import org.example.easyocr.upstream.ChatCompletion;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The outcome of one OCR call: the fields of a JSON answer, the raw answer text, or an error.
+ * {@link #toMap()} gives the shape clients receive.
+ */
+public final class OcrResult {
+
+    public enum Kind { FIELDS, TEXT, ERROR }
+
+    private final Kind kind;
+    private final Map<String, Object> fields;
+    private final String text;
+    private final Object error;
+    private final Map<String, Object> originalResponse;
+    private final String engine;
+    private final String model;
+    private final ChatCompletion.Usage usage;
+    private final boolean retryable;
+
+    private OcrResult(Kind kind, Map<String, Object> fields, String text, Object error, Map<String, Object> originalResponse,
+                      String engine, String model, ChatCompletion.Usage usage, boolean retryable) {
+        this.kind = kind;
+        this.fields = fields;
+        this.text = text;
+        this.error = error;
+        this.originalResponse = originalResponse;
+        this.engine = engine;
+        this.model = model;
+        this.usage = usage;
+        this.retryable = retryable;
+    }
+
+    public static OcrResult fields(Map<String, Object> fields) {
+        return new OcrResult(Kind.FIELDS, fields, null, null, null, null, null, null, false);
+    }
+
+    public static OcrResult text(String text) {
+        return new OcrResult(Kind.TEXT, null, text, null, null, null, null, null, false);
+    }
+
+    /**
+     * @param error The error message, or the error object the API sent
+     * @param originalResponse The response the error was found in, or null
+     */
+    public static OcrResult error(Object error, Map<String, Object> originalResponse) {
+        return new OcrResult(Kind.ERROR, null, null, error, originalResponse, null, null, null, false);
+    }
+
+    /**
+     * An error of an upstream that had no capacity for the call rather than failing it, so the
+     * same request may well succeed later. Clients see it as any other error.
+     *
+     * @param error The error message
+     */
+    public static OcrResult retryableError(Object error) {
+        return new OcrResult(Kind.ERROR, null, null, error, null, null, null, null, true);
+    }
+
+    /**
+     * Rebuild a result from the map {@link #toMap()} gave for it. Errors are never cached, so
+     * the map is either the raw-text fallback or the fields of a JSON answer.
+     *
+     * @param cached A map read back from the result cache
+     */
+    public static OcrResult fromCachedMap(Map<String, Object> cached) {
+        if (cached.size() == 1 && cached.get("extracted_text") instanceof String) {
+            return text((String) cached.get("extracted_text"));
+        }
+        return fields(cached);
+    }
+
+    /**
+     * @param engine The name of the engine that produced the result
+     * @param model The model that produced the result, or null if not known
+     * @param usage The tokens the answer was billed for, or null if not known
+     * @return The same result, with where it came from
+     */
+    public OcrResult from(String engine, String model, ChatCompletion.Usage usage) {
+        return new OcrResult(kind, fields, text, error, originalResponse, engine, model, usage, retryable);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Map<String, Object> getFields() {
+        return fields;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Object getError() {
+        return error;
+    }
+
+    /**
+     * @return The name of the engine that produced the result, or null if not known
+     */
+    public String getEngine() {
+        return engine;
+    }
+
+    /**
+     * @return The model that produced the result, or null if not known
+     */
+    public String getModel() {
+        return model;
+    }
+
+    public ChatCompletion.Usage getUsage() {
+        return usage;
+    }
+
+    /**
+     * @return true for an error the upstream gave for lack of capacity, see {@link #retryableError(Object)}
+     */
+    public boolean isRetryable() {
+        return retryable;
+    }
+
+    /**
+     * @return The fields as parsed, {@code {"extracted_text": ...}}, or {@code {"error": ...}}
+     * with the {@code original_response} if there is one; a new map on each call, so callers
+     * sharing a result may each add to theirs
+     */
+    public Map<String, Object> toMap() {
+        switch (kind) {
+            case FIELDS:
+                return new LinkedHashMap<>(fields);
+            case TEXT:
+                Map<String, Object> textResult = new LinkedHashMap<>();
+                textResult.put("extracted_text", text);
+                return textResult;
+            default:
+                Map<String, Object> errorResult = new LinkedHashMap<>();
+                errorResult.put("error", error);
+                if (originalResponse != null) {
+                    errorResult.put("original_response", originalResponse);
+                }
+                return errorResult;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.example.easyocr.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.easyocr.upstream.ChatCompletion;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Turns the upstream answer into the result returned to clients: document mode answers are
+ * JSON objects, possibly wrapped in prose or a code fence, plain text answers are returned
+ * as {@code extracted_text}.
+ * <p>
+ * The answer is scanned once for the first {@code '{'}; only if it can start a JSON object is
+ * the object parsed from there, so braces in plain text do not cost a failed parse.
+ */
+@Component
+public class OcrResultFormatter {
+
+    private static final Logger logger = Logger.getLogger(OcrResultFormatter.class.getName());
+
+    private final ObjectMapper objectMapper;
+
+    public OcrResultFormatter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Turn a chat-completions response into the result
+     *
+     * @param response The response, or null if none was received
+     * @return The JSON object the answer contains, the raw answer text, or an error
+     */
+    public OcrResult formatResponse(ChatCompletion response) {
+        if (response == null) {
+            return OcrResult.error("No response received from API", null);
+        }
+        if (response.hasError()) {
+            return OcrResult.error(response.getError(), null);
+        }
+        if (!response.hasChoices()) {
+            logger.warning("No choices found in the API response");
+            return OcrResult.error("No text could be extracted from the image", response.getOtherFields());
+        }
+        if (!response.hasMessage()) {
+            logger.warning("No message in the first choice of the API response");
+            return OcrResult.error("Error parsing API response: the first choice has no message", response.getOtherFields());
+        }
+        return formatContent(response.getContent());
+    }
+
+    /**
+     * Turn the answer text into the result
+     *
+     * @param content The answer text
+     * @return The JSON object it contains, or the raw text
+     */
+    public OcrResult formatContent(String content) {
+        Map<String, Object> fields = content != null ? parseObject(content) : null;
+        if (fields != null) {
+            logger.info("Successfully parsed structured document data as JSON");
+            return OcrResult.fields(fields);
+        }
+        logger.info("Text extracted as raw content");
+        return OcrResult.text(content);
+    }
+
+    /**
+     * Parse the JSON object that starts at the first {@code '{'} of the text; whatever follows
+     * the object, such as the end of a code fence, is ignored
+     *
+     * @return The object, or null if there is none
+     */
+    private Map<String, Object> parseObject(String content) {
+        int start = content.indexOf('{');
+        if (start < 0 || !canStartObject(content, start)) {
+            return null;
+        }
+        try (StringReader reader = new StringReader(content)) {
+            reader.skip(start);
+            try (JsonParser parser = objectMapper.getFactory().createParser(reader)) {
+                @SuppressWarnings("unchecked")
+                Map<String, Object> fields = objectMapper.readValue(parser, LinkedHashMap.class);
+                return fields;
+            }
+        } catch (JsonProcessingException e) {
+            logger.warning("Could not parse response as JSON, returning as raw text: " + e.getOriginalMessage());
+            return null;
+        } catch (IOException e) {
+            // Reading from a string does not fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A JSON object continues with a field name or ends right away
+     */
+    private static boolean canStartObject(String content, int start) {
+        for (int i = start + 1; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == '"' || c == '}';
+            }
+        }
+        return false;
+    }
+}
@@ -1,49 +1,70 @@
 package org.example.easyocr.service;
 
+import org.example.easyocr.cache.OcrCacheKey;
+import org.example.easyocr.cache.OcrResultCache;
+import org.example.easyocr.cache.RequestCoalescer;
+import org.example.easyocr.engine.LocalOcrEngine;
+import org.example.easyocr.engine.OcrEngineRouter;
+import org.example.easyocr.image.Base64ImageSource;
+import org.example.easyocr.image.ImagePreprocessor;
+import org.example.easyocr.image.ImageSource;
+import org.example.easyocr.image.MultipartImageSource;
+import org.example.easyocr.image.PreprocessProperties;
+import org.example.easyocr.metrics.OcrMetrics;
+import org.example.easyocr.prompt.OcrPrompt;
+import org.example.easyocr.prompt.PromptRegistry;
+import org.example.easyocr.result.OcrResultStore;
+import org.example.easyocr.upstream.ChatCompletionStreamReader;
+import org.example.easyocr.upstream.StreamAbortedException;
+import org.example.easyocr.upstream.UpstreamEndpoint;
+import org.example.easyocr.upstream.UpstreamRouter;
+import org.example.easyocr.upstream.UpstreamThrottledException;
+import org.example.easyocr.upstream.UpstreamUnavailableException;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.util.Base64;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.Map;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.ArrayList;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 @Service
 public class OcrService {
 
     private static final Logger logger = Logger.getLogger(OcrService.class.getName());
-    private final RestTemplate restTemplate;
-    
-    @Value("${openai.api.url}")
-    private String apiUrl;
-    
-    @Value("${openai.api.key}")
-    private String apiKey;
+
+    private final OcrResultCache resultCache;
+    private final RequestCoalescer requestCoalescer;
+    private final OcrEngineRouter engineRouter;
+    private final ImagePreprocessor imagePreprocessor;
+    private final PreprocessProperties preprocessProperties;
+    private final OcrMetrics ocrMetrics;
+    private final PromptRegistry promptRegistry;
+    private final OcrResultStore resultStore;
+    private final UpstreamRouter upstreamRouter;
     
     @Value("${openai.model}")
     private String model;
     
-    @Value("${openai.prompt}")
-    private String defaultPrompt;
-    
-    @Value("${openai.structured.prompt}")
-    private String structuredPrompt;
 
-    public OcrService(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    public OcrService(OcrResultCache resultCache, RequestCoalescer requestCoalescer, OcrEngineRouter engineRouter,
+                      ImagePreprocessor imagePreprocessor, PreprocessProperties preprocessProperties,
+                      OcrMetrics ocrMetrics, PromptRegistry promptRegistry, OcrResultStore resultStore,
+                      UpstreamRouter upstreamRouter) {
+        this.resultCache = resultCache;
+        this.requestCoalescer = requestCoalescer;
+        this.engineRouter = engineRouter;
+        this.imagePreprocessor = imagePreprocessor;
+        this.preprocessProperties = preprocessProperties;
+        this.ocrMetrics = ocrMetrics;
+        this.promptRegistry = promptRegistry;
+        this.resultStore = resultStore;
+        this.upstreamRouter = upstreamRouter;
     }
 
     public Map<String, Object> processImage(MultipartFile image) throws IOException {
@@ -55,9 +76,7 @@ public class OcrService {
         }
         
         logger.info("Processing image: " + image.getOriginalFilename() + ", size: " + image.getSize() + " bytes, contentType: " + image.getContentType());
-        byte[] imageBytes = image.getBytes();
-        String base64Image = Base64.getEncoder().encodeToString(imageBytes);
-        return processBase64Image(base64Image, image.getContentType());
+        return processImageWithPrompt(new MultipartImageSource(image), promptRegistry.select(OcrMode.TEXT, null), OcrMode.TEXT, "process").toMap();
     }
 
     /**
@@ -66,6 +85,16 @@ public class OcrService {
      * @return A map containing the extracted structured data
      */
     public Map<String, Object> processDocumentImage(MultipartFile image) throws IOException {
+        return processDocumentImage(image, null);
+    }
+
+    /**
+     * Process a document image for structured field extraction
+     * @param image The document image to process
+     * @param documentType The document type, such as "id_card", or null if unknown
+     * @return A map containing the extracted structured data
+     */
+    public Map<String, Object> processDocumentImage(MultipartFile image, String documentType) throws IOException {
         if (image == null || image.isEmpty()) {
             logger.warning("Received empty or null document image file");
             Map<String, Object> errorResponse = new HashMap<>();
@@ -74,9 +103,7 @@ public class OcrService {
         }
         
         logger.info("Processing document image: " + image.getOriginalFilename() + ", size: " + image.getSize() + " bytes, contentType: " + image.getContentType());
-        byte[] imageBytes = image.getBytes();
-        String base64Image = Base64.getEncoder().encodeToString(imageBytes);
-        return processDocumentBase64Image(base64Image, image.getContentType());
+        return processImageWithPrompt(new MultipartImageSource(image), promptRegistry.select(OcrMode.DOCUMENT, documentType), OcrMode.DOCUMENT, "document").toMap();
     }
 
     public Map<String, Object> processBase64Image(String base64Image) throws IOException {
@@ -88,14 +115,103 @@ public class OcrService {
     }
 
     public Map<String, Object> processDocumentBase64Image(String base64Image, String contentType) throws IOException {
-        return processImageWithPrompt(base64Image, contentType, structuredPrompt);
+        return processDocumentBase64Image(base64Image, contentType, null);
+    }
+
+    /**
+     * Process a base64 encoded document image for structured field extraction
+     * @param base64Image The image, with or without a data URI header
+     * @param contentType The content type if there is no header, or null
+     * @param documentType The document type, such as "id_card", or null if unknown
+     * @return A map containing the extracted structured data
+     */
+    public Map<String, Object> processDocumentBase64Image(String base64Image, String contentType, String documentType) throws IOException {
+        return processBase64ImageWithPrompt(base64Image, contentType, promptRegistry.select(OcrMode.DOCUMENT, documentType),
+                OcrMode.DOCUMENT, "document-base64");
     }
 
     public Map<String, Object> processBase64Image(String base64Image, String contentType) throws IOException {
-        return processImageWithPrompt(base64Image, contentType, defaultPrompt);
+        return processBase64ImageWithPrompt(base64Image, contentType, promptRegistry.select(OcrMode.TEXT, null), OcrMode.TEXT, "process-base64");
+    }
+
+    /**
+     * Process an image that has already been validated by the caller
+     * @param image The image to process
+     * @param mode Whether to extract plain text or structured document fields
+     * @param documentType The document type, such as "id_card", or null if unknown
+     * @param endpoint The name of the calling endpoint, used for per-endpoint cache opt-out
+     * @return A map containing the extracted text or structured data
+     */
+    public Map<String, Object> processImage(ImageSource image, OcrMode mode, String documentType, String endpoint) throws IOException {
+        return recognize(image, mode, documentType, endpoint).toMap();
+    }
+
+    /**
+     * Process an image that has already been validated by the caller, for callers that act on
+     * the outcome rather than hand the map on
+     * @param image The image to process
+     * @param mode Whether to extract plain text or structured document fields
+     * @param documentType The document type, such as "id_card", or null if unknown
+     * @param endpoint The name of the calling endpoint, used for per-endpoint cache opt-out
+     * @return The result, of kind {@link OcrResult.Kind#ERROR} if the image could not be read
+     */
+    public OcrResult recognize(ImageSource image, OcrMode mode, String documentType, String endpoint) throws IOException {
+        return processImageWithPrompt(image, promptRegistry.select(mode, documentType), mode, endpoint);
     }
 
-    private Map<String, Object> processImageWithPrompt(String base64Image, String contentType, String promptToUse) throws IOException {
+    /**
+     * Process an image that has already been validated by the caller, relaying the answer
+     * piece by piece while the engine generates it
+     * @param image The image to process
+     * @param mode Whether to extract plain text or structured document fields
+     * @param documentType The document type, such as "id_card", or null if unknown
+     * @param endpoint The name of the calling endpoint, used for per-endpoint cache opt-out
+     * @param listener Receives each piece of the answer as it arrives; not called for cached results
+     * @return The same result {@link #recognize(ImageSource, OcrMode, String, String)} returns
+     * @throws IOException If the listener failed, the client went away and the answer was not read to its end
+     */
+    public OcrResult recognizeStreaming(ImageSource image, OcrMode mode, String documentType, String endpoint,
+                                        ChatCompletionStreamReader.DeltaListener listener) throws IOException {
+        long start = System.nanoTime();
+        OcrPrompt prompt = promptRegistry.select(mode, documentType);
+        OcrCacheKey cacheKey = cacheKeyFor(image, prompt, endpoint);
+        OcrResult cached = cacheKey != null ? cachedResult(cacheKey, prompt) : null;
+        if (cached != null) {
+            logger.info("Returning cached OCR result for image " + cacheKey.getImageHash());
+            ocrMetrics.recordRequest(endpoint, OcrMetrics.OUTCOME_CACHED, System.nanoTime() - start);
+            return cached;
+        }
+        
+        OcrCacheKey recordKey = cacheKey == null && resultStore.isEnabled() ? hash(image, prompt, endpoint) : cacheKey;
+        ImageSource upload = preprocess(image, mode, endpoint);
+        long callStart = System.nanoTime();
+        try {
+            OcrResult answer = engineRouter.recognize(upload, prompt, endpoint, listener);
+            cache(cacheKey, prompt, answer);
+            ocrMetrics.recordRequest(endpoint, OcrMetrics.outcomeOf(answer), System.nanoTime() - start);
+            store(recordKey, prompt, endpoint, answer, callStart);
+            return answer;
+        } catch (StreamAbortedException e) {
+            // Neither an answer nor an upstream error, so it is not stored either
+            logger.info("Streaming client went away, stopped reading the answer for " + endpoint);
+            ocrMetrics.recordRequest(endpoint, OcrMetrics.OUTCOME_ABORTED, System.nanoTime() - start);
+            throw e.getClientFailure();
+        } catch (RestClientException e) {
+            logger.log(Level.SEVERE, "Error calling OpenAI API", e);
+            ocrMetrics.recordRequest(endpoint, OcrMetrics.OUTCOME_ERROR, System.nanoTime() - start);
+            OcrResult error = upstreamError(e);
+            store(recordKey, prompt, endpoint, error, callStart);
+            return error;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Unexpected error", e);
+            ocrMetrics.recordRequest(endpoint, OcrMetrics.OUTCOME_ERROR, System.nanoTime() - start);
+            OcrResult error = OcrResult.error("An unexpected error occurred: " + e.getMessage(), null);
+            store(recordKey, prompt, endpoint, error, callStart);
+            return error;
+        }
+    }
+
+    private Map<String, Object> processBase64ImageWithPrompt(String base64Image, String contentType, OcrPrompt prompt, OcrMode mode, String endpoint) throws IOException {
         if (base64Image == null || base64Image.trim().isEmpty()) {
             logger.warning("Received empty or null base64 image string");
             Map<String, Object> errorResponse = new HashMap<>();
@@ -103,170 +219,168 @@ public class OcrService {
             return errorResponse;
         }
         
-        // Ensure the base64 string is properly formatted for the API
-        if (base64Image.contains(",")) {
-            String[] parts = base64Image.split(",");
-            base64Image = parts[1];
-            // Try to extract content type if not provided
-            if (contentType == null && parts[0].contains(":") && parts[0].contains(";")) {
-                contentType = parts[0].substring(parts[0].indexOf(":") + 1, parts[0].indexOf(";"));
-            }
-        }
+        // Address the payload after the data URI header in place instead of splitting the string
+        Base64ImageSource image = Base64ImageSource.of(base64Image, contentType);
         
-        // Set default content type if not provided
-        if (contentType == null) {
-            contentType = "image/jpeg";
-        }
-        
-        // Check if the base64 string is valid
-        try {
-            Base64.getDecoder().decode(base64Image);
-        } catch (IllegalArgumentException e) {
-            logger.warning("Invalid base64 string: " + e.getMessage());
+        // Check if the base64 string is valid, in one pass and without decoding it
+        long validateStart = System.nanoTime();
+        boolean valid = image.getEncodedLength() > 0 && image.isValid();
+        ocrMetrics.recordStage(OcrMetrics.STAGE_VALIDATE, endpoint, System.nanoTime() - validateStart);
+        if (!valid) {
+            logger.warning("Invalid base64 string, length: " + image.getEncodedLength());
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("error", "Invalid image data format");
             return errorResponse;
         }
         
-        logger.info("Processing base64 image, length: " + base64Image.length() + ", contentType: " + contentType);
-        logger.info("Using API URL: " + apiUrl);
-        logger.info("Using model: " + model);
-        logger.info("Using prompt: " + promptToUse);
-        
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.set("Authorization", "Bearer " + apiKey);
-        headers.set("User-Agent", "EasyOCR/1.0");
-        
-        // Create the request payload according to OpenAI's documentation
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("model", model);
-        
-        List<Map<String, Object>> messages = new ArrayList<>();
-        Map<String, Object> userMessage = new HashMap<>();
-        userMessage.put("role", "user");
-        
-        List<Map<String, Object>> contentItems = new ArrayList<>();
-        
-        // Text part - Put a clear, direct instruction for structured extraction
-        Map<String, Object> textItem = new HashMap<>();
-        textItem.put("type", "text");
-        textItem.put("text", promptToUse);
-        
-        // Image part
-        Map<String, Object> imageItem = new HashMap<>();
-        imageItem.put("type", "image_url");
-        
-        Map<String, String> imageUrl = new HashMap<>();
-        // Use the correct content type in the data URI
-        String dataUri = "data:" + contentType + ";base64," + base64Image;
-        imageUrl.put("url", dataUri);
-        imageItem.put("image_url", imageUrl);
-        
-        // Add text first, then image to the content
-        contentItems.add(textItem);
-        contentItems.add(imageItem);
-        
-        userMessage.put("content", contentItems);
-        messages.add(userMessage);
-        
-        requestBody.put("messages", messages);
-        requestBody.put("max_tokens", 4000);
-        
-        // Set parameters to get more direct OCR results
-        requestBody.put("temperature", 0.1);
-        requestBody.put("top_p", 1.0);
-        requestBody.put("frequency_penalty", 0.0);
-        requestBody.put("presence_penalty", 0.0);
-        
-        logger.info("Request body prepared with image data URI length: " + dataUri.length());
+        logger.info("Processing base64 image, length: " + image.getEncodedLength() + ", contentType: " + image.getContentType());
+        return processImageWithPrompt(image, prompt, mode, endpoint).toMap();
+    }
+
+    /**
+     * Read an image with the given prompt, serving repeated requests from the result cache
+     * @param image The image to process
+     * @param prompt The prompt sent along with the image; a prompt that asks for classification
+     * is the cache key of the result whichever document type the image turns out to be
+     * @param mode Selects the preprocessing profile
+     * @param endpoint The name of the calling endpoint, used for per-endpoint cache opt-out
+     * @return The extracted text or structured data, or an error
+     */
+    private OcrResult processImageWithPrompt(ImageSource image, OcrPrompt prompt, OcrMode mode, String endpoint) throws IOException {
+        long start = System.nanoTime();
+        OcrCacheKey cacheKey = cacheKeyFor(image, prompt, endpoint);
+        OcrResult cached = cacheKey != null ? cachedResult(cacheKey, prompt) : null;
+        if (cached != null) {
+            logger.info("Returning cached OCR result for image " + cacheKey.getImageHash());
+            ocrMetrics.recordRequest(endpoint, OcrMetrics.OUTCOME_CACHED, System.nanoTime() - start);
+            return cached;
+        }
         
-        HttpEntity<Map<String, Object>> requestEntity = new HttpEntity<>(requestBody, headers);
+        // Identical requests in flight share one upstream call, and stored results are looked up by
+        // image, so both need the key even without the cache
+        OcrCacheKey requestKey = cacheKey;
+        if (requestKey == null && (requestCoalescer.isEnabled() || resultStore.isEnabled())) {
+            requestKey = hash(image, prompt, endpoint);
+        }
+        OcrCacheKey recordKey = requestKey;
+        OcrResult result = requestKey == null
+                ? callAndFormat(image, prompt, mode, endpoint, null, null)
+                : requestCoalescer.execute(requestKey, () -> callAndFormat(image, prompt, mode, endpoint, recordKey, cacheKey));
+        ocrMetrics.recordRequest(endpoint, OcrMetrics.outcomeOf(result), System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Preprocess the image, read it with the engine the router picks and store the result in the
+     * cache and the result store
+     * @param recordKey The hash to store the result under in the result store, or null
+     * @param cacheKey The key to store the result under, or null if the endpoint does not use the cache
+     * @return The extracted text or structured data, or an error
+     */
+    private OcrResult callAndFormat(ImageSource image, OcrPrompt prompt, OcrMode mode, String endpoint,
+                                    OcrCacheKey recordKey, OcrCacheKey cacheKey) {
+        ImageSource upload = preprocess(image, mode, endpoint);
+        long callStart = System.nanoTime();
         
         try {
-            logger.info("Sending request to OpenAI API");
-            ResponseEntity<Map> responseEntity = restTemplate.postForEntity(apiUrl, requestEntity, Map.class);
-            logger.info("Response received with status: " + responseEntity.getStatusCode());
-            return formatResponse(responseEntity.getBody());
+            OcrResult answer = engineRouter.recognize(upload, prompt, endpoint, null);
+            cache(cacheKey, prompt, answer);
+            store(recordKey, prompt, endpoint, answer, callStart);
+            return answer;
         } catch (RestClientException e) {
             logger.log(Level.SEVERE, "Error calling OpenAI API", e);
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "Failed to connect to the OpenAI API: " + e.getMessage());
-            return errorResponse;
+            OcrResult error = upstreamError(e);
+            store(recordKey, prompt, endpoint, error, callStart);
+            return error;
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Unexpected error", e);
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", "An unexpected error occurred: " + e.getMessage());
-            return errorResponse;
+            OcrResult error = OcrResult.error("An unexpected error occurred: " + e.getMessage(), null);
+            store(recordKey, prompt, endpoint, error, callStart);
+            return error;
         }
     }
-    
-    private Map<String, Object> formatResponse(Map response) {
-        Map<String, Object> result = new LinkedHashMap<>();
-        
-        if (response == null) {
-            result.put("error", "No response received from API");
-            return result;
+
+    /**
+     * A throttled or unavailable upstream had no capacity for the call rather than failing it,
+     * so the same request may well succeed later
+     */
+    private static OcrResult upstreamError(RestClientException e) {
+        String error = "Failed to connect to the OpenAI API: " + e.getMessage();
+        if (e instanceof UpstreamThrottledException || e instanceof UpstreamUnavailableException) {
+            return OcrResult.retryableError(error);
         }
-        
-        if (response.containsKey("error")) {
-            result.put("error", response.get("error"));
-            return result;
+        return OcrResult.error(error, null);
+    }
+
+    /**
+     * Hand an engine's answer, or the error of a failed call, to the write-behind result store,
+     * under the model that answered or, for a failed call, the configured one
+     */
+    private void store(OcrCacheKey key, OcrPrompt prompt, String endpoint, OcrResult answer, long callStart) {
+        if (key != null) {
+            String answeredBy = answer.getModel() != null ? answer.getModel() : model;
+            resultStore.record(key.getImageHash(), answeredBy, prompt, endpoint, answer, System.nanoTime() - callStart);
         }
-        
-        try {
-            logger.info("Parsing API response");
-            List<Map<String, Object>> choices = (List<Map<String, Object>>) response.get("choices");
-            if (choices != null && !choices.isEmpty()) {
-                Map<String, Object> choice = choices.get(0);
-                Map<String, Object> message = (Map<String, Object>) choice.get("message");
-                String content = (String) message.get("content");
-                
-                // Try to parse the content as JSON
-                try {
-                    ObjectMapper mapper = new ObjectMapper();
-                    if (content.contains("{") && content.contains("}")) {
-                        // Extract JSON portion if it's embedded in text
-                        int startIdx = content.indexOf('{');
-                        int endIdx = content.lastIndexOf('}') + 1;
-                        if (startIdx >= 0 && endIdx > startIdx) {
-                            String jsonPart = content.substring(startIdx, endIdx);
-                            Map<String, Object> jsonData = mapper.readValue(jsonPart, Map.class);
-                            
-                            // Return the structured data directly
-                            logger.info("Successfully parsed structured document data as JSON");
-                            return jsonData;
-                        }
-                    }
-                    
-                    // If we couldn't extract JSON with simple substring, try to parse the whole response
-                    try {
-                        Map<String, Object> jsonData = mapper.readValue(content, Map.class);
-                        logger.info("Successfully parsed full document data as JSON");
-                        return jsonData;
-                    } catch (Exception e) {
-                        logger.warning("Could not parse response as JSON, returning as raw text: " + e.getMessage());
-                    }
-                } catch (Exception e) {
-                    logger.warning("Failed to extract JSON from response: " + e.getMessage());
-                }
-                
-                // Fallback to raw text if JSON parsing fails
-                result.put("extracted_text", content);
-                logger.info("Text extracted as raw content");
-                
-                return result;
-            } else {
-                logger.warning("No choices found in the API response");
-                result.put("error", "No text could be extracted from the image");
-                result.put("original_response", response);
+    }
+
+    /**
+     * Look a result up under each model an upstream endpoint runs, the configured model first,
+     * since any of them may have answered the image before; one lookup for all of them
+     */
+    private OcrResult cachedResult(OcrCacheKey cacheKey, OcrPrompt prompt) {
+        List<OcrCacheKey> keys = new ArrayList<>();
+        keys.add(cacheKey);
+        for (UpstreamEndpoint upstream : upstreamRouter.getEndpoints()) {
+            OcrCacheKey key = OcrCacheKey.fromImageHash(cacheKey.getImageHash(), prompt.getText(), upstream.getModel());
+            if (!keys.contains(key)) {
+                keys.add(key);
             }
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error parsing API response", e);
-            result.put("error", "Error parsing API response: " + e.getMessage());
-            result.put("original_response", response);
         }
-        
-        return result;
+        Map<String, Object> cached = resultCache.getAny(keys);
+        return cached != null ? OcrResult.fromCachedMap(cached) : null;
+    }
+
+    /**
+     * Cache an answer under the model that produced it. Answers of the local engine are not
+     * cached: they cost nothing to produce again, and a blank-page answer must not be served
+     * for the model's key.
+     */
+    private void cache(OcrCacheKey cacheKey, OcrPrompt prompt, OcrResult answer) {
+        if (cacheKey == null || answer.getModel() == null || LocalOcrEngine.NAME.equals(answer.getEngine())) {
+            return;
+        }
+        OcrCacheKey key = answer.getModel().equals(cacheKey.getModel())
+                ? cacheKey : OcrCacheKey.fromImageHash(cacheKey.getImageHash(), prompt.getText(), answer.getModel());
+        resultCache.put(key, answer);
+    }
+
+    /**
+     * Serve repeated scans from the cache, keyed on the decoded bytes so that
+     * differently prefixed base64 strings of the same image share one entry
+     * @return The cache key, or null if the endpoint does not use the cache
+     */
+    private OcrCacheKey cacheKeyFor(ImageSource image, OcrPrompt prompt, String endpoint) throws IOException {
+        return resultCache.isEnabledFor(endpoint) ? hash(image, prompt, endpoint) : null;
+    }
+
+    private OcrCacheKey hash(ImageSource image, OcrPrompt prompt, String endpoint) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return OcrCacheKey.of(image, prompt.getText(), model);
+        } finally {
+            ocrMetrics.recordStage(OcrMetrics.STAGE_HASH, endpoint, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Downscale and recompress after the cache lookup, which is keyed on the original bytes
+     */
+    private ImageSource preprocess(ImageSource image, OcrMode mode, String endpoint) {
+        PreprocessProperties.Profile profile = mode == OcrMode.DOCUMENT
+                ? preprocessProperties.getDocument() : preprocessProperties.getText();
+        long start = System.nanoTime();
+        ImageSource upload = imagePreprocessor.preprocess(image, profile).getImage();
+        ocrMetrics.recordStage(OcrMetrics.STAGE_PREPROCESS, endpoint, System.nanoTime() - start);
+        return upload;
     }
-} 
\ No newline at end of file
+}
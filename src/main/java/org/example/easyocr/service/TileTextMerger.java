@@ -0,0 +1,92 @@
+package org.example.easyocr.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Joins the text of overlapping bands of a page, top to bottom, dropping the lines that were
+ * read twice.
+ * <p>
+ * The lines at the end of one band are matched against the lines at the start of the next,
+ * longest run first, comparing case- and whitespace-insensitively. A line cut by a band edge
+ * comes out partial or garbled, so the last line of the upper band and the first line of the
+ * lower band may be left out of the match; the lower band's copy of the overlap is dropped,
+ * or the upper band's cut line if the lower band has it whole.
+ */
+final class TileTextMerger {
+
+    private TileTextMerger() {
+    }
+
+    /**
+     * @param texts The text of each band, top to bottom
+     * @param maxOverlapLines The most lines two neighbouring bands can have in common
+     * @return The text of the page
+     */
+    static String merge(List<String> texts, int maxOverlapLines) {
+        List<String> merged = new ArrayList<>();
+        for (String text : texts) {
+            List<String> lines = trimBlankLines(text);
+            if (merged.isEmpty()) {
+                merged.addAll(lines);
+            } else {
+                append(merged, lines, maxOverlapLines);
+            }
+        }
+        return String.join("\n", merged);
+    }
+
+    private static void append(List<String> merged, List<String> lines, int maxOverlapLines) {
+        int maxLength = Math.min(maxOverlapLines, Math.min(merged.size(), lines.size()));
+        for (int length = maxLength; length > 0; length--) {
+            // Prefer matches that use the edge lines, and only then allow skipping a cut line
+            for (int skip = 0; skip < 4; skip++) {
+                int skipUpper = skip & 1;
+                int skipLower = skip >> 1;
+                if (matches(merged, merged.size() - skipUpper - length, lines, skipLower, length)) {
+                    merged.subList(merged.size() - skipUpper, merged.size()).clear();
+                    merged.addAll(lines.subList(skipLower + length, lines.size()));
+                    return;
+                }
+            }
+        }
+        // Nothing in common: the overlap held no text, or was read too differently to tell
+        merged.addAll(lines);
+    }
+
+    private static boolean matches(List<String> upper, int upperStart, List<String> lower, int lowerStart, int length) {
+        if (upperStart < 0 || lowerStart + length > lower.size()) {
+            return false;
+        }
+        boolean hasText = false;
+        for (int i = 0; i < length; i++) {
+            String line = normalize(upper.get(upperStart + i));
+            if (!line.equals(normalize(lower.get(lowerStart + i)))) {
+                return false;
+            }
+            hasText |= !line.isEmpty();
+        }
+        // Blank lines alone say nothing about where the bands meet
+        return hasText;
+    }
+
+    private static String normalize(String line) {
+        return line.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> trimBlankLines(String text) {
+        if (text == null) {
+            return new ArrayList<>();
+        }
+        List<String> lines = new ArrayList<>(Arrays.asList(text.split("\r?\n", -1)));
+        while (!lines.isEmpty() && lines.get(0).isBlank()) {
+            lines.remove(0);
+        }
+        while (!lines.isEmpty() && lines.get(lines.size() - 1).isBlank()) {
+            lines.remove(lines.size() - 1);
+        }
+        return lines;
+    }
+}
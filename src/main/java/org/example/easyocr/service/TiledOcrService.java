@@ -0,0 +1,207 @@
+package org.example.easyocr.service;
+
+import org.example.easyocr.image.ImagePreprocessor;
+import org.example.easyocr.image.ImageSource;
+import org.example.easyocr.image.ImageTiler;
+import org.example.easyocr.metrics.StatsSource;
+import org.example.easyocr.metrics.TimerStats;
+import org.example.easyocr.scheduling.OcrRequestContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Plain text OCR of large, dense pages in overlapping horizontal bands.
+ * <p>
+ * One upstream call has to generate the text of a whole page token by token, which for a
+ * dense contract or spreadsheet takes long and may run into the completion limit. Split into
+ * bands, the page is read by several calls at once, each with its own limit, and the wall
+ * clock time is that of the slowest band. The band texts are joined by
+ * {@link TileTextMerger}, which drops the lines read twice in the overlaps.
+ * <p>
+ * Only images of at least {@code app.tiling.min-pixels} that are taller than one band are
+ * split; anything else, and anything that can not be decoded, is processed whole.
+ */
+@Service
+public class TiledOcrService implements StatsSource {
+
+    private static final Logger logger = Logger.getLogger(TiledOcrService.class.getName());
+
+    private final OcrService ocrService;
+
+    @Value("${app.tiling.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.tiling.min-pixels:4000000}")
+    private long minPixels;
+
+    @Value("${app.tiling.max-pixels:40000000}")
+    private long maxPixels;
+
+    @Value("${app.tiling.band-height:1000}")
+    private int bandHeight;
+
+    @Value("${app.tiling.overlap:0.15}")
+    private double overlap;
+
+    @Value("${app.tiling.max-tiles:8}")
+    private int maxTiles;
+
+    @Value("${app.tiling.max-overlap-lines:10}")
+    private int maxOverlapLines;
+
+    @Value("${app.tiling.jpeg-quality:0.9}")
+    private float jpegQuality;
+
+    @Value("${app.tiling.max-threads:16}")
+    private int maxThreads;
+
+    private ExecutorService executor;
+
+    private final AtomicLong tiledImages = new AtomicLong();
+    private final AtomicLong wholeImages = new AtomicLong();
+    private final AtomicLong tiles = new AtomicLong();
+    private final AtomicLong failedImages = new AtomicLong();
+    private final TimerStats splitTimes = new TimerStats();
+    private final TimerStats tiledTimes = new TimerStats();
+
+    public TiledOcrService(OcrService ocrService) {
+        this.ocrService = ocrService;
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(maxThreads, runnable -> {
+            Thread thread = new Thread(runnable, "ocr-tile-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Extract the text of an image, in bands if it is large enough
+     *
+     * @param image An image that has already been validated by the caller
+     * @param endpoint The name of the calling endpoint, used for per-endpoint cache opt-out
+     * @return {@code {"extracted_text": ..., "tiles": n}} for a tiled image, the result of
+     * {@link OcrService#processImage(ImageSource, OcrMode, String, String)} for one processed whole, or an error
+     * @throws IOException If processing was interrupted
+     */
+    public Map<String, Object> processImage(ImageSource image, String endpoint) throws IOException {
+        List<ImageSource> bands = enabled ? split(image) : null;
+        if (bands == null || bands.size() < 2) {
+            wholeImages.incrementAndGet();
+            return ocrService.processImage(image, OcrMode.TEXT, null, endpoint);
+        }
+
+        long start = System.nanoTime();
+        tiledImages.incrementAndGet();
+        tiles.addAndGet(bands.size());
+        logger.info("Processing image in " + bands.size() + " bands");
+        List<Future<OcrResult>> futures = new ArrayList<>();
+        try {
+            for (ImageSource band : bands) {
+                futures.add(executor.submit(OcrRequestContext.wrap(() -> ocrService.recognize(band, OcrMode.TEXT, null, endpoint))));
+            }
+            List<String> texts = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                OcrResult result = futures.get(i).get();
+                if (result.getKind() == OcrResult.Kind.ERROR) {
+                    failedImages.incrementAndGet();
+                    return error("Band " + (i + 1) + " of " + bands.size() + " failed: " + result.getError());
+                }
+                if (result.getKind() == OcrResult.Kind.TEXT) {
+                    texts.add(result.getText());
+                } else {
+                    // The model answered a band with JSON; its text is still the best we have
+                    logger.warning("Band " + (i + 1) + " returned fields instead of text");
+                    texts.add(result.getFields().toString());
+                }
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("extracted_text", TileTextMerger.merge(texts, maxOverlapLines));
+            result.put("tiles", bands.size());
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Tiled processing interrupted");
+        } catch (ExecutionException e) {
+            logger.log(Level.SEVERE, "Error processing band", e.getCause());
+            failedImages.incrementAndGet();
+            return error("Error processing image: " + e.getCause().getMessage());
+        } finally {
+            for (Future<OcrResult> future : futures) {
+                future.cancel(true);
+            }
+            tiledTimes.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return The bands, or null to process the image whole
+     */
+    private List<ImageSource> split(ImageSource image) {
+        long start = System.nanoTime();
+        try {
+            int[] size = ImageTiler.readSize(image);
+            if (size == null || (long) size[0] * size[1] < minPixels || size[1] <= bandHeight) {
+                return null;
+            }
+            // Tiling decodes the image at full resolution
+            ImagePreprocessor.checkPixels(size[0], size[1], maxPixels);
+            List<ImageSource> bands = ImageTiler.split(image, bandHeight, overlap, maxTiles, jpegQuality);
+            splitTimes.record(System.nanoTime() - start);
+            return bands;
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Could not split image, processing it whole", e);
+            return null;
+        }
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("error", message);
+        return errorResponse;
+    }
+
+    @Override
+    public String getStatsName() {
+        return "tiling";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("tiled_images", tiledImages.get());
+        stats.put("whole_images", wholeImages.get());
+        stats.put("tiles", tiles.get());
+        stats.put("failed_images", failedImages.get());
+        splitTimes.putInto(stats, "split");
+        tiledTimes.putInto(stats, "tiled");
+        return stats;
+    }
+}
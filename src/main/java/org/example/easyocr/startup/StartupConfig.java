@@ -0,0 +1,31 @@
+package org.example.easyocr.startup;
+
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StartupConfig {
+
+    private static final String APPLICATION_PACKAGE = "org.example.easyocr.";
+
+    /**
+     * With {@code spring.main.lazy-initialization}, only framework beans wait for their first use.
+     * The application's own beans start worker threads, schedules and filters, and are created
+     * with the context as usual. That includes the {@code @Bean} methods of the application's
+     * configuration, whose declared type is often a framework interface.
+     */
+    @Bean
+    static LazyInitializationExcludeFilter eagerApplicationBeans() {
+        return (beanName, beanDefinition, beanType) -> {
+            if (beanType != null && beanType.getName().startsWith(APPLICATION_PACKAGE)) {
+                return true;
+            }
+            return beanDefinition instanceof AnnotatedBeanDefinition
+                    && ((AnnotatedBeanDefinition) beanDefinition).getFactoryMethodMetadata() != null
+                    && ((AnnotatedBeanDefinition) beanDefinition).getFactoryMethodMetadata()
+                    .getDeclaringClassName().startsWith(APPLICATION_PACKAGE);
+        };
+    }
+}
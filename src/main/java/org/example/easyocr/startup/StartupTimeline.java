@@ -0,0 +1,79 @@
+package org.example.easyocr.startup;
+
+import org.example.easyocr.metrics.OcrMetrics;
+import org.example.easyocr.metrics.StatsSource;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Milestones of the startup, in milliseconds since the JVM started: the context is refreshed,
+ * the warm-up is done and the application accepts traffic; and how long the first OCR request
+ * took, which is where the remaining cold-start costs show up.
+ */
+@Component
+public class StartupTimeline implements StatsSource {
+
+    private static final Logger logger = Logger.getLogger(StartupTimeline.class.getName());
+
+    private final OcrMetrics ocrMetrics;
+
+    private volatile long startedMillis = -1;
+    private volatile long readyMillis = -1;
+    private volatile long warmUpMillis = -1;
+    private volatile int warmUpIterations;
+    private volatile int warmUpConnections;
+
+    public StartupTimeline(OcrMetrics ocrMetrics) {
+        this.ocrMetrics = ocrMetrics;
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void onStarted() {
+        startedMillis = uptime();
+    }
+
+    @EventListener
+    public void onReadinessChange(AvailabilityChangeEvent<ReadinessState> event) {
+        if (event.getState() == ReadinessState.ACCEPTING_TRAFFIC && readyMillis < 0) {
+            readyMillis = uptime();
+            logger.info("Accepting traffic " + readyMillis + " ms after JVM start"
+                    + (warmUpMillis >= 0 ? ", " + warmUpMillis + " ms of it warming up" : ""));
+        }
+    }
+
+    void recordWarmUp(long millis, int iterations, int connections) {
+        warmUpMillis = millis;
+        warmUpIterations = iterations;
+        warmUpConnections = connections;
+    }
+
+    private static long uptime() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    @Override
+    public String getStatsName() {
+        return "startup";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("started_ms", startedMillis);
+        stats.put("warm_up_ms", warmUpMillis);
+        stats.put("warm_up_iterations", warmUpIterations);
+        stats.put("warm_up_connections", warmUpConnections);
+        stats.put("ready_ms", readyMillis);
+        long firstRequestNanos = ocrMetrics.getFirstRequestNanos();
+        stats.put("first_request_ms", firstRequestNanos >= 0 ? firstRequestNanos / 1_000_000 : -1);
+        return stats;
+    }
+}
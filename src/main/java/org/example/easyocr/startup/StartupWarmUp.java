@@ -0,0 +1,220 @@
+package org.example.easyocr.startup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.easyocr.engine.ImageProfile;
+import org.example.easyocr.http.UpstreamConnectionWarmer;
+import org.example.easyocr.image.BytesImageSource;
+import org.example.easyocr.image.ImagePreprocessor;
+import org.example.easyocr.image.ImageSource;
+import org.example.easyocr.prompt.OcrPrompt;
+import org.example.easyocr.prompt.PromptRegistry;
+import org.example.easyocr.service.OcrMode;
+import org.example.easyocr.service.OcrResultFormatter;
+import org.example.easyocr.upstream.ChatCompletionRequestWriter;
+import org.example.easyocr.upstream.ChatCompletionResponseReader;
+import org.example.easyocr.upstream.ChatCompletionStreamReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Warms the application up before it reports itself ready.
+ * <p>
+ * Application runners run after the web server has started but before the readiness state
+ * becomes {@code ACCEPTING_TRAFFIC}, so {@code /actuator/health/readiness} keeps new traffic
+ * away until this is done. Meanwhile it opens the upstream connections and runs the request
+ * path on a generated image and canned upstream answers: image decoding and profiling,
+ * writing the chat-completions request, reading plain and streamed answers, formatting and
+ * serializing the result. That gets the hot code compiled and Jackson's serializers built
+ * without touching the caches, the metrics or the upstream API. The warm-up stops after
+ * {@code app.warm-up.timeout} whatever it has done.
+ * <p>
+ * With {@code app.warm-up.exit} the application stops after the warm-up, which is how the
+ * {@code fast-startup} Maven profile records the classes of a started application into a
+ * class data sharing archive. The main method does the stopping, once the context has started;
+ * the exit code is 1 if the request path could not be run once.
+ */
+@Component
+public class StartupWarmUp implements ApplicationRunner, ExitCodeGenerator {
+
+    private static final Logger logger = Logger.getLogger(StartupWarmUp.class.getName());
+
+    private static final byte[] TEXT_RESPONSE = ("{\"id\":\"chatcmpl-warm-up\",\"object\":\"chat.completion\","
+            + "\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"INVOICE No. 2024-0001\\nTotal: 42.00\"},"
+            + "\"finish_reason\":\"stop\"}],\"usage\":{\"prompt_tokens\":1100,\"completion_tokens\":12,\"total_tokens\":1112}}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] DOCUMENT_RESPONSE = ("{\"id\":\"chatcmpl-warm-up\",\"object\":\"chat.completion\","
+            + "\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":"
+            + "\"```json\\n{\\\"document_number\\\": \\\"X1234567\\\", \\\"surname\\\": \\\"DOE\\\", \\\"given_names\\\": \\\"JANE\\\"}\\n```\"},"
+            + "\"finish_reason\":\"stop\"}],\"usage\":{\"prompt_tokens\":1200,\"completion_tokens\":30,\"total_tokens\":1230}}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] STREAM_RESPONSE = ("data: {\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\"}}]}\n\n"
+            + "data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\"INVOICE \"}}]}\n\n"
+            + "data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\"No. 2024-0001\"}}]}\n\n"
+            + "data: [DONE]\n\n").getBytes(StandardCharsets.UTF_8);
+
+    private final UpstreamConnectionWarmer connectionWarmer;
+    private final ChatCompletionRequestWriter requestWriter;
+    private final ChatCompletionResponseReader responseReader;
+    private final ChatCompletionStreamReader streamReader;
+    private final OcrResultFormatter resultFormatter;
+    private final PromptRegistry promptRegistry;
+    private final ObjectMapper objectMapper;
+    private final StartupTimeline startupTimeline;
+
+    @Value("${app.warm-up.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.warm-up.iterations:300}")
+    private int iterations;
+
+    @Value("${app.warm-up.timeout:30000}")
+    private long timeout;
+
+    @Value("${app.warm-up.exit:false}")
+    private boolean exit;
+
+    @Value("${openai.model}")
+    private String model;
+
+    private volatile int completedIterations = -1;
+
+    public StartupWarmUp(UpstreamConnectionWarmer connectionWarmer,
+                         ChatCompletionRequestWriter requestWriter, ChatCompletionResponseReader responseReader,
+                         ChatCompletionStreamReader streamReader, OcrResultFormatter resultFormatter,
+                         PromptRegistry promptRegistry, ObjectMapper objectMapper, StartupTimeline startupTimeline) {
+        this.connectionWarmer = connectionWarmer;
+        this.requestWriter = requestWriter;
+        this.responseReader = responseReader;
+        this.streamReader = streamReader;
+        this.resultFormatter = resultFormatter;
+        this.promptRegistry = promptRegistry;
+        this.objectMapper = objectMapper;
+        this.startupTimeline = startupTimeline;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        // Connections are opened on their own threads while this one exercises the code
+        CompletableFuture<Integer> connections = CompletableFuture.supplyAsync(connectionWarmer::warmUp);
+        int completed = exerciseRequestPath(deadline);
+        int opened = 0;
+        try {
+            opened = connections.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            logger.warning("Upstream connections were not all open when the warm-up timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.log(Level.WARNING, "Upstream connection warm-up failed", e.getCause());
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        completedIterations = completed;
+        startupTimeline.recordWarmUp(elapsedMillis, completed, opened);
+        logger.info("Warmed up in " + elapsedMillis + " ms: " + completed + "/" + iterations
+                + " request path iterations, " + opened + " upstream connections");
+    }
+
+    /**
+     * @return Whether the application is to stop now that it has started and warmed up
+     */
+    public boolean isExitRequested() {
+        return enabled && exit;
+    }
+
+    /**
+     * The exit code when the application stops after the warm-up
+     */
+    @Override
+    public int getExitCode() {
+        return completedIterations == 0 ? 1 : 0;
+    }
+
+    /**
+     * @return The number of iterations run before the deadline
+     */
+    private int exerciseRequestPath(long deadline) {
+        ImageSource image;
+        try {
+            image = new BytesImageSource(ImagePreprocessor.encodeJpeg(sampleImage(), 0.85f), "image/jpeg");
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not create the warm-up image", e);
+            return 0;
+        }
+        OcrPrompt textPrompt = promptRegistry.select(OcrMode.TEXT, null);
+        OcrPrompt documentPrompt = promptRegistry.select(OcrMode.DOCUMENT, null);
+
+        int completed = 0;
+        try {
+            while (completed < iterations && System.nanoTime() < deadline) {
+                boolean document = completed % 2 == 1;
+                OcrPrompt prompt = document ? documentPrompt : textPrompt;
+
+                ImageIO.read(image.openStream());
+                ImageProfile.of(image);
+                requestWriter.write(OutputStream.nullOutputStream(), model, prompt.getText(), image,
+                        completed % 4 == 2, prompt.getMaxTokens(), prompt.getDetail());
+
+                byte[] response = document ? DOCUMENT_RESPONSE : TEXT_RESPONSE;
+                Map<String, Object> result = resultFormatter.formatResponse(
+                        responseReader.read(new ByteArrayInputStream(response))).toMap();
+                objectMapper.writeValueAsBytes(result);
+
+                String streamed = streamReader.read(new ByteArrayInputStream(STREAM_RESPONSE), text -> {
+                });
+                objectMapper.writeValueAsBytes(resultFormatter.formatContent(streamed).toMap());
+                completed++;
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Request path warm-up failed after " + completed + " iterations", e);
+        }
+        return completed;
+    }
+
+    /**
+     * A page-sized image of dark bars on white, close enough to a scan for the codecs
+     */
+    private static BufferedImage sampleImage() {
+        BufferedImage image = new BufferedImage(1240, 1754, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            graphics.setColor(Color.DARK_GRAY);
+            for (int y = 120; y < image.getHeight() - 120; y += 48) {
+                int width = 400 + (y * 7919) % 600;
+                graphics.fillRect(100, y, width, 22);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+}
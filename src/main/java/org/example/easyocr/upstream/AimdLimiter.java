@@ -0,0 +1,107 @@
+package org.example.easyocr.upstream;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrency limit adjusted by additive increase, multiplicative decrease.
+ * <p>
+ * Every fast success while the limit is in use raises it by {@code 1 / limit}, which adds
+ * about one slot per round of calls. A rate-limit or overload answer halves it, and a call
+ * slower than the latency threshold shrinks it by 10%. Decreases are applied at most once
+ * per cooldown, so a burst of rejections that all belong to the same overload counts once.
+ */
+final class AimdLimiter {
+
+    private static final double OVERLOAD_RATIO = 0.5;
+    private static final double SLOW_RATIO = 0.9;
+    private static final long DECREASE_COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+
+    private double limit;
+    private int inFlight;
+    private long decreasedAt;
+    private long increases;
+    private long decreases;
+
+    AimdLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdMillis) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+        this.decreasedAt = System.nanoTime() - DECREASE_COOLDOWN_NANOS;
+    }
+
+    /**
+     * Wait for a free slot
+     *
+     * @param timeoutNanos The longest time to wait
+     * @return Whether a slot was acquired; it must be given back with {@link #release}
+     */
+    synchronized boolean acquire(long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (inFlight >= (int) limit) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        inFlight++;
+        return true;
+    }
+
+    synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * Record a successful call, before its slot is released
+     */
+    synchronized void onSuccess(long latencyNanos) {
+        if (latencyNanos > latencyThresholdNanos) {
+            decrease(SLOW_RATIO);
+        } else if (inFlight >= (int) limit / 2 && limit < maxLimit) {
+            // Only grow a limit that is actually used, an idle service would otherwise drift to the maximum
+            limit = Math.min(maxLimit, limit + 1 / limit);
+            increases++;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Record a rate-limit or overload answer
+     */
+    synchronized void onOverload() {
+        decrease(OVERLOAD_RATIO);
+    }
+
+    private void decrease(double ratio) {
+        long now = System.nanoTime();
+        if (now - decreasedAt < DECREASE_COOLDOWN_NANOS) {
+            return;
+        }
+        decreasedAt = now;
+        limit = Math.max(minLimit, limit * ratio);
+        decreases++;
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    synchronized long getIncreases() {
+        return increases;
+    }
+
+    synchronized long getDecreases() {
+        return decreases;
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.easyocr.upstream;
+
+import java.util.Map;
+
+/**
+ * The parts of a chat-completions response the service uses: the answer of the first
+ * choice, the token usage and an error, if the API sent one.
+ */
+public class ChatCompletion {
+
+    private final boolean hasChoices;
+    private final boolean hasMessage;
+    private final String content;
+    private final Usage usage;
+    private final boolean hasError;
+    private final Object error;
+    private final Map<String, Object> otherFields;
+
+    ChatCompletion(boolean hasChoices, boolean hasMessage, String content, Usage usage,
+                   boolean hasError, Object error, Map<String, Object> otherFields) {
+        this.hasChoices = hasChoices;
+        this.hasMessage = hasMessage;
+        this.content = content;
+        this.usage = usage;
+        this.hasError = hasError;
+        this.error = error;
+        this.otherFields = otherFields;
+    }
+
+    /**
+     * @return Whether the response has at least one choice
+     */
+    public boolean hasChoices() {
+        return hasChoices;
+    }
+
+    /**
+     * @return Whether the first choice has a message object
+     */
+    public boolean hasMessage() {
+        return hasMessage;
+    }
+
+    /**
+     * @return The text of {@code choices[0].message.content}, may be null
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * @return The token usage, or null if the response has none
+     */
+    public Usage getUsage() {
+        return usage;
+    }
+
+    /**
+     * @return Whether the response has an {@code error} field
+     */
+    public boolean hasError() {
+        return hasError;
+    }
+
+    public Object getError() {
+        return error;
+    }
+
+    /**
+     * @return The top-level fields other than a non-empty {@code choices} array, for error reports
+     */
+    public Map<String, Object> getOtherFields() {
+        return otherFields;
+    }
+
+    /**
+     * The {@code usage} field of a response
+     */
+    public static class Usage {
+        private final long promptTokens;
+        private final long completionTokens;
+        private final long totalTokens;
+
+        public Usage(long promptTokens, long completionTokens, long totalTokens) {
+            this.promptTokens = promptTokens;
+            this.completionTokens = completionTokens;
+            this.totalTokens = totalTokens;
+        }
+
+        public long getPromptTokens() {
+            return promptTokens;
+        }
+
+        public long getCompletionTokens() {
+            return completionTokens;
+        }
+
+        public long getTotalTokens() {
+            return totalTokens;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.example.easyocr.upstream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.easyocr.image.ImageSource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a chat-completions request with an embedded image directly to an output stream.
+ * <p>
+ * The JSON is produced with a streaming {@link JsonGenerator} and the image is base64
+ * encoded from its {@link ImageSource} straight into the {@code image_url} string, so
+ * the request never exists in memory as a whole: neither as a base64 string, nor as a
+ * data URI, nor as a serialized body. Memory use is a few small, constant buffers
+ * regardless of the image size.
+ */
+@Component
+public class ChatCompletionRequestWriter {
+
+    /**
+     * Upper bound on the completion length requested from the API
+     */
+    public static final int MAX_TOKENS = 4000;
+
+    private final JsonFactory jsonFactory;
+
+    public ChatCompletionRequestWriter(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Write the request body. The stream is flushed but not closed.
+     *
+     * @param out The stream to write the JSON body to
+     * @param model The model name
+     * @param prompt The text prompt sent before the image
+     * @param image The image to embed as a data URI
+     * @throws IOException If the image can not be read or the stream can not be written
+     */
+    public void write(OutputStream out, String model, String prompt, ImageSource image) throws IOException {
+        write(out, model, prompt, image, false);
+    }
+
+    /**
+     * Write the request body. The stream is flushed but not closed.
+     *
+     * @param out The stream to write the JSON body to
+     * @param model The model name
+     * @param prompt The text prompt sent before the image
+     * @param image The image to embed as a data URI
+     * @param stream Whether to ask for the answer as a stream of server-sent events
+     * @throws IOException If the image can not be read or the stream can not be written
+     */
+    public void write(OutputStream out, String model, String prompt, ImageSource image, boolean stream) throws IOException {
+        write(out, model, prompt, image, stream, MAX_TOKENS, null);
+    }
+
+    /**
+     * Write the request body. The stream is flushed but not closed.
+     *
+     * @param out The stream to write the JSON body to
+     * @param model The model name
+     * @param prompt The text prompt sent before the image
+     * @param image The image to embed as a data URI
+     * @param stream Whether to ask for the answer as a stream of server-sent events
+     * @param maxTokens Upper bound on the completion length
+     * @param detail The {@code detail} of the image, such as {@code "low"}, or null for the API default
+     * @throws IOException If the image can not be read or the stream can not be written
+     */
+    public void write(OutputStream out, String model, String prompt, ImageSource image, boolean stream,
+                      int maxTokens, String detail) throws IOException {
+        JsonGenerator generator = jsonFactory.createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        generator.writeStartObject();
+        generator.writeStringField("model", model);
+
+        generator.writeArrayFieldStart("messages");
+        generator.writeStartObject();
+        generator.writeStringField("role", "user");
+
+        generator.writeArrayFieldStart("content");
+        // Text part - Put a clear, direct instruction first, then the image
+        generator.writeStartObject();
+        generator.writeStringField("type", "text");
+        generator.writeStringField("text", prompt);
+        generator.writeEndObject();
+
+        generator.writeStartObject();
+        generator.writeStringField("type", "image_url");
+        generator.writeObjectFieldStart("image_url");
+        generator.writeFieldName("url");
+        writeDataUri(generator, out, image);
+        if (detail != null) {
+            generator.writeStringField("detail", detail);
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeEndArray();
+
+        generator.writeNumberField("max_tokens", maxTokens);
+        // Set parameters to get more direct OCR results
+        generator.writeNumberField("temperature", 0.1);
+        generator.writeNumberField("top_p", 1.0);
+        generator.writeNumberField("frequency_penalty", 0.0);
+        generator.writeNumberField("presence_penalty", 0.0);
+        if (stream) {
+            generator.writeBooleanField("stream", true);
+        }
+        generator.writeEndObject();
+
+        generator.flush();
+        generator.close();
+    }
+
+    private void writeDataUri(JsonGenerator generator, OutputStream out, ImageSource image) throws IOException {
+        // Open the string value through the generator so separators stay correct; the
+        // content type comes from the client and is escaped like any other JSON string
+        char[] prefix = JsonStringEncoder.getInstance().quoteAsString("data:" + image.getContentType() + ";base64,");
+        generator.writeRawValue("\"" + new String(prefix));
+        generator.flush();
+        // Base64 characters never need JSON escaping, so they go to the stream as is
+        image.writeBase64(out);
+        generator.writeRaw('"');
+    }
+}
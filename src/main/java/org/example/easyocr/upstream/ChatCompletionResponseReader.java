@@ -0,0 +1,128 @@
+package org.example.easyocr.upstream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads a chat-completions response with a streaming {@link JsonParser}.
+ * <p>
+ * Only {@code choices[0].message.content} is taken from the choices, which hold nearly all of
+ * the body; the other choices and fields of the message are skipped without being built. The
+ * small top-level fields ({@code id}, {@code model}, {@code usage}, {@code error}, ...) are
+ * kept for error reports and the usage counters, as is {@code choices} when it holds no choice.
+ */
+@Component
+public class ChatCompletionResponseReader {
+
+    private final ObjectMapper objectMapper;
+    private final JsonFactory jsonFactory;
+
+    public ChatCompletionResponseReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * @param body The response body
+     * @return The response, or null if the body is empty
+     * @throws IOException If the body is not a JSON object
+     */
+    public ChatCompletion read(InputStream body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object but got " + token);
+            }
+
+            ChoiceReader choices = new ChoiceReader();
+            Map<String, Object> otherFields = new LinkedHashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                if ("choices".equals(name) && parser.currentToken() == JsonToken.START_ARRAY) {
+                    choices.read(parser);
+                    if (!choices.hasChoices) {
+                        // Kept as it was sent, for the report of an answer without choices
+                        otherFields.put(name, new ArrayList<>());
+                    }
+                } else {
+                    otherFields.put(name, objectMapper.readValue(parser, Object.class));
+                }
+            }
+            return new ChatCompletion(choices.hasChoices, choices.hasMessage, choices.content,
+                    usage(otherFields.get("usage")), otherFields.containsKey("error"), otherFields.get("error"), otherFields);
+        }
+    }
+
+    private static ChatCompletion.Usage usage(Object usage) {
+        if (!(usage instanceof Map)) {
+            return null;
+        }
+        Map<?, ?> fields = (Map<?, ?>) usage;
+        return new ChatCompletion.Usage(tokens(fields.get("prompt_tokens")), tokens(fields.get("completion_tokens")),
+                tokens(fields.get("total_tokens")));
+    }
+
+    private static long tokens(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    /**
+     * Walks the {@code choices} array, keeping the content of the first message
+     */
+    private static class ChoiceReader {
+        private boolean hasChoices;
+        private boolean hasMessage;
+        private String content;
+
+        void read(JsonParser parser) throws IOException {
+            boolean first = true;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                hasChoices = true;
+                if (first && parser.currentToken() == JsonToken.START_OBJECT) {
+                    readChoice(parser);
+                } else {
+                    parser.skipChildren();
+                }
+                first = false;
+            }
+        }
+
+        private void readChoice(JsonParser parser) throws IOException {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                if ("message".equals(name) && parser.currentToken() == JsonToken.START_OBJECT) {
+                    hasMessage = true;
+                    readMessage(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        private void readMessage(JsonParser parser) throws IOException {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                if ("content".equals(name) && parser.currentToken() == JsonToken.VALUE_STRING) {
+                    content = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+}
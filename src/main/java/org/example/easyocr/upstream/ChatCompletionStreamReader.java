@@ -0,0 +1,96 @@
+package org.example.easyocr.upstream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a chat-completions response sent with {@code "stream": true}.
+ * <p>
+ * The body is a stream of server-sent events whose data is a JSON chunk carrying the next
+ * piece of the answer in {@code choices[0].delta.content}, terminated by {@code data: [DONE]}.
+ * Each piece is handed to a {@link DeltaListener} as soon as its event is complete.
+ */
+@Component
+public class ChatCompletionStreamReader {
+
+    private static final String DONE = "[DONE]";
+
+    private final ObjectMapper objectMapper;
+
+    public ChatCompletionStreamReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Read the stream until {@code [DONE]} or its end
+     *
+     * @param body The response body
+     * @param listener Receives each non-empty piece of content
+     * @return The complete content, all pieces concatenated
+     * @throws IOException If the stream can not be read or carries an error
+     * @throws StreamAbortedException If the listener fails, which stops the read
+     */
+    public String read(InputStream body, DeltaListener listener) throws IOException {
+        StringBuilder content = new StringBuilder();
+        StringBuilder data = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                // A blank line ends the event
+                if (data.length() > 0) {
+                    if (DONE.contentEquals(data)) {
+                        break;
+                    }
+                    handleChunk(data.toString(), content, listener);
+                    data.setLength(0);
+                }
+            } else if (line.startsWith("data:")) {
+                if (data.length() > 0) {
+                    data.append('\n');
+                }
+                data.append(line.startsWith("data: ") ? line.substring(6) : line.substring(5));
+            }
+            // Comments (":") and other fields (event, id, retry) carry nothing we need
+        }
+        if (data.length() > 0 && !DONE.contentEquals(data)) {
+            handleChunk(data.toString(), content, listener);
+        }
+        return content.toString();
+    }
+
+    private void handleChunk(String data, StringBuilder content, DeltaListener listener) throws IOException {
+        JsonNode chunk = objectMapper.readTree(data);
+        JsonNode error = chunk.get("error");
+        if (error != null && !error.isNull()) {
+            String message = error.path("message").asText(error.toString());
+            throw new IOException("Upstream error in stream: " + message);
+        }
+        JsonNode delta = chunk.path("choices").path(0).path("delta").path("content");
+        if (delta.isTextual() && !delta.asText().isEmpty()) {
+            String text = delta.asText();
+            content.append(text);
+            try {
+                listener.onDelta(text);
+            } catch (IOException e) {
+                // Not a broken upstream stream, which the caller would count against the endpoint
+                throw new StreamAbortedException(e);
+            }
+        }
+    }
+
+    /**
+     * Receives the content of a streamed completion piece by piece; an {@link IOException}
+     * means the piece could not be passed on and nobody wants the rest
+     */
+    public interface DeltaListener {
+        void onDelta(String text) throws IOException;
+    }
+}
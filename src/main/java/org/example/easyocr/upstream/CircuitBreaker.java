@@ -0,0 +1,100 @@
+package org.example.easyocr.upstream;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker of one upstream endpoint.
+ * <p>
+ * After {@code failureThreshold} failures in a row the breaker opens and the endpoint gets no
+ * calls for the open duration. It then lets a single trial call through (half-open): a success
+ * closes it again, a failure opens it for another period.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+    private long opened;
+
+    CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+
+    /**
+     * @return Whether a call may be sent now, without reserving it
+     */
+    synchronized boolean isCallPermitted() {
+        switch (currentState()) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                return !trialInFlight;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Reserve a call; in the half-open state only one trial call is let through
+     *
+     * @return Whether the call may be sent
+     */
+    synchronized boolean tryAcquire() {
+        State current = currentState();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return true;
+        }
+        return false;
+    }
+
+    synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    synchronized void onFailure() {
+        consecutiveFailures++;
+        boolean trialFailed = state == State.HALF_OPEN;
+        trialInFlight = false;
+        if (trialFailed || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            opened++;
+        }
+    }
+
+    /**
+     * Give back a reserved call that ended without telling anything about the endpoint,
+     * such as a hedged call that lost
+     */
+    synchronized void onIgnored() {
+        trialInFlight = false;
+    }
+
+    synchronized State getState() {
+        return currentState();
+    }
+
+    synchronized long getOpened() {
+        return opened;
+    }
+
+    private State currentState() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+        }
+        return state;
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.easyocr.upstream;
+
+import java.util.Arrays;
+
+/**
+ * The latencies of the most recent calls to an endpoint or engine, with an exponentially weighted
+ * moving average for routing and percentiles for the hedge delay.
+ */
+public final class LatencyWindow {
+
+    private static final double EWMA_WEIGHT = 0.2;
+
+    private final long[] samples;
+    private int next;
+    private int size;
+    private double ewmaNanos;
+
+    public LatencyWindow(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+        ewmaNanos = size == 1 ? nanos : ewmaNanos + EWMA_WEIGHT * (nanos - ewmaNanos);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return The moving average in nanoseconds, 0 before the first call
+     */
+    public synchronized double getEwmaNanos() {
+        return ewmaNanos;
+    }
+
+    /**
+     * @param percentile Between 0 and 100
+     * @return The latency in nanoseconds that the given share of recent calls stayed under, 0 before the first call
+     */
+    public synchronized long percentile(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * size) - 1;
+        return sorted[Math.max(0, Math.min(size - 1, index))];
+    }
+}
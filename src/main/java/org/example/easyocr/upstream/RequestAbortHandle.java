@@ -0,0 +1,72 @@
+package org.example.easyocr.upstream;
+
+import org.apache.http.client.methods.HttpUriRequest;
+
+/**
+ * Lets another thread abort the HTTP request that the bound thread sends, which is how the
+ * losing call of a hedged pair gives its connection back instead of reading an answer nobody
+ * wants, and how a streamed answer whose client went away stops being read. The request factory
+ * registers each request it creates with the handle bound to the current thread.
+ */
+public final class RequestAbortHandle {
+
+    private static final ThreadLocal<RequestAbortHandle> CURRENT = new ThreadLocal<>();
+
+    private HttpUriRequest request;
+    private boolean aborted;
+
+    /**
+     * Attach a new request to the handle bound to the current thread, if any
+     *
+     * @param request The request about to be sent
+     */
+    public static void register(HttpUriRequest request) {
+        RequestAbortHandle handle = CURRENT.get();
+        if (handle != null) {
+            handle.attach(request);
+        }
+    }
+
+    /**
+     * Abort the request of the handle bound to the current thread, if any, so that closing its
+     * response drops the connection instead of reading the rest of the answer
+     */
+    public static void abortCurrent() {
+        RequestAbortHandle handle = CURRENT.get();
+        if (handle != null) {
+            handle.abort();
+        }
+    }
+
+    static RequestAbortHandle bind(RequestAbortHandle handle) {
+        RequestAbortHandle previous = CURRENT.get();
+        CURRENT.set(handle);
+        return previous;
+    }
+
+    static void restore(RequestAbortHandle previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    private synchronized void attach(HttpUriRequest request) {
+        this.request = request;
+        if (aborted) {
+            request.abort();
+        }
+    }
+
+    synchronized void abort() {
+        aborted = true;
+        if (request != null) {
+            request.abort();
+        }
+    }
+
+    synchronized boolean isAborted() {
+        return aborted;
+    }
+}
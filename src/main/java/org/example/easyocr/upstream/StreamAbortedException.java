@@ -0,0 +1,22 @@
+package org.example.easyocr.upstream;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the listener of a streamed answer could not take the next piece because the
+ * client it relays to went away. Reading stops there; this is not a failure of the upstream,
+ * which was answering fine.
+ */
+public class StreamAbortedException extends RuntimeException {
+
+    public StreamAbortedException(IOException cause) {
+        super("The client of the streamed answer went away", cause);
+    }
+
+    /**
+     * @return The failure of the listener, usually the write to the client's connection
+     */
+    public IOException getClientFailure() {
+        return (IOException) getCause();
+    }
+}
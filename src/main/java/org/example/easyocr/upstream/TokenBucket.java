@@ -0,0 +1,46 @@
+package org.example.easyocr.upstream;
+
+/**
+ * Token bucket refilled continuously at a per-minute rate, starting full. Not thread-safe,
+ * callers that check and consume several buckets together hold their own lock.
+ */
+public final class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private double available;
+    private long refilledAt;
+
+    public TokenBucket(long perMinute) {
+        this.capacity = perMinute;
+        this.refillPerNano = perMinute / 60e9;
+        this.available = perMinute;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * @param amount The amount needed, capped at the capacity so oversized requests still pass eventually
+     * @return 0 if the amount is available now, otherwise the nanoseconds until it will be
+     */
+    public long nanosUntilAvailable(double amount) {
+        refill();
+        double needed = Math.min(amount, capacity) - available;
+        return needed <= 0 ? 0 : (long) Math.ceil(needed / refillPerNano);
+    }
+
+    public void consume(double amount) {
+        refill();
+        available -= Math.min(amount, capacity);
+    }
+
+    public double getAvailable() {
+        refill();
+        return available;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        available = Math.min(capacity, available + (now - refilledAt) * refillPerNano);
+        refilledAt = now;
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.easyocr.upstream;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One upstream endpoint with its API keys, its circuit breaker and the latencies of its recent calls.
+ */
+public class UpstreamEndpoint {
+
+    private static final int LATENCY_SAMPLES = 200;
+
+    private final String name;
+    private final String url;
+    private final UpstreamKeyPool keys;
+    private final String model;
+    private final int weight;
+    private final CircuitBreaker breaker;
+    private final LatencyWindow latencies = new LatencyWindow(LATENCY_SAMPLES);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+
+    UpstreamEndpoint(String name, String url, UpstreamKeyPool keys, String model, int weight, CircuitBreaker breaker) {
+        this.name = name;
+        this.url = url;
+        this.keys = keys;
+        this.model = model;
+        this.weight = Math.max(1, weight);
+        this.breaker = breaker;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public UpstreamKeyPool getKeys() {
+        return keys;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    LatencyWindow getLatencies() {
+        return latencies;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * The expected cost of sending one more call here: the average latency scaled by the calls
+     * already waiting on it, divided by the weight. Endpoints without latencies yet cost nothing,
+     * so each one gets tried early on.
+     */
+    double cost() {
+        return latencies.getEwmaNanos() * (inFlight.get() + 1) / weight;
+    }
+
+    void onStart() {
+        calls.incrementAndGet();
+        inFlight.incrementAndGet();
+    }
+
+    void onSuccess(long latencyNanos) {
+        inFlight.decrementAndGet();
+        latencies.record(latencyNanos);
+        breaker.onSuccess();
+    }
+
+    void onFailure() {
+        inFlight.decrementAndGet();
+        failures.incrementAndGet();
+        breaker.onFailure();
+    }
+
+    void onIgnored() {
+        inFlight.decrementAndGet();
+        breaker.onIgnored();
+    }
+
+    void onHedge() {
+        hedges.incrementAndGet();
+    }
+
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("url", url);
+        stats.put("model", model);
+        stats.put("weight", weight);
+        stats.put("state", breaker.getState().name().toLowerCase(Locale.ROOT));
+        stats.put("breaker_opened", breaker.getOpened());
+        stats.put("keys", keys.size());
+        stats.put("keys_active", keys.getActiveCount());
+        stats.put("keys_all_benched", keys.getAllBenched());
+        stats.put("in_flight", inFlight.get());
+        stats.put("calls", calls.get());
+        stats.put("failures", failures.get());
+        stats.put("hedges", hedges.get());
+        stats.put("latency_ewma_ms", latencies.getEwmaNanos() / 1_000_000.0);
+        stats.put("latency_p50_ms", latencies.percentile(50) / 1_000_000.0);
+        stats.put("latency_p95_ms", latencies.percentile(95) / 1_000_000.0);
+        return stats;
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.easyocr.upstream;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The upstream endpoints OCR requests are spread over. Without any, the single endpoint
+ * configured by {@code openai.api.url}, {@code openai.api.key} and {@code openai.model} is used,
+ * with the additional keys of {@code openai.api.keys}.
+ */
+@Component
+@ConfigurationProperties(prefix = "openai")
+public class UpstreamEndpointProperties {
+
+    private List<Endpoint> endpoints = new ArrayList<>();
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(List<Endpoint> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    public static class Endpoint {
+
+        /**
+         * Shown in the stats and logs; defaults to the host of the URL
+         */
+        private String name;
+
+        /**
+         * The chat-completions URL
+         */
+        private String url;
+
+        private String key;
+
+        /**
+         * More API keys for the same endpoint; calls are spread over these and {@code key}
+         */
+        private List<String> keys = new ArrayList<>();
+
+        /**
+         * The model to request from this endpoint; defaults to {@code openai.model}
+         */
+        private String model;
+
+        /**
+         * Relative share of the traffic when endpoints are equally fast
+         */
+        private int weight = 1;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public void setKey(String key) {
+            this.key = key;
+        }
+
+        public List<String> getKeys() {
+            return keys;
+        }
+
+        public void setKeys(List<String> keys) {
+            this.keys = keys;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        public void setModel(String model) {
+            this.model = model;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public void setWeight(int weight) {
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package org.example.easyocr.upstream;
+
+import org.springframework.http.HttpHeaders;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One API key of an endpoint, with the quota the provider last reported for it in the
+ * {@code x-ratelimit-*} response headers, and whether it is benched.
+ */
+public class UpstreamKey {
+
+    static final String LIMIT_REQUESTS = "x-ratelimit-limit-requests";
+    static final String LIMIT_TOKENS = "x-ratelimit-limit-tokens";
+    static final String REMAINING_REQUESTS = "x-ratelimit-remaining-requests";
+    static final String REMAINING_TOKENS = "x-ratelimit-remaining-tokens";
+    static final String RESET_REQUESTS = "x-ratelimit-reset-requests";
+    static final String RESET_TOKENS = "x-ratelimit-reset-tokens";
+
+    public static final String REASON_EXHAUSTED = "exhausted";
+    public static final String REASON_RATE_LIMITED = "rate_limited";
+    public static final String REASON_UNAUTHORIZED = "unauthorized";
+
+    // Durations such as "20ms", "1s", "6m0s" or "1h2m3.5s"
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    private final String name;
+    private final String value;
+
+    // Guarded by this; -1 while unknown
+    private long limitRequests = -1;
+    private long limitTokens = -1;
+    private long remainingRequests = -1;
+    private long remainingTokens = -1;
+    private long requestsResetAtNanos;
+    private long tokensResetAtNanos;
+    private long benchedUntilNanos = System.nanoTime();
+    private String benchReason;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong unauthorized = new AtomicLong();
+
+    UpstreamKey(String name, String value) {
+        this.name = name;
+        this.value = value;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The key to send as the bearer token
+     */
+    public String getValue() {
+        return value;
+    }
+
+    synchronized boolean isBenched(long now) {
+        return now - benchedUntilNanos < 0;
+    }
+
+    synchronized long getBenchedUntilNanos() {
+        return benchedUntilNanos;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * The share of the key's quota that is left, the lower of requests and tokens, after the
+     * calls already in flight. A quota that has been reset since it was reported, or was never
+     * reported, counts as full.
+     */
+    synchronized double headroom(long now) {
+        double requests = 1;
+        if (limitRequests > 0 && remainingRequests >= 0 && now - requestsResetAtNanos < 0) {
+            requests = (double) (remainingRequests - inFlight.get()) / limitRequests;
+        }
+        double tokens = 1;
+        if (limitTokens > 0 && remainingTokens >= 0 && now - tokensResetAtNanos < 0) {
+            tokens = (double) remainingTokens / limitTokens;
+        }
+        return Math.min(requests, tokens);
+    }
+
+    void onStart() {
+        calls.incrementAndGet();
+        inFlight.incrementAndGet();
+    }
+
+    void onEnd() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Take the quota from the rate-limit headers of an answer, and bench the key until the
+     * quota resets if it is nearly used up
+     */
+    synchronized void updateQuota(HttpHeaders headers, long minRemainingRequests, long minRemainingTokens) {
+        if (headers == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        limitRequests = longHeader(headers, LIMIT_REQUESTS, limitRequests);
+        limitTokens = longHeader(headers, LIMIT_TOKENS, limitTokens);
+        long resetRequestsNanos = durationNanos(headers.getFirst(RESET_REQUESTS));
+        long resetTokensNanos = durationNanos(headers.getFirst(RESET_TOKENS));
+        if (headers.containsKey(REMAINING_REQUESTS)) {
+            remainingRequests = longHeader(headers, REMAINING_REQUESTS, -1);
+            requestsResetAtNanos = now + Math.max(0, resetRequestsNanos);
+        }
+        if (headers.containsKey(REMAINING_TOKENS)) {
+            remainingTokens = longHeader(headers, REMAINING_TOKENS, -1);
+            tokensResetAtNanos = now + Math.max(0, resetTokensNanos);
+        }
+
+        long benchNanos = 0;
+        if (remainingRequests >= 0 && remainingRequests <= minRemainingRequests) {
+            benchNanos = Math.max(benchNanos, resetRequestsNanos);
+        }
+        if (remainingTokens >= 0 && remainingTokens <= minRemainingTokens) {
+            benchNanos = Math.max(benchNanos, resetTokensNanos);
+        }
+        if (benchNanos > 0) {
+            exhausted.incrementAndGet();
+            bench(now + benchNanos, REASON_EXHAUSTED);
+        }
+    }
+
+    /**
+     * Bench the key after the provider refused it
+     *
+     * @param status 429, or 401/403 for a key that was rejected
+     * @param headers The headers of the answer, for {@code Retry-After} and the reset times
+     * @param rateLimitBenchNanos How long to bench a rate-limited key that says nothing about when to come back
+     * @param authBenchNanos How long to bench a rejected key
+     */
+    synchronized void onRejected(int status, HttpHeaders headers, long rateLimitBenchNanos, long authBenchNanos) {
+        long now = System.nanoTime();
+        if (status == 429) {
+            rateLimited.incrementAndGet();
+            long benchNanos = TimeUnit.MILLISECONDS.toNanos(UpstreamThrottle.retryAfterMillis(headers));
+            if (benchNanos == 0 && headers != null) {
+                benchNanos = Math.max(durationNanos(headers.getFirst(RESET_REQUESTS)), durationNanos(headers.getFirst(RESET_TOKENS)));
+            }
+            bench(now + (benchNanos > 0 ? benchNanos : rateLimitBenchNanos), REASON_RATE_LIMITED);
+        } else {
+            unauthorized.incrementAndGet();
+            bench(now + authBenchNanos, REASON_UNAUTHORIZED);
+        }
+    }
+
+    private void bench(long untilNanos, String reason) {
+        if (untilNanos - benchedUntilNanos > 0) {
+            benchedUntilNanos = untilNanos;
+            benchReason = reason;
+        }
+    }
+
+    private static long longHeader(HttpHeaders headers, String name, long fallback) {
+        String value = headers.getFirst(name);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Parse a reset duration such as {@code "6m0s"} or {@code "20ms"}
+     *
+     * @return The duration in nanoseconds, or 0 if missing or unparseable
+     */
+    static long durationNanos(String value) {
+        if (value == null) {
+            return 0;
+        }
+        Matcher matcher = DURATION_PART.matcher(value.trim());
+        double millis = 0;
+        int end = 0;
+        while (matcher.find()) {
+            if (matcher.start() != end) {
+                return 0;
+            }
+            double amount = Double.parseDouble(matcher.group(1));
+            switch (matcher.group(2)) {
+                case "h":
+                    millis += amount * 3_600_000;
+                    break;
+                case "m":
+                    millis += amount * 60_000;
+                    break;
+                case "s":
+                    millis += amount * 1000;
+                    break;
+                default:
+                    millis += amount;
+            }
+            end = matcher.end();
+        }
+        return end == value.trim().length() ? (long) (millis * 1_000_000) : 0;
+    }
+
+    synchronized Map<String, Object> getStats() {
+        long now = System.nanoTime();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("key", mask(value));
+        boolean benched = isBenched(now);
+        stats.put("state", benched ? "benched" : "active");
+        stats.put("bench_reason", benched ? benchReason : null);
+        stats.put("benched_ms", benched ? (benchedUntilNanos - now) / 1_000_000 : 0);
+        stats.put("headroom", headroom(now));
+        stats.put("remaining_requests", remainingRequests);
+        stats.put("remaining_tokens", remainingTokens);
+        stats.put("limit_requests", limitRequests);
+        stats.put("limit_tokens", limitTokens);
+        stats.put("in_flight", inFlight.get());
+        stats.put("calls", calls.get());
+        stats.put("exhausted", exhausted.get());
+        stats.put("rate_limited", rateLimited.get());
+        stats.put("unauthorized", unauthorized.get());
+        return stats;
+    }
+
+    private static String mask(String key) {
+        return key == null || key.length() < 8 ? "***" : key.substring(0, 3) + "..." + key.substring(key.length() - 4);
+    }
+}
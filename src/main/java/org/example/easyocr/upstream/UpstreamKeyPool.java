@@ -0,0 +1,151 @@
+package org.example.easyocr.upstream;
+
+import org.springframework.http.HttpHeaders;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The API keys of one endpoint. Each call takes the key with the most quota left according to
+ * the rate-limit headers of its last answer, so the load follows the quota that is actually
+ * there rather than a fixed rotation. A key whose quota is nearly used up sits out until the
+ * quota resets; a key that got a 429 sits out until the provider says to come back, and a key
+ * that was rejected with 401 or 403 for longer.
+ */
+public class UpstreamKeyPool {
+
+    private final List<UpstreamKey> keys;
+    private final long minRemainingRequests;
+    private final long minRemainingTokens;
+    private final long rateLimitBenchNanos;
+    private final long authBenchNanos;
+
+    // Where ties are broken, so keys without quota information take turns
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicLong allBenched = new AtomicLong();
+
+    UpstreamKeyPool(List<UpstreamKey> keys, long minRemainingRequests, long minRemainingTokens,
+                    long rateLimitBenchNanos, long authBenchNanos) {
+        this.keys = Collections.unmodifiableList(keys);
+        this.minRemainingRequests = minRemainingRequests;
+        this.minRemainingTokens = minRemainingTokens;
+        this.rateLimitBenchNanos = rateLimitBenchNanos;
+        this.authBenchNanos = authBenchNanos;
+    }
+
+    public List<UpstreamKey> getKeys() {
+        return keys;
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * @return Whether any key is not benched
+     */
+    public boolean hasActiveKey() {
+        long now = System.nanoTime();
+        for (UpstreamKey key : keys) {
+            if (!key.isBenched(now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Take the key with the most headroom for a call; the one that comes back first if all are
+     * benched, so calls still go out and the provider's answer decides
+     *
+     * @return The key, to be given back with {@link #release}
+     */
+    UpstreamKey acquire() {
+        long now = System.nanoTime();
+        int size = keys.size();
+        int offset = Math.floorMod(next.getAndIncrement(), size);
+        UpstreamKey best = null;
+        double bestHeadroom = 0;
+        UpstreamKey earliest = null;
+        for (int i = 0; i < size; i++) {
+            UpstreamKey key = keys.get((offset + i) % size);
+            if (key.isBenched(now)) {
+                if (earliest == null || key.getBenchedUntilNanos() - earliest.getBenchedUntilNanos() < 0) {
+                    earliest = key;
+                }
+                continue;
+            }
+            double headroom = key.headroom(now);
+            if (best == null || headroom > bestHeadroom
+                    || (headroom == bestHeadroom && key.getInFlight() < best.getInFlight())) {
+                best = key;
+                bestHeadroom = headroom;
+            }
+        }
+        if (best == null) {
+            allBenched.incrementAndGet();
+            best = earliest;
+        }
+        best.onStart();
+        return best;
+    }
+
+    void release(UpstreamKey key) {
+        key.onEnd();
+    }
+
+    /**
+     * Take the quota the provider reported for the key with an answer
+     *
+     * @param key The key the call was sent with
+     * @param headers The headers of the answer
+     */
+    public void onResponse(UpstreamKey key, HttpHeaders headers) {
+        key.updateQuota(headers, minRemainingRequests, minRemainingTokens);
+    }
+
+    /**
+     * Bench the key after it was refused with 429, 401 or 403
+     */
+    void onRejected(UpstreamKey key, int status, HttpHeaders headers) {
+        key.updateQuota(headers, minRemainingRequests, minRemainingTokens);
+        key.onRejected(status, headers, rateLimitBenchNanos, authBenchNanos);
+    }
+
+    /**
+     * Refusals that are about the key rather than the endpoint
+     */
+    static boolean isKeyRejection(int status) {
+        return status == 401 || status == 403 || status == 429;
+    }
+
+    long getAllBenched() {
+        return allBenched.get();
+    }
+
+    int getActiveCount() {
+        long now = System.nanoTime();
+        int active = 0;
+        for (UpstreamKey key : keys) {
+            if (!key.isBenched(now)) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    /**
+     * @return The stats of each key by name
+     */
+    Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        for (UpstreamKey key : keys) {
+            stats.put(key.getName(), key.getStats());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.easyocr.upstream;
+
+import org.springframework.web.client.RestClientResponseException;
+
+/**
+ * Thrown when the provider refused the API key of a call with 429, 401 or 403 while the
+ * endpoint still has other keys, so the call can be repeated with one of those right away.
+ * Carries the status, headers and body of the refusal.
+ */
+public class UpstreamKeyRejectedException extends RestClientResponseException {
+
+    private final String keyName;
+
+    UpstreamKeyRejectedException(String keyName, RestClientResponseException cause) {
+        super(cause.getMessage(), cause.getRawStatusCode(), cause.getStatusText(), cause.getResponseHeaders(),
+                cause.getResponseBodyAsByteArray(), null);
+        this.keyName = keyName;
+        initCause(cause);
+    }
+
+    public String getKeyName() {
+        return keyName;
+    }
+}
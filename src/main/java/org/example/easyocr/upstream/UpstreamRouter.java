@@ -0,0 +1,473 @@
+package org.example.easyocr.upstream;
+
+import org.example.easyocr.metrics.StatsSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * Spreads upstream calls over the configured endpoints.
+ * <p>
+ * Each call goes to the cheaper of two endpoints drawn by weight, where the cost is the moving
+ * average latency times the calls already in flight there. Endpoints whose circuit breaker is
+ * open are left out until their trial call succeeds. With hedging enabled, a call that has not
+ * been answered after the hedge delay (the configured percentile of the endpoint's recent
+ * latencies) is sent to a second endpoint as well; the first answer wins and the other request
+ * is aborted.
+ * <p>
+ * Within an endpoint, each call goes out with the key of its {@link UpstreamKeyPool} that has
+ * the most quota left. A key that is refused with 429, 401 or 403 is benched; while the
+ * endpoint has other keys that does not count against its breaker, and the call fails with
+ * {@link UpstreamKeyRejectedException} so the throttle repeats it with another key at once.
+ */
+@Component
+public class UpstreamRouter implements StatsSource {
+
+    private static final Logger logger = Logger.getLogger(UpstreamRouter.class.getName());
+
+    private final UpstreamEndpointProperties properties;
+
+    @Value("${openai.api.url}")
+    private String defaultUrl;
+
+    @Value("${openai.api.key}")
+    private String defaultKey;
+
+    @Value("${openai.api.keys:}")
+    private List<String> defaultKeys;
+
+    @Value("${openai.model}")
+    private String defaultModel;
+
+    @Value("${app.upstream.breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${app.upstream.breaker.open-duration:30000}")
+    private long openDurationMillis;
+
+    @Value("${app.upstream.hedging.enabled:false}")
+    private boolean hedgingEnabled;
+
+    @Value("${app.upstream.hedging.percentile:95}")
+    private double hedgePercentile;
+
+    @Value("${app.upstream.hedging.min-samples:20}")
+    private int hedgeMinSamples;
+
+    @Value("${app.upstream.hedging.min-delay:1000}")
+    private long hedgeMinDelayMillis;
+
+    @Value("${app.upstream.hedging.max-delay:20000}")
+    private long hedgeMaxDelayMillis;
+
+    @Value("${app.upstream.keys.min-remaining-requests:1}")
+    private long minRemainingRequests;
+
+    @Value("${app.upstream.keys.min-remaining-tokens:2000}")
+    private long minRemainingTokens;
+
+    @Value("${app.upstream.keys.rate-limit-bench:10000}")
+    private long rateLimitBenchMillis;
+
+    @Value("${app.upstream.keys.auth-bench:600000}")
+    private long authBenchMillis;
+
+    private List<UpstreamEndpoint> endpoints;
+    private ExecutorService executor;
+
+    private final AtomicLong hedged = new AtomicLong();
+    private final AtomicLong hedgesWon = new AtomicLong();
+    private final AtomicLong unavailable = new AtomicLong();
+
+    public UpstreamRouter(UpstreamEndpointProperties properties) {
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void start() {
+        List<UpstreamEndpoint> configured = new ArrayList<>();
+        for (UpstreamEndpointProperties.Endpoint endpoint : properties.getEndpoints()) {
+            String model = endpoint.getModel() != null ? endpoint.getModel() : defaultModel;
+            String name = endpoint.getName() != null ? endpoint.getName() : URI.create(endpoint.getUrl()).getHost();
+            configured.add(new UpstreamEndpoint(name, endpoint.getUrl(), keyPool(endpoint.getKey(), endpoint.getKeys()), model,
+                    endpoint.getWeight(), new CircuitBreaker(failureThreshold, openDurationMillis)));
+        }
+        if (configured.isEmpty()) {
+            configured.add(new UpstreamEndpoint("default", defaultUrl, keyPool(defaultKey, defaultKeys), defaultModel, 1,
+                    new CircuitBreaker(failureThreshold, openDurationMillis)));
+        }
+        endpoints = Collections.unmodifiableList(configured);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "ocr-hedge-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Routing upstream calls over " + endpoints.size() + " endpoint(s) with " + getKeyCount()
+                + " key(s), hedging " + (hedgingEnabled ? "enabled" : "disabled"));
+    }
+
+    /**
+     * The key and the additional keys, without blanks and duplicates, named by their position
+     */
+    private UpstreamKeyPool keyPool(String key, List<String> additionalKeys) {
+        Set<String> values = new LinkedHashSet<>();
+        if (key != null && !key.isBlank()) {
+            values.add(key.trim());
+        }
+        if (additionalKeys != null) {
+            for (String additionalKey : additionalKeys) {
+                if (additionalKey != null && !additionalKey.isBlank()) {
+                    values.add(additionalKey.trim());
+                }
+            }
+        }
+        if (values.isEmpty()) {
+            // Sent as is, the provider will say what is wrong with it
+            values.add(key != null ? key : "");
+        }
+        List<UpstreamKey> keys = new ArrayList<>(values.size());
+        for (String value : values) {
+            keys.add(new UpstreamKey("key-" + (keys.size() + 1), value));
+        }
+        return new UpstreamKeyPool(keys, minRemainingRequests, minRemainingTokens,
+                TimeUnit.MILLISECONDS.toNanos(rateLimitBenchMillis), TimeUnit.MILLISECONDS.toNanos(authBenchMillis));
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public List<UpstreamEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * @return The number of API keys over all endpoints
+     */
+    public int getKeyCount() {
+        int count = 0;
+        for (UpstreamEndpoint endpoint : endpoints) {
+            count += endpoint.getKeys().size();
+        }
+        return count;
+    }
+
+    /**
+     * @return Whether a call would be let through now, false while the circuit breakers of all endpoints are open
+     */
+    public boolean isAvailable() {
+        for (UpstreamEndpoint endpoint : endpoints) {
+            if (endpoint.getBreaker().isCallPermitted()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Send a call to the best available endpoint
+     *
+     * @param call Sends the request to the given endpoint
+     * @param hedgeable Whether the call may be sent to a second endpoint when the first is slow;
+     *                  false for calls that relay the answer while it arrives
+     * @return The answer of the endpoint that answered first
+     * @throws UpstreamUnavailableException If the circuit breakers of all endpoints are open
+     */
+    public <T> T execute(Function<UpstreamEndpoint, T> call, boolean hedgeable) {
+        return execute((endpoint, key) -> call.apply(endpoint), hedgeable);
+    }
+
+    /**
+     * Send a call to the best available endpoint with the key that has the most quota left
+     *
+     * @param call Sends the request to the given endpoint with the given key
+     * @param hedgeable Whether the call may be sent to a second endpoint when the first is slow;
+     *                  false for calls that relay the answer while it arrives
+     * @return The answer of the endpoint that answered first
+     * @throws UpstreamUnavailableException If the circuit breakers of all endpoints are open
+     * @throws UpstreamKeyRejectedException If the key was refused and the endpoint has other keys
+     */
+    public <T> T execute(BiFunction<UpstreamEndpoint, UpstreamKey, T> call, boolean hedgeable) {
+        UpstreamEndpoint primary = acquire(Collections.emptySet());
+        if (primary == null) {
+            unavailable.incrementAndGet();
+            throw new UpstreamUnavailableException("All " + endpoints.size() + " upstream endpoints are unavailable");
+        }
+        if (!hedgeable || !hedgingEnabled || endpoints.size() < 2) {
+            return attempt(primary, call, null);
+        }
+        return executeHedged(primary, call);
+    }
+
+    private <T> T executeHedged(UpstreamEndpoint primary, BiFunction<UpstreamEndpoint, UpstreamKey, T> call) {
+        RequestAbortHandle primaryHandle = new RequestAbortHandle();
+        CompletableFuture<T> first = CompletableFuture.supplyAsync(() -> attempt(primary, call, primaryHandle), executor);
+        try {
+            return first.get(hedgeDelayNanos(primary), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Slow, hedge below
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            primaryHandle.abort();
+            Thread.currentThread().interrupt();
+            throw new RestClientException("Interrupted while waiting for the upstream answer");
+        }
+
+        UpstreamEndpoint secondary = acquire(Set.of(primary));
+        if (secondary == null) {
+            return await(first, primaryHandle);
+        }
+        hedged.incrementAndGet();
+        secondary.onHedge();
+        logger.fine("No answer from " + primary.getName() + " yet, hedging to " + secondary.getName());
+        RequestAbortHandle secondaryHandle = new RequestAbortHandle();
+        CompletableFuture<T> second = CompletableFuture.supplyAsync(() -> attempt(secondary, call, secondaryHandle), executor);
+
+        // The first success wins; only when both fail does the pair fail
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        AtomicBoolean decided = new AtomicBoolean();
+        AtomicBoolean secondWon = new AtomicBoolean();
+        first.whenComplete((result, failure) -> {
+            if (failure == null) {
+                if (decided.compareAndSet(false, true)) {
+                    winner.complete(result);
+                }
+            } else if (failures.incrementAndGet() == 2) {
+                winner.completeExceptionally(failure);
+            }
+        });
+        second.whenComplete((result, failure) -> {
+            if (failure == null) {
+                if (decided.compareAndSet(false, true)) {
+                    secondWon.set(true);
+                    winner.complete(result);
+                }
+            } else if (failures.incrementAndGet() == 2) {
+                winner.completeExceptionally(failure);
+            }
+        });
+        try {
+            T result = await(winner, null);
+            if (secondWon.get()) {
+                hedgesWon.incrementAndGet();
+            }
+            return result;
+        } finally {
+            if (!first.isDone()) {
+                primaryHandle.abort();
+            }
+            if (!second.isDone()) {
+                secondaryHandle.abort();
+            }
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future, RequestAbortHandle handle) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (InterruptedException e) {
+            if (handle != null) {
+                handle.abort();
+            }
+            Thread.currentThread().interrupt();
+            throw new RestClientException("Interrupted while waiting for the upstream answer");
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable failure) {
+        if (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        return failure instanceof RuntimeException ? (RuntimeException) failure : new CompletionException(failure);
+    }
+
+    private <T> T attempt(UpstreamEndpoint endpoint, BiFunction<UpstreamEndpoint, UpstreamKey, T> call, RequestAbortHandle handle) {
+        // Calls that are not hedged get a handle too, so a streamed answer can be abandoned
+        RequestAbortHandle abortHandle = handle != null ? handle : new RequestAbortHandle();
+        RequestAbortHandle previous = RequestAbortHandle.bind(abortHandle);
+        UpstreamKeyPool keys = endpoint.getKeys();
+        UpstreamKey key = keys.acquire();
+        endpoint.onStart();
+        long start = System.nanoTime();
+        try {
+            T result = call.apply(endpoint, key);
+            endpoint.onSuccess(System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            if (abortHandle.isAborted() || e instanceof StreamAbortedException) {
+                endpoint.onIgnored();
+            } else if (isKeyRejection(e)) {
+                RestClientResponseException refusal = (RestClientResponseException) e;
+                keys.onRejected(key, refusal.getRawStatusCode(), refusal.getResponseHeaders());
+                if (keys.hasActiveKey()) {
+                    // Only this key was refused, the endpoint still has others
+                    endpoint.onIgnored();
+                    logger.warning("Key " + key.getName() + " of " + endpoint.getName() + " refused with "
+                            + refusal.getRawStatusCode() + ", benched");
+                    throw new UpstreamKeyRejectedException(key.getName(), refusal);
+                }
+                endpoint.onFailure();
+            } else if (isEndpointFailure(e)) {
+                endpoint.onFailure();
+            } else {
+                // The endpoint answered, the request itself was refused
+                endpoint.onSuccess(System.nanoTime() - start);
+            }
+            throw e;
+        } finally {
+            keys.release(key);
+            RequestAbortHandle.restore(previous);
+        }
+    }
+
+    private static boolean isKeyRejection(RuntimeException e) {
+        return e instanceof RestClientResponseException
+                && UpstreamKeyPool.isKeyRejection(((RestClientResponseException) e).getRawStatusCode());
+    }
+
+    /**
+     * Failures that say something about the endpoint rather than the request: no connection,
+     * rate limits, server errors and rejected credentials
+     */
+    static boolean isEndpointFailure(RuntimeException e) {
+        if (e instanceof ResourceAccessException) {
+            return true;
+        }
+        if (e instanceof RestClientResponseException) {
+            int status = ((RestClientResponseException) e).getRawStatusCode();
+            return status == 401 || status == 403 || status == 429 || status >= 500;
+        }
+        return false;
+    }
+
+    /**
+     * Pick the cheaper of two endpoints drawn by weight and reserve a call on its breaker
+     *
+     * @param excluded Endpoints not to use
+     * @return The endpoint, or null if none is available
+     */
+    private UpstreamEndpoint acquire(Set<UpstreamEndpoint> excluded) {
+        Set<UpstreamEndpoint> tried = new HashSet<>(excluded);
+        while (true) {
+            List<UpstreamEndpoint> candidates = new ArrayList<>(endpoints.size());
+            for (UpstreamEndpoint endpoint : endpoints) {
+                if (!tried.contains(endpoint) && endpoint.getBreaker().isCallPermitted()) {
+                    candidates.add(endpoint);
+                }
+            }
+            if (candidates.isEmpty()) {
+                return null;
+            }
+            // Endpoints whose keys are all benched only when there is nothing else
+            List<UpstreamEndpoint> withKeys = new ArrayList<>(candidates.size());
+            for (UpstreamEndpoint endpoint : candidates) {
+                if (endpoint.getKeys().hasActiveKey()) {
+                    withKeys.add(endpoint);
+                }
+            }
+            if (!withKeys.isEmpty()) {
+                candidates = withKeys;
+            }
+            UpstreamEndpoint chosen = drawByWeight(candidates);
+            if (candidates.size() > 1) {
+                candidates.remove(chosen);
+                UpstreamEndpoint other = drawByWeight(candidates);
+                if (other.cost() < chosen.cost()) {
+                    chosen = other;
+                }
+            }
+            // Another call may have taken the single half-open trial in the meantime
+            if (chosen.getBreaker().tryAcquire()) {
+                return chosen;
+            }
+            tried.add(chosen);
+        }
+    }
+
+    private static UpstreamEndpoint drawByWeight(List<UpstreamEndpoint> candidates) {
+        int total = 0;
+        for (UpstreamEndpoint endpoint : candidates) {
+            total += endpoint.getWeight();
+        }
+        int draw = ThreadLocalRandom.current().nextInt(total);
+        for (UpstreamEndpoint endpoint : candidates) {
+            draw -= endpoint.getWeight();
+            if (draw < 0) {
+                return endpoint;
+            }
+        }
+        return candidates.get(candidates.size() - 1);
+    }
+
+    /**
+     * The configured percentile of the endpoint's recent latencies, within the configured
+     * bounds; the upper bound until enough calls have been seen
+     */
+    long hedgeDelayNanos(UpstreamEndpoint endpoint) {
+        long maxNanos = TimeUnit.MILLISECONDS.toNanos(hedgeMaxDelayMillis);
+        LatencyWindow latencies = endpoint.getLatencies();
+        if (latencies.size() < hedgeMinSamples) {
+            return maxNanos;
+        }
+        long minNanos = TimeUnit.MILLISECONDS.toNanos(hedgeMinDelayMillis);
+        return Math.max(minNanos, Math.min(maxNanos, latencies.percentile(hedgePercentile)));
+    }
+
+    @Override
+    public String getStatsName() {
+        return "endpoints";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hedging_enabled", hedgingEnabled);
+        stats.put("hedged", hedged.get());
+        stats.put("hedges_won", hedgesWon.get());
+        stats.put("unavailable", unavailable.get());
+        for (UpstreamEndpoint endpoint : endpoints) {
+            Map<String, Object> endpointStats = endpoint.getStats();
+            endpointStats.put("hedge_delay_ms", hedgeDelayNanos(endpoint) / 1_000_000.0);
+            stats.put(endpoint.getName(), endpointStats);
+            for (Map.Entry<String, Map<String, Object>> key : endpoint.getKeys().getStats().entrySet()) {
+                stats.put(endpoint.getName() + "." + key.getKey(), key.getValue());
+            }
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,348 @@
+package org.example.easyocr.upstream;
+
+import org.apache.http.conn.ConnectTimeoutException;
+import org.example.easyocr.metrics.StatsSource;
+import org.example.easyocr.metrics.TimerStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import javax.annotation.PostConstruct;
+import java.net.ConnectException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Throttles calls to the upstream API so bursts slow down instead of failing.
+ * <p>
+ * Each call first takes one request and its estimated tokens from per-minute token buckets
+ * that mirror the provider's limits, then a slot from an {@link AimdLimiter} whose limit
+ * follows the 429s and latencies the provider actually produces. Answers 429 and 5xx, and
+ * failures to connect, are retried with jittered exponential backoff; a {@code Retry-After}
+ * header takes precedence over the backoff and also pauses all other calls for that long.
+ * <p>
+ * The per-minute limits and the concurrency ceiling are those of one API key and are
+ * multiplied by the number of keys of {@link UpstreamRouter}. A call refused for its key
+ * alone ({@link UpstreamKeyRejectedException}) is repeated with another key straight away,
+ * without backing off or pausing the other calls.
+ */
+@Component
+public class UpstreamThrottle implements StatsSource {
+
+    private static final Logger logger = Logger.getLogger(UpstreamThrottle.class.getName());
+
+    /**
+     * Tokens billed for an image sent with {@code "detail": "low"}, regardless of its size
+     */
+    public static final int LOW_DETAIL_IMAGE_TOKENS = 85;
+
+    private final IntSupplier keyCount;
+
+    @Value("${app.upstream.requests-per-minute:500}")
+    private long requestsPerMinute;
+
+    @Value("${app.upstream.tokens-per-minute:200000}")
+    private long tokensPerMinute;
+
+    @Value("${app.upstream.image-tokens:1000}")
+    private int imageTokens;
+
+    @Value("${app.upstream.max-queue-wait:60000}")
+    private long maxQueueWaitMillis;
+
+    @Value("${app.upstream.retry.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${app.upstream.retry.initial-backoff:500}")
+    private long initialBackoffMillis;
+
+    @Value("${app.upstream.retry.max-backoff:30000}")
+    private long maxBackoffMillis;
+
+    @Value("${app.upstream.concurrency.initial-limit:8}")
+    private int initialLimit;
+
+    @Value("${app.upstream.concurrency.min-limit:1}")
+    private int minLimit;
+
+    @Value("${app.upstream.concurrency.max-limit:64}")
+    private int maxLimit;
+
+    @Value("${app.upstream.concurrency.latency-threshold:30000}")
+    private long latencyThresholdMillis;
+
+    private TokenBucket requestBucket;
+    private TokenBucket tokenBucket;
+    private AimdLimiter limiter;
+
+    // Set from Retry-After, no call starts before this
+    private volatile long pausedUntilNanos = System.nanoTime();
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong serverErrors = new AtomicLong();
+    private final AtomicLong keyFailovers = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final TimerStats queueWait = new TimerStats();
+    private final TimerStats latency = new TimerStats();
+
+    /**
+     * Limits for a single key
+     */
+    public UpstreamThrottle() {
+        this.keyCount = () -> 1;
+    }
+
+    @Autowired
+    public UpstreamThrottle(UpstreamRouter upstreamRouter) {
+        this.keyCount = upstreamRouter::getKeyCount;
+    }
+
+    @PostConstruct
+    public void start() {
+        int keys = Math.max(1, keyCount.getAsInt());
+        requestBucket = requestsPerMinute > 0 ? new TokenBucket(requestsPerMinute * keys) : null;
+        tokenBucket = tokensPerMinute > 0 ? new TokenBucket(tokensPerMinute * keys) : null;
+        limiter = new AimdLimiter(initialLimit, minLimit, maxLimit * keys, latencyThresholdMillis);
+    }
+
+    /**
+     * Estimate the tokens a request counts against the per-minute token limit, which
+     * providers charge up front including the requested completion length
+     *
+     * @param prompt The text prompt
+     * @return The estimated prompt, image and completion tokens
+     */
+    public int estimateTokens(String prompt) {
+        return estimateTokens(prompt, ChatCompletionRequestWriter.MAX_TOKENS, null);
+    }
+
+    /**
+     * Estimate the tokens of a request with a smaller completion bound or a low-detail image
+     *
+     * @param prompt The text prompt
+     * @param maxTokens The requested completion length
+     * @param detail The image detail, {@code "low"} images cost a fixed {@value #LOW_DETAIL_IMAGE_TOKENS} tokens
+     * @return The estimated prompt, image and completion tokens
+     */
+    public int estimateTokens(String prompt, int maxTokens, String detail) {
+        // Roughly four characters per token for English text
+        int image = "low".equals(detail) ? LOW_DETAIL_IMAGE_TOKENS : imageTokens;
+        return prompt.length() / 4 + image + maxTokens;
+    }
+
+    /**
+     * @return The number of calls the provider currently takes at once
+     */
+    public int getConcurrencyLimit() {
+        return limiter.getLimit();
+    }
+
+    /**
+     * Run an upstream call once rate limits and the concurrency limit allow, retrying
+     * rate-limit answers, server errors and connection failures
+     *
+     * @param estimatedTokens The tokens the call is expected to use, see {@link #estimateTokens}
+     * @param call The call, must be safe to repeat
+     * @return The result of the call
+     * @throws UpstreamThrottledException If no slot became free within {@code app.upstream.max-queue-wait}
+     */
+    public <T> T execute(int estimatedTokens, Supplier<T> call) {
+        for (int attempt = 1; ; attempt++) {
+            acquire(estimatedTokens);
+            calls.incrementAndGet();
+            long start = System.nanoTime();
+            long retryDelayMillis;
+            try {
+                T result = call.get();
+                limiter.onSuccess(System.nanoTime() - start);
+                return result;
+            } catch (UpstreamKeyRejectedException e) {
+                // The key is benched, the next attempt gets another one
+                keyFailovers.incrementAndGet();
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                retryDelayMillis = 0;
+                logger.warning("Upstream refused key " + e.getKeyName() + " with " + e.getRawStatusCode()
+                        + ", retrying with another key (attempt " + attempt + ")");
+            } catch (RestClientResponseException e) {
+                int status = e.getRawStatusCode();
+                if (status != 429 && status < 500) {
+                    throw e;
+                }
+                limiter.onOverload();
+                long retryAfterMillis = retryAfterMillis(e.getResponseHeaders());
+                if (status == 429) {
+                    rateLimited.incrementAndGet();
+                    if (retryAfterMillis > 0) {
+                        pausedUntilNanos = Math.max(pausedUntilNanos, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis));
+                    }
+                } else {
+                    serverErrors.incrementAndGet();
+                }
+                // 501 will not go away, and neither will a Retry-After beyond what we are willing to wait
+                if (attempt >= maxAttempts || status == 501 || retryAfterMillis > maxBackoffMillis) {
+                    throw e;
+                }
+                retryDelayMillis = retryAfterMillis > 0 ? retryAfterMillis + jitter(initialBackoffMillis) : backoffMillis(attempt);
+                logger.warning("Upstream answered " + status + ", retrying in " + retryDelayMillis + " ms (attempt " + attempt + ")");
+            } catch (ResourceAccessException e) {
+                // Only retry when nothing was sent: a broken stream may already have been partly relayed
+                if (attempt >= maxAttempts || !isConnectFailure(e)) {
+                    throw e;
+                }
+                retryDelayMillis = backoffMillis(attempt);
+                logger.warning("Could not connect upstream, retrying in " + retryDelayMillis + " ms (attempt " + attempt + ")");
+            } finally {
+                latency.record(System.nanoTime() - start);
+                limiter.release();
+            }
+            retries.incrementAndGet();
+            sleep(retryDelayMillis);
+        }
+    }
+
+    private void acquire(int estimatedTokens) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxQueueWaitMillis);
+        try {
+            while (true) {
+                long waitNanos = pausedUntilNanos - System.nanoTime();
+                if (waitNanos <= 0) {
+                    waitNanos = takeFromBuckets(estimatedTokens);
+                    if (waitNanos == 0) {
+                        break;
+                    }
+                }
+                if (System.nanoTime() + waitNanos > deadline) {
+                    rejected.incrementAndGet();
+                    throw new UpstreamThrottledException("Upstream rate limit reached, no capacity within " + maxQueueWaitMillis + " ms");
+                }
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+            if (!limiter.acquire(deadline - System.nanoTime())) {
+                rejected.incrementAndGet();
+                throw new UpstreamThrottledException("Upstream concurrency limit reached, no slot within " + maxQueueWaitMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UpstreamThrottledException("Interrupted while waiting for upstream capacity");
+        } finally {
+            queueWait.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Take one request and the tokens from both buckets, or neither
+     *
+     * @return 0 if taken, otherwise the nanoseconds until both have enough
+     */
+    private synchronized long takeFromBuckets(int estimatedTokens) {
+        long waitNanos = Math.max(
+                requestBucket != null ? requestBucket.nanosUntilAvailable(1) : 0,
+                tokenBucket != null ? tokenBucket.nanosUntilAvailable(estimatedTokens) : 0);
+        if (waitNanos == 0) {
+            if (requestBucket != null) {
+                requestBucket.consume(1);
+            }
+            if (tokenBucket != null) {
+                tokenBucket.consume(estimatedTokens);
+            }
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Exponential backoff with equal jitter: half the delay is fixed, half random, so
+     * callers that failed together do not retry together
+     */
+    private long backoffMillis(int attempt) {
+        long delay = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+        return delay / 2 + jitter(delay / 2);
+    }
+
+    private static long jitter(long bound) {
+        return bound > 0 ? ThreadLocalRandom.current().nextLong(bound + 1) : 0;
+    }
+
+    /**
+     * Parse a {@code Retry-After} header, given either in seconds or as an HTTP date
+     *
+     * @return The delay in milliseconds, or 0 if there is no usable header
+     */
+    static long retryAfterMillis(HttpHeaders headers) {
+        String value = headers != null ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null;
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        try {
+            return Math.max(0, (long) (Double.parseDouble(value.trim()) * 1000));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+            } catch (RuntimeException unparseable) {
+                return 0;
+            }
+        }
+    }
+
+    private static boolean isConnectFailure(ResourceAccessException e) {
+        Throwable cause = e.getCause();
+        return cause instanceof ConnectException || cause instanceof ConnectTimeoutException;
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UpstreamThrottledException("Interrupted while backing off");
+        }
+    }
+
+    @Override
+    public String getStatsName() {
+        return "upstream";
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("concurrency_limit", limiter.getLimit());
+        stats.put("in_flight", limiter.getInFlight());
+        stats.put("limit_increases", limiter.getIncreases());
+        stats.put("limit_decreases", limiter.getDecreases());
+        synchronized (this) {
+            stats.put("requests_available", requestBucket != null ? (long) requestBucket.getAvailable() : -1);
+            stats.put("tokens_available", tokenBucket != null ? (long) tokenBucket.getAvailable() : -1);
+        }
+        stats.put("paused_ms", Math.max(0, TimeUnit.NANOSECONDS.toMillis(pausedUntilNanos - System.nanoTime())));
+        stats.put("calls", calls.get());
+        stats.put("retries", retries.get());
+        stats.put("rate_limited", rateLimited.get());
+        stats.put("server_errors", serverErrors.get());
+        stats.put("key_failovers", keyFailovers.get());
+        stats.put("rejected", rejected.get());
+        queueWait.putInto(stats, "queue_wait");
+        latency.putInto(stats, "latency");
+        return stats;
+    }
+}
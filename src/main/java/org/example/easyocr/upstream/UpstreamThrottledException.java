@@ -0,0 +1,13 @@
+package org.example.easyocr.upstream;
+
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Thrown when a call could not get a rate-limit or concurrency slot in time
+ */
+public class UpstreamThrottledException extends RestClientException {
+
+    public UpstreamThrottledException(String message) {
+        super(message);
+    }
+}
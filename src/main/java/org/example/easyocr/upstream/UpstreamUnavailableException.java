@@ -0,0 +1,13 @@
+package org.example.easyocr.upstream;
+
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Thrown when no upstream endpoint can take a call because all circuit breakers are open
+ */
+public class UpstreamUnavailableException extends RestClientException {
+
+    public UpstreamUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,54 @@
+-- OCR result cache, keyed by SHA-256 of image bytes + prompt + model
+CREATE TABLE IF NOT EXISTS ocr_result_cache (
+    cache_key   VARCHAR(64)  NOT NULL PRIMARY KEY,
+    image_hash  VARCHAR(64)  NOT NULL,
+    model       VARCHAR(128),
+    result_json CLOB         NOT NULL,
+    created_at  TIMESTAMP    NOT NULL,
+    expires_at  TIMESTAMP    NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_ocr_result_cache_expires_at ON ocr_result_cache (expires_at);
+
+-- Asynchronous OCR jobs; rows in RUNNING with an expired lease are picked up again
+CREATE TABLE IF NOT EXISTS ocr_job (
+    id               VARCHAR(36)   NOT NULL PRIMARY KEY,
+    status           VARCHAR(16)   NOT NULL,
+    mode             VARCHAR(16)   NOT NULL,
+    file_name        VARCHAR(255),
+    content_type     VARCHAR(128)  NOT NULL,
+    image_size       BIGINT,
+    image_data       BLOB,
+    result_json      CLOB,
+    error            VARCHAR(2000),
+    attempts         INT           NOT NULL DEFAULT 0,
+    lease_owner      VARCHAR(64),
+    lease_expires_at TIMESTAMP,
+    not_before       TIMESTAMP,
+    created_at       TIMESTAMP     NOT NULL,
+    started_at       TIMESTAMP,
+    finished_at      TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_ocr_job_status_created_at ON ocr_job (status, created_at);
+CREATE INDEX IF NOT EXISTS idx_ocr_job_finished_at ON ocr_job (finished_at);
+
+-- Every OCR result that was answered by an engine, for audits, re-exports and search
+CREATE TABLE IF NOT EXISTS ocr_result (
+    id                BIGINT        AUTO_INCREMENT PRIMARY KEY,
+    image_hash        VARCHAR(64)   NOT NULL,
+    endpoint          VARCHAR(64)   NOT NULL,
+    prompt_type       VARCHAR(64),
+    prompt_version    VARCHAR(16),
+    model             VARCHAR(128),
+    engine            VARCHAR(32),
+    outcome           VARCHAR(16)   NOT NULL,
+    extracted_text    CLOB,
+    result_json       CLOB,
+    prompt_tokens     BIGINT,
+    completion_tokens BIGINT,
+    total_tokens      BIGINT,
+    duration_ms       BIGINT,
+    created_at        TIMESTAMP     NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_ocr_result_created_at ON ocr_result (created_at);
+CREATE INDEX IF NOT EXISTS idx_ocr_result_image_hash ON ocr_result (image_hash);
+CREATE INDEX IF NOT EXISTS idx_ocr_result_endpoint_created_at ON ocr_result (endpoint, created_at);
@@ -186,13 +186,10 @@ document.addEventListener('DOMContentLoaded', function() {
             
             const endpoint = isDocumentMode ? '/api/ocr/document' : '/api/ocr/process';
             
-            fetch(endpoint, {
+            streamRequest(endpoint, {
                 method: 'POST',
                 body: formData
-            })
-            .then(handleResponse)
-            .then(displayResult)
-            .catch(handleError);
+            });
         }
     }
     
@@ -204,27 +201,88 @@ document.addEventListener('DOMContentLoaded', function() {
         
         const endpoint = isDocumentMode ? '/api/ocr/document-base64' : '/api/ocr/process-base64';
         
-        fetch(endpoint, {
+        streamRequest(endpoint, {
             method: 'POST',
             headers: {
                 'Content-Type': 'application/json'
             },
             body: JSON.stringify({ image: base64Image })
+        });
+    }
+
+    /**
+     * Send the request asking for server-sent events, so the text shows up while it is
+     * generated instead of after the whole answer
+     */
+    function streamRequest(endpoint, options) {
+        options.headers = Object.assign({}, options.headers, { 'Accept': 'text/event-stream' });
+        let streamedText = '';
+        
+        fetch(endpoint, options)
+        .then(response => {
+            console.log("Received response with status:", response.status);
+            const contentType = response.headers.get('Content-Type') || '';
+            if (!contentType.startsWith('text/event-stream')) {
+                throw new Error(`HTTP error! Status: ${response.status}`);
+            }
+            
+            // Error responses are event streams too, with a single error event
+            const reader = response.body.getReader();
+            const decoder = new TextDecoder();
+            let buffer = '';
+            
+            function pump() {
+                return reader.read().then(({ done, value }) => {
+                    if (done) {
+                        return;
+                    }
+                    buffer += decoder.decode(value, { stream: true });
+                    let match;
+                    while ((match = buffer.match(/\r?\n\r?\n/)) !== null) {
+                        const event = parseEvent(buffer.slice(0, match.index));
+                        buffer = buffer.slice(match.index + match[0].length);
+                        if (!event) {
+                            continue;
+                        }
+                        if (event.name === 'delta') {
+                            streamedText += event.data.text;
+                            displayDelta(streamedText);
+                        } else {
+                            displayResult(event.data);
+                        }
+                    }
+                    return pump();
+                });
+            }
+            return pump();
         })
-        .then(handleResponse)
-        .then(displayResult)
         .catch(handleError);
     }
 
     /**
-     * Handle the response from the API
+     * Parse one server-sent event into its name and JSON data
      */
-    function handleResponse(response) {
-        console.log("Received response with status:", response.status);
-        if (!response.ok) {
-            throw new Error(`HTTP error! Status: ${response.status}`);
-        }
-        return response.json();
+    function parseEvent(raw) {
+        let name = 'message';
+        const data = [];
+        raw.split(/\r?\n/).forEach(line => {
+            if (line.startsWith('event:')) {
+                name = line.slice(6).trim();
+            } else if (line.startsWith('data:')) {
+                data.push(line.slice(5).replace(/^ /, ''));
+            }
+        });
+        return data.length ? { name: name, data: JSON.parse(data.join('\n')) } : null;
+    }
+
+    /**
+     * Show the text received so far
+     */
+    function displayDelta(text) {
+        spinner.style.display = 'none';
+        resultContainer.style.display = 'block';
+        setResultTitle();
+        resultJson.textContent = text;
     }
 
     /**
@@ -256,13 +314,7 @@ document.addEventListener('DOMContentLoaded', function() {
             return;
         }
         
-        // Set the title based on the mode
-        const resultTitle = document.querySelector('#result-container h2');
-        if (typeof t === 'function') {
-            resultTitle.textContent = isDocumentMode ? t('extracted_fields') : t('extracted_text');
-        } else {
-            resultTitle.textContent = isDocumentMode ? 'Extracted Document Fields' : 'Extracted Text';
-        }
+        setResultTitle();
         
         // Format the JSON for display
         try {
@@ -276,6 +328,18 @@ document.addEventListener('DOMContentLoaded', function() {
         resultContainer.scrollIntoView({ behavior: 'smooth' });
     }
     
+    /**
+     * Set the title based on the mode
+     */
+    function setResultTitle() {
+        const resultTitle = document.querySelector('#result-container h2');
+        if (typeof t === 'function') {
+            resultTitle.textContent = isDocumentMode ? t('extracted_fields') : t('extracted_text');
+        } else {
+            resultTitle.textContent = isDocumentMode ? 'Extracted Document Fields' : 'Extracted Text';
+        }
+    }
+    
     // Copy JSON to clipboard when clicked
     resultJson.addEventListener('click', function() {
         const text = resultJson.textContent;
@@ -1,13 +1,27 @@
 package org.example.easyocr;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
 @SpringBootTest
 class EasyOcrApplicationTests {
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     void contextLoads() {
     }
 
+    @Test
+    void statsSourcesThatDependOnTheMetricsAreExported() {
+        // The engine router and the job worker reach OcrMetrics, which needs this registry
+        assertNotNull(meterRegistry.find("easyocr.engines.unavailable").gauge());
+        assertNotNull(meterRegistry.find("easyocr.jobs.claimed").gauge());
+    }
+
 }
@@ -0,0 +1,109 @@
+package org.example.easyocr.admission;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MemoryBudgetTest {
+
+    private static MemoryBudget newBudget(long maxBytes, int maxWaiting, long maxWaitMillis) {
+        MemoryBudget budget = new MemoryBudget();
+        ReflectionTestUtils.setField(budget, "enabled", true);
+        ReflectionTestUtils.setField(budget, "maxBytes", maxBytes);
+        ReflectionTestUtils.setField(budget, "maxWaiting", maxWaiting);
+        ReflectionTestUtils.setField(budget, "maxWait", maxWaitMillis);
+        budget.start();
+        return budget;
+    }
+
+    private static CompletableFuture<MemoryBudget.Reservation> reserveAsync(MemoryBudget budget, long bytes) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return budget.reserve(bytes);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Test
+    public void testWaitingRequestIsAdmittedWhenMemoryIsReleased() throws Exception {
+        // Given
+        MemoryBudget budget = newBudget(100, 4, 5000);
+        MemoryBudget.Reservation first = budget.reserve(80);
+
+        // When
+        CompletableFuture<MemoryBudget.Reservation> second = reserveAsync(budget, 50);
+        Thread.sleep(100);
+        assertFalse(second.isDone());
+        first.close();
+
+        // Then
+        assertEquals(50, second.get(1, TimeUnit.SECONDS).getBytes());
+        assertEquals(50L, budget.getReservedBytes());
+        assertEquals(80L, budget.getStats().get("peak_reserved_bytes"));
+        assertEquals(1L, budget.getStats().get("queued"));
+    }
+
+    @Test
+    public void testWaitingTooLongIsServiceUnavailable() throws Exception {
+        // Given
+        MemoryBudget budget = newBudget(100, 4, 50);
+        budget.reserve(100);
+
+        // When
+        MemoryBudget.BudgetExceededException e = assertThrows(MemoryBudget.BudgetExceededException.class,
+                () -> budget.reserve(10));
+
+        // Then
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatus());
+        assertEquals(1L, budget.getStats().get("rejected_timeout"));
+        assertEquals(0, budget.getStats().get("waiting"));
+    }
+
+    @Test
+    public void testTooManyWaitingIsTooManyRequests() throws Exception {
+        // Given
+        MemoryBudget budget = newBudget(100, 1, 5000);
+        MemoryBudget.Reservation first = budget.reserve(100);
+        CompletableFuture<MemoryBudget.Reservation> waiting = reserveAsync(budget, 10);
+        Thread.sleep(100);
+
+        // When
+        MemoryBudget.BudgetExceededException e = assertThrows(MemoryBudget.BudgetExceededException.class,
+                () -> budget.reserve(10));
+
+        // Then
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, e.getStatus());
+        first.close();
+        assertEquals(10, waiting.get(1, TimeUnit.SECONDS).getBytes());
+    }
+
+    @Test
+    public void testOversizedRequestRunsAlone() throws Exception {
+        // Given
+        MemoryBudget budget = newBudget(100, 4, 5000);
+        MemoryBudget.Reservation small = budget.reserve(10);
+
+        // When
+        CompletableFuture<MemoryBudget.Reservation> large = reserveAsync(budget, 500);
+        Thread.sleep(100);
+        assertFalse(large.isDone());
+        small.close();
+        MemoryBudget.Reservation admitted = large.get(1, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(100, admitted.getBytes());
+        admitted.close();
+        admitted.close();
+        assertEquals(0L, budget.getReservedBytes());
+        assertEquals(2L, budget.getStats().get("admitted"));
+    }
+}
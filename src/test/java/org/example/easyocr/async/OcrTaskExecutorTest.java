@@ -0,0 +1,64 @@
+package org.example.easyocr.async;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class OcrTaskExecutorTest {
+
+    private OcrTaskExecutor executor;
+
+    @BeforeEach
+    public void setUp() {
+        executor = new OcrTaskExecutor();
+        ReflectionTestUtils.setField(executor, "maxInFlight", 1);
+        ReflectionTestUtils.setField(executor, "queueDepth", 1);
+        ReflectionTestUtils.setField(executor, "retryAfterSeconds", 5);
+        executor.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.stop();
+    }
+
+    @Test
+    public void testRejectsWhenInFlightLimitAndQueueAreFull() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> running = executor.submit(() -> {
+            started.countDown();
+            release.await();
+            return "first";
+        });
+        started.await(5, TimeUnit.SECONDS);
+        CompletableFuture<String> queued = executor.submit(() -> "second");
+
+        // When / Then
+        assertThrows(RejectedExecutionException.class, () -> executor.submit(() -> "third"));
+        assertEquals(1L, executor.getStats().get("rejected"));
+
+        release.countDown();
+        assertEquals("first", running.get(5, TimeUnit.SECONDS));
+        assertEquals("second", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTaskExceptionCompletesFutureExceptionally() {
+        CompletableFuture<String> future = executor.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertThrows(Exception.class, () -> future.get(5, TimeUnit.SECONDS));
+    }
+}
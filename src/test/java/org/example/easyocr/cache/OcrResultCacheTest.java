@@ -0,0 +1,187 @@
+package org.example.easyocr.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.easyocr.entity.OcrCacheEntry;
+import org.example.easyocr.mapper.OcrCacheMapper;
+import org.example.easyocr.service.OcrResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class OcrResultCacheTest {
+
+    @Mock
+    private OcrCacheMapper cacheMapper;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private OcrResultCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new OcrResultCache(cacheMapper, objectMapper);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        ReflectionTestUtils.setField(cache, "memoryTtl", 60000L);
+        ReflectionTestUtils.setField(cache, "persistentEnabled", true);
+        ReflectionTestUtils.setField(cache, "persistentTtl", 60000L);
+        ReflectionTestUtils.setField(cache, "disabledEndpoints", "document-base64");
+    }
+
+    @Test
+    public void testKeyDependsOnImagePromptAndModel() {
+        OcrCacheKey key = OcrCacheKey.of("image".getBytes(), "prompt", "model");
+
+        assertEquals(key, OcrCacheKey.of("image".getBytes(), "prompt", "model"));
+        assertNotEquals(key, OcrCacheKey.of("other".getBytes(), "prompt", "model"));
+        assertNotEquals(key, OcrCacheKey.of("image".getBytes(), "other", "model"));
+        assertNotEquals(key, OcrCacheKey.of("image".getBytes(), "prompt", "other"));
+    }
+
+    @Test
+    public void testMemoryHitAfterPut() {
+        // Given
+        OcrCacheKey key = OcrCacheKey.of("image".getBytes(), "prompt", "model");
+        when(cacheMapper.updateById(any(OcrCacheEntry.class))).thenReturn(0);
+
+        // When
+        cache.put(key, OcrResult.text("Hello"));
+        Map<String, Object> cached = cache.get(key);
+
+        // Then
+        assertNotNull(cached);
+        assertEquals("Hello", cached.get("extracted_text"));
+        assertEquals(1L, cache.getStats().get("memory_hits"));
+        verify(cacheMapper).insert(any(OcrCacheEntry.class));
+        verify(cacheMapper, never()).selectById(anyString());
+    }
+
+    @Test
+    public void testPersistentHitIsPromotedToMemory() {
+        // Given
+        OcrCacheKey key = OcrCacheKey.of("image".getBytes(), "prompt", "model");
+        OcrCacheEntry entry = new OcrCacheEntry();
+        entry.setCacheKey(key.getValue());
+        entry.setResultJson("{\"name\":\"John Doe\"}");
+        entry.setExpiresAt(LocalDateTime.now().plusHours(1));
+        when(cacheMapper.selectById(key.getValue())).thenReturn(entry);
+
+        // When
+        Map<String, Object> first = cache.get(key);
+        Map<String, Object> second = cache.get(key);
+
+        // Then
+        assertEquals("John Doe", first.get("name"));
+        assertEquals("John Doe", second.get("name"));
+        assertEquals(1L, cache.getStats().get("persistent_hits"));
+        assertEquals(1L, cache.getStats().get("memory_hits"));
+    }
+
+    @Test
+    public void testKeysOfSeveralModelsAreLookedUpInOneQuery() {
+        // Given
+        OcrCacheKey configured = OcrCacheKey.fromImageHash("hash", "prompt", "gpt-4o-mini");
+        OcrCacheKey fallback = OcrCacheKey.fromImageHash("hash", "prompt", "gpt-4o");
+        OcrCacheEntry entry = new OcrCacheEntry();
+        entry.setCacheKey(fallback.getValue());
+        entry.setResultJson("{\"extracted_text\":\"Hello\"}");
+        entry.setExpiresAt(LocalDateTime.now().plusHours(1));
+        when(cacheMapper.selectBatchIds(List.of(configured.getValue(), fallback.getValue())))
+                .thenReturn(List.of(entry), List.of());
+        List<OcrCacheKey> keys = List.of(configured, fallback);
+
+        // When
+        Map<String, Object> hit = cache.getAny(keys);
+        Map<String, Object> promoted = cache.getAny(keys);
+        cache.clearMemory();
+        Map<String, Object> miss = cache.getAny(keys);
+
+        // Then
+        assertEquals("Hello", hit.get("extracted_text"));
+        assertEquals("Hello", promoted.get("extracted_text"));
+        assertNull(miss);
+        assertEquals(1L, cache.getStats().get("persistent_hits"));
+        assertEquals(1L, cache.getStats().get("memory_hits"));
+        assertEquals(1L, cache.getStats().get("misses"));
+        verify(cacheMapper, times(2)).selectBatchIds(anyList());
+        verify(cacheMapper, never()).selectById(anyString());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        // Given
+        OcrCacheKey first = OcrCacheKey.of("1".getBytes(), "prompt", "model");
+        OcrCacheKey second = OcrCacheKey.of("2".getBytes(), "prompt", "model");
+        OcrCacheKey third = OcrCacheKey.of("3".getBytes(), "prompt", "model");
+        ReflectionTestUtils.setField(cache, "persistentEnabled", false);
+
+        // When
+        cache.put(first, OcrResult.text("1"));
+        cache.put(second, OcrResult.text("2"));
+        cache.get(first);
+        cache.put(third, OcrResult.text("3"));
+
+        // Then
+        assertNotNull(cache.get(first));
+        assertNull(cache.get(second));
+        assertNotNull(cache.get(third));
+        assertEquals(1L, cache.getStats().get("evictions"));
+    }
+
+    @Test
+    public void testErrorResultsAreNotCached() {
+        OcrCacheKey key = OcrCacheKey.of("image".getBytes(), "prompt", "model");
+
+        cache.put(key, OcrResult.error("Failed to connect to the OpenAI API", null));
+
+        verify(cacheMapper, never()).insert(any(OcrCacheEntry.class));
+        assertEquals(0L, cache.getStats().get("puts"));
+    }
+
+    @Test
+    public void testExtractedFieldNamedErrorIsCached() {
+        // Given
+        OcrCacheKey key = OcrCacheKey.of("image".getBytes(), "prompt", "model");
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("document_number", "X1234567");
+        fields.put("error", "none");
+        ReflectionTestUtils.setField(cache, "persistentEnabled", false);
+
+        // When
+        cache.put(key, OcrResult.fields(fields));
+
+        // Then
+        assertEquals("X1234567", cache.get(key).get("document_number"));
+        assertEquals(1L, cache.getStats().get("puts"));
+    }
+
+    @Test
+    public void testEndpointOptOut() {
+        assertTrue(cache.isEnabledFor("process"));
+        assertTrue(cache.isEnabledFor("document"));
+        assertFalse(cache.isEnabledFor("document-base64"));
+    }
+}
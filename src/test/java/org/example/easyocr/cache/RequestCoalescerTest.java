@@ -0,0 +1,123 @@
+package org.example.easyocr.cache;
+
+import org.example.easyocr.service.OcrResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RequestCoalescerTest {
+
+    private final OcrCacheKey key = OcrCacheKey.of(new byte[]{1, 2, 3}, "prompt", "model");
+
+    private RequestCoalescer newCoalescer(long maxWaitMillis) {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        ReflectionTestUtils.setField(coalescer, "maxWaitMillis", maxWaitMillis);
+        return coalescer;
+    }
+
+    @Test
+    public void testConcurrentDuplicatesShareOneCall() throws Exception {
+        // Given
+        RequestCoalescer coalescer = newCoalescer(10_000);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        RequestCoalescer.Call call = () -> {
+            upstreamCalls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return OcrResult.text("Hello");
+        };
+
+        // When
+        CompletableFuture<OcrResult> leader = CompletableFuture.supplyAsync(() -> execute(coalescer, call));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<OcrResult> duplicate = CompletableFuture.supplyAsync(() -> execute(coalescer, call));
+        waitForWaiters(coalescer, 1);
+        release.countDown();
+
+        // Then
+        assertEquals("Hello", leader.get(5, TimeUnit.SECONDS).getText());
+        assertSame(leader.get(), duplicate.get(5, TimeUnit.SECONDS));
+        // Results are shared, each caller gets a map of its own
+        assertNotSame(leader.get().toMap(), duplicate.get().toMap());
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(1L, coalescer.getStats().get("coalesced"));
+        assertEquals(0, coalescer.getStats().get("in_flight"));
+    }
+
+    @Test
+    public void testWaiterTimeoutDoesNotCancelSharedCall() throws Exception {
+        // Given
+        RequestCoalescer coalescer = newCoalescer(50);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RequestCoalescer.Call call = () -> {
+            started.countDown();
+            await(release);
+            return OcrResult.text("Hello");
+        };
+        CompletableFuture<OcrResult> leader = CompletableFuture.supplyAsync(() -> execute(coalescer, call));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // When
+        OcrResult timedOut = coalescer.execute(key, call);
+        release.countDown();
+
+        // Then
+        assertEquals(OcrResult.Kind.ERROR, timedOut.getKind());
+        assertEquals("Hello", leader.get(5, TimeUnit.SECONDS).getText());
+        assertEquals(1L, coalescer.getStats().get("waiter_timeouts"));
+    }
+
+    @Test
+    public void testFailureIsPropagatedAndKeyIsReleased() throws Exception {
+        // Given
+        RequestCoalescer coalescer = newCoalescer(10_000);
+
+        // When
+        assertThrows(IOException.class, () -> coalescer.execute(key, () -> {
+            throw new IOException("unreadable image");
+        }));
+        OcrResult next = coalescer.execute(key, () -> OcrResult.text("retry"));
+
+        // Then
+        assertEquals("retry", next.getText());
+        assertEquals(2L, coalescer.getStats().get("calls"));
+    }
+
+    private OcrResult execute(RequestCoalescer coalescer, RequestCoalescer.Call call) {
+        try {
+            return coalescer.execute(key, call);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitForWaiters(RequestCoalescer coalescer, int waiters) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((int) coalescer.getStats().get("waiting") < waiters && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
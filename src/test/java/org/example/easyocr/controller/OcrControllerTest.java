@@ -18,6 +18,7 @@ import java.util.Map;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -45,10 +46,10 @@ public class OcrControllerTest {
         expectedResult.put("name", "John Doe");
         expectedResult.put("date_of_birth", "1990-01-01");
         
-        when(ocrService.processDocumentImage(any(MultipartFile.class))).thenReturn(expectedResult);
+        when(ocrService.processDocumentImage(any(MultipartFile.class), isNull())).thenReturn(expectedResult);
         
         // When
-        ResponseEntity<Map<String, Object>> response = ocrController.processDocumentImage(mockFile);
+        ResponseEntity<Map<String, Object>> response = ocrController.processDocumentImage(mockFile, null);
         
         // Then
         assertNotNull(response);
@@ -74,7 +75,7 @@ public class OcrControllerTest {
         expectedResult.put("name", "Jane Smith");
         expectedResult.put("expiry_date", "2025-05-15");
         
-        when(ocrService.processDocumentBase64Image(any(String.class))).thenReturn(expectedResult);
+        when(ocrService.processDocumentBase64Image(any(String.class), isNull(), isNull())).thenReturn(expectedResult);
         
         // When
         ResponseEntity<Map<String, Object>> response = ocrController.processDocumentBase64Image(request);
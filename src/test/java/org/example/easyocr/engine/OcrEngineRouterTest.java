@@ -0,0 +1,190 @@
+package org.example.easyocr.engine;
+
+import org.example.easyocr.image.BytesImageSource;
+import org.example.easyocr.image.ImagePreprocessor;
+import org.example.easyocr.image.ImageSource;
+import org.example.easyocr.prompt.OcrPrompt;
+import org.example.easyocr.prompt.PromptProperties;
+import org.example.easyocr.prompt.PromptRegistry;
+import org.example.easyocr.service.OcrMode;
+import org.example.easyocr.service.OcrResult;
+import org.example.easyocr.upstream.ChatCompletionStreamReader;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OcrEngineRouterTest {
+
+    private final OcrPrompt textPrompt = newPromptRegistry().select(OcrMode.TEXT, null);
+
+    private static PromptRegistry newPromptRegistry() {
+        PromptRegistry registry = new PromptRegistry(new PromptProperties());
+        ReflectionTestUtils.setField(registry, "defaultPrompt", "Extract all text");
+        ReflectionTestUtils.setField(registry, "structuredPrompt", "Extract all fields as JSON");
+        registry.start();
+        return registry;
+    }
+
+    private static LocalOcrEngine newLocalEngine() {
+        LocalOcrEngine engine = new LocalOcrEngine();
+        ReflectionTestUtils.setField(engine, "enabled", true);
+        ReflectionTestUtils.setField(engine, "blankInkRatio", 0.0001);
+        ReflectionTestUtils.setField(engine, "minPixels", 256L);
+        return engine;
+    }
+
+    private static OcrEngineRouter newRouter(OcrEngine... engines) {
+        OcrEngineRouter router = new OcrEngineRouter(List.of(engines));
+        ReflectionTestUtils.setField(router, "latencyBudgetMillis", 1000L);
+        ReflectionTestUtils.setField(router, "latencyPercentile", 95.0);
+        ReflectionTestUtils.setField(router, "minSamples", 5);
+        return router;
+    }
+
+    private static ImageSource page(boolean withText) throws IOException {
+        BufferedImage image = new BufferedImage(1200, 1600, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        if (withText) {
+            graphics.setColor(Color.BLACK);
+            graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 28));
+            graphics.drawString("Total due: 42.00", 100, 200);
+        }
+        graphics.dispose();
+        return new BytesImageSource(ImagePreprocessor.encodeJpeg(image, 0.9f), "image/jpeg");
+    }
+
+    @Test
+    public void testBlankPageIsReadLocally() throws IOException {
+        // Given
+        FakeEngine remote = new FakeEngine("remote", 1.0, "remote text");
+        OcrEngineRouter router = newRouter(remote, newLocalEngine());
+
+        // When
+        OcrResult blank = router.recognize(page(false), textPrompt, "process", null);
+        OcrResult text = router.recognize(page(true), textPrompt, "process", null);
+
+        // Then
+        assertEquals("", blank.getText());
+        assertEquals("remote text", text.getText());
+        assertEquals(1, remote.calls);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> localStats = (Map<String, Object>) router.getStats().get("local");
+        assertEquals(1L, localStats.get("calls"));
+    }
+
+    @Test
+    public void testUnavailableEngineIsSkipped() {
+        // Given
+        FakeEngine cheap = new FakeEngine("cheap", 0.5, "cheap text");
+        FakeEngine expensive = new FakeEngine("expensive", 2.0, "expensive text");
+        OcrEngineRouter router = newRouter(cheap, expensive);
+        ImageProfile profile = new ImageProfile(1000, 1000, 0.05);
+
+        // When
+        OcrEngine preferred = router.select(profile, textPrompt).getEngine();
+        cheap.available = false;
+        OcrEngine fallback = router.select(profile, textPrompt).getEngine();
+        expensive.available = false;
+        OcrEngine lastResort = router.select(profile, textPrompt).getEngine();
+
+        // Then
+        assertEquals(cheap, preferred);
+        assertEquals(expensive, fallback);
+        assertEquals(cheap, lastResort);
+        assertEquals(1L, router.getStats().get("unavailable"));
+    }
+
+    @Test
+    public void testEngineOverLatencyBudgetIsAvoided() {
+        // Given
+        FakeEngine cheap = new FakeEngine("cheap", 0.5, "cheap text");
+        FakeEngine expensive = new FakeEngine("expensive", 2.0, "expensive text");
+        OcrEngineRouter router = newRouter(cheap, expensive);
+        ImageProfile profile = new ImageProfile(1000, 1000, 0.05);
+        OcrEngineRouter.Route cheapRoute = router.select(profile, textPrompt);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            cheapRoute.record(TimeUnit.SECONDS.toNanos(5), false);
+        }
+
+        // Then
+        assertEquals(expensive, router.select(profile, textPrompt).getEngine());
+    }
+
+    @Test
+    public void testInkRatioOfPage() throws IOException {
+        // Given / When
+        ImageProfile blank = ImageProfile.of(page(false));
+        ImageProfile text = ImageProfile.of(page(true));
+
+        // Then
+        assertEquals(1200, blank.getWidth());
+        assertEquals(1600, blank.getHeight());
+        assertTrue(blank.getInkRatio() < 0.0001);
+        assertTrue(text.getInkRatio() > 0.0001);
+        assertFalse(ImageProfile.of(new BytesImageSource(new byte[] {1, 2, 3}, "image/jpeg")).isKnown());
+    }
+
+    /**
+     * An engine that reads every image with a fixed answer
+     */
+    private static class FakeEngine implements OcrEngine {
+        private final String name;
+        private final double cost;
+        private final String text;
+        private boolean available = true;
+        private int calls;
+
+        FakeEngine(String name, double cost, String text) {
+            this.name = name;
+            this.cost = cost;
+            this.text = text;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public double getCost() {
+            return cost;
+        }
+
+        @Override
+        public boolean supports(ImageProfile profile, OcrPrompt prompt) {
+            return true;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return available;
+        }
+
+        @Override
+        public OcrResult recognize(ImageSource image, OcrPrompt prompt, String endpoint, ChatCompletionStreamReader.DeltaListener listener) {
+            calls++;
+            return OcrResult.text(text);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.example.easyocr.http;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.example.easyocr.upstream.UpstreamEndpointProperties;
+import org.example.easyocr.upstream.UpstreamRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The upstream HTTP client as {@code AppConfig} wires it: an {@link AbortableClientHttpRequestFactory}
+ * over a {@link PooledConnectionManager}, against a local stand-in for an upstream endpoint
+ */
+public class PooledClientHttpRequestFactoryTest {
+
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    private HttpServer server;
+    private String url;
+    private PooledConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private RestTemplate restTemplate;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            try {
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                exchange.getRequestBody().readAllBytes();
+                if ("HEAD".equals(exchange.getRequestMethod())) {
+                    // Slow enough that the concurrent warm-up requests cannot share a connection
+                    Thread.sleep(200);
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                byte[] bytes = "ok".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions";
+
+        connectionManager = new PooledConnectionManager(300000, TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(10);
+        connectionManager.setDefaultMaxPerRoute(5);
+        httpClient = HttpClients.custom().setConnectionManager(connectionManager).build();
+        AbortableClientHttpRequestFactory factory = new AbortableClientHttpRequestFactory(httpClient);
+        factory.setBufferRequestBody(false);
+        restTemplate = new RestTemplate(factory);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        httpClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testSequentialRequestsShareOnePooledConnection() {
+        // When
+        String first = restTemplate.postForObject(url, "{}", String.class);
+        String second = restTemplate.postForObject(url, "{}", String.class);
+
+        // Then
+        assertEquals("ok", first);
+        assertEquals("ok", second);
+        assertEquals(1, clientPorts.size());
+        Map<String, Object> stats = connectionManager.getStats();
+        assertEquals(2L, stats.get("leases"));
+        assertEquals(0, stats.get("leased"));
+        assertEquals(1, stats.get("available"));
+        assertEquals(0L, stats.get("lease_timeouts"));
+    }
+
+    @Test
+    public void testWarmUpLeavesItsConnectionsInThePool() {
+        // Given
+        UpstreamEndpointProperties properties = new UpstreamEndpointProperties();
+        UpstreamEndpointProperties.Endpoint endpoint = new UpstreamEndpointProperties.Endpoint();
+        endpoint.setName("local");
+        endpoint.setUrl(url);
+        endpoint.setKey("sk-test");
+        properties.getEndpoints().add(endpoint);
+        UpstreamRouter router = new UpstreamRouter(properties);
+        ReflectionTestUtils.setField(router, "defaultModel", "gpt-4o-mini");
+        ReflectionTestUtils.setField(router, "failureThreshold", 2);
+        ReflectionTestUtils.setField(router, "openDurationMillis", 30000L);
+        router.start();
+        UpstreamConnectionWarmer warmer = new UpstreamConnectionWarmer(httpClient, router);
+        ReflectionTestUtils.setField(warmer, "warmUpConnections", 3);
+
+        // When
+        int opened = warmer.warmUp();
+        String answer = restTemplate.postForObject(url, "{}", String.class);
+
+        // Then
+        assertEquals(3, opened);
+        assertEquals("ok", answer);
+        // The first request reused a warm connection instead of opening a fourth
+        assertEquals(3, clientPorts.size());
+        assertEquals(3, connectionManager.getStats().get("available"));
+        router.stop();
+    }
+
+}
@@ -0,0 +1,63 @@
+package org.example.easyocr.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class Base64ImageSourceTest {
+
+    @Test
+    public void testValidationMatchesJdkDecoder() {
+        String[] inputs = {"", "QQ", "QQ=", "QQ==", "QUI", "QUI=", "QUJD", "Q", "Q===", "=", "QUJD=",
+                "QQ==QQ==", "QUJD QQ==", "QUJ*", "QUJDRA==", "QUJDRA", "QUJDREU=", "QQ=x", "äöü=", "QŁ==", "\u0141QUJ", "QUJD\u0000", "==", "===="};
+        for (String input : inputs) {
+            assertEquals(jdkAccepts(input), Base64ImageSource.of(input, null).isValid(), "Input: " + input);
+        }
+    }
+
+    @Test
+    public void testValidationOfLongPayloads() {
+        byte[] image = new byte[50000];
+        new Random(1).nextBytes(image);
+        String valid = Base64.getEncoder().encodeToString(image);
+        String invalid = valid.substring(0, 40000) + "*" + valid.substring(40001);
+
+        assertTrue(Base64ImageSource.of("data:image/png;base64," + valid, null).isValid());
+        assertFalse(Base64ImageSource.of("data:image/png;base64," + invalid, null).isValid());
+    }
+
+    @Test
+    public void testDataUriHeaderIsParsed() throws IOException {
+        byte[] image = {1, 2, 3, 4, 5};
+        Base64ImageSource source = Base64ImageSource.of("data:image/png;base64," + Base64.getEncoder().encodeToString(image), null);
+
+        assertEquals("image/png", source.getContentType());
+        assertEquals(5, source.getSize());
+        try (InputStream in = source.openStream()) {
+            assertArrayEquals(image, in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void testExplicitContentTypeWins() {
+        assertEquals("image/webp", Base64ImageSource.of("data:image/png;base64,QQ==", "image/webp").getContentType());
+        assertEquals("image/jpeg", Base64ImageSource.of("QQ==", null).getContentType());
+    }
+
+    private static boolean jdkAccepts(String input) {
+        try {
+            Base64.getDecoder().decode(input);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
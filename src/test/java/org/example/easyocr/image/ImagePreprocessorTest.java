@@ -0,0 +1,159 @@
+package org.example.easyocr.image;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ImagePreprocessorTest {
+
+    private final ImagePreprocessor preprocessor = new ImagePreprocessor();
+
+    @Test
+    public void testLargeImageIsDownscaledAndRecompressed() throws IOException {
+        // Given
+        byte[] original = jpeg(noise(4000, 3000), "jpg");
+        PreprocessProperties.Profile profile = new PreprocessProperties.Profile();
+        profile.setMaxLongEdge(1000);
+        profile.setGrayscale(true);
+
+        // When
+        ImagePreprocessor.Result result = preprocessor.preprocess(new BytesImageSource(original, "image/jpeg"), profile);
+
+        // Then
+        assertEquals("processed", result.getOutcome());
+        assertEquals("image/jpeg", result.getImage().getContentType());
+        assertTrue(result.getProcessedBytes() < original.length);
+        assertEquals(original.length - result.getProcessedBytes(), result.getBytesSaved());
+        BufferedImage processed = read(result.getImage());
+        assertEquals(1000, processed.getWidth());
+        assertEquals(750, processed.getHeight());
+        assertEquals(1, processed.getRaster().getNumBands());
+    }
+
+    @Test
+    public void testExifOrientationIsApplied() throws IOException {
+        // Given: a landscape JPEG tagged "rotate 90 clockwise"
+        byte[] original = withOrientation(jpeg(noise(400, 200), "jpg"), 6);
+        PreprocessProperties.Profile profile = new PreprocessProperties.Profile();
+        profile.setMinBytes(0);
+
+        // When
+        ImagePreprocessor.Result result = preprocessor.preprocess(new BytesImageSource(original, "image/jpeg"), profile);
+
+        // Then
+        BufferedImage processed = read(result.getImage());
+        assertEquals(200, processed.getWidth());
+        assertEquals(400, processed.getHeight());
+    }
+
+    @Test
+    public void testSmallImageIsSentUnchanged() throws IOException {
+        // Given
+        BytesImageSource image = new BytesImageSource(jpeg(noise(100, 100), "jpg"), "image/jpeg");
+        PreprocessProperties.Profile profile = new PreprocessProperties.Profile();
+        profile.setMinBytes(1024 * 1024);
+
+        // When
+        ImagePreprocessor.Result result = preprocessor.preprocess(image, profile);
+
+        // Then
+        assertSame(image, result.getImage());
+        assertEquals(0, result.getBytesSaved());
+    }
+
+    @Test
+    public void testImageOverThePixelLimitIsSentUnchanged() throws IOException {
+        // Given
+        BytesImageSource image = new BytesImageSource(jpeg(noise(1000, 1000), "jpg"), "image/jpeg");
+        PreprocessProperties.Profile profile = new PreprocessProperties.Profile();
+        profile.setMinBytes(0);
+        profile.setMaxPixels(999_999);
+
+        // When
+        ImagePreprocessor.Result result = preprocessor.preprocess(image, profile);
+
+        // Then
+        assertSame(image, result.getImage());
+        assertEquals("failed", result.getOutcome());
+    }
+
+    @Test
+    public void testUndecodableImageIsSentUnchanged() {
+        // Given
+        BytesImageSource image = new BytesImageSource(new byte[200 * 1024], "image/heic");
+        PreprocessProperties.Profile profile = new PreprocessProperties.Profile();
+
+        // When
+        ImagePreprocessor.Result result = preprocessor.preprocess(image, profile);
+
+        // Then
+        assertSame(image, result.getImage());
+        assertEquals("unsupported format", result.getOutcome());
+    }
+
+    @Test
+    public void testDisabledProfileSkipsProcessing() throws IOException {
+        // Given
+        BytesImageSource image = new BytesImageSource(jpeg(noise(2000, 1500), "jpg"), "image/jpeg");
+        PreprocessProperties.Profile profile = new PreprocessProperties.Profile();
+        profile.setEnabled(false);
+
+        // When
+        ImagePreprocessor.Result result = preprocessor.preprocess(image, profile);
+
+        // Then
+        assertSame(image, result.getImage());
+        assertEquals("raw", profile.signature());
+    }
+
+    private static BufferedImage noise(int width, int height) {
+        Random random = new Random(42);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt(0xFFFFFF));
+            }
+        }
+        return image;
+    }
+
+    private static byte[] jpeg(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Insert an APP1 segment with a big-endian EXIF block holding only the orientation tag
+     */
+    private static byte[] withOrientation(byte[] jpeg, int orientation) {
+        byte[] exif = {
+                (byte) 0xFF, (byte) 0xE1, 0, 34,
+                'E', 'x', 'i', 'f', 0, 0,
+                'M', 'M', 0, 0x2A, 0, 0, 0, 8,
+                0, 1,
+                0x01, 0x12, 0, 3, 0, 0, 0, 1, 0, (byte) orientation, 0, 0,
+                0, 0, 0, 0
+        };
+        byte[] result = new byte[jpeg.length + exif.length];
+        System.arraycopy(jpeg, 0, result, 0, 2);
+        System.arraycopy(exif, 0, result, 2, exif.length);
+        System.arraycopy(jpeg, 2, result, 2 + exif.length, jpeg.length - 2);
+        return result;
+    }
+
+    private static BufferedImage read(ImageSource image) throws IOException {
+        try (InputStream in = image.openStream()) {
+            return ImageIO.read(in);
+        }
+    }
+}
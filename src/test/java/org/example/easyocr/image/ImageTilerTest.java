@@ -0,0 +1,62 @@
+package org.example.easyocr.image;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ImageTilerTest {
+
+    @Test
+    public void testBandsCoverTheImageWithOverlap() {
+        // When
+        List<int[]> bands = ImageTiler.bands(3000, 1000, 0.2, 8);
+
+        // Then
+        assertEquals(3, bands.size());
+        assertEquals(0, bands.get(0)[0]);
+        assertEquals(3000, bands.get(2)[1]);
+        for (int i = 1; i < bands.size(); i++) {
+            int shared = bands.get(i - 1)[1] - bands.get(i)[0];
+            int height = bands.get(i)[1] - bands.get(i)[0];
+            assertTrue(Math.abs(shared - height * 0.2) <= 1, "band " + i + " shares " + shared + " of " + height);
+        }
+    }
+
+    @Test
+    public void testBandCountIsCapped() {
+        assertEquals(1, ImageTiler.bands(900, 1000, 0.15, 8).size());
+        assertEquals(4, ImageTiler.bands(20000, 1000, 0.15, 4).size());
+    }
+
+    @Test
+    public void testSplitProducesUprightJpegBands() throws IOException {
+        // Given
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(800, 2500, BufferedImage.TYPE_INT_RGB), "png", png);
+        ImageSource image = new BytesImageSource(png.toByteArray(), "image/png");
+
+        // When
+        List<ImageSource> bands = ImageTiler.split(image, 1000, 0.15, 8, 0.9f);
+
+        // Then
+        int[] size = ImageTiler.readSize(image);
+        assertEquals(800, size[0]);
+        assertEquals(2500, size[1]);
+        assertEquals(3, bands.size());
+        for (ImageSource band : bands) {
+            assertEquals("image/jpeg", band.getContentType());
+            try (InputStream in = new ByteArrayInputStream(((BytesImageSource) band).getBytes())) {
+                assertEquals(800, ImageIO.read(in).getWidth());
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.easyocr.image;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ImageUploadsTest {
+
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0, 0, 0x0D};
+
+    @Test
+    public void testDetectsTypeOfUndeclaredBody() throws IOException {
+        // Given
+        InputStream body = new ByteArrayInputStream(PNG);
+
+        // When
+        BytesImageSource source = ImageUploads.read(body, PNG.length, 1024, null);
+
+        // Then
+        assertEquals("image/png", source.getContentType());
+        assertEquals(PNG.length, source.getSize());
+        assertEquals("application/pdf", ImageUploads.detectType("%PDF-1.7".getBytes()));
+        assertEquals("image/tiff", ImageUploads.detectType(new byte[] {'I', 'I', 0x2A, 0x00}));
+        assertNull(ImageUploads.detectType("not an image".getBytes()));
+    }
+
+    @Test
+    public void testReadsBodyOfUnknownLength() throws IOException {
+        // Given
+        byte[] bytes = new byte[600 * 1024];
+        bytes[0] = (byte) 0xFF;
+        bytes[1] = (byte) 0xD8;
+        bytes[2] = (byte) 0xFF;
+        bytes[bytes.length - 1] = 42;
+
+        // When
+        BytesImageSource source = ImageUploads.read(new ByteArrayInputStream(bytes), -1, bytes.length, null);
+
+        // Then
+        assertEquals("image/jpeg", source.getContentType());
+        assertEquals(bytes.length, source.getBytes().length);
+        assertEquals(42, source.getBytes()[bytes.length - 1]);
+    }
+
+    @Test
+    public void testRejectsBodyOverLimit() {
+        // Given
+        byte[] bytes = new byte[2048];
+
+        // When / Then
+        assertThrows(ImageUploads.UploadTooLargeException.class,
+                () -> ImageUploads.read(new ByteArrayInputStream(bytes), bytes.length, 1024, null));
+        assertThrows(ImageUploads.UploadTooLargeException.class,
+                () -> ImageUploads.read(new ByteArrayInputStream(bytes), -1, 1024, null));
+        assertThrows(IOException.class, () -> ImageUploads.read(new ByteArrayInputStream(PNG), 100, 1024, null));
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.easyocr.job;
+
+import org.example.easyocr.entity.OcrJob;
+import org.example.easyocr.mapper.OcrJobMapper;
+import org.example.easyocr.service.OcrMode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Claims, leases and retries jobs through the SQL of {@link OcrJobMapper}, against the
+ * {@code ocr_job} table of an in-memory H2 database
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ocr-job-queue;DB_CLOSE_DELAY=-1",
+        "app.jobs.enabled=false"
+})
+public class OcrJobQueueTest {
+
+    @Autowired
+    private OcrJobMapper jobMapper;
+
+    private LocalDateTime now;
+
+    @BeforeEach
+    public void setUp() {
+        jobMapper.delete(null);
+        // H2 keeps microseconds and rounds, a boundary in nanoseconds could be stored just after itself
+        now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    private void insert(String id, LocalDateTime createdAt) {
+        OcrJob job = new OcrJob();
+        job.setId(id);
+        job.setStatus(OcrJob.STATUS_PENDING);
+        job.setMode(OcrMode.TEXT.name());
+        job.setContentType("image/png");
+        job.setImageData(new byte[]{1});
+        job.setAttempts(0);
+        job.setCreatedAt(createdAt);
+        jobMapper.insert(job);
+    }
+
+    private static List<String> ids(List<OcrJob> jobs) {
+        return jobs.stream().map(OcrJob::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testPendingJobsAreClaimedOnceOldestFirst() {
+        // Given
+        insert("job-2", now.minusSeconds(1));
+        insert("job-1", now.minusSeconds(2));
+
+        // When
+        List<OcrJob> claimable = jobMapper.selectClaimable(now, 10);
+        int first = jobMapper.claim("job-1", "worker-a", now, now.plusMinutes(1));
+        int second = jobMapper.claim("job-1", "worker-b", now, now.plusMinutes(1));
+
+        // Then
+        assertEquals(List.of("job-1", "job-2"), ids(claimable));
+        assertEquals(1, first);
+        assertEquals(0, second);
+        OcrJob job = jobMapper.selectById("job-1");
+        assertEquals(OcrJob.STATUS_RUNNING, job.getStatus());
+        assertEquals("worker-a", job.getLeaseOwner());
+        assertEquals(1, job.getAttempts());
+        assertEquals(List.of("job-2"), ids(jobMapper.selectClaimable(now, 10)));
+    }
+
+    @Test
+    public void testExpiredLeaseIsTakenOverAndTheOldOwnerLosesTheJob() {
+        // Given
+        insert("job-1", now.minusMinutes(5));
+        jobMapper.claim("job-1", "worker-a", now.minusMinutes(2), now.minusMinutes(1));
+
+        // When
+        int takenOver = jobMapper.claim("job-1", "worker-b", now, now.plusMinutes(1));
+
+        // Then
+        assertEquals(1, takenOver);
+        assertEquals(0, jobMapper.renewLease("job-1", "worker-a", now.plusMinutes(2)));
+        assertEquals(0, jobMapper.finish("job-1", "worker-a", OcrJob.STATUS_SUCCEEDED, "{}", null, now));
+        assertEquals(1, jobMapper.finish("job-1", "worker-b", OcrJob.STATUS_SUCCEEDED, "{}", null, now));
+        OcrJob job = jobMapper.selectById("job-1");
+        assertEquals(OcrJob.STATUS_SUCCEEDED, job.getStatus());
+        assertEquals(2, job.getAttempts());
+        assertTrue(jobMapper.selectClaimable(now.plusHours(1), 10).isEmpty());
+    }
+
+    @Test
+    public void testReleasedJobWaitsUntilItsRetryIsDue() {
+        // Given
+        insert("job-1", now.minusMinutes(1));
+        insert("job-2", now.minusMinutes(1));
+        jobMapper.claim("job-1", "worker-a", now, now.plusMinutes(1));
+        jobMapper.claim("job-2", "worker-a", now, now.plusMinutes(1));
+
+        // When
+        jobMapper.release("job-1", "worker-a", "500 Internal Server Error", now.plusSeconds(30));
+        jobMapper.defer("job-2", "worker-a", "The upstream is throttled", now.plusSeconds(30));
+
+        // Then
+        assertTrue(jobMapper.selectClaimable(now.plusSeconds(29), 10).isEmpty());
+        assertEquals(0, jobMapper.claim("job-1", "worker-b", now.plusSeconds(29), now.plusMinutes(2)));
+        assertEquals(List.of("job-1", "job-2"), ids(jobMapper.selectClaimable(now.plusSeconds(30), 10)));
+        // A released attempt counts, a deferred one does not
+        assertEquals(1, jobMapper.selectById("job-1").getAttempts());
+        assertEquals(0, jobMapper.selectById("job-2").getAttempts());
+        assertEquals("500 Internal Server Error", jobMapper.selectById("job-1").getError());
+    }
+}
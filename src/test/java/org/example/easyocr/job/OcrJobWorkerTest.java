@@ -0,0 +1,132 @@
+package org.example.easyocr.job;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.easyocr.entity.OcrJob;
+import org.example.easyocr.mapper.OcrJobMapper;
+import org.example.easyocr.service.OcrMode;
+import org.example.easyocr.service.OcrResult;
+import org.example.easyocr.service.OcrService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class OcrJobWorkerTest {
+
+    @Mock
+    private OcrJobMapper jobMapper;
+
+    @Mock
+    private OcrService ocrService;
+
+    private OcrJobWorker worker;
+
+    @BeforeEach
+    public void setUp() {
+        worker = new OcrJobWorker(jobMapper, ocrService, new ObjectMapper());
+        ReflectionTestUtils.setField(worker, "enabled", true);
+        ReflectionTestUtils.setField(worker, "workers", 1);
+        ReflectionTestUtils.setField(worker, "leaseMillis", 60000L);
+        ReflectionTestUtils.setField(worker, "maxAttempts", 3);
+        ReflectionTestUtils.setField(worker, "retryBackoffMillis", 1000L);
+        ReflectionTestUtils.setField(worker, "maxRetryBackoffMillis", 8000L);
+        worker.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        worker.stop();
+    }
+
+    private void claimOnce(OcrResult result) throws IOException {
+        OcrJob job = new OcrJob();
+        job.setId("job-1");
+        job.setStatus(OcrJob.STATUS_PENDING);
+        job.setMode(OcrMode.TEXT.name());
+        job.setContentType("image/png");
+        job.setAttempts(1);
+        when(jobMapper.selectClaimable(any(), anyInt())).thenReturn(Collections.singletonList(job), Collections.emptyList());
+        when(jobMapper.claim(eq("job-1"), anyString(), any(), any())).thenReturn(1);
+        when(jobMapper.selectById("job-1")).thenReturn(job);
+        when(jobMapper.selectImageData("job-1")).thenReturn(new byte[]{1});
+        when(ocrService.recognize(any(), eq(OcrMode.TEXT), isNull(), eq("jobs"))).thenReturn(result);
+    }
+
+    @Test
+    public void testFieldNamedErrorIsASuccess() throws IOException {
+        // Given
+        claimOnce(OcrResult.fields(Map.of("error", "E-42 paper jam")));
+
+        // When
+        worker.poll();
+
+        // Then
+        verify(jobMapper, timeout(2000)).finish(eq("job-1"), anyString(), eq(OcrJob.STATUS_SUCCEEDED),
+                eq("{\"error\":\"E-42 paper jam\"}"), isNull(), any());
+        verify(jobMapper, never()).release(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testFailedAttemptIsRetriedLater() throws IOException {
+        // Given
+        claimOnce(OcrResult.error("Failed to connect to the OpenAI API: 500 Internal Server Error", null));
+        LocalDateTime before = LocalDateTime.now();
+
+        // When
+        worker.poll();
+
+        // Then
+        ArgumentCaptor<LocalDateTime> notBefore = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(jobMapper, timeout(2000)).release(eq("job-1"), anyString(), anyString(), notBefore.capture());
+        assertTrue(notBefore.getValue().isAfter(before.plusNanos(400_000_000L)));
+        verify(jobMapper, never()).defer(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testCapacityRejectionDoesNotUseUpAnAttempt() throws IOException {
+        // Given
+        claimOnce(OcrResult.retryableError("Failed to connect to the OpenAI API: The upstream is throttled"));
+
+        // When
+        worker.poll();
+
+        // Then
+        verify(jobMapper, timeout(2000)).defer(eq("job-1"), anyString(), anyString(), any());
+        verify(jobMapper, never()).release(any(), any(), any(), any());
+        assertEquals(1L, worker.getStats().get("deferred"));
+    }
+
+    @Test
+    public void testRetryDelayDoublesUpToTheMaximum() {
+        for (int i = 0; i < 100; i++) {
+            long first = worker.retryDelayMillis(1);
+            long third = worker.retryDelayMillis(3);
+            long tenth = worker.retryDelayMillis(10);
+            assertTrue(first >= 500 && first <= 1000);
+            assertTrue(third >= 2000 && third <= 4000);
+            assertTrue(tenth >= 4000 && tenth <= 8000);
+        }
+    }
+}
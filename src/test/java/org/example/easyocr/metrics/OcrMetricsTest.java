@@ -0,0 +1,47 @@
+package org.example.easyocr.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.easyocr.service.OcrResult;
+import org.example.easyocr.upstream.ChatCompletion;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class OcrMetricsTest {
+
+    @Test
+    public void testOutcomeDistinguishesJsonFromTextFallback() {
+        assertEquals(OcrMetrics.OUTCOME_JSON, OcrMetrics.outcomeOf(OcrResult.fields(Map.of("name", "Jane", "number", "X123"))));
+        assertEquals(OcrMetrics.OUTCOME_TEXT, OcrMetrics.outcomeOf(OcrResult.text("Hello")));
+        assertEquals(OcrMetrics.OUTCOME_ERROR, OcrMetrics.outcomeOf(OcrResult.error("Failed", null)));
+        assertEquals(OcrMetrics.OUTCOME_ERROR, OcrMetrics.outcomeOf(null));
+        // A form with a field named "error" was still read
+        assertEquals(OcrMetrics.OUTCOME_JSON, OcrMetrics.outcomeOf(OcrResult.fields(Map.of("error", "E-42 paper jam"))));
+    }
+
+    @Test
+    public void testStagesAndTokensAreRecordedPerEndpoint() {
+        // Given
+        MeterRegistry registry = new SimpleMeterRegistry();
+        OcrMetrics metrics = new OcrMetrics(registry);
+
+        // When
+        metrics.recordStage(OcrMetrics.STAGE_UPLOAD, "process", TimeUnit.MILLISECONDS.toNanos(30));
+        metrics.recordStage(OcrMetrics.STAGE_UPLOAD, "process", TimeUnit.MILLISECONDS.toNanos(10));
+        metrics.recordStage(OcrMetrics.STAGE_UPLOAD, "document", TimeUnit.MILLISECONDS.toNanos(5));
+        metrics.recordPayload("process", "request", 2048);
+        metrics.recordUsage("process", new ChatCompletion.Usage(1200, 85, 1285));
+        metrics.recordUsage("process", null);
+
+        // Then
+        assertEquals(2, registry.get("ocr.stage").tag("stage", "upload").tag("endpoint", "process").timer().count());
+        assertEquals(40.0, registry.get("ocr.stage").tag("stage", "upload").tag("endpoint", "process").timer().totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(2048.0, registry.get("ocr.upstream.payload").tag("direction", "request").summary().totalAmount());
+        assertEquals(1200.0, registry.get("ocr.upstream.tokens").tag("type", "prompt").counter().count());
+        assertEquals(85.0, registry.get("ocr.upstream.tokens").tag("type", "completion").counter().count());
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.easyocr.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StatsSourceMeterBinderTest {
+
+    /**
+     * Stats with a counter, a flag, a text value and a nested map, like the router's per-endpoint stats
+     */
+    private static class TestSource implements StatsSource {
+        private final AtomicInteger reads = new AtomicInteger();
+
+        @Override
+        public String getStatsName() {
+            return "test";
+        }
+
+        @Override
+        public Map<String, Object> getStats() {
+            reads.incrementAndGet();
+            Map<String, Object> endpoint = new LinkedHashMap<>();
+            endpoint.put("url", "http://localhost");
+            endpoint.put("calls", 7L);
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("hits", 42L);
+            stats.put("enabled", true);
+            stats.put("mode", "text");
+            stats.put("primary", endpoint);
+            return stats;
+        }
+    }
+
+    @Test
+    public void testNumericStatsBecomeGauges() {
+        // Given
+        TestSource source = new TestSource();
+        MeterRegistry registry = new SimpleMeterRegistry();
+
+        // When
+        new StatsSourceMeterBinder(List.of(source)).bindTo(registry);
+
+        // Then
+        assertEquals(42.0, registry.get("easyocr.test.hits").gauge().value());
+        assertEquals(1.0, registry.get("easyocr.test.enabled").gauge().value());
+        assertEquals(7.0, registry.get("easyocr.test.calls").tag("name", "primary").gauge().value());
+        assertEquals(3, registry.getMeters().size());
+    }
+
+    @Test
+    public void testOneSnapshotServesAllGaugesOfAScrape() {
+        // Given
+        TestSource source = new TestSource();
+        MeterRegistry registry = new SimpleMeterRegistry();
+        new StatsSourceMeterBinder(List.of(source)).bindTo(registry);
+
+        // When
+        registry.get("easyocr.test.hits").gauge().value();
+        registry.get("easyocr.test.enabled").gauge().value();
+        registry.get("easyocr.test.calls").gauge().value();
+
+        // Then
+        assertEquals(1, source.reads.get());
+    }
+
+    @Test
+    public void testSourcesAreLookedUpOnceAllSingletonsExist() {
+        // Given
+        TestSource source = new TestSource();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("testSource", source));
+        StatsSourceMeterBinder binder = new StatsSourceMeterBinder(beanFactory.getBeanProvider(StatsSource.class));
+        MeterRegistry registry = new SimpleMeterRegistry();
+
+        // When
+        binder.bindTo(registry);
+        assertTrue(registry.getMeters().isEmpty());
+        binder.afterSingletonsInstantiated();
+
+        // Then
+        assertEquals(42.0, registry.get("easyocr.test.hits").gauge().value());
+        assertEquals(3, registry.getMeters().size());
+    }
+}
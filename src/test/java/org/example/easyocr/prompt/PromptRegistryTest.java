@@ -0,0 +1,102 @@
+package org.example.easyocr.prompt;
+
+import org.example.easyocr.service.OcrMode;
+import org.example.easyocr.upstream.ChatCompletion;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PromptRegistryTest {
+
+    private static PromptRegistry newRegistry(boolean classification) {
+        PromptProperties properties = new PromptProperties();
+        properties.getClassification().setEnabled(classification);
+        PromptProperties.DocumentType idCard = new PromptProperties.DocumentType();
+        idCard.setDescription("a national identity card");
+        idCard.setFields(List.of("document_number", "surname", "date_of_birth"));
+        idCard.setMaxTokens(600);
+        properties.getTypes().put("id_card", idCard);
+        PromptProperties.DocumentType invoice = new PromptProperties.DocumentType();
+        invoice.setDescription("an invoice");
+        invoice.setFields(List.of("invoice_number", "total_amount"));
+        properties.getTypes().put("invoice", invoice);
+
+        PromptRegistry registry = new PromptRegistry(properties);
+        ReflectionTestUtils.setField(registry, "defaultPrompt", "Extract all text");
+        ReflectionTestUtils.setField(registry, "structuredPrompt", "Extract all fields as JSON");
+        registry.start();
+        return registry;
+    }
+
+    @Test
+    public void testClientHintSelectsTypedPrompt() {
+        // Given
+        PromptRegistry registry = newRegistry(false);
+
+        // When
+        OcrPrompt idCard = registry.select(OcrMode.DOCUMENT, "ID-Card");
+        OcrPrompt invoice = registry.select(OcrMode.DOCUMENT, "invoice");
+
+        // Then
+        assertEquals("id_card", idCard.getType());
+        assertEquals(600, idCard.getMaxTokens());
+        assertTrue(idCard.getText().endsWith("Document: a national identity card\nKeys: document_number, surname, date_of_birth"));
+        // The instructions before the type-specific part are the same for every type
+        String prefix = idCard.getText().substring(0, idCard.getText().indexOf("Document:"));
+        assertTrue(invoice.getText().startsWith(prefix));
+    }
+
+    @Test
+    public void testUnknownOrMissingTypeFallsBackToGenericPrompt() {
+        // Given
+        PromptRegistry registry = newRegistry(false);
+
+        // When / Then
+        assertEquals("Extract all fields as JSON", registry.select(OcrMode.DOCUMENT, "tax_form").getText());
+        assertEquals(PromptRegistry.GENERIC, registry.select(OcrMode.DOCUMENT, null).getType());
+        assertEquals("Extract all text", registry.select(OcrMode.TEXT, "id_card").getText());
+    }
+
+    @Test
+    public void testClassificationAnswerSelectsPrompt() {
+        // Given
+        PromptRegistry registry = newRegistry(true);
+        OcrPrompt unclassified = registry.select(OcrMode.DOCUMENT, null);
+
+        // When
+        OcrPrompt classified = registry.forClassification(" Invoice.\n");
+        OcrPrompt other = registry.forClassification("other");
+
+        // Then
+        assertTrue(unclassified.isClassify());
+        assertEquals("low", registry.getClassificationPrompt().getDetail());
+        assertTrue(registry.getClassificationPrompt().getText().contains("id_card, invoice, other"));
+        assertEquals("invoice", classified.getType());
+        assertEquals(PromptRegistry.GENERIC, other.getType());
+    }
+
+    @Test
+    public void testUsageIsCountedPerType() {
+        // Given
+        PromptRegistry registry = newRegistry(false);
+        OcrPrompt idCard = registry.select(OcrMode.DOCUMENT, "id_card");
+
+        // When
+        registry.record(idCard, new ChatCompletion.Usage(400, 80, 480), 1_000_000);
+        registry.record(idCard, new ChatCompletion.Usage(420, 100, 520), 3_000_000);
+        registry.record(idCard, null, 2_000_000);
+
+        // Then
+        @SuppressWarnings("unchecked")
+        Map<String, Object> stats = (Map<String, Object>) registry.getStats().get("id_card");
+        assertEquals(3L, stats.get("calls"));
+        assertEquals(820L, stats.get("prompt_tokens"));
+        assertEquals(410L, stats.get("avg_prompt_tokens"));
+        assertEquals(90L, stats.get("avg_completion_tokens"));
+    }
+}
@@ -0,0 +1,140 @@
+package org.example.easyocr.result;
+
+import org.example.easyocr.controller.OcrResultController;
+import org.example.easyocr.entity.OcrResultRecord;
+import org.example.easyocr.mapper.OcrResultMapper;
+import org.example.easyocr.metrics.OcrMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Searches the {@code ocr_result} table of an in-memory H2 database, through H2's full-text
+ * index as in production
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ocr-result-search;DB_CLOSE_DELAY=-1",
+        "app.jobs.enabled=false"
+})
+public class OcrResultSearchTest {
+
+    @Autowired
+    private OcrResultMapper resultMapper;
+
+    @Autowired
+    private OcrResultStore resultStore;
+
+    @Autowired
+    private OcrResultController resultController;
+
+    @BeforeEach
+    public void setUp() {
+        resultMapper.delete(null);
+        LocalDateTime createdAt = LocalDateTime.now().minusMinutes(10);
+        for (int i = 1; i <= 5; i++) {
+            insert("invoice-" + i, "Invoice number " + i + " total due 100 EUR", "document", createdAt.plusMinutes(i));
+        }
+        insert("receipt-1", "Coffee receipt paid in cash", "process", createdAt.plusMinutes(6));
+        insert("receipt-2", "Invoicing software manual", "process", createdAt.plusMinutes(7));
+    }
+
+    private void insert(String imageHash, String text, String endpoint, LocalDateTime createdAt) {
+        OcrResultRecord record = new OcrResultRecord();
+        record.setImageHash(imageHash);
+        record.setEndpoint(endpoint);
+        record.setModel("gpt-4o-mini");
+        record.setEngine("remote");
+        record.setOutcome(OcrMetrics.OUTCOME_TEXT);
+        record.setExtractedText(text);
+        record.setResultJson("{\"text\":\"" + text + "\"}");
+        record.setDurationMs(5L);
+        record.setCreatedAt(createdAt);
+        resultMapper.insert(record);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<OcrResultRecord> results(Map<String, Object> page) {
+        return (List<OcrResultRecord>) page.get("results");
+    }
+
+    @Test
+    public void testWordsAreMatchedThroughTheFullTextIndex() {
+        // When
+        Map<String, Object> page = resultStore.search("invoice", null, null, null, null, 0, 20);
+
+        // Then
+        assertEquals(true, resultStore.getStats().get("full_text"));
+        // Whole words only, a substring search would also have found "Invoicing"
+        assertEquals(5L, page.get("total"));
+        for (OcrResultRecord record : results(page)) {
+            assertTrue(record.getImageHash().startsWith("invoice-"));
+        }
+        assertEquals(1L, resultStore.search("coffee", null, null, null, null, 0, 20).get("total"));
+        assertEquals(0L, resultStore.search("passport", null, null, null, null, 0, 20).get("total"));
+    }
+
+    @Test
+    public void testFiltersAreCombinedWithTheQuery() {
+        // Given
+        LocalDateTime from = LocalDateTime.now().minusMinutes(7).minusSeconds(30);
+
+        // When
+        Map<String, Object> page = resultStore.search("invoice", "document", null, from, null, 0, 20);
+
+        // Then
+        assertEquals(3L, page.get("total"));
+        assertEquals("invoice-5", results(page).get(0).getImageHash());
+        assertEquals(1L, resultStore.search(null, null, "receipt-2", null, null, 0, 20).get("total"));
+        assertEquals(7L, resultStore.search(null, null, null, null, null, 0, 20).get("total"));
+    }
+
+    @Test
+    public void testPagesAreCountedNewestFirst() {
+        // When
+        Map<String, Object> first = resultStore.search("invoice", null, null, null, null, 0, 2);
+        Map<String, Object> last = resultStore.search("invoice", null, null, null, null, 2, 2);
+        Map<String, Object> beyond = resultStore.search("invoice", null, null, null, null, 3, 2);
+
+        // Then
+        assertEquals(5L, first.get("total"));
+        assertEquals(2, results(first).size());
+        assertEquals("invoice-5", results(first).get(0).getImageHash());
+        assertEquals("invoice-4", results(first).get(1).getImageHash());
+        assertEquals(1, results(last).size());
+        assertEquals("invoice-1", results(last).get(0).getImageHash());
+        assertEquals(5L, beyond.get("total"));
+        assertTrue(results(beyond).isEmpty());
+    }
+
+    @Test
+    public void testControllerSearchesAndFindsResults() {
+        // When
+        ResponseEntity<Map<String, Object>> page = resultController.search(" invoice ", " ", null, null, null, 1, 2);
+        ResponseEntity<Map<String, Object>> beyond = resultController.search("invoice", null, null, null, null, 10, 2);
+        ResponseEntity<Map<String, Object>> invalid = resultController.search("invoice", null, null, null, null, 0, 101);
+
+        // Then
+        assertEquals(200, page.getStatusCodeValue());
+        assertEquals(5L, page.getBody().get("total"));
+        assertEquals(1, page.getBody().get("page"));
+        OcrResultRecord record = results(page.getBody()).get(0);
+        assertEquals("invoice-3", record.getImageHash());
+        assertEquals(200, beyond.getStatusCodeValue());
+        assertTrue(results(beyond.getBody()).isEmpty());
+        assertEquals(400, invalid.getStatusCodeValue());
+
+        ResponseEntity<Object> found = resultController.getResult(record.getId());
+        assertEquals(200, found.getStatusCodeValue());
+        assertEquals("invoice-3", ((OcrResultRecord) found.getBody()).getImageHash());
+        assertEquals(404, resultController.getResult(-1).getStatusCodeValue());
+    }
+}
@@ -0,0 +1,143 @@
+package org.example.easyocr.result;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.easyocr.entity.OcrResultRecord;
+import org.example.easyocr.mapper.OcrResultMapper;
+import org.example.easyocr.prompt.OcrPrompt;
+import org.example.easyocr.prompt.PromptProperties;
+import org.example.easyocr.prompt.PromptRegistry;
+import org.example.easyocr.service.OcrMode;
+import org.example.easyocr.service.OcrResult;
+import org.example.easyocr.upstream.ChatCompletion;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OcrResultStoreTest {
+
+    private final OcrPrompt textPrompt = newPromptRegistry().select(OcrMode.TEXT, null);
+
+    private static PromptRegistry newPromptRegistry() {
+        PromptRegistry registry = new PromptRegistry(new PromptProperties());
+        ReflectionTestUtils.setField(registry, "defaultPrompt", "Extract all text");
+        ReflectionTestUtils.setField(registry, "structuredPrompt", "Extract all fields as JSON");
+        registry.start();
+        return registry;
+    }
+
+    /**
+     * A mapper that keeps the batches it is asked to insert, after waiting for the gate to open
+     */
+    private static OcrResultMapper recordingMapper(List<List<OcrResultRecord>> batches, CountDownLatch gate) {
+        return (OcrResultMapper) Proxy.newProxyInstance(OcrResultMapper.class.getClassLoader(),
+                new Class<?>[]{OcrResultMapper.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("insert") && args[0] instanceof Collection) {
+                        gate.await();
+                        @SuppressWarnings("unchecked")
+                        Collection<OcrResultRecord> batch = (Collection<OcrResultRecord>) args[0];
+                        batches.add(new ArrayList<>(batch));
+                        return Collections.emptyList();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static OcrResultStore newStore(OcrResultMapper mapper, int queueCapacity, int batchSize, long flushInterval) {
+        OcrResultStore store = new OcrResultStore(mapper, new ObjectMapper());
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "fullTextEnabled", false);
+        ReflectionTestUtils.setField(store, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(store, "batchSize", batchSize);
+        ReflectionTestUtils.setField(store, "flushInterval", flushInterval);
+        store.start();
+        return store;
+    }
+
+    private void record(OcrResultStore store, String text) {
+        OcrResult result = OcrResult.text(text).from("remote", "gpt-4o-mini", new ChatCompletion.Usage(100, 20, 120));
+        store.record("hash-" + text, "gpt-4o-mini", textPrompt, "process", result, 5_000_000);
+    }
+
+    @Test
+    public void testResultsAreWrittenInBatches() throws InterruptedException {
+        // Given
+        List<List<OcrResultRecord>> batches = Collections.synchronizedList(new ArrayList<>());
+        OcrResultStore store = newStore(recordingMapper(batches, new CountDownLatch(0)), 100, 3, 200);
+
+        // When
+        for (int i = 0; i < 7; i++) {
+            record(store, "line " + i);
+        }
+        store.stop();
+
+        // Then
+        int rows = 0;
+        for (List<OcrResultRecord> batch : batches) {
+            assertTrue(batch.size() <= 3);
+            rows += batch.size();
+        }
+        assertEquals(7, rows);
+        assertEquals(7L, store.getStats().get("written"));
+        OcrResultRecord first = batches.get(0).get(0);
+        assertEquals("hash-line 0", first.getImageHash());
+        assertEquals("line 0", first.getExtractedText());
+        assertEquals("remote", first.getEngine());
+        assertEquals("text", first.getOutcome());
+        assertEquals(textPrompt.getVersion(), first.getPromptVersion());
+        assertEquals(Long.valueOf(120), first.getTotalTokens());
+        assertEquals(Long.valueOf(5), first.getDurationMs());
+    }
+
+    @Test
+    public void testFullQueueDropsInsteadOfBlocking() throws InterruptedException {
+        // Given a database that does not answer until the gate opens
+        List<List<OcrResultRecord>> batches = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch gate = new CountDownLatch(1);
+        OcrResultStore store = newStore(recordingMapper(batches, gate), 2, 1, 10);
+        record(store, "taken by the writer");
+        Thread.sleep(100);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            record(store, "line " + i);
+        }
+
+        // Then
+        assertEquals(3L, store.getStats().get("dropped"));
+        gate.countDown();
+        store.stop();
+        assertEquals(3L, store.getStats().get("written"));
+    }
+
+    @Test
+    public void testDocumentFieldsAreSearchableText() {
+        // Given
+        Map<String, Object> address = new LinkedHashMap<>();
+        address.put("street", "1 Main St");
+        address.put("city", "Springfield");
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("surname", "Doe");
+        fields.put("middle_name", null);
+        fields.put("address", address);
+        fields.put("categories", List.of("A", "B"));
+
+        // When
+        String text = OcrResultStore.searchableText(OcrResult.fields(fields));
+
+        // Then
+        assertEquals("Doe\n1 Main St\nSpringfield\nA\nB", text);
+        assertNull(OcrResultStore.searchableText(OcrResult.error("failed", null)));
+    }
+}
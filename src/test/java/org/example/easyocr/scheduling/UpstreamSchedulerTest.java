@@ -0,0 +1,220 @@
+package org.example.easyocr.scheduling;
+
+import org.example.easyocr.upstream.UpstreamThrottledException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UpstreamSchedulerTest {
+
+    private final List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+    private static UpstreamScheduler newScheduler(SchedulerProperties properties, int capacity) {
+        return newScheduler(properties, capacity, TimeUnit.MINUTES.toNanos(1));
+    }
+
+    private static UpstreamScheduler newScheduler(SchedulerProperties properties, int capacity, long idleFlowNanos) {
+        UpstreamScheduler scheduler = new UpstreamScheduler(properties, () -> capacity, idleFlowNanos);
+        scheduler.start();
+        return scheduler;
+    }
+
+    private static OcrRequestContext context(String tenant, Lane lane) {
+        return new OcrRequestContext(tenant, lane, 0);
+    }
+
+    /**
+     * Start a call on its own thread that records its name when it gets its slot
+     */
+    private Thread call(UpstreamScheduler scheduler, OcrRequestContext context, String name) {
+        Thread thread = new Thread(() -> {
+            OcrRequestContext.bind(context);
+            scheduler.execute(() -> order.add(name));
+        });
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Take a slot until the returned latch is counted down
+     */
+    private CountDownLatch occupy(UpstreamScheduler scheduler, OcrRequestContext context) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        new Thread(() -> {
+            OcrRequestContext.bind(context);
+            scheduler.execute(() -> {
+                started.countDown();
+                try {
+                    return release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            });
+        }).start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private static void awaitQueued(UpstreamScheduler scheduler, Lane lane, int queued) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> laneStats = (Map<String, Object>) scheduler.getStats().get(lane.getName());
+            if ((Integer) laneStats.get("queued") == queued) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Calls were not queued");
+    }
+
+    @Test
+    public void testInteractiveRequestOvertakesQueuedBatch() throws InterruptedException {
+        // Given
+        UpstreamScheduler scheduler = newScheduler(new SchedulerProperties(), 1);
+        CountDownLatch release = occupy(scheduler, context("import", Lane.BATCH));
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            threads.add(call(scheduler, context("import", Lane.BATCH), "batch-" + i));
+            awaitQueued(scheduler, Lane.BATCH, i + 1);
+        }
+        threads.add(call(scheduler, context(OcrRequestContext.ANONYMOUS, Lane.INTERACTIVE), "interactive"));
+        awaitQueued(scheduler, Lane.INTERACTIVE, 1);
+
+        // When
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+
+        // Then
+        assertEquals(List.of("interactive", "batch-0", "batch-1", "batch-2"), order);
+    }
+
+    @Test
+    public void testTenantsOfALaneShareByWeight() throws InterruptedException {
+        // Given
+        SchedulerProperties properties = new SchedulerProperties();
+        SchedulerProperties.Tenant heavy = new SchedulerProperties.Tenant();
+        heavy.setWeight(2);
+        properties.getTenants().put("heavy", heavy);
+        UpstreamScheduler scheduler = newScheduler(properties, 1);
+        CountDownLatch release = occupy(scheduler, context("user", Lane.INTERACTIVE));
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(call(scheduler, context("bulk", Lane.BATCH), "bulk"));
+            awaitQueued(scheduler, Lane.BATCH, threads.size());
+        }
+        for (int i = 0; i < 4; i++) {
+            threads.add(call(scheduler, context("heavy", Lane.BATCH), "heavy"));
+            awaitQueued(scheduler, Lane.BATCH, threads.size());
+        }
+
+        // When
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+
+        // Then
+        // Queued last, the tenant with twice the weight still gets two slots for each of the other
+        assertEquals(List.of("bulk", "heavy", "heavy", "bulk", "heavy", "heavy", "bulk", "bulk"), order);
+    }
+
+    @Test
+    public void testRequestPastDeadlineIsDropped() throws InterruptedException {
+        // Given
+        UpstreamScheduler scheduler = newScheduler(new SchedulerProperties(), 1);
+        CountDownLatch release = occupy(scheduler, context("user", Lane.INTERACTIVE));
+        OcrRequestContext.bind(new OcrRequestContext("client", Lane.INTERACTIVE, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50)));
+
+        // When / Then
+        try {
+            assertThrows(UpstreamThrottledException.class, () -> scheduler.execute(() -> order.add("late")));
+        } finally {
+            OcrRequestContext.restore(null);
+            release.countDown();
+        }
+        assertTrue(order.isEmpty());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> laneStats = (Map<String, Object>) scheduler.getStats().get("interactive");
+        assertEquals(1L, laneStats.get("dropped"));
+        assertEquals(0, laneStats.get("queued"));
+    }
+
+    @Test
+    public void testBatchDerivedFromAnOldRequestKeepsWaiting() throws InterruptedException {
+        // Given a request whose interactive deadline has passed, e.g. a batch streamed for minutes
+        UpstreamScheduler scheduler = newScheduler(new SchedulerProperties(), 1);
+        CountDownLatch release = occupy(scheduler, context("user", Lane.INTERACTIVE));
+        OcrRequestContext request = new OcrRequestContext("client", Lane.INTERACTIVE, System.nanoTime() - 1);
+        OcrRequestContext.bind(request);
+        try {
+            assertThrows(UpstreamThrottledException.class, () -> scheduler.execute(() -> order.add("late")));
+        } finally {
+            OcrRequestContext.restore(null);
+        }
+
+        // When
+        Thread batch = call(scheduler, request.withLane(Lane.BATCH, System.nanoTime() + TimeUnit.SECONDS.toNanos(10)), "batch");
+        awaitQueued(scheduler, Lane.BATCH, 1);
+        release.countDown();
+        batch.join(5000);
+
+        // Then
+        assertEquals(List.of("batch"), order);
+    }
+
+    @Test
+    public void testTenantConcurrencyQuota() throws InterruptedException {
+        // Given
+        SchedulerProperties properties = new SchedulerProperties();
+        SchedulerProperties.Tenant limited = new SchedulerProperties.Tenant();
+        limited.setMaxConcurrency(1);
+        properties.getTenants().put("limited", limited);
+        UpstreamScheduler scheduler = newScheduler(properties, 4);
+        CountDownLatch release = occupy(scheduler, context("limited", Lane.INTERACTIVE));
+
+        // When
+        Thread waiting = call(scheduler, context("limited", Lane.INTERACTIVE), "limited");
+        awaitQueued(scheduler, Lane.INTERACTIVE, 1);
+        Thread other = call(scheduler, context("other", Lane.INTERACTIVE), "other");
+        other.join(5000);
+
+        // Then
+        assertEquals(List.of("other"), order);
+        release.countDown();
+        waiting.join(5000);
+        assertEquals(List.of("other", "limited"), order);
+    }
+
+    @Test
+    public void testIdleTenantsAreForgotten() throws InterruptedException {
+        // Given
+        UpstreamScheduler scheduler = newScheduler(new SchedulerProperties(), 4, TimeUnit.MILLISECONDS.toNanos(50));
+        for (int i = 0; i < 3; i++) {
+            call(scheduler, context("tenant-" + i, Lane.INTERACTIVE), "call-" + i).join();
+        }
+        assertTrue(scheduler.getStats().containsKey("interactive.tenant-0"));
+
+        // When
+        Thread.sleep(100);
+        call(scheduler, context("tenant-3", Lane.INTERACTIVE), "call-3").join();
+
+        // Then
+        Map<String, Object> stats = scheduler.getStats();
+        assertFalse(stats.containsKey("interactive.tenant-0"));
+        assertFalse(stats.containsKey("interactive.tenant-2"));
+        assertTrue(stats.containsKey("interactive.tenant-3"));
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.easyocr.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.easyocr.image.BytesImageSource;
+import org.example.easyocr.image.ImageSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class BatchOcrServiceTest {
+
+    @Mock
+    private OcrService ocrService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private BatchOcrService batchOcrService;
+
+    @BeforeEach
+    public void setUp() {
+        batchOcrService = new BatchOcrService(ocrService, objectMapper);
+        ReflectionTestUtils.setField(batchOcrService, "parallelism", 2);
+        ReflectionTestUtils.setField(batchOcrService, "maxThreads", 4);
+        ReflectionTestUtils.setField(batchOcrService, "itemTimeout", 1000L);
+        batchOcrService.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        batchOcrService.stop();
+    }
+
+    @Test
+    public void testFailedItemsDoNotAbortTheBatch() throws IOException {
+        // Given
+        ImageSource good = new BytesImageSource(new byte[]{1}, "image/png");
+        ImageSource failing = new BytesImageSource(new byte[]{2}, "image/png");
+        ImageSource form = new BytesImageSource(new byte[]{3}, "image/png");
+        when(ocrService.recognize(eq(good), eq(OcrMode.TEXT), isNull(), any())).thenReturn(OcrResult.text("Hello"));
+        when(ocrService.recognize(eq(failing), eq(OcrMode.TEXT), isNull(), any())).thenThrow(new IOException("broken"));
+        // A form with a field named "error" is a result like any other
+        when(ocrService.recognize(eq(form), eq(OcrMode.TEXT), isNull(), any())).thenReturn(OcrResult.fields(Map.of("error", "E-42")));
+
+        List<BatchOcrService.Item> items = new ArrayList<>();
+        items.add(BatchOcrService.Item.of(0, "a.png", good));
+        items.add(BatchOcrService.Item.of(1, "b.png", failing));
+        items.add(BatchOcrService.Item.invalid(2, "c.txt", "Invalid file type. Please upload an image"));
+        items.add(BatchOcrService.Item.of(3, "d.png", good));
+        items.add(BatchOcrService.Item.of(4, "e.png", form));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        batchOcrService.processBatch(items, OcrMode.TEXT, out);
+
+        // Then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(5, lines.length);
+        Map<Integer, JsonNode> byIndex = new HashMap<>();
+        for (String line : lines) {
+            JsonNode node = objectMapper.readTree(line);
+            byIndex.put(node.get("index").asInt(), node);
+        }
+        assertEquals("Hello", byIndex.get(0).get("result").get("extracted_text").asText());
+        assertTrue(byIndex.get(1).get("error").asText().contains("broken"));
+        assertEquals("Invalid file type. Please upload an image", byIndex.get(2).get("error").asText());
+        assertEquals("Hello", byIndex.get(3).get("result").get("extracted_text").asText());
+        assertEquals("E-42", byIndex.get(4).get("result").get("error").asText());
+        assertTrue(byIndex.get(4).get("error") == null);
+        assertEquals(2L, batchOcrService.getStats().get("failed_items"));
+    }
+
+    @Test
+    public void testTimeoutGrowsWithTheBatch() {
+        // Two items at a time, each may take a second
+        assertEquals(1000L, batchOcrService.getTimeoutMillis(1));
+        assertEquals(1000L, batchOcrService.getTimeoutMillis(2));
+        assertEquals(2000L, batchOcrService.getTimeoutMillis(3));
+        assertEquals(250_000L, batchOcrService.getTimeoutMillis(500));
+    }
+}
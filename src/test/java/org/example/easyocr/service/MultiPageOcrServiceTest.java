@@ -0,0 +1,149 @@
+package org.example.easyocr.service;
+
+import org.example.easyocr.image.BytesImageSource;
+import org.example.easyocr.image.ImageSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class MultiPageOcrServiceTest {
+
+    @Mock
+    private OcrService ocrService;
+
+    private MultiPageOcrService multiPageOcrService;
+
+    @BeforeEach
+    public void setUp() {
+        multiPageOcrService = new MultiPageOcrService(ocrService);
+        ReflectionTestUtils.setField(multiPageOcrService, "parallelism", 2);
+        ReflectionTestUtils.setField(multiPageOcrService, "maxThreads", 4);
+        ReflectionTestUtils.setField(multiPageOcrService, "maxPages", 10);
+        ReflectionTestUtils.setField(multiPageOcrService, "dpi", 100f);
+        ReflectionTestUtils.setField(multiPageOcrService, "maxPixels", 1_000_000L);
+        ReflectionTestUtils.setField(multiPageOcrService, "jpegQuality", 0.9f);
+        multiPageOcrService.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        multiPageOcrService.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPagesAreReassembledInOrderWithPartialFailures() throws IOException {
+        // Given: three frames told apart by their width, the second one fails
+        ImageSource tiff = new BytesImageSource(tiff(100, 200, 300), "image/tiff");
+        when(ocrService.recognize(any(), eq(OcrMode.TEXT), isNull(), eq("process"))).thenAnswer(invocation -> {
+            int width = width(invocation.getArgument(0));
+            if (width == 200) {
+                throw new IOException("upstream failed");
+            }
+            return OcrResult.text("width " + width);
+        });
+
+        // When
+        Map<String, Object> result = multiPageOcrService.processDocument(tiff, OcrMode.TEXT, "process");
+
+        // Then
+        assertEquals(3, result.get("page_count"));
+        assertEquals(1, result.get("failed_pages"));
+        List<Map<String, Object>> pages = (List<Map<String, Object>>) result.get("pages");
+        assertEquals(1, pages.get(0).get("page"));
+        assertEquals("width 100", ((Map<String, Object>) pages.get(0).get("result")).get("extracted_text"));
+        assertEquals(2, pages.get(1).get("page"));
+        assertTrue(((String) pages.get(1).get("error")).contains("upstream failed"));
+        assertEquals("width 300", ((Map<String, Object>) pages.get(2).get("result")).get("extracted_text"));
+        assertTrue(pages.get(2).containsKey("duration_ms"));
+        assertTrue(pages.get(2).containsKey("render_ms"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPageOverThePixelLimitFailsWithoutBeingDecoded() throws IOException {
+        // Given: 100x50 and 300x50 frames, of which only the first is within the limit
+        ReflectionTestUtils.setField(multiPageOcrService, "maxPixels", 10_000L);
+        ImageSource tiff = new BytesImageSource(tiff(100, 300), "image/tiff");
+        when(ocrService.recognize(any(), eq(OcrMode.TEXT), isNull(), eq("process"))).thenReturn(OcrResult.text("page"));
+
+        // When
+        Map<String, Object> result = multiPageOcrService.processDocument(tiff, OcrMode.TEXT, "process");
+
+        // Then
+        assertEquals(1, result.get("failed_pages"));
+        List<Map<String, Object>> pages = (List<Map<String, Object>>) result.get("pages");
+        assertEquals("page", ((Map<String, Object>) pages.get(0).get("result")).get("extracted_text"));
+        assertEquals("Could not render page: The image has 300x50 pixels, the maximum is 10000", pages.get(1).get("error"));
+    }
+
+    @Test
+    public void testTooManyPagesIsRejected() throws IOException {
+        // Given
+        ReflectionTestUtils.setField(multiPageOcrService, "maxPages", 2);
+        ImageSource tiff = new BytesImageSource(tiff(10, 20, 30), "image/tiff");
+
+        // When
+        Map<String, Object> result = multiPageOcrService.processDocument(tiff, OcrMode.TEXT, "process");
+
+        // Then
+        assertEquals("The document has 3 pages, the maximum is 2", result.get("error"));
+    }
+
+    @Test
+    public void testUnreadableDocumentIsReported() throws IOException {
+        // Given
+        ImageSource broken = new BytesImageSource("not a tiff".getBytes(), "image/tiff");
+
+        // When
+        Map<String, Object> result = multiPageOcrService.processDocument(broken, OcrMode.DOCUMENT, "document");
+
+        // Then
+        assertTrue(((String) result.get("error")).startsWith("Could not read the document"));
+    }
+
+    private static byte[] tiff(int... widths) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("tiff").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            writer.prepareWriteSequence(null);
+            for (int width : widths) {
+                writer.writeToSequence(new IIOImage(new BufferedImage(width, 50, BufferedImage.TYPE_BYTE_BINARY), null, null), null);
+            }
+            writer.endWriteSequence();
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static int width(ImageSource image) throws IOException {
+        try (InputStream in = image.openStream()) {
+            return ImageIO.read(in).getWidth();
+        }
+    }
+}
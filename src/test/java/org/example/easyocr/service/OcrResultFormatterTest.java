@@ -0,0 +1,85 @@
+package org.example.easyocr.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.easyocr.upstream.ChatCompletion;
+import org.example.easyocr.upstream.ChatCompletionResponseReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class OcrResultFormatterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ChatCompletionResponseReader reader = new ChatCompletionResponseReader(objectMapper);
+    private final OcrResultFormatter formatter = new OcrResultFormatter(objectMapper);
+
+    private Map<String, Object> format(Object response) throws IOException {
+        ChatCompletion completion = reader.read(new ByteArrayInputStream(objectMapper.writeValueAsBytes(response)));
+        return formatter.formatResponse(completion).toMap();
+    }
+
+    private static Map<String, Object> response(String content) {
+        return Map.of("choices", List.of(Map.of("message", Map.of("role", "assistant", "content", content))));
+    }
+
+    @Test
+    public void testCleanJsonIsReturnedAsFields() throws IOException {
+        Map<String, Object> result = format(response("{\"name\":\"Jane Doe\",\"id_number\":\"X123\"}"));
+
+        assertEquals(Map.of("name", "Jane Doe", "id_number", "X123"), result);
+    }
+
+    @Test
+    public void testJsonEmbeddedInProseIsExtracted() throws IOException {
+        Map<String, Object> result = format(
+                response("Here are the fields:\n```json\n{\"name\":\"Jane Doe\",\"address\":{\"city\":\"Springfield\"}}\n```\nDone."));
+
+        assertEquals(Map.of("name", "Jane Doe", "address", Map.of("city", "Springfield")), result);
+    }
+
+    @Test
+    public void testPlainTextFallsBackToExtractedText() throws IOException {
+        String text = "Line one\nLine {two} with braces";
+
+        Map<String, Object> result = format(response(text));
+
+        assertEquals(Map.of("extracted_text", text), result);
+    }
+
+    @Test
+    public void testMissingChoicesAndUpstreamErrorsAreReported() throws IOException {
+        Map<String, Object> noChoices = format(Map.of("id", "chatcmpl-1", "choices", List.of()));
+        Map<String, Object> upstreamError = format(Map.of("error", Map.of("message", "Invalid key")));
+
+        assertEquals("No text could be extracted from the image", noChoices.get("error"));
+        assertEquals(Map.of("id", "chatcmpl-1", "choices", List.of()), noChoices.get("original_response"));
+        assertEquals(Map.of("message", "Invalid key"), upstreamError.get("error"));
+        assertEquals("No response received from API", formatter.formatResponse(null).toMap().get("error"));
+    }
+
+    @Test
+    public void testOnlyTheFirstMessageAndUsageAreRead() throws IOException {
+        // Given
+        String body = "{\"id\":\"chatcmpl-1\",\"choices\":["
+                + "{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"first\",\"tool_calls\":[{\"id\":\"x\"}]},\"logprobs\":null},"
+                + "{\"index\":1,\"message\":{\"role\":\"assistant\",\"content\":\"second\"}}],"
+                + "\"usage\":{\"prompt_tokens\":1200,\"completion_tokens\":85,\"total_tokens\":1285}}";
+
+        // When
+        ChatCompletion completion = reader.read(new ByteArrayInputStream(body.getBytes()));
+
+        // Then
+        assertEquals("first", completion.getContent());
+        assertEquals(1200, completion.getUsage().getPromptTokens());
+        assertEquals(85, completion.getUsage().getCompletionTokens());
+        assertEquals(1285, completion.getUsage().getTotalTokens());
+        assertNull(completion.getOtherFields().get("choices"));
+        assertNull(reader.read(new ByteArrayInputStream(new byte[0])));
+    }
+}
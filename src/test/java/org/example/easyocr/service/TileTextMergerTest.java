@@ -0,0 +1,50 @@
+package org.example.easyocr.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TileTextMergerTest {
+
+    @Test
+    public void testOverlappingLinesAreKeptOnce() {
+        // Given
+        String top = "Clause 1. Parties\nThe Seller and the Buyer\nClause 2. Price\nThe price is 100 EUR";
+        String bottom = "Clause 2.  price\nthe price is 100 EUR\nClause 3. Delivery\nWithin 30 days";
+
+        // When
+        String merged = TileTextMerger.merge(List.of(top, bottom), 10);
+
+        // Then
+        assertEquals("Clause 1. Parties\nThe Seller and the Buyer\nClause 2. Price\nThe price is 100 EUR\n"
+                + "Clause 3. Delivery\nWithin 30 days", merged);
+    }
+
+    @Test
+    public void testLinesCutByTheBandEdgeAreDropped() {
+        // Given: the last line of the upper band and the first of the lower one are cut in half
+        String top = "Line one\nLine two\nLine three\nLine fo";
+
+        // When
+        String merged = TileTextMerger.merge(List.of(top, "Line two\nLine three\nLine four\nLine five"), 10);
+        String mergedWithCutLines = TileTextMerger.merge(List.of(top, "ine two\nLine three\nLine four\nLine five"), 10);
+
+        // Then
+        assertEquals("Line one\nLine two\nLine three\nLine four\nLine five", merged);
+        assertEquals("Line one\nLine two\nLine three\nLine four\nLine five", mergedWithCutLines);
+    }
+
+    @Test
+    public void testBandsWithoutCommonLinesAreConcatenated() {
+        // Given
+        List<String> texts = List.of("Header\n\n", "\n\nBody text\n\n", "Footer");
+
+        // When
+        String merged = TileTextMerger.merge(texts, 10);
+
+        // Then
+        assertEquals("Header\nBody text\nFooter", merged);
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.easyocr.startup;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Starts the application the way the {@code fast-startup} profile does, with lazy
+ * initialization and a short warm-up of the request path
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:startup-warm-up;DB_CLOSE_DELAY=-1",
+        "spring.main.lazy-initialization=true",
+        "app.jobs.enabled=false",
+        "app.warm-up.enabled=true",
+        "app.warm-up.iterations=4",
+        "app.http.pool.warm-up-connections=0"
+})
+public class StartupWarmUpTest {
+
+    @Autowired
+    private ConfigurableApplicationContext applicationContext;
+
+    @Autowired
+    private StartupWarmUp startupWarmUp;
+
+    @Autowired
+    private StartupTimeline startupTimeline;
+
+    @Test
+    public void testWarmUpRunsBeforeTheApplicationIsReady() {
+        // When
+        Map<String, Object> stats = startupTimeline.getStats();
+
+        // Then
+        assertEquals(4, stats.get("warm_up_iterations"));
+        assertEquals(0, stats.get("warm_up_connections"));
+        assertTrue((Long) stats.get("warm_up_ms") >= 0);
+        assertTrue((Long) stats.get("started_ms") >= 0);
+        assertTrue((Long) stats.get("ready_ms") >= (Long) stats.get("started_ms"));
+        assertEquals(0, startupWarmUp.getExitCode());
+        assertFalse(startupWarmUp.isExitRequested());
+    }
+
+    @Test
+    public void testApplicationBeansStayEagerUnderLazyInitialization() {
+        // Given
+        ConfigurableListableBeanFactory beanFactory = applicationContext.getBeanFactory();
+        List<String> lazyApplicationBeans = new ArrayList<>();
+        int lazyOtherBeans = 0;
+
+        // When
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(name);
+            Class<?> type = beanFactory.getType(name, false);
+            if (!definition.isLazyInit() || type == null) {
+                continue;
+            }
+            if (type.getName().startsWith("org.example.easyocr.")) {
+                lazyApplicationBeans.add(name);
+            } else {
+                lazyOtherBeans++;
+            }
+        }
+
+        // Then
+        assertEquals(List.of(), lazyApplicationBeans);
+        assertTrue(lazyOtherBeans > 0);
+        assertTrue(beanFactory.containsSingleton("startupTimeline"));
+    }
+
+}
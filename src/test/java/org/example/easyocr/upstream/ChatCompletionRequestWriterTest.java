@@ -0,0 +1,136 @@
+package org.example.easyocr.upstream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.easyocr.image.Base64ImageSource;
+import org.example.easyocr.image.BytesImageSource;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class ChatCompletionRequestWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ChatCompletionRequestWriter writer = new ChatCompletionRequestWriter(objectMapper);
+
+    @Test
+    public void testWritesChatCompletionRequest() throws IOException {
+        // Given
+        byte[] image = randomBytes(10_000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        writer.write(out, "gpt-4o-mini", "Extract \"all\" text", new BytesImageSource(image, "image/png"));
+
+        // Then
+        JsonNode body = objectMapper.readTree(out.toByteArray());
+        assertEquals("gpt-4o-mini", body.get("model").asText());
+        assertEquals(4000, body.get("max_tokens").asInt());
+        JsonNode content = body.get("messages").get(0).get("content");
+        assertEquals("Extract \"all\" text", content.get(0).get("text").asText());
+        assertEquals("data:image/png;base64," + Base64.getEncoder().encodeToString(image),
+                content.get(1).get("image_url").get("url").asText());
+    }
+
+    @Test
+    public void testBase64SourceIsWrittenUnchanged() throws IOException {
+        // Given
+        byte[] image = randomBytes(20_000);
+        String dataUri = "data:image/jpeg;base64," + Base64.getEncoder().encodeToString(image);
+        ByteArrayOutputStream fromBase64 = new ByteArrayOutputStream();
+        ByteArrayOutputStream fromBytes = new ByteArrayOutputStream();
+
+        // When
+        writer.write(fromBase64, "model", "prompt", Base64ImageSource.of(dataUri, null));
+        writer.write(fromBytes, "model", "prompt", new BytesImageSource(image, "image/jpeg"));
+
+        // Then
+        assertEquals(fromBytes.toString(), fromBase64.toString());
+    }
+
+    @Test
+    public void testContentTypeIsEscaped() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        writer.write(out, "model", "prompt", new BytesImageSource(new byte[]{1, 2, 3}, "image/\"png"));
+
+        JsonNode body = objectMapper.readTree(out.toByteArray());
+        assertEquals("data:image/\"png;base64,AQID",
+                body.get("messages").get(0).get("content").get(1).get("image_url").get("url").asText());
+    }
+
+    @Test
+    public void testCompletionBoundAndImageDetail() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        writer.write(out, "model", "Which document is this?", new BytesImageSource(new byte[]{1, 2, 3}, "image/png"), false, 10, "low");
+
+        JsonNode body = objectMapper.readTree(out.toByteArray());
+        assertEquals(10, body.get("max_tokens").asInt());
+        JsonNode imageUrl = body.get("messages").get(0).get("content").get(1).get("image_url");
+        assertEquals("data:image/png;base64,AQID", imageUrl.get("url").asText());
+        assertEquals("low", imageUrl.get("detail").asText());
+    }
+
+    /**
+     * The previous request path held about six copies of the image on the heap (bytes,
+     * base64 string, data URI, request map, serialized JSON, buffered body). Streaming
+     * must allocate a small constant amount, independent of the image size.
+     */
+    @Test
+    public void testHeapUsageDoesNotGrowWithImageSize() throws IOException {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        byte[] smallImage = randomBytes(512 * 1024);
+        byte[] largeImage = randomBytes(8 * 1024 * 1024);
+        // Warm up class loading and buffer recycling first
+        writeDiscarding(new BytesImageSource(smallImage, "image/jpeg"));
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        long written = writeDiscarding(new BytesImageSource(largeImage, "image/jpeg"));
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(written > largeImage.length * 4L / 3, "Expected the whole base64 image to be written");
+        assertTrue(allocated < 512 * 1024,
+                "Streaming an 8 MB image allocated " + allocated + " bytes, expected a small constant buffer");
+    }
+
+    private long writeDiscarding(BytesImageSource image) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        writer.write(out, "model", "prompt", image);
+        return out.count;
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
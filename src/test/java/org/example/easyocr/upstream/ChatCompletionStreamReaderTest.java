@@ -0,0 +1,84 @@
+package org.example.easyocr.upstream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChatCompletionStreamReaderTest {
+
+    private final ChatCompletionStreamReader reader = new ChatCompletionStreamReader(new ObjectMapper());
+
+    @Test
+    public void testDeltasAreRelayedInOrder() throws IOException {
+        // Given
+        String body = ": keep-alive\n\n"
+                + "data: {\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":\"\"}}]}\n\n"
+                + "data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\"Hello\"}}]}\n\n"
+                + "data: {\"choices\":[{\"index\":0,\"delta\":{\"content\":\", wörld\"}}]}\n\n"
+                + "data: {\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}]}\n\n"
+                + "data: [DONE]\n\n";
+        List<String> deltas = new ArrayList<>();
+
+        // When
+        String content = reader.read(stream(body), deltas::add);
+
+        // Then
+        assertEquals(List.of("Hello", ", wörld"), deltas);
+        assertEquals("Hello, wörld", content);
+    }
+
+    @Test
+    public void testStreamWithoutDoneMarkerOrTrailingBlankLine() throws IOException {
+        // Given
+        String body = "data: {\"choices\":[{\"delta\":{\"content\":\"{\\\"name\\\":\"}}]}\r\n\r\n"
+                + "data: {\"choices\":[{\"delta\":{\"content\":\"\\\"Jane\\\"}\"}}]}";
+
+        // When
+        String content = reader.read(stream(body), text -> { });
+
+        // Then
+        assertEquals("{\"name\":\"Jane\"}", content);
+    }
+
+    @Test
+    public void testErrorChunkFailsTheStream() {
+        // Given
+        String body = "data: {\"choices\":[{\"delta\":{\"content\":\"partial\"}}]}\n\n"
+                + "data: {\"error\":{\"message\":\"server overloaded\"}}\n\n";
+
+        // When
+        IOException error = assertThrows(IOException.class, () -> reader.read(stream(body), text -> { }));
+
+        // Then
+        assertTrue(error.getMessage().contains("server overloaded"));
+    }
+
+    @Test
+    public void testListenerFailureAbortsTheStream() {
+        // Given
+        String body = "data: {\"choices\":[{\"delta\":{\"content\":\"partial\"}}]}\n\n";
+        IOException brokenPipe = new IOException("Broken pipe");
+
+        // When
+        StreamAbortedException aborted = assertThrows(StreamAbortedException.class, () -> reader.read(stream(body), text -> {
+            throw brokenPipe;
+        }));
+
+        // Then
+        assertSame(brokenPipe, aborted.getClientFailure());
+    }
+
+    private static ByteArrayInputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
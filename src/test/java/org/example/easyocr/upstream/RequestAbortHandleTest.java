@@ -0,0 +1,165 @@
+package org.example.easyocr.upstream;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.example.easyocr.http.AbortableClientHttpRequestFactory;
+import org.example.easyocr.http.PooledConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Aborting requests created by {@link AbortableClientHttpRequestFactory} through the handle
+ * bound to the calling thread, against a local endpoint that streams its answer slowly
+ */
+public class RequestAbortHandleTest {
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private HttpServer server;
+    private String url;
+    private String modelsUrl;
+    private PooledConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private RestTemplate restTemplate;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            requests.incrementAndGet();
+            try (OutputStream out = exchange.getResponseBody()) {
+                exchange.sendResponseHeaders(200, 0);
+                out.write("data: first\n\n".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                // The rest of the answer comes far later than the test waits
+                Thread.sleep(10000);
+            } catch (InterruptedException | IOException e) {
+                // The client aborted the request
+            } finally {
+                exchange.close();
+            }
+        });
+        server.createContext("/v1/models", exchange -> {
+            requests.incrementAndGet();
+            byte[] bytes = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions";
+        modelsUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/models";
+
+        connectionManager = new PooledConnectionManager(300000, TimeUnit.MILLISECONDS);
+        httpClient = HttpClients.custom().setConnectionManager(connectionManager).build();
+        restTemplate = new RestTemplate(new AbortableClientHttpRequestFactory(httpClient));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        httpClient.close();
+        server.stop(0);
+    }
+
+    /**
+     * Read the whole answer on another thread, with the given handle bound to it
+     */
+    private CompletableFuture<Integer> readAnswer(RequestAbortHandle handle, CountDownLatch firstBytes) {
+        return CompletableFuture.supplyAsync(() -> {
+            RequestAbortHandle previous = RequestAbortHandle.bind(handle);
+            try {
+                return restTemplate.execute(url, HttpMethod.GET, null, response -> {
+                    InputStream body = response.getBody();
+                    int read = body.read(new byte[64]);
+                    firstBytes.countDown();
+                    while (body.read() >= 0) {
+                        read++;
+                    }
+                    return read;
+                });
+            } finally {
+                RequestAbortHandle.restore(previous);
+            }
+        });
+    }
+
+    @Test
+    public void testAbortFromAnotherThreadStopsReadingAndDropsTheConnection() throws InterruptedException {
+        // Given
+        RequestAbortHandle handle = new RequestAbortHandle();
+        CountDownLatch firstBytes = new CountDownLatch(1);
+        CompletableFuture<Integer> answer = readAnswer(handle, firstBytes);
+        assertTrue(firstBytes.await(5, TimeUnit.SECONDS));
+        long start = System.nanoTime();
+
+        // When
+        handle.abort();
+
+        // Then
+        ExecutionException e = assertThrows(ExecutionException.class, () -> answer.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ResourceAccessException.class, e.getCause());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertTrue(handle.isAborted());
+        // An aborted connection is closed, not handed to the next caller with half an answer in it
+        Map<String, Object> stats = connectionManager.getStats();
+        assertEquals(0, stats.get("leased"));
+        assertEquals(0, stats.get("available"));
+    }
+
+    @Test
+    public void testRequestOfAnAlreadyAbortedHandleIsNeverSent() {
+        // Given
+        RequestAbortHandle handle = new RequestAbortHandle();
+        handle.abort();
+
+        // When
+        CompletableFuture<Integer> answer = readAnswer(handle, new CountDownLatch(1));
+
+        // Then
+        ExecutionException e = assertThrows(ExecutionException.class, () -> answer.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ResourceAccessException.class, e.getCause());
+        assertEquals(0, requests.get());
+    }
+
+    @Test
+    public void testAbortWithoutABoundHandleDoesNothing() {
+        // When
+        String answer = restTemplate.execute(modelsUrl, HttpMethod.GET, null, response -> {
+            RequestAbortHandle.abortCurrent();
+            return new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+        });
+
+        // Then
+        assertEquals("ok", answer);
+        assertEquals(1, requests.get());
+        assertEquals(1, connectionManager.getStats().get("available"));
+    }
+
+}
@@ -0,0 +1,121 @@
+package org.example.easyocr.upstream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UpstreamKeyPoolTest {
+
+    private static UpstreamKeyPool newPool(int size) {
+        List<UpstreamKey> keys = new ArrayList<>();
+        for (int i = 1; i <= size; i++) {
+            keys.add(new UpstreamKey("key-" + i, "sk-test-key-" + i));
+        }
+        return new UpstreamKeyPool(keys, 1, 2000, TimeUnit.SECONDS.toNanos(10), TimeUnit.MINUTES.toNanos(10));
+    }
+
+    private static HttpHeaders quota(long remainingRequests, long remainingTokens) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("x-ratelimit-limit-requests", "500");
+        headers.set("x-ratelimit-limit-tokens", "200000");
+        headers.set("x-ratelimit-remaining-requests", String.valueOf(remainingRequests));
+        headers.set("x-ratelimit-remaining-tokens", String.valueOf(remainingTokens));
+        headers.set("x-ratelimit-reset-requests", "6m0s");
+        headers.set("x-ratelimit-reset-tokens", "1.5s");
+        return headers;
+    }
+
+    @Test
+    public void testKeyWithMostQuotaLeftIsPicked() {
+        // Given
+        UpstreamKeyPool pool = newPool(3);
+        pool.onResponse(pool.getKeys().get(0), quota(100, 150000));
+        pool.onResponse(pool.getKeys().get(1), quota(450, 190000));
+        pool.onResponse(pool.getKeys().get(2), quota(400, 20000));
+
+        // When
+        UpstreamKey key = pool.acquire();
+
+        // Then
+        assertSame(pool.getKeys().get(1), key);
+        pool.release(key);
+    }
+
+    @Test
+    public void testKeysWithoutQuotaInformationTakeTurns() {
+        // Given
+        UpstreamKeyPool pool = newPool(2);
+
+        // When
+        UpstreamKey first = pool.acquire();
+        UpstreamKey second = pool.acquire();
+
+        // Then
+        assertFalse(first == second);
+        pool.release(first);
+        pool.release(second);
+    }
+
+    @Test
+    public void testExhaustedAndRateLimitedKeysAreBenched() {
+        // Given
+        UpstreamKeyPool pool = newPool(3);
+        UpstreamKey exhausted = pool.getKeys().get(0);
+        UpstreamKey rateLimited = pool.getKeys().get(1);
+        HttpHeaders retryAfter = new HttpHeaders();
+        retryAfter.set(HttpHeaders.RETRY_AFTER, "20");
+
+        // When
+        pool.onResponse(exhausted, quota(0, 150000));
+        pool.onRejected(rateLimited, 429, retryAfter);
+
+        // Then
+        for (int i = 0; i < 10; i++) {
+            UpstreamKey key = pool.acquire();
+            assertSame(pool.getKeys().get(2), key);
+            pool.release(key);
+        }
+        Map<String, Object> stats = pool.getStats().get("key-2");
+        assertEquals("benched", stats.get("state"));
+        assertEquals(UpstreamKey.REASON_RATE_LIMITED, stats.get("bench_reason"));
+        assertTrue((Long) stats.get("benched_ms") > 19000);
+        assertEquals(UpstreamKey.REASON_EXHAUSTED, pool.getStats().get("key-1").get("bench_reason"));
+        assertEquals(1, pool.getActiveCount());
+    }
+
+    @Test
+    public void testKeyThatComesBackFirstIsUsedWhenAllAreBenched() {
+        // Given
+        UpstreamKeyPool pool = newPool(2);
+        pool.onRejected(pool.getKeys().get(0), 401, new HttpHeaders());
+        pool.onRejected(pool.getKeys().get(1), 429, new HttpHeaders());
+
+        // When
+        UpstreamKey key = pool.acquire();
+
+        // Then
+        assertFalse(pool.hasActiveKey());
+        assertSame(pool.getKeys().get(1), key);
+        assertEquals(1L, pool.getAllBenched());
+        pool.release(key);
+    }
+
+    @Test
+    public void testResetDurationsAreParsed() {
+        assertEquals(TimeUnit.MINUTES.toNanos(6), UpstreamKey.durationNanos("6m0s"));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), UpstreamKey.durationNanos("20ms"));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1500), UpstreamKey.durationNanos("1.5s"));
+        assertEquals(TimeUnit.SECONDS.toNanos(3723), UpstreamKey.durationNanos("1h2m3s"));
+        assertEquals(0L, UpstreamKey.durationNanos("soon"));
+        assertEquals(0L, UpstreamKey.durationNanos(null));
+    }
+}
@@ -0,0 +1,222 @@
+package org.example.easyocr.upstream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.impl.client.HttpClients;
+import org.example.easyocr.http.AbortableClientHttpRequestFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UpstreamRouterTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+    private final RestTemplate restTemplate = new RestTemplate(new AbortableClientHttpRequestFactory(HttpClients.createDefault()));
+
+    @AfterEach
+    public void tearDown() {
+        for (HttpServer server : servers) {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * A local stand-in for an upstream endpoint that answers every request with the given
+     * status and body after the given delay
+     */
+    private String stubServer(int status, String body, long delayMillis) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            try {
+                exchange.getRequestBody().readAllBytes();
+                Thread.sleep(delayMillis);
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            } catch (InterruptedException | IOException e) {
+                // The client aborted the request
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        servers.add(server);
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions";
+    }
+
+    private UpstreamRouter newRouter(boolean hedging, long openDurationMillis, String... urls) {
+        UpstreamEndpointProperties properties = new UpstreamEndpointProperties();
+        for (int i = 0; i < urls.length; i++) {
+            UpstreamEndpointProperties.Endpoint endpoint = new UpstreamEndpointProperties.Endpoint();
+            endpoint.setName("endpoint-" + i);
+            endpoint.setUrl(urls[i]);
+            endpoint.setKey("sk-test");
+            properties.getEndpoints().add(endpoint);
+        }
+        UpstreamRouter router = new UpstreamRouter(properties);
+        ReflectionTestUtils.setField(router, "defaultModel", "gpt-4o-mini");
+        ReflectionTestUtils.setField(router, "failureThreshold", 2);
+        ReflectionTestUtils.setField(router, "openDurationMillis", openDurationMillis);
+        ReflectionTestUtils.setField(router, "hedgingEnabled", hedging);
+        ReflectionTestUtils.setField(router, "hedgePercentile", 95.0);
+        ReflectionTestUtils.setField(router, "hedgeMinSamples", 20);
+        ReflectionTestUtils.setField(router, "hedgeMinDelayMillis", 50L);
+        ReflectionTestUtils.setField(router, "hedgeMaxDelayMillis", 100L);
+        router.start();
+        return router;
+    }
+
+    private String call(UpstreamRouter router, boolean hedgeable) {
+        return router.execute(endpoint -> restTemplate.postForObject(endpoint.getUrl(), "{}", String.class), hedgeable);
+    }
+
+    @Test
+    public void testSlowCallIsHedgedToAnotherEndpoint() throws IOException {
+        // Given
+        UpstreamRouter router = newRouter(true, 30000, stubServer(200, "slow", 3000), stubServer(200, "fast", 0));
+        // Make the fast endpoint look expensive so the slow one is picked first
+        router.getEndpoints().get(1).getLatencies().record(TimeUnit.SECONDS.toNanos(60));
+        long start = System.nanoTime();
+
+        // When
+        String result = call(router, true);
+
+        // Then
+        assertEquals("fast", result);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        Map<String, Object> stats = router.getStats();
+        assertEquals(1L, stats.get("hedged"));
+        assertEquals(1L, stats.get("hedges_won"));
+        router.stop();
+    }
+
+    @Test
+    public void testFailingEndpointIsTakenOutOfRotation() throws IOException {
+        // Given
+        UpstreamRouter router = newRouter(false, 30000, stubServer(500, "error", 0), stubServer(200, "ok", 0));
+        int succeeded = 0;
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            try {
+                call(router, false);
+                succeeded++;
+            } catch (HttpServerErrorException e) {
+                // Counted by the breaker
+            }
+        }
+
+        // Then
+        UpstreamEndpoint failing = router.getEndpoints().get(0);
+        assertEquals(CircuitBreaker.State.OPEN, failing.getBreaker().getState());
+        assertEquals(18, succeeded);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> failingStats = (Map<String, Object>) router.getStats().get("endpoint-0");
+        assertEquals("open", failingStats.get("state"));
+        assertEquals(2L, failingStats.get("calls"));
+        router.stop();
+    }
+
+    @Test
+    public void testAllBreakersOpenFailsFast() throws IOException {
+        // Given
+        UpstreamRouter router = newRouter(false, 30000, stubServer(503, "overloaded", 0));
+        assertThrows(HttpServerErrorException.class, () -> call(router, false));
+        assertThrows(HttpServerErrorException.class, () -> call(router, false));
+
+        // When / Then
+        assertThrows(UpstreamUnavailableException.class, () -> call(router, false));
+        assertEquals(1L, router.getStats().get("unavailable"));
+        router.stop();
+    }
+
+    @Test
+    public void testBreakerClosesAfterSuccessfulTrialCall() throws Exception {
+        // Given
+        UpstreamRouter router = newRouter(false, 100, stubServer(200, "ok", 0));
+        UpstreamEndpoint endpoint = router.getEndpoints().get(0);
+        endpoint.getBreaker().onFailure();
+        endpoint.getBreaker().onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, endpoint.getBreaker().getState());
+
+        // When
+        Thread.sleep(150);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, endpoint.getBreaker().getState());
+        String result = call(router, false);
+
+        // Then
+        assertEquals("ok", result);
+        assertEquals(CircuitBreaker.State.CLOSED, endpoint.getBreaker().getState());
+        router.stop();
+    }
+
+    @Test
+    public void testStreamWhoseClientWentAwayIsAbandoned() throws Exception {
+        // Given an endpoint that streams a long answer
+        CountDownLatch clientGone = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            byte[] chunk = "data: {\"choices\":[{\"delta\":{\"content\":\"word \"}}]}\n\n".getBytes(StandardCharsets.UTF_8);
+            try {
+                exchange.getRequestBody().readAllBytes();
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream out = exchange.getResponseBody();
+                for (int i = 0; i < 1_000_000; i++) {
+                    out.write(chunk);
+                }
+                out.close();
+            } catch (IOException e) {
+                clientGone.countDown();
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        servers.add(server);
+        UpstreamRouter router = newRouter(false, 30000, "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions");
+        ChatCompletionStreamReader reader = new ChatCompletionStreamReader(new ObjectMapper());
+
+        // When the listener can not pass the first piece on
+        assertThrows(StreamAbortedException.class, () -> router.execute(endpoint -> restTemplate.execute(endpoint.getUrl(),
+                HttpMethod.POST, null, response -> {
+                    try {
+                        return reader.read(response.getBody(), text -> {
+                            throw new IOException("Broken pipe");
+                        });
+                    } catch (StreamAbortedException e) {
+                        RequestAbortHandle.abortCurrent();
+                        throw e;
+                    }
+                }), false));
+
+        // Then the rest of the answer is not read, and the endpoint is not blamed for it
+        assertTrue(clientGone.await(5, TimeUnit.SECONDS));
+        UpstreamEndpoint endpoint = router.getEndpoints().get(0);
+        assertEquals(CircuitBreaker.State.CLOSED, endpoint.getBreaker().getState());
+        assertEquals(0L, endpoint.getStats().get("failures"));
+        assertEquals(0, endpoint.getStats().get("in_flight"));
+        router.stop();
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.easyocr.upstream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UpstreamThrottleTest {
+
+    private UpstreamThrottle newThrottle(long tokensPerMinute) {
+        UpstreamThrottle throttle = new UpstreamThrottle();
+        ReflectionTestUtils.setField(throttle, "requestsPerMinute", 6000L);
+        ReflectionTestUtils.setField(throttle, "tokensPerMinute", tokensPerMinute);
+        ReflectionTestUtils.setField(throttle, "imageTokens", 1000);
+        ReflectionTestUtils.setField(throttle, "maxQueueWaitMillis", 200L);
+        ReflectionTestUtils.setField(throttle, "maxAttempts", 3);
+        ReflectionTestUtils.setField(throttle, "initialBackoffMillis", 1L);
+        ReflectionTestUtils.setField(throttle, "maxBackoffMillis", 1000L);
+        ReflectionTestUtils.setField(throttle, "initialLimit", 8);
+        ReflectionTestUtils.setField(throttle, "minLimit", 1);
+        ReflectionTestUtils.setField(throttle, "maxLimit", 64);
+        ReflectionTestUtils.setField(throttle, "latencyThresholdMillis", 30000L);
+        throttle.start();
+        return throttle;
+    }
+
+    @Test
+    public void testOverloadIsRetriedAndHalvesTheConcurrencyLimit() {
+        // Given
+        UpstreamThrottle throttle = newThrottle(0);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When
+        String result = throttle.execute(100, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE, "Service Unavailable", new HttpHeaders(), null, null);
+            }
+            return "ok";
+        });
+
+        // Then
+        assertEquals("ok", result);
+        assertEquals(2, attempts.get());
+        assertEquals(4, throttle.getStats().get("concurrency_limit"));
+        assertEquals(1L, throttle.getStats().get("retries"));
+        assertEquals(0, throttle.getStats().get("in_flight"));
+    }
+
+    @Test
+    public void testRateLimitHonorsRetryAfter() {
+        // Given
+        UpstreamThrottle throttle = newThrottle(0);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "0.2");
+        AtomicInteger attempts = new AtomicInteger();
+        long start = System.nanoTime();
+
+        // When
+        throttle.execute(100, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", headers, null, null);
+            }
+            return "ok";
+        });
+
+        // Then
+        assertTrue(System.nanoTime() - start >= 200_000_000L);
+        assertEquals(1L, throttle.getStats().get("rate_limited"));
+    }
+
+    @Test
+    public void testClientErrorsAreNotRetried() {
+        // Given
+        UpstreamThrottle throttle = newThrottle(0);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // When
+        assertThrows(HttpClientErrorException.class, () -> throttle.execute(100, () -> {
+            attempts.incrementAndGet();
+            throw HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Bad Request", new HttpHeaders(), null, null);
+        }));
+
+        // Then
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void testTokenLimitQueuesAndRejectsAfterMaxWait() {
+        // Given: a bucket that holds exactly one request and refills in a minute
+        UpstreamThrottle throttle = newThrottle(6000);
+        throttle.execute(6000, () -> "first");
+
+        // When, Then
+        assertThrows(UpstreamThrottledException.class, () -> throttle.execute(6000, () -> "second"));
+        assertEquals(1L, throttle.getStats().get("rejected"));
+    }
+
+    @Test
+    public void testRetryAfterFormats() {
+        HttpHeaders seconds = new HttpHeaders();
+        seconds.set(HttpHeaders.RETRY_AFTER, "2");
+        assertEquals(2000, UpstreamThrottle.retryAfterMillis(seconds));
+
+        HttpHeaders date = new HttpHeaders();
+        date.set(HttpHeaders.RETRY_AFTER, DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now().plusSeconds(30)));
+        long millis = UpstreamThrottle.retryAfterMillis(date);
+        assertTrue(millis > 28_000 && millis <= 30_000);
+
+        assertEquals(0, UpstreamThrottle.retryAfterMillis(new HttpHeaders()));
+    }
+}